@@ -1,5 +1,7 @@
 package absyn;
 
+import translation.Block;
+import types.CodeSignature;
 import types.Type;
 import bytecode.AND;
 import bytecode.BinOpBytecode;
@@ -39,4 +41,22 @@ public class And extends BooleanBinOp {
 		return new AND();
 	}
 
+	/**
+	 * Translates this expression into a test, with short-circuit evaluation:
+	 * the right-hand side is evaluated only if the left-hand side holds.
+	 *
+	 * @param code the test where this expression occurs, if any
+	 * @param yes the continuation that is the <i>yes</i> destination
+	 * @param no the continuation that is the <i>no</i> destination
+	 * @return the code that evaluates this expression and, on the basis
+	 *         of its {@code boolean} value, routes the computation to {@code yes} or {@code no}
+	 */
+
+	@Override
+	public Block translateAsTest(CodeSignature code, Block yes, Block no) {
+		// both sides might route the computation to no: we avoid duplicating it
+		no.doNotMerge();
+
+		return getLeft().translateAsTest(code, getRight().translateAsTest(code, yes, no), no);
+	}
 }
\ No newline at end of file
@@ -5,7 +5,6 @@ import java.io.FileWriter;
 import semantical.TypeChecker;
 import translation.Block;
 import types.ArrayType;
-import types.CodeSignature;
 import types.Type;
 import bytecode.ARRAYLOAD;
 import bytecode.ARRAYSTORE;
@@ -168,10 +167,4 @@ public class ArrayAccess extends Lvalue {
 	public Block translateAfterAssignment(Block continuation) {
 		return new ARRAYSTORE(getStaticType()).followedBy(continuation);
 	}
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
\ No newline at end of file
@@ -1,8 +1,11 @@
 package absyn;
 
 import semantical.TypeChecker;
+import translation.Block;
 import types.BooleanType;
+import types.CodeSignature;
 import types.Type;
+import bytecode.CONST;
 
 /**
  * A node of abstract syntax representing a Boolean binary operation
@@ -44,4 +47,36 @@ public abstract class BooleanBinOp extends BinOp {
 
 		return BooleanType.INSTANCE;
 	}
+
+	/**
+	 * Translates this expression into its intermediate Kitten code.
+	 * The value is computed through {@link #translateAsTest(CodeSignature, Block, Block)},
+	 * hence the right-hand side is evaluated only if it is needed, as in a test.
+	 *
+	 * @param continuation the code executed after this expression
+	 * @return the code that evaluates this expression and continues
+	 *         with {@code continuation}
+	 */
+
+	@Override
+	public final Block translate(Block continuation) {
+		// we avoid duplicating the continuation for each of the two values
+		continuation.doNotMerge();
+
+		return translateAsTest(null, new CONST(true).followedBy(continuation), new CONST(false).followedBy(continuation));
+	}
+
+	/**
+	 * Translates this expression into a test, with short-circuit evaluation.
+	 * No intermediate {@code boolean} value is computed for the two sides.
+	 *
+	 * @param code the test where this expression occurs, if any
+	 * @param yes the continuation that is the <i>yes</i> destination
+	 * @param no the continuation that is the <i>no</i> destination
+	 * @return the code that evaluates this expression and, on the basis
+	 *         of its {@code boolean} value, routes the computation to {@code yes} or {@code no}
+	 */
+
+	@Override
+	public abstract Block translateAsTest(CodeSignature code, Block yes, Block no);
 }
\ No newline at end of file
@@ -4,7 +4,6 @@ import java.io.FileWriter;
 
 import semantical.TypeChecker;
 import translation.Block;
-import types.CodeSignature;
 import types.NumericalType;
 import types.ReferenceType;
 import types.Type;
@@ -145,10 +144,4 @@ public class Cast extends Expression {
     		return expression.translate
    				(new CAST((ReferenceType) fromType, (ReferenceType) intoType).followedBy(continuation));
     }
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
\ No newline at end of file
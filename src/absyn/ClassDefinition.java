@@ -4,14 +4,11 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.HashSet;
-import java.util.Set;
 
 import translation.Program;
 import types.ClassMemberSignature;
 import types.ClassType;
-import types.FixtureSignature;
 import types.MethodSignature;
-import types.TestSignature;
 import types.TypeList;
 
 /**
@@ -191,31 +188,18 @@ public class ClassDefinition extends Absyn {
 
     /**
      * Translates this class definition into intermediate Kitten code.
-     * Only the methods reachable from {@code main} are compiled, if any.
+     * Only the class members reachable from {@code main}, if any, and from the
+     * tests and fixtures of this class are compiled. They are translated while
+     * the program computes its reachable class members.
      *
      * @return the program reachable from the {@code main} method of the class compiled by Kitten
      */
 
     public Program translate() {
-    	Set<ClassMemberSignature> done = new HashSet<>();
-    	
-    	for (FixtureSignature fix : staticType.getFixture()) {
-    		fix.getAbstractSyntax().translate(done);
-		}
-    	
-    	for (Set<TestSignature> tests : staticType.getTest().values()) {
-			for (TestSignature test : tests) {
-				test.getAbstractSyntax().translate(done);
-			}
-		}
-
     	// we look up for the main method, if any
     	MethodSignature main = staticType.methodLookup("main", TypeList.EMPTY);
 
-    	// we translate everything that is reachable from the main method of this class (if any)
-    	if (main != null)
-    		main.getAbstractSyntax().translate(done);
-
-    	return new Program(done, main, staticType.getTest(), staticType.getFixture());
+    	// we translate everything that is reachable from the fixtures, the tests and the main method of this class
+    	return new Program(new HashSet<ClassMemberSignature>(), main, staticType.getTest(), staticType.getFixture());
     }
 }
\ No newline at end of file
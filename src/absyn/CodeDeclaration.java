@@ -1,22 +1,11 @@
 package absyn;
 
-import java.util.HashSet;
-import java.util.Set;
-
-
-
 import translation.Block;
-import types.ClassMemberSignature;
 import types.CodeSignature;
 import types.NilType;
 import types.TestSignature;
 import types.VoidType;
-import bytecode.Bytecode;
-import bytecode.BytecodeList;
-import bytecode.CALL;
 import bytecode.CONST;
-import bytecode.GETFIELD;
-import bytecode.PUTFIELD;
 import bytecode.RETURN;
 
 /**
@@ -112,12 +101,12 @@ public abstract class CodeDeclaration extends ClassMemberDeclaration {
      * This amounts to translating its body with a continuation containing
      * a {@code return} bytecode. This way, if a method does not have an
      * explicit {@code return} statement, it is automatically put at its end.
-     *
-     * @param done the set of code signatures that have been already translated
+     * The class members referenced from the code are translated later,
+     * when a {@link translation.Reachability} reaches them.
      */
 
-    public void translate(Set<ClassMemberSignature> done) {
-    	if (done.add(sig)) {
+    public void translate() {
+    	if (sig.getCode() == null) {
     		// we translate the body of the constructor or
     		// method with a block containing RETURN as continuation. This way,
     		// all methods returning void and
@@ -134,41 +123,6 @@ public abstract class CodeDeclaration extends ClassMemberDeclaration {
     		}else{
     			sig.setCode(getBody().translate(new Block(new RETURN(VoidType.INSTANCE))));
     		}
-    		// we translate all methods and constructors that are referenced
-    		// from the code we have generated
-    		
-    		translateReferenced(sig.getCode(), done, new HashSet<Block>());
     	}
     }
-
-    /**
-     * Auxiliary method that translates into Kitten bytecode all class members that are
-     * referenced from the given block and the blocks reachable from it.
-     *
-     * @param block the block
-     * @param done the class member signatures already translated
-     * @param blocksDone the blocks that have been already processed
-     */
-
-    private void translateReferenced(Block block, Set<ClassMemberSignature> done, Set<Block> blocksDone) {
-    	// if we already processed the block, we return immediately
-    	if (!blocksDone.add(block))
-    		return;
-    	
-    	for (BytecodeList cursor = block.getBytecode(); cursor != null; cursor = cursor.getTail()) {
-    		Bytecode h = cursor.getHead();
-
-    		if (h instanceof GETFIELD)
-    			done.add(((GETFIELD) h).getField());
-    		else if (h instanceof PUTFIELD)
-    			done.add(((PUTFIELD) h).getField());
-    		else if (h instanceof CALL)
-    			for (CodeSignature callee: ((CALL) h).getDynamicTargets())
-    				callee.getAbstractSyntax().translate(done);
-    	}
-
-    	// we continue with the following blocks
-    	for (Block follow: block.getFollows())
-    		translateReferenced(follow, done, blocksDone);
-    }
 }
\ No newline at end of file
@@ -97,6 +97,18 @@ public abstract class Command extends Absyn {
 		return this.checker = checker = typeCheckAux(this.checker = checker);
 	}
 
+	/**
+	 * Records the type-checker of this command, as {@link #typeCheck(TypeChecker)} does.
+	 * This is used by the commands that type-check their components without calling
+	 * {@link #typeCheck(TypeChecker)} on them.
+	 *
+	 * @param checker the type-checker
+	 */
+
+	final void setTypeChecker(TypeChecker checker) {
+		this.checker = checker;
+	}
+
 	/**
 	 * Performs the type-checking of this command by using a given type-checker.
 	 *
@@ -130,8 +142,21 @@ public abstract class Command extends Absyn {
 	 * @return the code executing this command
 	 */
 	public abstract Block translate(Block continuation);
-	
-	public abstract Block translate(CodeSignature code, Block continuation);
+
+	/**
+	 * Translates this command into intermediate Kitten bytecode, as part of the
+	 * code of a test. By default, this is the same as {@link #translate(Block)}.
+	 * The commands that contain other commands redefine it, since an assertion
+	 * might occur inside them.
+	 *
+	 * @param code the test where this command occurs, if any
+	 * @param continuation the code to be executed after this command
+	 * @return the code executing this command
+	 */
+
+	public Block translate(CodeSignature code, Block continuation) {
+		return translate(continuation);
+	}
 
 	/**
 	 * Outputs an error message to the user, by using the type-checker
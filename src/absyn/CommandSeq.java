@@ -1,8 +1,8 @@
 package absyn;
 
 import java.io.FileWriter;
-
-
+import java.util.ArrayList;
+import java.util.List;
 
 import semantical.TypeChecker;
 import translation.Block;
@@ -11,6 +11,10 @@ import types.CodeSignature;
 /**
  * A node of abstract syntax representing a sequence of two commands.
  * Local declarations are not visible after the sequence.
+ * <br><br>
+ * The parser nests the sequences of many commands inside their second command.
+ * Such nested sequences are processed in a loop rather than recursively, so that
+ * very long methods do not exhaust the stack of the Java Virtual Machine.
  *
  * @author <A HREF="mailto:fausto.spoto@univr.it">Fausto Spoto</A>
  */
@@ -60,6 +64,21 @@ public class CommandSeq extends Command {
 		linkToNode("second", second.toDot(where), where);
 	}
 
+	/**
+	 * Yields this sequence and the sequences nested inside its second command,
+	 * inside their second command and so on.
+	 *
+	 * @return the sequences, from the outermost. The second command of the last one is not a sequence
+	 */
+
+	private List<CommandSeq> chain() {
+		List<CommandSeq> chain = new ArrayList<>();
+		for (Command command = this; command instanceof CommandSeq; command = ((CommandSeq) command).second)
+			chain.add((CommandSeq) command);
+
+		return chain;
+	}
+
 	/**
 	 * Performs the type-checking of the sequence of two commands
 	 * by using a given type-checker. It type-checks the second command in
@@ -72,7 +91,23 @@ public class CommandSeq extends Command {
 
 	@Override
 	protected TypeChecker typeCheckAux(TypeChecker checker) {
-		return second.typeCheck(first.typeCheck(checker));
+		List<CommandSeq> chain = chain();
+
+		for (CommandSeq seq: chain) {
+			// the nested sequences record their type-checker as if they were type-checked on their own
+			if (seq != this)
+				seq.setTypeChecker(checker);
+
+			checker = seq.first.typeCheck(checker);
+		}
+
+		checker = chain.get(chain.size() - 1).second.typeCheck(checker);
+
+		for (CommandSeq seq: chain)
+			if (seq != this)
+				seq.setTypeChecker(checker);
+
+		return checker;
 	}
 
 	/**
@@ -87,10 +122,13 @@ public class CommandSeq extends Command {
 
 	@Override
 	public boolean checkForDeadcode() {
-		if (first.checkForDeadcode())
-			error("dead-code after this statement");
+		List<CommandSeq> chain = chain();
+
+		for (CommandSeq seq: chain)
+			if (seq.first.checkForDeadcode())
+				seq.error("dead-code after this statement");
 
-		return second.checkForDeadcode();
+		return chain.get(chain.size() - 1).second.checkForDeadcode();
 	}
 
 	/**
@@ -104,14 +142,24 @@ public class CommandSeq extends Command {
 
 	@Override
 	public Block translate(Block continuation) {
-		Block con2 = second.translate(continuation);
-		
-		return first.translate(con2);
+		List<CommandSeq> chain = chain();
+
+		// the code is translated backwards, from the last command
+		Block result = chain.get(chain.size() - 1).second.translate(continuation);
+		for (int pos = chain.size() - 1; pos >= 0; pos--)
+			result = chain.get(pos).first.translate(result);
+
+		return result;
 	}
 
 	@Override
 	public Block translate(CodeSignature code, Block continuation) {
-		
-		return first.translate(code,second.translate(code,continuation));
+		List<CommandSeq> chain = chain();
+
+		Block result = chain.get(chain.size() - 1).second.translate(code, continuation);
+		for (int pos = chain.size() - 1; pos >= 0; pos--)
+			result = chain.get(pos).first.translate(code, result);
+
+		return result;
 	}
 }
\ No newline at end of file
@@ -188,8 +188,21 @@ public abstract class Expression extends Absyn {
 	 *         with {@code continuation}
 	 */
 	public abstract Block translate(Block continuation);
-	
-	public abstract Block translate(CodeSignature code, Block continuation);
+
+	/**
+	 * Translates this expression into its intermediate Kitten code, as part of the
+	 * code of a test. Expressions contain no assertion, hence their translation
+	 * does not depend on the code where they occur.
+	 *
+	 * @param code the test where this expression occurs, if any
+	 * @param continuation the code executed after this expression
+	 * @return the code which evaluates this expression and continues
+	 *         with {@code continuation}
+	 */
+
+	public Block translate(CodeSignature code, Block continuation) {
+		return translate(continuation);
+	}
 
 	/**
 	 * Translates this expression by requiring that it leaves onto the
@@ -57,9 +57,18 @@ public class False extends Literal {
 		return new CONST(false).followedBy(continuation);
 	}
 
+	/**
+	 * Translates this expression into a test. Since its value is always <i>false</i>,
+	 * the computation is routed to the <i>no</i> destination, with no test at all.
+	 *
+	 * @param code the test where this expression occurs, if any
+	 * @param yes the continuation that is the <i>yes</i> destination
+	 * @param no the continuation that is the <i>no</i> destination
+	 * @return {@code no}
+	 */
+
 	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
+	public Block translateAsTest(CodeSignature code, Block yes, Block no) {
+		return no;
 	}
 }
\ No newline at end of file
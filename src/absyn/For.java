@@ -158,6 +158,20 @@ public class For extends Command {
 
     @Override
     public Block translate(Block continuation) {
+    	return translate(null, continuation);
+    }
+
+    /**
+     * Translates this command into intermediate Kitten bytecode, as part of the
+     * code of a test. The components of the loop are translated as part of the same code.
+     *
+     * @param code the test where this command occurs, if any
+     * @param continuation the continuation to be executed after this command
+     * @return the code executing this command and then {@code continuation}
+     */
+
+    @Override
+    public Block translate(CodeSignature code, Block continuation) {
 
     	/* The idea is to translate a for command into the code
 
@@ -175,19 +189,13 @@ public class For extends Command {
     	// Otherwise we execute what follows this command. This code will be
     	// used to translate the initialisation component
     	Block test = condition.translateAsTest
-   			(null, body.translate(update.translate(pivot)), continuation);
+   			(code, body.translate(code, update.translate(code, pivot)), continuation);
 
     	test.doNotMerge();
 
     	// we link the pivot to the code for the test, so that we close the loop
     	pivot.linkTo(test);
 
-    	return initialisation.translate(test);
+    	return initialisation.translate(code, test);
     }
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
\ No newline at end of file
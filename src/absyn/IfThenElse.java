@@ -2,8 +2,6 @@ package absyn;
 
 import java.io.FileWriter;
 
-import javax.swing.JOptionPane;
-
 import semantical.TypeChecker;
 import translation.Block;
 import types.CodeSignature;
@@ -164,6 +162,21 @@ public class IfThenElse extends Command {
 
 	@Override
 	public Block translate(Block continuation) {
+		return translate(null, continuation);
+	}
+
+	/**
+	 * Translates this command into intermediate Kitten bytecode, as part of the
+	 * code of a test. Both branches are translated as part of the same code.
+	 *
+	 * @param code the test where this command occurs, if any
+	 * @param continuation the continuation to be executed after this command
+	 * @return the code executing this command and then
+	 *         the {@code continuation}
+	 */
+
+	@Override
+	public Block translate(CodeSignature code, Block continuation) {
 		// by making the continuation unmergeable with whatever we
 		// prefix to it, we avoid duplicating it in the then and
 		// else branch. This is just an optimisation!
@@ -172,20 +185,6 @@ public class IfThenElse extends Command {
 		continuation.doNotMerge();
 		// we compile the condition by using, as yes and no continuations,
 		// the translations of the "then" and "_else" components
-		return condition.translateAsTest(null,then.translate(continuation), _else.translate(continuation));
-	}
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// by making the continuation unmergeable with whatever we
-				// prefix to it, we avoid duplicating it in the then and
-				// else branch. This is just an optimisation!
-				// Try removing this line: everything will work, but the code will be larger
-				
-				continuation.doNotMerge();
-				JOptionPane.showMessageDialog(null, condition.getClass());
-				// we compile the condition by using, as yes and no continuations,
-				// the translations of the "then" and "_else" components
-				return condition.translateAsTest(code,then.translate(continuation), _else.translate(continuation));
+		return condition.translateAsTest(code, then.translate(code, continuation), _else.translate(code, continuation));
 	}
 }
\ No newline at end of file
@@ -2,7 +2,6 @@ package absyn;
 
 import semantical.TypeChecker;
 import translation.Block;
-import types.CodeSignature;
 import types.IntType;
 import types.Type;
 import bytecode.CONST;
@@ -87,10 +86,4 @@ public class IntLiteral extends Literal {
 	public Block translate(Block continuation) {
 		return new CONST(value).followedBy(continuation);
 	}
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
\ No newline at end of file
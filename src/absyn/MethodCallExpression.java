@@ -6,7 +6,6 @@ import java.util.Set;
 import semantical.TypeChecker;
 import translation.Block;
 import types.ClassType;
-import types.CodeSignature;
 import types.MethodSignature;
 import types.Type;
 import types.TypeList;
@@ -212,10 +211,4 @@ public class MethodCallExpression extends Expression {
 		// we translate the receiver of the call
 		return receiver.translate(continuation);
 	}
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
\ No newline at end of file
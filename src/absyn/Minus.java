@@ -4,7 +4,6 @@ import java.io.FileWriter;
 
 import semantical.TypeChecker;
 import translation.Block;
-import types.CodeSignature;
 import types.FloatType;
 import types.IntType;
 import types.Type;
@@ -97,10 +96,4 @@ public class Minus extends Expression {
 	public Block translate(Block continuation) {
 		return expression.translate(new NEG(IntType.INSTANCE).followedBy(continuation));
 	}
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
\ No newline at end of file
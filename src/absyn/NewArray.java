@@ -5,7 +5,6 @@ import java.io.FileWriter;
 import semantical.TypeChecker;
 import translation.Block;
 import types.ArrayType;
-import types.CodeSignature;
 import types.Type;
 import bytecode.NEWARRAY;
 
@@ -117,10 +116,4 @@ public class NewArray extends Expression {
 	public Block translate(Block continuation) {
 		return size.translate(new NEWARRAY(elementsType.getStaticType()).followedBy(continuation));
 	}
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
\ No newline at end of file
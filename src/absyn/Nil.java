@@ -2,7 +2,6 @@ package absyn;
 
 import semantical.TypeChecker;
 import translation.Block;
-import types.CodeSignature;
 import types.NilType;
 import types.Type;
 import bytecode.CONST;
@@ -54,10 +53,4 @@ public class Nil extends Literal {
 	public Block translate(Block continuation) {
 		return new CONST().followedBy(continuation);
 	}
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
\ No newline at end of file
@@ -97,9 +97,20 @@ public class Not extends Expression {
 		return expression.translate(new NEG(BooleanType.INSTANCE).followedBy(continuation));
 	}
 
+	/**
+	 * Translates this expression into a test. This is the test for the
+	 * {@link #expression} that is negated, with its destinations swapped.
+	 * Hence no {@code neg} bytecode is needed.
+	 *
+	 * @param code the test where this expression occurs, if any
+	 * @param yes the continuation that is the <i>yes</i> destination
+	 * @param no the continuation that is the <i>no</i> destination
+	 * @return the code that evaluates the negated expression and, on the basis
+	 *         of its {@code boolean} value, routes the computation to {@code no} or {@code yes}
+	 */
+
 	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
+	public Block translateAsTest(CodeSignature code, Block yes, Block no) {
+		return expression.translateAsTest(code, no, yes);
 	}
 }
\ No newline at end of file
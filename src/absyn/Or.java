@@ -1,6 +1,8 @@
 package absyn;
 
 
+import translation.Block;
+import types.CodeSignature;
 import types.Type;
 import bytecode.BinOpBytecode;
 import bytecode.OR;
@@ -40,4 +42,22 @@ public class Or extends BooleanBinOp {
 		return new OR();
 	}
 
+	/**
+	 * Translates this expression into a test, with short-circuit evaluation:
+	 * the right-hand side is evaluated only if the left-hand side does not hold.
+	 *
+	 * @param code the test where this expression occurs, if any
+	 * @param yes the continuation that is the <i>yes</i> destination
+	 * @param no the continuation that is the <i>no</i> destination
+	 * @return the code that evaluates this expression and, on the basis
+	 *         of its {@code boolean} value, routes the computation to {@code yes} or {@code no}
+	 */
+
+	@Override
+	public Block translateAsTest(CodeSignature code, Block yes, Block no) {
+		// both sides might route the computation to yes: we avoid duplicating it
+		yes.doNotMerge();
+
+		return getLeft().translateAsTest(code, yes, getRight().translateAsTest(code, yes, no));
+	}
 }
\ No newline at end of file
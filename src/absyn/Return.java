@@ -4,7 +4,6 @@ import java.io.FileWriter;
 
 import semantical.TypeChecker;
 import translation.Block;
-import types.CodeSignature;
 import types.Type;
 import types.VoidType;
 import bytecode.RETURN;
@@ -133,10 +132,4 @@ public class Return extends Command {
 
 		return continuation;
 	}
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
\ No newline at end of file
@@ -2,7 +2,6 @@ package absyn;
 
 import semantical.TypeChecker;
 import translation.Block;
-import types.CodeSignature;
 
 /**
  * A node of abstract syntax representing a skip command.
@@ -62,10 +61,4 @@ public class Skip extends Command {
 	public Block translate(Block continuation) {
 		return continuation;
 	}
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
\ No newline at end of file
@@ -3,7 +3,6 @@ package absyn;
 import semantical.TypeChecker;
 import translation.Block;
 import types.ClassType;
-import types.CodeSignature;
 import types.Type;
 import bytecode.NEWSTRING;
 
@@ -98,10 +97,4 @@ public class StringLiteral extends Literal {
 	public Block translate(Block continuation) {
 		return new NEWSTRING(value).followedBy(continuation);
 	}
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
\ No newline at end of file
@@ -55,9 +55,18 @@ public class True extends Literal {
 		return new CONST(true).followedBy(continuation);
 	}
 
+	/**
+	 * Translates this expression into a test. Since its value is always <i>true</i>,
+	 * the computation is routed to the <i>yes</i> destination, with no test at all.
+	 *
+	 * @param code the test where this expression occurs, if any
+	 * @param yes the continuation that is the <i>yes</i> destination
+	 * @param no the continuation that is the <i>no</i> destination
+	 * @return {@code yes}
+	 */
+
 	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
+	public Block translateAsTest(CodeSignature code, Block yes, Block no) {
+		return yes;
 	}
 }
\ No newline at end of file
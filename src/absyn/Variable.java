@@ -4,7 +4,6 @@ import java.io.FileWriter;
 
 import semantical.TypeChecker;
 import translation.Block;
-import types.CodeSignature;
 import types.Type;
 import bytecode.LOAD;
 import bytecode.STORE;
@@ -136,10 +135,4 @@ public class Variable extends Lvalue {
 	public Block translateAfterAssignment(Block continuation) {
 		return new STORE(getVarNum(), getStaticType()).followedBy(continuation);
 	}
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
\ No newline at end of file
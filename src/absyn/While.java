@@ -128,6 +128,20 @@ public class While extends Command {
 
 	@Override
 	public Block translate(Block continuation) {
+		return translate(null, continuation);
+	}
+
+	/**
+	 * Translates this command into intermediate Kitten bytecode, as part of the
+	 * code of a test. The body of the loop is translated as part of the same code.
+	 *
+	 * @param code the test where this command occurs, if any
+	 * @param continuation the continuation to be executed after this command
+	 * @return the code executing this command and then the {@code continuation}
+	 */
+
+	@Override
+	public Block translate(CodeSignature code, Block continuation) {
 		/* The idea is to translate a while command into the code
 
 	    condition -> (no) continuation
@@ -141,7 +155,7 @@ public class While extends Command {
 
 		// we translate the condition of the loop. If the condition is true, we execute
 		// the translation of the body. Otherwise we execute what follows this command
-		Block result = condition.translateAsTest(null, body.translate(pivot), continuation);
+		Block result = condition.translateAsTest(code, body.translate(code, pivot), continuation);
 
 		result.doNotMerge();
 
@@ -150,10 +164,4 @@ public class While extends Command {
 
 		return result;
 	}
-
-	@Override
-	public Block translate(CodeSignature code, Block continuation) {
-		// TODO Auto-generated method stub
-		return null;
-	}
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionList;
 
+import types.FloatType;
 import types.NumericalType;
 
 /**
@@ -34,4 +37,15 @@ public class ADD extends ArithmeticBinOpBytecode {
 
 		return il;
 	}
+
+	/**
+	 * Writes an {@code iadd} or {@code fadd} Java bytecode, depending on the type of the operands.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.op(getType() == FloatType.INSTANCE ? Constants.FADD : Constants.IADD, -1);
+	}
 }
\ No newline at end of file
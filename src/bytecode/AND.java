@@ -1,7 +1,9 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionList;
 
 /**
@@ -26,4 +28,15 @@ public class AND extends BooleanBinOpBytecode {
 	public InstructionList generateJavaBytecode(JavaClassGenerator classGen) {
 		return new InstructionList(new org.apache.bcel.generic.IAND());
 	}
+
+	/**
+	 * Writes an {@code iand} Java bytecode.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.op(Constants.IAND, -1);
+	}
 }
\ No newline at end of file
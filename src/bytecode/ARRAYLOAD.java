@@ -1,5 +1,6 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.generic.InstructionFactory;
@@ -65,4 +66,15 @@ public class ARRAYLOAD extends SequentialBytecode {
 		// we use the instruction factory to simplify the choice among more possible Java bytecodes
 		return new InstructionList(InstructionFactory.createArrayLoad(type.toBCEL()));
 	}
+
+	/**
+	 * Writes the Java bytecode that loads an element of an array of {@link #type}.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.arrayLoad(type);
+	}
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.generic.InstructionFactory;
@@ -65,4 +66,15 @@ public class ARRAYSTORE extends SequentialBytecode {
 		// we use the instruction factory to simplify the choice among the possible Java bytecodes
 		return new InstructionList(InstructionFactory.createArrayStore(type.toBCEL()));
 	}
+
+	/**
+	 * Writes the Java bytecode that stores an element into an array of {@link #type}.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.arrayStore(type);
+	}
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.generic.InstructionHandle;
@@ -54,6 +55,26 @@ public abstract class BranchingBytecode extends Bytecode implements NonCallingBy
 		return il;
 	}
 
+	/**
+	 * Generates the Java bytecode that checks the condition expressed by this
+	 * bytecode and goes to {@code yes} if the check is satisfied. Otherwise, the
+	 * computation continues with the Java bytecode that follows.
+	 *
+	 * @param classGen the Java class generator to be used for this code generation
+	 * @param yes the target if the check is satisfied
+	 * @return the Java bytecode that checks the condition expressed by this bytecode and
+	 *         goes to {@code yes} if that check is satisfied
+	 */
+
+	public final InstructionList generateJavaBytecode(JavaClassGenerator classGen, InstructionHandle yes) {
+		InstructionList il = new InstructionList();
+
+		// builds the instructions that go to yes if the test is true
+		generateJavaBytecodeAux(il, classGen, yes);
+
+		return il;
+	}
+
 	/**
 	 * Auxiliary method that adds to the given list of instructions the code that goes
 	 * to {@code yes} if the outcome of the test expressed by this branching bytecode is true.
@@ -65,4 +86,15 @@ public abstract class BranchingBytecode extends Bytecode implements NonCallingBy
 	 */
 
 	protected abstract void generateJavaBytecodeAux(InstructionList il, JavaClassGenerator classGen, InstructionHandle yes);
+
+	/**
+	 * Writes the Java bytecode that checks the condition expressed by this bytecode
+	 * directly into the code of a method, and goes to {@code yes} if the check is satisfied.
+	 * Otherwise, the computation continues with the Java bytecode that follows.
+	 *
+	 * @param writer the writer of the code of the method
+	 * @param yes the target if the check is satisfied
+	 */
+
+	public abstract void writeJavaBytecode(CodeWriter writer, CodeWriter.Label yes);
 }
\ No newline at end of file
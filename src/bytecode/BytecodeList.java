@@ -1,5 +1,7 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
+import javaBytecodeGenerator.Concatenations;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.generic.InstructionList;
@@ -70,7 +72,8 @@ public class BytecodeList {
 
     /**
      * Computes the concatenation of this list of bytecodes and another. Intermediate
-     * {@code nop} instructions are removed.
+     * {@code nop} instructions are removed. This costs time linear in the length of
+     * this list, which is copied, while {@code other} is shared.
      *
      * @param other the list of bytecodes that must be appended after this
      * @return the result of the concatenation of this list of bytecodes with {@code other}.
@@ -78,55 +81,85 @@ public class BytecodeList {
      */
 
     public BytecodeList append(BytecodeList other) {
+    	other = skipNOPs(other);
     	if (other == null)
     		return this;
-    	else if (other.head instanceof NOP)
-    		return append(other.tail);
-    	else if (tail == null)
-    		return new BytecodeList(head, other);
-    	else
-    		return new BytecodeList(head, tail.append(other));
+    	else {
+    		// we copy this list from its end, without recursion, so that also very long lists can be appended
+    		int length = 0;
+    		for (BytecodeList cursor = this; cursor != null; cursor = cursor.tail)
+    			length++;
+
+    		Bytecode[] heads = new Bytecode[length];
+    		length = 0;
+    		for (BytecodeList cursor = this; cursor != null; cursor = cursor.tail)
+    			heads[length++] = cursor.head;
+
+    		BytecodeList result = other;
+    		while (length > 0)
+    			result = new BytecodeList(heads[--length], result);
+
+    		return result;
+    	}
+    }
+
+    /**
+     * Yields the longest suffix of a list of bytecodes that does not start with {@code nop}.
+     *
+     * @param bytecode the list. It can be {@code null}
+     * @return the suffix, possibly {@code null}
+     */
+
+    public static BytecodeList skipNOPs(BytecodeList bytecode) {
+    	while (bytecode != null && bytecode.head instanceof NOP)
+    		bytecode = bytecode.tail;
+
+    	return bytecode;
     }
 
     @Override
     public String toString() {
-    	String s = head.toString();
-    	if (s.length() > 100)
-    		s = s.substring(0,100) + "...";
+    	StringBuilder result = new StringBuilder();
+
+    	for (BytecodeList cursor = this; cursor != null; cursor = cursor.tail) {
+    		String s = cursor.head.toString();
+    		if (s.length() > 100)
+    			s = s.substring(0,100) + "...";
 
-    	if (tail != null)
-    		// if some bytecode yields the empty string, we do no print a new linbe.
+    		result.append(s);
+
+    		// if some bytecode yields the empty string, we do no print a new line.
     		// This can be useful for bytecodes that disappear from the print-out
-    		if (s.length() > 0)
-    			return s + "\n" + tail.toString();
-    		else
-    			return tail.toString();
-    	else
-    		return s;
+    		if (cursor.tail != null && s.length() > 0)
+    			result.append('\n');
+    	}
+
+    	return result.toString();
     }
 
     /**
      * Generates the Java bytecode corresponding to this list of bytecodes.
      * This just calls {@code bytecode.NonBranchingBytecode.generateJavaBytecode(JavaClassGenerator)} on each
-     * non-branching bytecode in the list and appends the results.
+     * non-branching bytecode in the list and appends the results. The chains of
+     * concatenations of strings are generated as a single concatenation (see
+     * {@link javaBytecodeGenerator.Concatenations}).
      *
      * @param classGen the Java class generator to be used for this generation
      * @return the Java bytecode corresponding to this list of bytecodes
      */
 
     public InstructionList generateJavaBytecode(JavaClassGenerator classGen) {
-    	InstructionList result;
-
-    	if (head instanceof NonBranchingBytecode)
-    		// we generate the Java bytecode for the first bytecode
-    		// if it is not a condition of a branch
-    		result = ((NonBranchingBytecode) head).generateJavaBytecode(classGen);
-    	else
-    		result = new InstructionList();
-
-    	// and for its followers, if any
-    	if (tail != null)
-    		result.append(tail.generateJavaBytecode(classGen));
+    	InstructionList result = new InstructionList();
+    	Concatenations chains = new Concatenations(this);
+    	int pos = 0;
+
+    	for (BytecodeList cursor = this; cursor != null; cursor = cursor.tail, pos++)
+    		// we generate the Java bytecode for each bytecode
+    		// that is not a condition of a branch
+    		if (chains.isContinuing(pos) || chains.isContinued(pos))
+    			result.append(((VIRTUALCALL) cursor.head).generateJavaBytecode(classGen, chains.isContinued(pos), chains.isContinuing(pos)));
+    		else if (cursor.head instanceof NonBranchingBytecode)
+    			result.append(((NonBranchingBytecode) cursor.head).generateJavaBytecode(classGen));
 
     	// if we added no instruction, we add a fictitious one so that we never return an empty list
     	if (result.isEmpty())
@@ -134,4 +167,25 @@ public class BytecodeList {
 
     	return result;
     }
+
+    /**
+     * Writes the Java bytecode corresponding to this list of bytecodes directly
+     * into the code of a method. This just calls
+     * {@code bytecode.NonBranchingBytecode.writeJavaBytecode(CodeWriter)} on each
+     * non-branching bytecode in the list, in order, but the chains of concatenations
+     * of strings are written as a single concatenation.
+     *
+     * @param writer the writer of the code of the method
+     */
+
+    public void writeJavaBytecode(CodeWriter writer) {
+    	Concatenations chains = new Concatenations(this);
+    	int pos = 0;
+
+    	for (BytecodeList cursor = this; cursor != null; cursor = cursor.tail, pos++)
+    		if (chains.isContinuing(pos) || chains.isContinued(pos))
+    			((VIRTUALCALL) cursor.head).writeJavaBytecode(writer, chains.isContinued(pos), chains.isContinuing(pos));
+    		else if (cursor.head instanceof NonBranchingBytecode)
+    			((NonBranchingBytecode) cursor.head).writeJavaBytecode(writer);
+    }
 }
\ No newline at end of file
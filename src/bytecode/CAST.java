@@ -1,7 +1,9 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.F2I;
 import org.apache.bcel.generic.I2F;
 import org.apache.bcel.generic.InstructionList;
@@ -111,4 +113,20 @@ public class CAST extends SequentialBytecode {
 		else // it must be float into int
 			return new InstructionList(new F2I());
 	}
+
+	/**
+	 * Writes a {@code checkcast}, {@code i2f} or {@code f2i} Java bytecode, depending on the types of the cast.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		if (intoType instanceof ReferenceType)
+			writer.checkCast((org.apache.bcel.generic.ReferenceType) intoType.toBCEL());
+		else if (fromType == IntType.INSTANCE && intoType == FloatType.INSTANCE)
+			writer.op(Constants.I2F, 0);
+		else // it must be float into int
+			writer.op(Constants.F2I, 0);
+	}
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.generic.InstructionList;
@@ -81,7 +82,7 @@ public class CONST extends SequentialBytecode {
 	 * @return the constant that is loaded on top of the stack
 	 */
 
-	protected Object getConstant() {
+	public Object getConstant() {
 		return constant;
 	}
 
@@ -124,4 +125,15 @@ public class CONST extends SequentialBytecode {
 			// the instruction factory will create the appropriate instruction
 			return new InstructionList(classGen.getFactory().createConstant(constant));
 	}
+
+	/**
+	 * Writes the shortest Java bytecode that pushes {@link #constant} on the stack.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.constant(constant);
+	}
 }
\ No newline at end of file
@@ -1,8 +1,10 @@
 package bytecode;
 
 import java.util.Collections;
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionList;
 
 import types.CodeSignature;
@@ -43,4 +45,15 @@ public class CONSTRUCTORCALL extends CALL {
 	public InstructionList generateJavaBytecode(JavaClassGenerator classGen) {
 		return new InstructionList(((ConstructorSignature) getStaticTarget()).createINVOKESPECIAL(classGen));
 	}
+
+	/**
+	 * Writes an {@code invokespecial} Java bytecode that calls the constructor.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.invoke(Constants.INVOKESPECIAL, getStaticTarget());
+	}
 }
\ No newline at end of file
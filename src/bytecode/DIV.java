@@ -1,9 +1,12 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionList;
 
+import types.FloatType;
 import types.NumericalType;
 
 /**
@@ -42,4 +45,15 @@ public class DIV extends ArithmeticBinOpBytecode {
 
 		return il;
 	}
+
+	/**
+	 * Writes an {@code idiv} or {@code fdiv} Java bytecode, depending on the type of the operands.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.op(getType() == FloatType.INSTANCE ? Constants.FDIV : Constants.IDIV, -1);
+	}
 }
\ No newline at end of file
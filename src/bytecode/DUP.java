@@ -1,7 +1,9 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionList;
 
 import types.Type;
@@ -48,4 +50,15 @@ public class DUP extends SequentialBytecode {
 	public InstructionList generateJavaBytecode(JavaClassGenerator classGen) {
 		return new InstructionList(new org.apache.bcel.generic.DUP());
 	}
+
+	/**
+	 * Writes a {@code dup} Java bytecode.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.op(Constants.DUP, 1);
+	}
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionFactory;
 import org.apache.bcel.generic.InstructionHandle;
 import org.apache.bcel.generic.InstructionList;
@@ -103,4 +105,15 @@ public class EQ extends ComparisonBinOpBytecode {
 
 		return il;
 	}
+
+	/**
+	 * Writes the Java bytecode that pushes 1 if the comparison holds and 0 otherwise.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.compare(getType(), Constants.IF_ICMPEQ);
+	}
 }
\ No newline at end of file
@@ -1,11 +1,9 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
-import org.apache.bcel.Constants;
-import org.apache.bcel.generic.InstructionFactory;
 import org.apache.bcel.generic.InstructionList;
-import org.apache.bcel.generic.Type;
 
 public class ERRORSTRING extends NEWSTRING {
 
@@ -20,19 +18,24 @@ public class ERRORSTRING extends NEWSTRING {
 	
 	/**
 	 * Generates the Java bytecode corresponding to this Kitten bytecode.
+	 * The error message is a Java string, hence it is just loaded from the constant pool.
 	 * 
 	 * @param classGen the Java class generator to be used for this generation
-	 * @return the Java bytecode for invoke toString
+	 * @return the Java bytecode that loads the error message
 	 */
 	public InstructionList generateJavaBytecode(JavaClassGenerator classGen){
-		InstructionFactory inf= classGen.getFactory();
-		InstructionList il=super.generateJavaBytecode(classGen);
-		
-		String str=runTime.String.class.getName();
-		il.append(inf.createInvoke(str, "toString", Type.STRING, Type.NO_ARGS, Constants.INVOKEVIRTUAL));
-		
-		
-		return il;
+		return new InstructionList(classGen.getFactory().createConstant(getValue()));
 	}
 
-}
+	/**
+	 * Writes the Java bytecode that loads the error message from the constant pool.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.constant(getValue());
+	}
+
+}
\ No newline at end of file
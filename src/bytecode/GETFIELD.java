@@ -1,7 +1,9 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionList;
 
 import types.FieldSignature;
@@ -60,4 +62,15 @@ public class GETFIELD extends FieldAccessBytecode {
 	public InstructionList generateJavaBytecode(JavaClassGenerator classGen) {
 		return new InstructionList(field.createGETFIELD(classGen));
 	}
+
+	/**
+	 * Writes a {@code getfield} Java bytecode that reads {@link #field}.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.field(Constants.GETFIELD, field);
+	}
 }
\ No newline at end of file
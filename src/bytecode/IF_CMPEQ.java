@@ -1,7 +1,9 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionHandle;
 import org.apache.bcel.generic.InstructionList;
 
@@ -76,4 +78,16 @@ public class IF_CMPEQ extends BranchingComparisonBytecode {
 	protected void generateJavaBytecodeAux(InstructionList il, JavaClassGenerator classGen, InstructionHandle yes) {
 		getType().JB_if_cmpeq(il,yes);
 	}
+
+	/**
+	 * Writes the Java bytecode that goes to {@code yes} if the comparison holds.
+	 *
+	 * @param writer the writer of the code of the method
+	 * @param yes the target if the check is satisfied
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer, CodeWriter.Label yes) {
+		writer.ifCompare(getType(), Constants.IF_ICMPEQ, yes);
+	}
 }
\ No newline at end of file
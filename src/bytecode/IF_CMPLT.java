@@ -1,7 +1,9 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionHandle;
 import org.apache.bcel.generic.InstructionList;
 
@@ -72,4 +74,16 @@ public class IF_CMPLT extends BranchingNumericalComparisonBytecode {
 	protected void generateJavaBytecodeAux(InstructionList il, JavaClassGenerator classGen, InstructionHandle yes) {
 		getType().JB_if_cmplt(il, yes);
 	}
+
+	/**
+	 * Writes the Java bytecode that goes to {@code yes} if the comparison holds.
+	 *
+	 * @param writer the writer of the code of the method
+	 * @param yes the target if the check is satisfied
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer, CodeWriter.Label yes) {
+		writer.ifCompare(getType(), Constants.IF_ICMPLT, yes);
+	}
 }
\ No newline at end of file
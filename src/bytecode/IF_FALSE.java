@@ -1,7 +1,9 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionHandle;
 import org.apache.bcel.generic.InstructionList;
 
@@ -66,4 +68,16 @@ public class IF_FALSE extends BranchingConstantComparisonBytecode {
 	protected void generateJavaBytecodeAux(InstructionList il, JavaClassGenerator classGen, InstructionHandle yes) {
 		il.append(new org.apache.bcel.generic.IFEQ(yes));
 	}
+
+	/**
+	 * Writes an {@code ifeq} Java bytecode that goes to {@code yes}.
+	 *
+	 * @param writer the writer of the code of the method
+	 * @param yes the target if the check is satisfied
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer, CodeWriter.Label yes) {
+		writer.jump(Constants.IFEQ, yes);
+	}
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionHandle;
 import org.apache.bcel.generic.InstructionList;
 
@@ -67,4 +69,16 @@ public class IF_TRUE extends BranchingConstantComparisonBytecode {
 	protected void generateJavaBytecodeAux(InstructionList il, JavaClassGenerator classGen, InstructionHandle yes) {
 		il.append(new org.apache.bcel.generic.IFNE(yes));
 	}
+
+	/**
+	 * Writes an {@code ifne} Java bytecode that goes to {@code yes}.
+	 *
+	 * @param writer the writer of the code of the method
+	 * @param yes the target if the check is satisfied
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer, CodeWriter.Label yes) {
+		writer.jump(Constants.IFNE, yes);
+	}
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.generic.InstructionFactory;
@@ -80,4 +81,15 @@ public class LOAD extends SequentialBytecode {
 		// we use the instruction factory to simplify the choice between the three Java bytecode
 		return new InstructionList(InstructionFactory.createLoad(type.toBCEL(), varNum));
 	}
+
+	/**
+	 * Writes the Java bytecode that loads local variable {@link #varNum}, of type {@link #type}.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.load(type, varNum);
+	}
 }
\ No newline at end of file
@@ -1,12 +1,15 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionFactory;
 import org.apache.bcel.generic.InstructionHandle;
 import org.apache.bcel.generic.InstructionList;
 
 import types.BooleanType;
+import types.FloatType;
 import types.NumericalType;
 import types.Type;
 
@@ -100,4 +103,22 @@ public class NEG extends SequentialBytecode {
 
 		return il;
 	}
+
+	/**
+	 * Writes the Java bytecode that negates the top of the stack.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		if (type == BooleanType.INSTANCE) {
+			// the negation of a Boolean value: it becomes an alternative of 0 or 1 on the stack
+			CodeWriter.Label yes = new CodeWriter.Label();
+			writer.jump(Constants.IFEQ, yes);
+			writer.toBoolean(yes, new CodeWriter.Label());
+		}
+		else
+			writer.op(type == FloatType.INSTANCE ? Constants.FNEG : Constants.INEG, 0);
+	}
 }
\ No newline at end of file
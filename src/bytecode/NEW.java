@@ -1,5 +1,6 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.generic.InstructionList;
@@ -59,4 +60,15 @@ public class NEW extends SequentialBytecode {
 	public InstructionList generateJavaBytecode(JavaClassGenerator classGen) {
 		return new InstructionList(classGen.getFactory().createNew(clazz.toBCEL().toString()));
 	}
+
+	/**
+	 * Writes a {@code new} Java bytecode for {@link #clazz}.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.newObject(clazz.toBCEL().toString());
+	}
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.generic.InstructionList;
@@ -96,4 +97,21 @@ public class NEWARRAY extends SequentialBytecode {
 
 		return new InstructionList(classGen.getFactory().createNewArray(t.toBCEL(), (short) dimensions));
 	}
+
+	/**
+	 * Writes the Java bytecode that creates the array, as
+	 * {@link #generateJavaBytecode(JavaClassGenerator)} generates it.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		// this is to cope with the same bug in BCEL
+		Type t = elementsType;
+		if (dimensions > 1)
+			t = ArrayType.mk(t);
+
+		writer.newArray(t.toBCEL(), dimensions);
+	}
 }
\ No newline at end of file
@@ -1,10 +1,14 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionFactory;
 import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.ObjectType;
+
+import types.ClassType;
 
 /**
  * A bytecode that creates a string and pushes a reference to it on top of the stack.
@@ -32,6 +36,16 @@ public class NEWSTRING extends SequentialBytecode {
 		this.value = value;
 	}
 
+	/**
+	 * Yields the lexical value of the string that is created.
+	 *
+	 * @return the lexical value
+	 */
+
+	public String getValue() {
+		return value;
+	}
+
 	@Override
 	public String toString() {
 		return "newstring " + value.replaceAll("\n","\\\\\\\\n");
@@ -50,6 +64,12 @@ public class NEWSTRING extends SequentialBytecode {
 	 * <br>
 	 * that creates a {@code runTime.String} objects and initialises it with
 	 * the lexical value {@link #value} of the Kitten string we want to create.
+	 * If Kitten strings are compiled into Java strings, it generates the same code for
+	 * {@code java.lang.String}, that copies the constant {@code value}, so that distinct
+	 * evaluations of the literal are distinct strings, as for {@code runTime.String}.
+	 * If the string literals of the class are shared, it generates a {@code getstatic} of the
+	 * field that holds the literal (see {@link JavaClassGenerator#getLiteralField(String)})
+	 * or, for Java strings, {@code ldc value} only.
 	 *
 	 * @param classGen the Java class generator to be used for this generation
 	 * @return a Java bytecode that creates a {@code runTime.String}
@@ -61,7 +81,21 @@ public class NEWSTRING extends SequentialBytecode {
 	public InstructionList generateJavaBytecode(JavaClassGenerator classGen) {
 		InstructionFactory factory = classGen.getFactory();
 		InstructionList il = new InstructionList();
-		String kittenStringName = runTime.String.class.getName();
+
+		// shared Java strings are the constants in the constant pool
+		if (ClassType.getJavaStrings() && classGen.sharesLiterals()) {
+			il.append(factory.createConstant(value));
+			return il;
+		}
+
+		String kittenStringName = ClassType.getJavaStrings() ? String.class.getName() : runTime.String.class.getName();
+
+		// shared literals are created once, by the static initializer of the class
+		String field = ClassType.getJavaStrings() ? null : classGen.getLiteralField(value);
+		if (field != null) {
+			il.append(factory.createGetStatic(classGen.getClassName(), field, new ObjectType(kittenStringName)));
+			return il;
+		}
 
 		// we create the invokespecial to the constructor
 		il.insert(factory.createInvoke
@@ -79,4 +113,35 @@ public class NEWSTRING extends SequentialBytecode {
 
 		return il;
 	}
+
+	/**
+	 * Writes the Java bytecode that creates a {@code runTime.String} from {@link #value},
+	 * that reads it from the static field that holds it, if the literals of the class are shared.
+	 * If Kitten strings are compiled into Java strings, it writes the code that copies {@link #value}
+	 * into a new {@code java.lang.String} or, if the literals of the class are shared, that loads it.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		if (ClassType.getJavaStrings() && writer.getClassGenerator().sharesLiterals()) {
+			writer.constant(value);
+			return;
+		}
+
+		String kittenStringName = ClassType.getJavaStrings() ? String.class.getName() : runTime.String.class.getName();
+
+		String field = ClassType.getJavaStrings() ? null : writer.getClassGenerator().getLiteralField(value);
+		if (field != null) {
+			writer.field(Constants.GETSTATIC, writer.getClassGenerator().getClassName(), field,
+				new ObjectType(kittenStringName).getSignature(), 1);
+			return;
+		}
+
+		writer.newObject(kittenStringName);
+		writer.op(Constants.DUP, 1);
+		writer.constant(value);
+		writer.invoke(Constants.INVOKESPECIAL, kittenStringName, Constants.CONSTRUCTOR_NAME, "(Ljava/lang/String;)V", -2);
+	}
 }
\ No newline at end of file
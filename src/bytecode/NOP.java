@@ -1,5 +1,6 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.generic.InstructionFactory;
@@ -32,4 +33,15 @@ public class NOP extends SequentialBytecode {
 	public InstructionList generateJavaBytecode(JavaClassGenerator classGen) {
 		return new InstructionList(InstructionFactory.NOP);
 	}
+
+	/**
+	 * Writes nothing, since a {@code nop} is useless in the Java bytecode written directly.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		// there is no need of a placeholder, since labels can be placed anywhere
+	}
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.generic.InstructionList;
@@ -31,4 +32,13 @@ public abstract class NonBranchingBytecode extends Bytecode {
 	 */
 
 	public abstract InstructionList generateJavaBytecode(JavaClassGenerator classGen);
+
+	/**
+	 * Writes the Java bytecode corresponding to this Kitten bytecode directly into
+	 * the code of a method, as {@link #generateJavaBytecode(JavaClassGenerator)} generates it.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	public abstract void writeJavaBytecode(CodeWriter writer);
 }
\ No newline at end of file
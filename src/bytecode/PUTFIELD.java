@@ -1,7 +1,9 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
 import org.apache.bcel.generic.InstructionList;
 
 import types.FieldSignature;
@@ -60,4 +62,15 @@ public class PUTFIELD extends FieldAccessBytecode {
 	public InstructionList generateJavaBytecode(JavaClassGenerator classGen) {
 		return new InstructionList(field.createPUTFIELD(classGen));
 	}
+
+	/**
+	 * Writes a {@code putfield} Java bytecode that writes {@link #field}.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.field(Constants.PUTFIELD, field);
+	}
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.generic.InstructionFactory;
@@ -74,4 +75,15 @@ public class RETURN extends FinalBytecode {
 		// right return bytecode, depending on type
 		return new InstructionList(InstructionFactory.createReturn(type.toBCEL()));
 	}
+
+	/**
+	 * Writes the Java bytecode that returns a value of type {@link #type}.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.returnValue(type);
+	}
 }
\ No newline at end of file
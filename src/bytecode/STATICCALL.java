@@ -0,0 +1,60 @@
+package bytecode;
+
+import java.util.Collections;
+import javaBytecodeGenerator.CodeWriter;
+import javaBytecodeGenerator.JavaClassGenerator;
+
+import org.apache.bcel.Constants;
+import org.apache.bcel.generic.InstructionList;
+
+import types.CodeSignature;
+import types.HelperSignature;
+
+/**
+ * A bytecode that calls a helper method, outlined from the code of another method
+ * or constructor. There is no receiver, since helper methods are static.
+ * <br><br>
+ * ..., par_1, ..., par_n -&gt; ..., returned value<br>
+ * if the method return type is non-{@code void}<br><br>
+ * ..., par_1, ..., par_n -&gt; ...<br>
+ * if the method's return type is {@code void}.
+ */
+
+public class STATICCALL extends CALL {
+
+	/**
+	 * Constructs a bytecode that calls a helper method.
+	 *
+	 * @param helper the signature of the helper method which is called
+	 */
+
+	public STATICCALL(HelperSignature helper) {
+		// there is only one dynamic target: the helper itself
+		super(helper.getDefiningClass(), helper, Collections.<CodeSignature> singleton(helper));
+	}
+
+	/**
+	 * Generates the Java bytecode corresponding to this Kitten bytecode.
+	 *
+	 * @param classGen the Java class generator to be used for this generation
+	 * @return the Java {@code invokestatic method} bytecode, that calls
+	 *         a method by using a hard-wired class name to look up for the
+	 *         method's implementation
+	 */
+
+	@Override
+	public InstructionList generateJavaBytecode(JavaClassGenerator classGen) {
+		return new InstructionList(((HelperSignature) getStaticTarget()).createINVOKESTATIC(classGen));
+	}
+
+	/**
+	 * Writes an {@code invokestatic} Java bytecode that calls the helper method.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.invoke(Constants.INVOKESTATIC, getStaticTarget());
+	}
+}
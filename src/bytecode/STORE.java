@@ -1,5 +1,6 @@
 package bytecode;
 
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.generic.InstructionFactory;
@@ -41,6 +42,16 @@ public class STORE extends SequentialBytecode {
 		this.type = type;
 	}
 
+	/**
+	 * Yields the number of the local variable that is assigned.
+	 *
+	 * @return the number of the local variable that is assigned
+	 */
+
+	public int getVarNum() {
+		return varNum;
+	}
+
 	/**
 	 * Yields the type of the local variable that is assigned.
 	 *
@@ -70,4 +81,16 @@ public class STORE extends SequentialBytecode {
 		// we use the instruction factory to simplify the choice between the three Java bytecodes
 		return new InstructionList(InstructionFactory.createStore(type.toBCEL(), varNum));
 	}
+
+	/**
+	 * Writes the Java bytecode that stores the top of the stack into
+	 * local variable {@link #varNum}, of type {@link #type}.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		writer.store(type, varNum);
+	}
 }
\ No newline at end of file
@@ -3,9 +3,13 @@ package bytecode;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.List;
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
+import org.apache.bcel.Constants;
+import org.apache.bcel.generic.InstructionFactory;
 import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.ObjectType;
 
 import types.ClassType;
 import types.CodeSignature;
@@ -71,6 +75,8 @@ public class VIRTUALCALL extends CALL {
 	 * Generates the Java bytecode corresponding to this Kitten bytecode. Namely, it generates an
 	 * {@code invokevirtual staticTarget} Java bytecode. The Java {@code invokevirtual} bytecode
 	 * calls a method by using the runtime class of the receiver to look up for the method's implementation.
+	 * If Kitten strings are compiled into Java strings, a method of {@code String} is instead
+	 * called through an {@code invokestatic} of its implementation in {@code runTime.Strings}.
 	 *
 	 * @param classGen the Java class generator to be used for this generation
 	 * @return the Java {@code invokevirtual staticTarget} bytecode
@@ -78,6 +84,97 @@ public class VIRTUALCALL extends CALL {
 
 	@Override
 	public InstructionList generateJavaBytecode(JavaClassGenerator classGen) {
-		return new InstructionList(((MethodSignature) getStaticTarget()).createINVOKEVIRTUAL(classGen));
+		MethodSignature target = (MethodSignature) getStaticTarget();
+
+		if (target.isCompiledIntoStrings())
+			return new InstructionList(target.createINVOKESTATICOfStrings(classGen));
+		else
+			return new InstructionList(target.createINVOKEVIRTUAL(classGen));
+	}
+
+	/**
+	 * Generates the Java bytecode for this call to a {@code concat()} method of {@code String}, when it
+	 * belongs to a chain of concatenations (see {@link javaBytecodeGenerator.Concatenations}).
+	 * The chain is computed by a {@code runTime.Concatenation}: the first call of the chain builds it
+	 * from its receiver, each call appends its parameter to it and the last call yields its string.
+	 *
+	 * @param classGen the Java class generator to be used for this generation
+	 * @param continued true if and only if the receiver of this call is the result of the previous call
+	 *                  of the chain, that is, a {@code runTime.Concatenation}
+	 * @param continuing true if and only if the result of this call is the receiver of the next call of the chain,
+	 *                   hence it must be left as a {@code runTime.Concatenation}
+	 * @return the Java bytecode
+	 */
+
+	public InstructionList generateJavaBytecode(JavaClassGenerator classGen, boolean continued, boolean continuing) {
+		InstructionFactory factory = classGen.getFactory();
+		InstructionList il = new InstructionList();
+		String concatenation = runTime.Concatenation.class.getName();
+		ObjectType concatenationType = new ObjectType(concatenation);
+		org.apache.bcel.generic.Type stringType = getStaticTarget().getDefiningClass().toBCEL();
+
+		if (!continued) {
+			// the receiver, below the parameter, becomes a concatenation
+			il.append(InstructionFactory.SWAP);
+			il.append(factory.createInvoke(concatenation, "of", concatenationType,
+				new org.apache.bcel.generic.Type[] { stringType }, Constants.INVOKESTATIC));
+			il.append(InstructionFactory.SWAP);
+		}
+
+		il.append(factory.createInvoke(concatenation, "append", concatenationType,
+			getStaticTarget().getParameters().toBCEL(), Constants.INVOKEVIRTUAL));
+
+		if (!continuing)
+			il.append(factory.createInvoke(concatenation, ClassType.getJavaStrings() ? "toString" : "toKittenString",
+				stringType, org.apache.bcel.generic.Type.NO_ARGS, Constants.INVOKEVIRTUAL));
+
+		return il;
+	}
+
+	/**
+	 * Writes the Java bytecode for this call to a {@code concat()} method of {@code String}, when it
+	 * belongs to a chain of concatenations, as {@link #generateJavaBytecode(JavaClassGenerator, boolean, boolean)}
+	 * generates it.
+	 *
+	 * @param writer the writer of the code of the method
+	 * @param continued true if and only if the receiver of this call is the result of the previous call of the chain
+	 * @param continuing true if and only if the result of this call is the receiver of the next call of the chain
+	 */
+
+	public void writeJavaBytecode(CodeWriter writer, boolean continued, boolean continuing) {
+		String concatenation = runTime.Concatenation.class.getName();
+		String concatenationDescriptor = new ObjectType(concatenation).getSignature();
+		String stringDescriptor = getStaticTarget().getDefiningClass().toBCEL().getSignature();
+
+		if (!continued) {
+			writer.op(Constants.SWAP, 0);
+			writer.invoke(Constants.INVOKESTATIC, concatenation, "of", "(" + stringDescriptor + ")" + concatenationDescriptor, 0);
+			writer.op(Constants.SWAP, 0);
+		}
+
+		writer.invoke(Constants.INVOKEVIRTUAL, concatenation, "append",
+			"(" + getStaticTarget().getParameters().toBCEL()[0].getSignature() + ")" + concatenationDescriptor, -1);
+
+		if (!continuing)
+			writer.invoke(Constants.INVOKEVIRTUAL, concatenation, ClassType.getJavaStrings() ? "toString" : "toKittenString",
+				"()" + stringDescriptor, 0);
+	}
+
+	/**
+	 * Writes an {@code invokevirtual} Java bytecode that calls the method,
+	 * or an {@code invokestatic} of its implementation in {@code runTime.Strings}.
+	 *
+	 * @param writer the writer of the code of the method
+	 */
+
+	@Override
+	public void writeJavaBytecode(CodeWriter writer) {
+		MethodSignature target = (MethodSignature) getStaticTarget();
+
+		if (target.isCompiledIntoStrings())
+			writer.invoke(Constants.INVOKESTATIC, runTime.Strings.class.getName(), target.getName(), target.getStringsDescriptor(),
+				target.getReturnType().getSize() - target.getParameters().getSize() - 1);
+		else
+			writer.invoke(Constants.INVOKEVIRTUAL, target);
 	}
 }
\ No newline at end of file
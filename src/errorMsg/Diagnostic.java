@@ -0,0 +1,94 @@
+package errorMsg;
+
+/**
+ * An error found during the compilation of a Kitten program, at a given
+ * position inside one of its source files.
+ */
+
+public class Diagnostic {
+
+	/**
+	 * The name of the source file where the error has been found.
+	 */
+
+	private final String fileName;
+
+	/**
+	 * The line of the error, from 1, or -1 if the error refers to no position.
+	 */
+
+	private final int line;
+
+	/**
+	 * The column of the error, or -1 if the error refers to no position.
+	 */
+
+	private final int column;
+
+	/**
+	 * The message that describes the error.
+	 */
+
+	private final String message;
+
+	/**
+	 * Creates a diagnostic.
+	 *
+	 * @param fileName the name of the source file where the error has been found
+	 * @param line the line of the error, from 1, or -1 if the error refers to no position
+	 * @param column the column of the error, or -1 if the error refers to no position
+	 * @param message the message that describes the error
+	 */
+
+	public Diagnostic(String fileName, int line, int column, String message) {
+		this.fileName = fileName;
+		this.line = line;
+		this.column = column;
+		this.message = message;
+	}
+
+	/**
+	 * Yields the name of the source file where the error has been found.
+	 *
+	 * @return the name of the source file, with the trailing {@code .kit}
+	 */
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * Yields the line of the error.
+	 *
+	 * @return the line, from 1, or -1 if the error refers to no position
+	 */
+
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Yields the column of the error.
+	 *
+	 * @return the column, or -1 if the error refers to no position
+	 */
+
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * Yields the message that describes the error.
+	 *
+	 * @return the message
+	 */
+
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public String toString() {
+		return fileName + "::" + (line >= 0 ? line + "." + column : "") + ": " + message;
+	}
+}
@@ -0,0 +1,23 @@
+package errorMsg;
+
+/**
+ * A receiver of the errors found during the compilation of a Kitten program.
+ */
+
+public interface DiagnosticListener {
+
+	/**
+	 * The listener that prints the errors on the standard output, one per line.
+	 * This is what the compiler does by default.
+	 */
+
+	DiagnosticListener STANDARD_OUTPUT = diagnostic -> System.out.println(diagnostic);
+
+	/**
+	 * Receives an error.
+	 *
+	 * @param diagnostic the error
+	 */
+
+	void report(Diagnostic diagnostic);
+}
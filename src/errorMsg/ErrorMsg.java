@@ -31,14 +31,33 @@ public class ErrorMsg {
 
 	private boolean anyErrors;
 
+	/**
+	 * The receiver of the errors reported through this utility.
+	 */
+
+	private final DiagnosticListener listener;
+
 	/**
 	 * Creates an error reporting utility for the specified source file.
+	 * It prints the errors on the standard output.
 	 *
 	 * @param fileName the name of the source file
 	 */
 
 	public ErrorMsg(String fileName) {
+		this(fileName, DiagnosticListener.STANDARD_OUTPUT);
+	}
+
+	/**
+	 * Creates an error reporting utility for the specified source file.
+	 *
+	 * @param fileName the name of the source file
+	 * @param listener the receiver of the errors reported through this utility
+	 */
+
+	public ErrorMsg(String fileName, DiagnosticListener listener) {
 		this.fileName = fileName;
+		this.listener = listener;
 	}
 
 	/**
@@ -78,7 +97,7 @@ public class ErrorMsg {
 	 *
 	 * @param pos the position where the error must be reported
 	 *            (number of characters from the beginning of the file).
-	 *            If this is negative, the message is printed without
+	 *            If this is negative, the message is reported without
 	 *            any line number reference
 	 * @param msg the message to be reported
 	 */
@@ -86,7 +105,6 @@ public class ErrorMsg {
 	public void error(int pos, String msg) {
 		anyErrors = true; // an error has been reported at least
 
-		String where;
 		if (pos >= 0) {
 			int last = 0, n = 1;
 
@@ -98,12 +116,10 @@ public class ErrorMsg {
 				n++;
 			}
 
-			where = n + "." + (pos - last);
+			listener.report(new Diagnostic(fileName, n, pos - last, msg));
 		}
 		else
-			where = "";
-
-		System.out.println(fileName + "::" + where + ": " + msg);
+			listener.report(new Diagnostic(fileName, -1, -1, msg));
 	}
 	
 	
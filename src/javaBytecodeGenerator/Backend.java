@@ -0,0 +1,31 @@
+package javaBytecodeGenerator;
+
+/**
+ * The ways of writing the Java class files generated for a Kitten program.
+ */
+
+public enum Backend {
+
+	/**
+	 * The class files are written by the BCEL library, in the old format
+	 * without stack maps. The Java Virtual Machine verifies them by inferring the types
+	 * of their local variables and stack elements.
+	 */
+
+	BCEL,
+
+	/**
+	 * The class files are written by the BCEL library, but in a modern format whose code
+	 * carries the stack maps, that let the Java Virtual Machine verify them in a single pass.
+	 */
+
+	STACKMAP,
+
+	/**
+	 * The class files are written in the old format without stack maps, as by the BCEL library,
+	 * but the code of their constructors and methods is written directly into a buffer of bytes,
+	 * without building its BCEL representation, which is expensive for large programs.
+	 */
+
+	DIRECT
+}
@@ -0,0 +1,259 @@
+package javaBytecodeGenerator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import translation.Block;
+import bytecode.BytecodeList;
+import bytecode.ERRORSTRING;
+
+/**
+ * The order in which the blocks of a piece of Kitten code are laid out
+ * in the Java bytecode. Each block is followed, if possible, by its most
+ * likely follow, so that the jump to that follow disappears.
+ * <br><br>
+ * If the blocks carry the execution counts of their edges, the most likely follow
+ * is the most executed one. Otherwise it is a follow that does not exit a loop, or
+ * the last follow. Loops are tested at their bottom: the body of a loop is laid
+ * out before its test, so that each iteration executes a single conditional jump.
+ * Cold blocks, such as the failures of assertions and the edges never executed,
+ * are laid out at the end of the code.
+ */
+
+class BlockLayout {
+
+	/**
+	 * The blocks, in the order in which they are laid out.
+	 */
+
+	private final List<Block> order = new ArrayList<>();
+
+	/**
+	 * The blocks of the loops of the code, for each loop header.
+	 */
+
+	private final Map<Block, Set<Block>> loops = new HashMap<>();
+
+	/**
+	 * The blocks already laid out.
+	 */
+
+	private final Set<Block> placed = new HashSet<>();
+
+	/**
+	 * The loop headers whose test has been moved at the bottom of the loop.
+	 */
+
+	private final Set<Block> rotated = new HashSet<>();
+
+	/**
+	 * The blocks still to lay out, most recently met first.
+	 */
+
+	private final LinkedList<Block> hot = new LinkedList<>();
+
+	/**
+	 * The cold blocks still to lay out. They are laid out after all other blocks.
+	 */
+
+	private final LinkedList<Block> cold = new LinkedList<>();
+
+	/**
+	 * Computes the layout of the blocks reachable from the given one.
+	 *
+	 * @param entry the block where the code starts. It is laid out first
+	 */
+
+	BlockLayout(Block entry) {
+		findLoops(entry);
+
+		// the entry is never moved, since the code starts there
+		rotated.add(entry);
+		hot.add(entry);
+
+		while (!hot.isEmpty() || !cold.isEmpty())
+			chain(!hot.isEmpty() ? hot.removeFirst() : cold.removeFirst());
+	}
+
+	/**
+	 * Yields the blocks of the code, in the order in which they must be laid out.
+	 *
+	 * @return the blocks
+	 */
+
+	List<Block> getOrder() {
+		return order;
+	}
+
+	/**
+	 * Lays out a chain of blocks, each followed by its most likely follow, starting at the given block.
+	 *
+	 * @param block the block
+	 */
+
+	private void chain(Block block) {
+		while (block != null && !placed.contains(block)) {
+			Block next = likelyFollow(block);
+
+			if (loops.containsKey(block) && rotated.add(block) && next != null && loops.get(block).contains(next)) {
+				// the test of the loop is laid out after its body, where the last block of the body
+				// jumps back. If the body does not reach it, it is laid out later
+				hot.addFirst(block);
+				block = next;
+				continue;
+			}
+
+			placed.add(block);
+			order.add(block);
+
+			List<Block> follows = block.getFollows();
+			for (int pos = follows.size() - 1; pos >= 0; pos--) {
+				Block follow = follows.get(pos);
+				if (follow != next && !placed.contains(follow))
+					(isCold(block, pos) ? cold : hot).addFirst(follow);
+			}
+
+			block = next;
+		}
+	}
+
+	/**
+	 * Yields the follow of a block that is most likely executed after it, among those not laid out yet.
+	 *
+	 * @param block the block
+	 * @return the follow, or {@code null} if there is none or if all are cold
+	 */
+
+	private Block likelyFollow(Block block) {
+		List<Block> follows = block.getFollows();
+		long[] counts = block.getFollowCounts();
+		Block best = null;
+		long bestScore = -1;
+
+		for (int pos = 0; pos < follows.size(); pos++) {
+			Block follow = follows.get(pos);
+			if (placed.contains(follow) || isCold(block, pos))
+				continue;
+
+			long score;
+			if (counts != null && counts.length == follows.size())
+				score = counts[pos];
+			else
+				// staying inside the loops is more likely than exiting them
+				score = exitsLoop(block, follow) ? 0 : 1;
+
+			// on equal scores, the last follow is preferred: for a conditional, it is the
+			// block executed when the condition holds, as in the original layout of the code
+			if (score >= bestScore) {
+				best = follow;
+				bestScore = score;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Determines if an edge of the code is cold, that is, it is very unlikely executed.
+	 *
+	 * @param block the source of the edge
+	 * @param pos the position of the target of the edge among the follows of {@code block}
+	 * @return true if and only if the edge has never been executed during profiling
+	 *         or its target fails an assertion
+	 */
+
+	private static boolean isCold(Block block, int pos) {
+		long[] counts = block.getFollowCounts();
+		if (counts != null && counts.length == block.getFollows().size() && counts[pos] == 0)
+			return true;
+
+		for (BytecodeList cursor = block.getFollows().get(pos).getBytecode(); cursor != null; cursor = cursor.getTail())
+			if (cursor.getHead() instanceof ERRORSTRING)
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Determines if an edge of the code exits a loop.
+	 *
+	 * @param block the source of the edge
+	 * @param follow the target of the edge
+	 * @return true if and only if {@code block} belongs to a loop that does not contain {@code follow}
+	 */
+
+	private boolean exitsLoop(Block block, Block follow) {
+		for (Set<Block> loop: loops.values())
+			if (loop.contains(block) && !loop.contains(follow))
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Finds the loops of the code, through a depth-first visit from its entry. Each edge
+	 * towards a block that is still being visited closes a loop with that block as header.
+	 * The loop contains the blocks that reach the source of that edge without crossing its header.
+	 *
+	 * @param entry the block where the code starts
+	 */
+
+	private void findLoops(Block entry) {
+		Map<Block, List<Block>> predecessors = new HashMap<>();
+		Set<Block> visited = new HashSet<>(), active = new HashSet<>();
+		List<Block[]> backEdges = new ArrayList<>();
+
+		// the visit uses an explicit stack of the blocks and of the iterators over their follows
+		LinkedList<Block> blocks = new LinkedList<>();
+		LinkedList<Iterator<Block>> iterators = new LinkedList<>();
+		visited.add(entry);
+		active.add(entry);
+		blocks.push(entry);
+		iterators.push(entry.getFollows().iterator());
+		predecessors.put(entry, new ArrayList<Block>());
+
+		while (!blocks.isEmpty())
+			if (iterators.peek().hasNext()) {
+				Block block = blocks.peek(), follow = iterators.peek().next();
+
+				if (!predecessors.containsKey(follow))
+					predecessors.put(follow, new ArrayList<Block>());
+				predecessors.get(follow).add(block);
+
+				if (active.contains(follow))
+					backEdges.add(new Block[] { block, follow });
+				else if (visited.add(follow)) {
+					active.add(follow);
+					blocks.push(follow);
+					iterators.push(follow.getFollows().iterator());
+				}
+			}
+			else {
+				active.remove(blocks.pop());
+				iterators.pop();
+			}
+
+		for (Block[] backEdge: backEdges) {
+			Block header = backEdge[1];
+			Set<Block> loop = loops.get(header);
+			if (loop == null)
+				loops.put(header, loop = new HashSet<>());
+
+			LinkedList<Block> workList = new LinkedList<>();
+			loop.add(header);
+			if (loop.add(backEdge[0]))
+				workList.add(backEdge[0]);
+
+			while (!workList.isEmpty())
+				for (Block pred: predecessors.get(workList.removeFirst()))
+					if (loop.add(pred))
+						workList.add(pred);
+		}
+	}
+}
@@ -0,0 +1,786 @@
+package javaBytecodeGenerator;
+
+import java.util.Arrays;
+
+import org.apache.bcel.Constants;
+import org.apache.bcel.classfile.Attribute;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.CodeException;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.generic.ConstantPoolGen;
+
+import types.BooleanType;
+import types.CodeSignature;
+import types.FieldSignature;
+import types.FloatType;
+import types.IntType;
+import types.Type;
+
+/**
+ * A writer of the Java bytecode of a method, that puts the bytes of its instructions
+ * directly into a growable buffer, without building the BCEL objects for them.
+ * Jumps refer to {@link Label}s, whose offsets are patched when the method is built.
+ * The few jumps whose target is too far for a 16 bits offset are then widened.
+ * <br><br>
+ * The maximal height of the stack is computed while the instructions are written,
+ * from the Kitten types of the values that they push and pop. The code is split into
+ * segments, each starting at a label that is only reached through jumps. The height
+ * of the stack is first tracked relatively to the beginning of each segment and then
+ * made absolute by following the jumps between segments from the beginning of the code.
+ */
+
+public final class CodeWriter {
+
+	/**
+	 * The generator of the class of the method.
+	 */
+
+	private final JavaClassGenerator classGen;
+
+	/**
+	 * The constant pool where the constants of the code are put.
+	 */
+
+	private final ConstantPoolGen cpg;
+
+	/**
+	 * The bytes of the code written so far. Only the first {@link #length} are meaningful.
+	 */
+
+	private byte[] code = new byte[64];
+
+	/**
+	 * The number of bytes of the code written so far.
+	 */
+
+	private int length;
+
+	/**
+	 * The number of local variables used by the code.
+	 */
+
+	private int maxLocals;
+
+	/**
+	 * The height of the stack at the end of the code written so far,
+	 * relatively to the beginning of the current segment.
+	 */
+
+	private int depth;
+
+	/**
+	 * The current segment.
+	 */
+
+	private int segment;
+
+	/**
+	 * The maximal height of the stack inside each segment, relatively to its beginning.
+	 */
+
+	private int[] segmentMaxDepths = new int[8];
+
+	/**
+	 * The number of segments.
+	 */
+
+	private int segments = 1;
+
+	/**
+	 * The jumps of the code written so far. For each jump, there is the segment where it
+	 * occurs, the height of the stack at the jump, relatively to that segment, and the
+	 * offset of the jump. The target of the jump is in the same position of {@link #jumpTargets}.
+	 */
+
+	private int[] jumps = new int[24];
+
+	/**
+	 * The targets of the jumps of the code written so far.
+	 */
+
+	private Label[] jumpTargets = new Label[8];
+
+	/**
+	 * The number of jumps of the code written so far.
+	 */
+
+	private int jumpsCount;
+
+	/**
+	 * True if and only if the end of the code written so far can be reached,
+	 * that is, the last instruction is not an unconditional jump or a return.
+	 */
+
+	private boolean reachable = true;
+
+	/**
+	 * A program point of the code, that can be the target of jumps.
+	 */
+
+	public final static class Label {
+
+		/**
+		 * The offset of the label in the code, or -1 if it has not been placed yet.
+		 */
+
+		private int position = -1;
+
+		/**
+		 * The segment where the label has been placed.
+		 */
+
+		private int segment;
+
+		/**
+		 * The height of the stack at the label, relatively to its segment.
+		 */
+
+		private int depth;
+	}
+
+	/**
+	 * Builds a writer of the Java bytecode of a method.
+	 *
+	 * @param classGen the generator of the class of the method
+	 * @param parameters the number of local variables used for the parameters
+	 *                   of the method, including {@code this} for instance methods
+	 */
+
+	public CodeWriter(JavaClassGenerator classGen, int parameters) {
+		this.classGen = classGen;
+		this.cpg = classGen.getConstantPool();
+		this.maxLocals = parameters;
+	}
+
+	/**
+	 * Yields the generator of the class of the method.
+	 *
+	 * @return the generator
+	 */
+
+	public JavaClassGenerator getClassGenerator() {
+		return classGen;
+	}
+
+	/**
+	 * Places a label at the end of the code written so far.
+	 * If that point cannot be reached by falling through, a new segment starts there.
+	 *
+	 * @param label the label, that must not have been placed already
+	 */
+
+	public void place(Label label) {
+		if (!reachable) {
+			if (segments == segmentMaxDepths.length)
+				segmentMaxDepths = Arrays.copyOf(segmentMaxDepths, segments * 2);
+
+			segment = segments++;
+			depth = 0;
+			reachable = true;
+		}
+
+		label.position = length;
+		label.segment = segment;
+		label.depth = depth;
+	}
+
+	/**
+	 * Writes a jump instruction.
+	 *
+	 * @param opcode the opcode of the instruction. It must be a {@code goto} or a conditional jump
+	 * @param target the target of the jump
+	 */
+
+	public void jump(int opcode, Label target) {
+		int at = length;
+		op(opcode, -Constants.CONSUME_STACK[opcode]);
+
+		// the offset is patched when the method is built
+		writeShort(0);
+
+		if (jumpsCount == jumpTargets.length) {
+			jumps = Arrays.copyOf(jumps, jumpsCount * 6);
+			jumpTargets = Arrays.copyOf(jumpTargets, jumpsCount * 2);
+		}
+
+		jumps[jumpsCount * 3] = segment;
+		jumps[jumpsCount * 3 + 1] = depth;
+		jumps[jumpsCount * 3 + 2] = at;
+		jumpTargets[jumpsCount++] = target;
+
+		if (opcode == Constants.GOTO)
+			reachable = false;
+	}
+
+	/**
+	 * Writes an instruction without operands.
+	 *
+	 * @param opcode the opcode of the instruction
+	 * @param delta the change of the height of the stack caused by the instruction
+	 */
+
+	public void op(int opcode, int delta) {
+		writeByte(opcode);
+
+		depth += delta;
+		if (depth > segmentMaxDepths[segment])
+			segmentMaxDepths[segment] = depth;
+
+		if (opcode >= Constants.IRETURN && opcode <= Constants.RETURN || opcode == Constants.ATHROW)
+			reachable = false;
+	}
+
+	/**
+	 * Writes an instruction whose operand is an index in the constant pool.
+	 *
+	 * @param opcode the opcode of the instruction
+	 * @param index the index
+	 * @param delta the change of the height of the stack caused by the instruction
+	 */
+
+	private void op(int opcode, int index, int delta) {
+		op(opcode, delta);
+		writeShort(index);
+	}
+
+	/**
+	 * Writes the instructions that jump to a label if the comparison of the two topmost
+	 * values on the stack holds. Integers and Booleans are compared through an
+	 * {@code if_icmp} instruction, floats through {@code fcmpl} followed by the corresponding
+	 * {@code if} instruction and references through the corresponding {@code if_acmp} instruction.
+	 *
+	 * @param type the type of the compared values
+	 * @param opcode the {@code if_icmp} instruction that compares two integers in the same way
+	 * @param yes the target of the jump
+	 */
+
+	public void ifCompare(Type type, int opcode, Label yes) {
+		if (type == FloatType.INSTANCE) {
+			op(Constants.FCMPL, -1);
+			jump(opcode - Constants.IF_ICMPEQ + Constants.IFEQ, yes);
+		}
+		else if (type == IntType.INSTANCE || type == BooleanType.INSTANCE)
+			jump(opcode, yes);
+		else
+			// only equality and inequality are defined on references
+			jump(opcode - Constants.IF_ICMPEQ + Constants.IF_ACMPEQ, yes);
+	}
+
+	/**
+	 * Writes the instructions that replace the two topmost values on the stack
+	 * with 1 if their comparison holds and with 0 otherwise.
+	 *
+	 * @param type the type of the compared values
+	 * @param opcode the {@code if_icmp} instruction that compares two integers in the same way
+	 */
+
+	public void compare(Type type, int opcode) {
+		Label yes = new Label(), end = new Label();
+		ifCompare(type, opcode, yes);
+		toBoolean(yes, end);
+	}
+
+	/**
+	 * Writes the instructions that push 0 if the last jump has not been taken and 1 otherwise.
+	 *
+	 * @param yes the target of the last jump
+	 * @param end a fresh label, placed after the instructions
+	 */
+
+	public void toBoolean(Label yes, Label end) {
+		op(Constants.ICONST_0, 1);
+		jump(Constants.GOTO, end);
+		place(yes);
+		op(Constants.ICONST_1, 1);
+		place(end);
+	}
+
+	/**
+	 * Writes an instruction that loads a local variable on the stack.
+	 *
+	 * @param type the type of the variable
+	 * @param varNum the number of the variable
+	 */
+
+	public void load(Type type, int varNum) {
+		local(typed(type, Constants.ILOAD, Constants.FLOAD, Constants.ALOAD), varNum, 1);
+	}
+
+	/**
+	 * Writes an instruction that stores the topmost value of the stack into a local variable.
+	 *
+	 * @param type the type of the variable
+	 * @param varNum the number of the variable
+	 */
+
+	public void store(Type type, int varNum) {
+		local(typed(type, Constants.ISTORE, Constants.FSTORE, Constants.ASTORE), varNum, -1);
+	}
+
+	/**
+	 * Writes an instruction that accesses a local variable, in its shortest form.
+	 *
+	 * @param opcode the opcode of the long form of the instruction
+	 * @param varNum the number of the variable
+	 * @param delta the change of the height of the stack caused by the instruction
+	 */
+
+	private void local(int opcode, int varNum, int delta) {
+		maxLocals = Math.max(maxLocals, varNum + 1);
+
+		if (varNum <= 3)
+			// the short forms come in groups of four for each long form, in the same order
+			op((opcode < Constants.ISTORE ? Constants.ILOAD_0 + (opcode - Constants.ILOAD) * 4
+				: Constants.ISTORE_0 + (opcode - Constants.ISTORE) * 4) + varNum, delta);
+		else if (varNum <= 255) {
+			op(opcode, delta);
+			writeByte(varNum);
+		}
+		else {
+			writeByte(Constants.WIDE);
+			op(opcode, delta);
+			writeShort(varNum);
+		}
+	}
+
+	/**
+	 * Writes an instruction that loads an element of an array on the stack.
+	 *
+	 * @param type the type of the elements of the array
+	 */
+
+	public void arrayLoad(Type type) {
+		op(type == BooleanType.INSTANCE ? Constants.BALOAD : typed(type, Constants.IALOAD, Constants.FALOAD, Constants.AALOAD), -1);
+	}
+
+	/**
+	 * Writes an instruction that stores the topmost value of the stack into an array.
+	 *
+	 * @param type the type of the elements of the array
+	 */
+
+	public void arrayStore(Type type) {
+		op(type == BooleanType.INSTANCE ? Constants.BASTORE : typed(type, Constants.IASTORE, Constants.FASTORE, Constants.AASTORE), -3);
+	}
+
+	/**
+	 * Writes an instruction that returns from the method.
+	 *
+	 * @param type the type of the returned value. It is {@code void} if nothing is returned
+	 */
+
+	public void returnValue(Type type) {
+		if (type.getSize() == 0)
+			op(Constants.RETURN, 0);
+		else
+			op(typed(type, Constants.IRETURN, Constants.FRETURN, Constants.ARETURN), -1);
+	}
+
+	/**
+	 * Selects the form of an instruction suitable for the given type.
+	 *
+	 * @param type the type
+	 * @param intOpcode the form for integers and Booleans
+	 * @param floatOpcode the form for floats
+	 * @param referenceOpcode the form for references
+	 * @return the form for {@code type}
+	 */
+
+	private static int typed(Type type, int intOpcode, int floatOpcode, int referenceOpcode) {
+		if (type == FloatType.INSTANCE)
+			return floatOpcode;
+		else if (type == IntType.INSTANCE || type == BooleanType.INSTANCE)
+			return intOpcode;
+		else
+			return referenceOpcode;
+	}
+
+	/**
+	 * Writes the instructions that push a constant on the stack, in their shortest form.
+	 *
+	 * @param constant the constant. It can be {@code null} or an
+	 *                 {@code Integer}, {@code Float}, {@code Boolean} or {@code String}
+	 */
+
+	public void constant(Object constant) {
+		if (constant == null)
+			op(Constants.ACONST_NULL, 1);
+		else if (constant instanceof Boolean)
+			op((Boolean) constant ? Constants.ICONST_1 : Constants.ICONST_0, 1);
+		else if (constant instanceof Integer) {
+			int value = (Integer) constant;
+
+			if (value >= -1 && value <= 5)
+				op(Constants.ICONST_0 + value, 1);
+			else if (value == (byte) value) {
+				op(Constants.BIPUSH, 1);
+				writeByte(value);
+			}
+			else if (value == (short) value) {
+				op(Constants.SIPUSH, 1);
+				writeShort(value);
+			}
+			else
+				ldc(cpg.addInteger(value));
+		}
+		else if (constant instanceof Float) {
+			float value = (Float) constant;
+
+			// -0.0 is equal to 0.0 but has no short form
+			if ((value == 0.0f || value == 1.0f || value == 2.0f) && Float.floatToIntBits(value) != Float.floatToIntBits(-0.0f))
+				op(Constants.FCONST_0 + (int) value, 1);
+			else
+				ldc(cpg.addFloat(value));
+		}
+		else if (constant instanceof String)
+			ldc(cpg.addString((String) constant));
+		else
+			throw new IllegalArgumentException("unexpected constant " + constant);
+	}
+
+	/**
+	 * Writes an instruction that pushes a constant of the constant pool on the stack.
+	 *
+	 * @param index the index of the constant in the constant pool
+	 */
+
+	private void ldc(int index) {
+		if (index <= 255) {
+			op(Constants.LDC, 1);
+			writeByte(index);
+		}
+		else
+			op(Constants.LDC_W, index, 1);
+	}
+
+	/**
+	 * Writes an instruction that calls a constructor or method.
+	 *
+	 * @param opcode the invocation instruction
+	 * @param target the called constructor or method
+	 */
+
+	public void invoke(int opcode, CodeSignature target) {
+		invoke(opcode, target.getDefiningClass().toBCEL().toString(), target.getName(),
+			org.apache.bcel.generic.Type.getMethodSignature(target.getReturnType().toBCEL(), target.getParameters().toBCEL()),
+			target.getReturnType().getSize() - target.getParameters().getSize() - (opcode == Constants.INVOKESTATIC ? 0 : 1));
+	}
+
+	/**
+	 * Writes an instruction that calls a Java constructor or method.
+	 *
+	 * @param opcode the invocation instruction
+	 * @param className the name of the class of the constructor or method
+	 * @param name the name of the constructor or method
+	 * @param descriptor the descriptor of the constructor or method
+	 * @param delta the change of the height of the stack caused by the call
+	 */
+
+	public void invoke(int opcode, String className, String name, String descriptor, int delta) {
+		op(opcode, cpg.addMethodref(className, name, descriptor), delta);
+	}
+
+	/**
+	 * Writes an instruction that accesses a field.
+	 *
+	 * @param opcode the access instruction. It is {@code getfield} or {@code putfield}
+	 * @param field the accessed field
+	 */
+
+	public void field(int opcode, FieldSignature field) {
+		field(opcode, field.getDefiningClass().toBCEL().toString(), field.getName(),
+			field.getType().toBCEL().getSignature(), opcode == Constants.GETFIELD ? 0 : -2);
+	}
+
+	/**
+	 * Writes an instruction that accesses a Java field.
+	 *
+	 * @param opcode the access instruction
+	 * @param className the name of the class of the field
+	 * @param name the name of the field
+	 * @param descriptor the descriptor of the type of the field
+	 * @param delta the change of the height of the stack caused by the access
+	 */
+
+	public void field(int opcode, String className, String name, String descriptor, int delta) {
+		op(opcode, cpg.addFieldref(className, name, descriptor), delta);
+	}
+
+	/**
+	 * Writes an instruction that creates an object.
+	 *
+	 * @param className the name of the class of the object
+	 */
+
+	public void newObject(String className) {
+		op(Constants.NEW, cpg.addClass(className), 1);
+	}
+
+	/**
+	 * Writes an instruction that creates an array, as the BCEL instruction factory does.
+	 *
+	 * @param type the type of the elements of the array, or the type of the
+	 *             array itself if it has more than one dimension
+	 * @param dimensions the number of dimensions of the array
+	 */
+
+	public void newArray(org.apache.bcel.generic.Type type, int dimensions) {
+		if (dimensions > 1) {
+			org.apache.bcel.generic.ArrayType arrayType = type instanceof org.apache.bcel.generic.ArrayType ?
+				(org.apache.bcel.generic.ArrayType) type : new org.apache.bcel.generic.ArrayType(type, dimensions);
+
+			op(Constants.MULTIANEWARRAY, cpg.addArrayClass(arrayType), 1 - dimensions);
+			writeByte(dimensions);
+		}
+		else if (type instanceof org.apache.bcel.generic.ArrayType)
+			op(Constants.ANEWARRAY, cpg.addArrayClass((org.apache.bcel.generic.ArrayType) type), 0);
+		else if (type instanceof org.apache.bcel.generic.ObjectType)
+			op(Constants.ANEWARRAY, cpg.addClass((org.apache.bcel.generic.ObjectType) type), 0);
+		else {
+			op(Constants.NEWARRAY, 0);
+			writeByte(type.getType());
+		}
+	}
+
+	/**
+	 * Writes an instruction that checks that the topmost value of the stack has the given type.
+	 *
+	 * @param type the type
+	 */
+
+	public void checkCast(org.apache.bcel.generic.ReferenceType type) {
+		if (type instanceof org.apache.bcel.generic.ArrayType)
+			op(Constants.CHECKCAST, cpg.addArrayClass((org.apache.bcel.generic.ArrayType) type), 0);
+		else
+			op(Constants.CHECKCAST, cpg.addClass((org.apache.bcel.generic.ObjectType) type), 0);
+	}
+
+	/**
+	 * Writes a byte of code.
+	 *
+	 * @param value the byte
+	 */
+
+	private void writeByte(int value) {
+		if (length == code.length)
+			code = Arrays.copyOf(code, length * 2);
+
+		code[length++] = (byte) value;
+	}
+
+	/**
+	 * Writes two bytes of code, most significant first.
+	 *
+	 * @param value the bytes
+	 */
+
+	private void writeShort(int value) {
+		writeByte(value >> 8);
+		writeByte(value);
+	}
+
+	/**
+	 * Computes the maximal height of the stack of the code, by following the jumps
+	 * between its segments, from the beginning of the code, where the stack is empty.
+	 *
+	 * @return the maximal height
+	 */
+
+	private int getMaxStack() {
+		int[] entries = new int[segments];
+		Arrays.fill(entries, -1);
+		entries[0] = 0;
+
+		// the jumps are written segment after segment, hence those
+		// from each segment are contiguous and we find them by bisection
+		int[] workList = new int[segments];
+		int size = 0;
+		workList[size++] = 0;
+
+		while (size > 0) {
+			int from = workList[--size];
+
+			for (int pos = firstJump(from); pos < jumpsCount && jumps[pos * 3] == from; pos++) {
+				Label target = jumpTargets[pos];
+
+				if (entries[target.segment] < 0) {
+					entries[target.segment] = entries[from] + jumps[pos * 3 + 1] - target.depth;
+					workList[size++] = target.segment;
+				}
+			}
+		}
+
+		int max = 0;
+		for (int pos = 0; pos < segments; pos++)
+			// dead segments do not matter, but we assume that they start with an empty stack
+			max = Math.max(max, Math.max(entries[pos], 0) + segmentMaxDepths[pos]);
+
+		return max;
+	}
+
+	/**
+	 * Yields the position, in {@link #jumps}, of the first jump from the given segment.
+	 *
+	 * @param segment the segment
+	 * @return the position of the first jump from {@code segment}, or of the first
+	 *         jump from a subsequent segment if there is no jump from {@code segment}
+	 */
+
+	private int firstJump(int segment) {
+		int low = 0, high = jumpsCount;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (jumps[middle * 3] < segment)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+
+		return low;
+	}
+
+	/**
+	 * Yields the bytes of the code written so far, with the offsets of its jumps patched.
+	 * A jump whose target is too far for a 16 bits offset is widened: a {@code goto} becomes a
+	 * {@code goto_w} and a conditional jump becomes the opposite conditional jump over a {@code goto_w}.
+	 * Since this moves the subsequent code, more jumps might need to be widened, until nothing changes.
+	 *
+	 * @return the bytes of the code
+	 */
+
+	private byte[] getCode() {
+		// the number of bytes added before each jump and, at the end, before the end of the code
+		int[] shifts = new int[jumpsCount + 1];
+		boolean[] wide = new boolean[jumpsCount];
+		boolean changed = true;
+
+		while (changed) {
+			changed = false;
+
+			for (int pos = 0, shift = 0; pos < jumpsCount; pos++) {
+				shifts[pos] = shift;
+				if (wide[pos])
+					shift += code[jumps[pos * 3 + 2]] == (byte) Constants.GOTO ? 2 : 5;
+
+				shifts[pos + 1] = shift;
+			}
+
+			for (int pos = 0; pos < jumpsCount; pos++) {
+				int offset = moved(jumpTargets[pos].position, shifts) - moved(jumps[pos * 3 + 2], shifts);
+				if (!wide[pos] && offset != (short) offset)
+					changed = wide[pos] = true;
+			}
+		}
+
+		if (shifts[jumpsCount] == 0) {
+			// this is the frequent case, where the code does not move
+			byte[] result = Arrays.copyOf(code, length);
+			for (int pos = 0; pos < jumpsCount; pos++)
+				putShort(result, jumps[pos * 3 + 2] + 1, jumpTargets[pos].position - jumps[pos * 3 + 2]);
+
+			return result;
+		}
+
+		byte[] result = new byte[length + shifts[jumpsCount]];
+		int copied = 0;
+
+		for (int pos = 0; pos < jumpsCount; pos++) {
+			int at = jumps[pos * 3 + 2], movedAt = at + shifts[pos];
+			int opcode = code[at] & 0xff, target = moved(jumpTargets[pos].position, shifts);
+			System.arraycopy(code, copied, result, copied + shifts[pos], at - copied);
+			copied = at + 3;
+
+			if (!wide[pos]) {
+				result[movedAt] = (byte) opcode;
+				putShort(result, movedAt + 1, target - movedAt);
+			}
+			else if (opcode == Constants.GOTO) {
+				result[movedAt] = (byte) Constants.GOTO_W;
+				putInt(result, movedAt + 1, target - movedAt);
+			}
+			else {
+				// the conditional jumps come in pairs of opposite conditions,
+				// from ifeq and ifne to if_acmpeq and if_acmpne
+				result[movedAt] = (byte) (opcode % 2 == Constants.IFEQ % 2 ? opcode + 1 : opcode - 1);
+				putShort(result, movedAt + 1, 8);
+				result[movedAt + 3] = (byte) Constants.GOTO_W;
+				putInt(result, movedAt + 4, target - movedAt - 3);
+			}
+		}
+
+		System.arraycopy(code, copied, result, copied + shifts[jumpsCount], length - copied);
+
+		return result;
+	}
+
+	/**
+	 * Yields the offset of a program point after the jumps have been widened.
+	 *
+	 * @param position the offset of the program point before the jumps have been widened
+	 * @param shifts the number of bytes added before each jump and before the end of the code
+	 * @return the offset of the program point after the jumps have been widened
+	 */
+
+	private int moved(int position, int[] shifts) {
+		// the jumps are sorted by offset: we look for the first jump at or after position
+		int low = 0, high = jumpsCount;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (jumps[middle * 3 + 2] < position)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+
+		return position + shifts[low];
+	}
+
+	/**
+	 * Writes two bytes into an array, most significant first.
+	 *
+	 * @param bytes the array
+	 * @param at the position where the first byte is written
+	 * @param value the bytes
+	 */
+
+	private static void putShort(byte[] bytes, int at, int value) {
+		bytes[at] = (byte) (value >> 8);
+		bytes[at + 1] = (byte) value;
+	}
+
+	/**
+	 * Writes four bytes into an array, most significant first.
+	 *
+	 * @param bytes the array
+	 * @param at the position where the first byte is written
+	 * @param value the bytes
+	 */
+
+	private static void putInt(byte[] bytes, int at, int value) {
+		putShort(bytes, at, value >> 16);
+		putShort(bytes, at + 2, value);
+	}
+
+	/**
+	 * Yields a Java method whose code is that written so far.
+	 *
+	 * @param flags the access flags of the method
+	 * @param name the name of the method
+	 * @param descriptor the descriptor of the method
+	 * @return the method
+	 */
+
+	public Method getMethod(int flags, String name, String descriptor) {
+		for (int pos = 0; pos < jumpsCount; pos++)
+			if (jumpTargets[pos].position < 0)
+				throw new IllegalStateException("jump to a label that has not been placed");
+
+		// the length of the attribute is recomputed from its components
+		Code attribute = new Code(cpg.addUtf8("Code"), 0, getMaxStack(), maxLocals,
+			getCode(), new CodeException[0], new Attribute[0], cpg.getConstantPool());
+
+		return new Method(flags, cpg.addUtf8(name), cpg.addUtf8(descriptor), new Attribute[] { attribute }, cpg.getConstantPool());
+	}
+}
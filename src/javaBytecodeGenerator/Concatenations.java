@@ -0,0 +1,115 @@
+package javaBytecodeGenerator;
+
+import java.util.BitSet;
+import java.util.LinkedList;
+
+import optimization.StackEffect;
+import bytecode.Bytecode;
+import bytecode.BytecodeList;
+import bytecode.CALL;
+import bytecode.VIRTUALCALL;
+
+/**
+ * The chains of concatenations of strings in a list of Kitten bytecodes, such as those
+ * for {@code s.concat(a).concat(b).concat(c)}. A call to {@code concat()} is linked to the next
+ * one if the string that it yields is the receiver of the next one and is not used elsewhere.
+ * A chain is generated as a single {@code runTime.Concatenation}, so that only the string
+ * at its end is built. The chains are found inside a single block of code, by following
+ * the height of the stack of the Kitten abstract machine.
+ */
+
+public class Concatenations {
+
+	/**
+	 * The positions, inside the list of bytecodes, of the calls to {@code concat()}
+	 * whose result is the receiver of the next call in their chain.
+	 */
+
+	private final BitSet continuing = new BitSet();
+
+	/**
+	 * The positions, inside the list of bytecodes, of the calls to {@code concat()}
+	 * whose receiver is the result of the previous call in their chain.
+	 */
+
+	private final BitSet continued = new BitSet();
+
+	/**
+	 * Finds the chains of concatenations in a list of bytecodes.
+	 *
+	 * @param bytecode the list of bytecodes. It can be {@code null}
+	 */
+
+	public Concatenations(BytecodeList bytecode) {
+		// the calls whose result is still on the stack, with the height of the stack where it lies
+		LinkedList<int[]> open = new LinkedList<>();
+		int height = 0, pos = 0;
+
+		for (BytecodeList cursor = bytecode; cursor != null; cursor = cursor.getTail(), pos++) {
+			Bytecode head = cursor.getHead();
+			int pops = StackEffect.pops(head);
+			if (pops < 0) {
+				open.clear();
+				continue;
+			}
+
+			height -= pops;
+
+			// the results of the calls among the popped elements are used here
+			while (!open.isEmpty() && open.peek()[1] >= height) {
+				int[] call = open.pop();
+				if (call[1] == height && isConcat(head)) {
+					continuing.set(call[0]);
+					continued.set(pos);
+				}
+			}
+
+			height += StackEffect.pushes(head);
+
+			if (isConcat(head))
+				open.push(new int[] { pos, height - 1 });
+		}
+	}
+
+	/**
+	 * Determines if the bytecode at a given position is a call to {@code concat()}
+	 * whose result is the receiver of the next call in its chain.
+	 *
+	 * @param pos the position of the bytecode inside the list
+	 * @return true if and only if that is the case
+	 */
+
+	public boolean isContinuing(int pos) {
+		return continuing.get(pos);
+	}
+
+	/**
+	 * Determines if the bytecode at a given position is a call to {@code concat()}
+	 * whose receiver is the result of the previous call in its chain.
+	 *
+	 * @param pos the position of the bytecode inside the list
+	 * @return true if and only if that is the case
+	 */
+
+	public boolean isContinued(int pos) {
+		return continued.get(pos);
+	}
+
+	/**
+	 * Determines if a bytecode is a call to a {@code concat()} method of class {@code String}.
+	 * Calls that might reach a redefinition of that method in a subclass are excluded.
+	 *
+	 * @param bytecode the bytecode
+	 * @return true if and only if {@code bytecode} calls a {@code concat()} method of {@code String}
+	 */
+
+	private static boolean isConcat(Bytecode bytecode) {
+		if (!(bytecode instanceof VIRTUALCALL))
+			return false;
+
+		CALL call = (CALL) bytecode;
+		return call.getStaticTarget().getDefiningClass().getName().equals("String")
+			&& call.getStaticTarget().getName().equals("concat")
+			&& call.getDynamicTargets().size() == 1 && call.getDynamicTargets().contains(call.getStaticTarget());
+	}
+}
\ No newline at end of file
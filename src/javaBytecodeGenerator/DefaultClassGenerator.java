@@ -21,8 +21,57 @@ public class DefaultClassGenerator extends JavaClassGenerator {
 	 * @param sigs a set of class member signatures. These are those that must be translated
 	 */
 	public DefaultClassGenerator(ClassType clazz, Set<ClassMemberSignature> sigs) {
+		this(clazz, sigs, false);
+	}
+
+	/**
+	 * Builds a class generator for the given class type, possibly adding
+	 * execution counters to its constructors and methods.
+	 *
+	 * @param clazz the class type
+	 * @param sigs a set of class member signatures. These are those that must be translated
+	 * @param profile true if and only if the generated code must count its executions
+	 */
+	public DefaultClassGenerator(ClassType clazz, Set<ClassMemberSignature> sigs, boolean profile) {
+		this(clazz, sigs, profile, Backend.BCEL);
+	}
+
+	/**
+	 * Builds a class generator for the given class type, possibly adding
+	 * execution counters to its constructors and methods.
+	 *
+	 * @param clazz the class type
+	 * @param sigs a set of class member signatures. These are those that must be translated
+	 * @param profile true if and only if the generated code must count its executions
+	 * @param backend the backend that writes the class
+	 */
+	public DefaultClassGenerator(ClassType clazz, Set<ClassMemberSignature> sigs, boolean profile, Backend backend) {
+		this(clazz, sigs, profile, backend, false);
+	}
+
+	/**
+	 * Builds a class generator for the given class type, possibly adding
+	 * execution counters to its constructors and methods and sharing its string literals.
+	 *
+	 * @param clazz the class type
+	 * @param sigs a set of class member signatures. These are those that must be translated
+	 * @param profile true if and only if the generated code must count its executions
+	 * @param backend the backend that writes the class
+	 * @param shareLiterals true if and only if each string literal must be created only once
+	 *                      (see {@link JavaClassGenerator#shareLiterals()})
+	 */
+	public DefaultClassGenerator(ClassType clazz, Set<ClassMemberSignature> sigs, boolean profile, Backend backend, boolean shareLiterals) {
 		super(clazz.getName(), clazz.getSuperclass() != null ? clazz.getSuperclass().getName() : "java.lang.Object",
 				Constants.ACC_PUBLIC);
+
+		setBackend(backend);
+
+		if (shareLiterals)
+			shareLiterals();
+
+		if (profile)
+			enableProfiling(new ProfileCounters(clazz, sigs));
+
 		// we add the fields
 		for (FieldSignature field: clazz.getFields().values())
 			if (sigs.contains(field))
@@ -1,20 +1,36 @@
 package javaBytecodeGenerator;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.List;
 
 
+import org.apache.bcel.Constants;
+import org.apache.bcel.classfile.Attribute;
+import org.apache.bcel.classfile.Code;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.classfile.Unknown;
+import org.apache.bcel.generic.ArrayType;
 import org.apache.bcel.generic.ClassGen;
 import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.FieldGen;
 import org.apache.bcel.generic.GOTO;
 import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionConstants;
 import org.apache.bcel.generic.InstructionFactory;
 import org.apache.bcel.generic.InstructionHandle;
 import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.ObjectType;
+import org.apache.bcel.generic.PUSH;
 import org.apache.bcel.generic.TargetLostException;
+import org.apache.bcel.generic.Type;
 
+import runTime.Profile;
 import translation.Block;
 
 import bytecode.BranchingBytecode;
@@ -45,6 +61,42 @@ public class JavaClassGenerator extends ClassGen {
 
 	private final static String[] noInterfaces = new String[] {};
 
+	/**
+	 * The execution counters of the class being generated, or {@code null} if profiling is not enabled.
+	 */
+
+	private ProfileCounters counters;
+
+	/**
+	 * The code executed by the static initializer of the class being generated
+	 * before it initializes the string literals, or {@code null} if there is none.
+	 */
+
+	private InstructionList staticInitializer;
+
+	/**
+	 * The names of the static fields that hold the string literals of the class being generated,
+	 * for each literal, in order of appearance. This is {@code null} if the literals are not shared.
+	 */
+
+	private Map<String, String> literals;
+
+	/**
+	 * The backend that writes the class being generated.
+	 */
+
+	private Backend backend = Backend.BCEL;
+
+	/**
+	 * The version of the class files that carry stack maps. This is deliberately the version
+	 * of Java 8, rather than that of the Java Virtual Machine running the compiler: it is the
+	 * oldest version where stack maps are mandatory, so that the classes get verified in a single pass
+	 * but can still be run by older virtual machines. The later versions add no feature that
+	 * the generated code uses.
+	 */
+
+	private final static int MODERN_MAJOR_VERSION = 52;
+
 	/**
 	 * Builds a class generator for the given class type.
 	 * If this class contains one or more tests, builds a test class generator
@@ -80,10 +132,209 @@ public class JavaClassGenerator extends ClassGen {
 		return factory;
 	}
 
+	/**
+	 * Selects the backend that writes the class being generated. This must be
+	 * called before adding constructors and methods, since the {@link Backend#DIRECT}
+	 * backend writes their code directly, without building its BCEL representation.
+	 *
+	 * @param backend the backend
+	 */
+
+	protected final void setBackend(Backend backend) {
+		this.backend = backend;
+	}
+
+	/**
+	 * Yields the backend that writes the class being generated.
+	 *
+	 * @return the backend
+	 */
+
+	public final Backend getBackend() {
+		return backend;
+	}
+
+	/**
+	 * Yields the Java class generated so far, in the format of the given backend.
+	 * Its static initializer is added first, if it needs one. This must be called only once.
+	 *
+	 * @param backend the backend
+	 * @return the Java class
+	 */
+
+	public JavaClass getJavaClass(Backend backend) {
+		addStaticInitializer();
+
+		if (backend == Backend.STACKMAP) {
+			for (Method method: getMethods())
+				if (method.getCode() != null)
+					replaceMethod(method, addStackMap(method));
+
+			setMajor(MODERN_MAJOR_VERSION);
+			setMinor(0);
+		}
+
+		return getJavaClass();
+	}
+
+	/**
+	 * Yields a copy of a method of this class, whose code carries its stack map.
+	 *
+	 * @param method the method
+	 * @return the copy, or {@code method} itself if its code needs no stack map frame
+	 */
+
+	private Method addStackMap(Method method) {
+		ConstantPoolGen cpg = getConstantPool();
+		Code code = method.getCode();
+		byte[] bytecode = code.getCode().clone();
+
+		byte[] stackMap = new StackMapBuilder(getClassName(), cpg, method.getName(), method.isStatic(),
+			method.getArgumentTypes(), code.getMaxLocals(), bytecode, code.getExceptionTable()).getStackMapTable();
+
+		// as javac, we add no attribute to code without frames, such as straight-line code.
+		// Its bytecode is unchanged, since dead code would have got a frame
+		if (stackMap[0] == 0 && stackMap[1] == 0)
+			return method;
+
+		Attribute[] codeAttributes = Arrays.copyOf(code.getAttributes(), code.getAttributes().length + 1);
+		codeAttributes[codeAttributes.length - 1] = new Unknown(cpg.addUtf8("StackMapTable"), stackMap.length, stackMap, cpg.getConstantPool());
+
+		// the length of the attribute is recomputed when its components are set
+		Code newCode = new Code(code.getNameIndex(), code.getLength(), code.getMaxStack(), code.getMaxLocals(),
+			bytecode, code.getExceptionTable(), codeAttributes, cpg.getConstantPool());
+
+		Attribute[] attributes = method.getAttributes().clone();
+		for (int pos = 0; pos < attributes.length; pos++)
+			if (attributes[pos] instanceof Code)
+				attributes[pos] = newCode;
+
+		return new Method(method.getAccessFlags(), method.getNameIndex(), method.getSignatureIndex(), attributes, cpg.getConstantPool());
+	}
+
+	/**
+	 * Adds execution counters to the class being generated. The Java bytecode
+	 * generated afterwards for the constructors and methods of {@code counters}
+	 * increments them at its entry and along the edges leaving its branches.
+	 * The counters are held in a static array that the static initializer of the
+	 * class registers to the run-time, which dumps them when the program terminates.
+	 * The static initializer is added by {@link #getJavaClass(Backend)}.
+	 *
+	 * @param counters the counters of the class
+	 */
+
+	protected final void enableProfiling(ProfileCounters counters) {
+		this.counters = counters;
+
+		ArrayType arrayOfLongs = new ArrayType(Type.LONG, 1);
+		addField(new FieldGen(Constants.ACC_PRIVATE | Constants.ACC_STATIC | Constants.ACC_FINAL,
+			arrayOfLongs, ProfileCounters.FIELD_NAME, getConstantPool()).getField());
+
+		InstructionList il = new InstructionList();
+		il.append(new PUSH(getConstantPool(), counters.getSize()));
+		il.append(factory.createNewArray(Type.LONG, (short) 1));
+		il.append(InstructionConstants.DUP);
+		il.append(factory.createPutStatic(getClassName(), ProfileCounters.FIELD_NAME, arrayOfLongs));
+		il.append(new PUSH(getConstantPool(), getClassName()));
+		il.append(new PUSH(getConstantPool(), counters.getChecksum()));
+		il.append(factory.createInvoke(Profile.class.getName(), "register", Type.VOID,
+			new Type[] { arrayOfLongs, Type.STRING, Type.LONG }, Constants.INVOKESTATIC));
+
+		staticInitializer = il;
+	}
+
+	/**
+	 * Shares the string literals of the class being generated. If Kitten strings are
+	 * compiled into {@code runTime.String} wrappers, each distinct literal is then created
+	 * only once, by the static initializer of the class, and held in a static field. If they
+	 * are compiled into Java strings, each literal is then the constant of the constant pool,
+	 * rather than a copy of it. This must be called before adding constructors and methods
+	 * and only if no string is modified in place, that is, if {@code String.input()} is never called.
+	 */
+
+	protected final void shareLiterals() {
+		literals = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Determines if the string literals of the class being generated are shared
+	 * (see {@link #shareLiterals()}).
+	 *
+	 * @return true if and only if the string literals are shared
+	 */
+
+	public final boolean sharesLiterals() {
+		return literals != null;
+	}
+
+	/**
+	 * Yields the static field that holds a string literal of the class being generated.
+	 * The field is added to the class if it does not exist yet.
+	 *
+	 * @param value the lexical value of the literal
+	 * @return the name of the field, or {@code null} if the literals of the class are not shared
+	 */
+
+	public final String getLiteralField(String value) {
+		if (literals == null)
+			return null;
+
+		String name = literals.get(value);
+		if (name == null)
+			// Kitten identifiers never contain a dollar
+			literals.put(value, name = "literal$" + literals.size());
+
+		return name;
+	}
+
+	/**
+	 * Adds to the class being generated its static initializer, if it needs one. It runs the
+	 * code set up by {@link #enableProfiling(ProfileCounters)}, if any, and initializes the
+	 * static fields that hold the string literals of the class.
+	 */
+
+	private void addStaticInitializer() {
+		InstructionList il = staticInitializer != null ? staticInitializer : new InstructionList();
+		staticInitializer = null;
+
+		if (literals != null) {
+			String kittenStringName = runTime.String.class.getName();
+			ObjectType kittenStringType = new ObjectType(kittenStringName);
+
+			for (Map.Entry<String, String> literal: literals.entrySet()) {
+				addField(new FieldGen(Constants.ACC_PRIVATE | Constants.ACC_STATIC | Constants.ACC_FINAL,
+					kittenStringType, literal.getValue(), getConstantPool()).getField());
+
+				il.append(factory.createNew(kittenStringName));
+				il.append(InstructionConstants.DUP);
+				il.append(factory.createConstant(literal.getKey()));
+				il.append(factory.createInvoke(kittenStringName, Constants.CONSTRUCTOR_NAME, Type.VOID,
+					new Type[] { Type.STRING }, Constants.INVOKESPECIAL));
+				il.append(factory.createPutStatic(getClassName(), literal.getValue(), kittenStringType));
+			}
+
+			literals = null;
+		}
+
+		if (il.isEmpty())
+			return;
+
+		il.append(InstructionConstants.RETURN);
+
+		MethodGen clinit = new MethodGen(Constants.ACC_STATIC, Type.VOID, Type.NO_ARGS, null,
+			"<clinit>", getClassName(), il, getConstantPool());
+		clinit.setMaxStack();
+		clinit.setMaxLocals();
+		addMethod(clinit.getMethod());
+	}
+
 	/**
 	 * Generates the Java bytecode for the given block of code and for all
-	 * blocks reachable from it. It calls {@link #generateJavaBytecodeFollows(Block, Map, InstructionList)}
-	 * and then {@link #removeRedundancies(InstructionList)}.
+	 * blocks reachable from it. The blocks are laid out in the order computed by
+	 * {@link BlockLayout}, so that most jumps between blocks become fall-throughs.
+	 * If profiling is enabled for this code, the execution counters are
+	 * incremented at its entry and along the edges leaving its branches.
+	 * It then calls {@link #removeRedundancies(InstructionList)}.
 	 *
 	 * @param block the code from which the generation starts
 	 * @return the Java bytecode for {@code block} and all blocks reachable from it
@@ -91,92 +342,203 @@ public class JavaClassGenerator extends ClassGen {
 
 	public InstructionList generateJavaBytecode(Block block) {
 		InstructionList instructions = new InstructionList();
+		List<Block> order = new BlockLayout(block).getOrder();
+		Map<Block, InstructionHandle> starts = new HashMap<>(), ends = new HashMap<>();
+		boolean profiled = counters != null && counters.getEntryCounter(block) != null;
+
+		// we first append the Java bytecode of the blocks, in their layout order
+		for (Block current: order) {
+			starts.put(current, instructions.append(current.getBytecode().generateJavaBytecode(this)));
+			ends.put(current, instructions.getEnd());
+		}
+
+		// then we put, after each block, the glue that leads to its follows
+		for (int pos = 0; pos < order.size(); pos++) {
+			Block current = order.get(pos);
+			Block next = pos + 1 < order.size() ? order.get(pos + 1) : null;
+			InstructionList glue = generateJavaBytecodeFollows(current, next, starts, profiled);
+
+			if (!glue.isEmpty())
+				instructions.append(ends.get(current), glue);
+		}
 
-		generateJavaBytecode(block, new HashMap<Block, InstructionHandle>(), instructions);
+		if (profiled)
+			// the jumps to the beginning of the code do not count as a new entry
+			instructions.insert(increment(counters.getEntryCounter(block)));
 
 		return removeRedundancies(instructions);
 	}
 
 	/**
-	 * Auxiliary method that generates the Java bytecode for the given block
-	 * of code and for all blocks reachable from it. It uses a set of processed
-	 * blocks in order to avoid looping.
+	 * Auxiliary method that generates the <i>glue</i> between a block and its follows,
+	 * such as the conditional Java bytecode for the branching code blocks.
+	 * No jump is generated towards the follow that is laid out immediately after the block.
 	 *
-	 * @param block the block from which the code generation starts
-	 * @param done the set of blocks which have been already processed
-	 * @param instructions the Java bytecode that has already been generated.
-	 *                     It gets modified in order to include the Java bytecode generated
-	 *                     for {@code block} and for those that are reachable from it
-	 * @return a reference to the first instruction of the Java bytecode
-	 *         generated for this block
+	 * @param block the block for whose followers the glue is being generated
+	 * @param next the block laid out immediately after {@code block}, if any
+	 * @param starts the beginning of the Java bytecode generated for each block
+	 * @param profiled true if and only if the glue must count the edges that leave {@code block}
+	 * @return the glue, possibly empty
 	 */
 
-	private InstructionHandle generateJavaBytecode(Block block, Map<Block, InstructionHandle> done, InstructionList instructions) {
-		// we first check if we already processed the block
-		InstructionHandle result = done.get(block);
-		if (result != null)
-			return result;
+	private InstructionList generateJavaBytecodeFollows(Block block, Block next, Map<Block, InstructionHandle> starts, boolean profiled) {
+		List<Block> follows = block.getFollows();
+
+		if (follows.isEmpty())
+			return new InstructionList();
+		else if (follows.size() > 1 && follows.get(0).getBytecode().getHead() instanceof BranchingBytecode) {
+			// we are facing a branch due to a comparison bytecode. That bytecode
+			// and its negation are at the beginning of our two following blocks
+			Block no = follows.get(1), yes = follows.get(0);
+			BranchingBytecode condition = (BranchingBytecode) yes.getBytecode().getHead();
+			Integer edges = profiled ? counters.getEdgeCounters(block) : null;
+
+			if (edges != null) {
+				// the counters are incremented next to the branch, that only jumps a few bytes
+				// ahead, since a conditional jump cannot reach a target that is too far away.
+				// The follow laid out immediately after the block, if any, is reached by falling through
+				int fallPos = next == yes ? 0 : 1;
+				Block fall = follows.get(fallPos), other = follows.get(1 - fallPos);
+
+				InstructionList fallGlue = increment(edges + fallPos);
+				if (fall != next)
+					fallGlue.append(new GOTO(starts.get(fall)));
+
+				InstructionList il = ((BranchingBytecode) fall.getBytecode().getHead()).generateJavaBytecode(this, fallGlue.getStart());
+				il.append(increment(edges + 1 - fallPos));
+				il.append(new GOTO(starts.get(other)));
+				il.append(fallGlue);
+
+				return il;
+			}
+			else if (next == no)
+				// we jump to yes if the condition holds, and fall through to no otherwise
+				return condition.generateJavaBytecode(this, starts.get(yes));
+			else if (next == yes)
+				// we jump to no if the negated condition holds, and fall through to yes otherwise
+				return ((BranchingBytecode) no.getBytecode().getHead()).generateJavaBytecode(this, starts.get(no));
+			else
+				return condition.generateJavaBytecode(this, starts.get(yes), starts.get(no));
+		}
+		else if (follows.get(0) == next)
+			// the follow comes immediately after the block
+			return new InstructionList();
+		else
+			return new InstructionList(new GOTO(starts.get(follows.get(0))));
+	}
 
-		// this is the first time that we process the block!
+	/**
+	 * Writes the Java bytecode for the given block of code and for all blocks
+	 * reachable from it directly into the code of a method. The blocks are laid out
+	 * and glued together as in {@link #generateJavaBytecode(Block)}, but no {@code nop}
+	 * nor {@code goto} to the subsequent instruction is ever written, hence there is
+	 * nothing to remove afterwards.
+	 *
+	 * @param block the code from which the writing starts
+	 * @param writer the writer of the code of the method
+	 */
 
-		// we generate the Java bytecode for the code inside the block, and
-		// we put it at the end of the instructions already generated
-		result = instructions.append(block.getBytecode().generateJavaBytecode(this));
+	public void writeJavaBytecode(Block block, CodeWriter writer) {
+		List<Block> order = new BlockLayout(block).getOrder();
+		Map<Block, CodeWriter.Label> starts = new HashMap<>();
+		boolean profiled = counters != null && counters.getEntryCounter(block) != null;
 
-		// we record the beginning of the Java bytecode generated for the block, for future lookup
-		done.put(block, result);
+		for (Block current: order)
+			starts.put(current, new CodeWriter.Label());
 
-		// we process the following blocks
-		generateJavaBytecodeFollows(block, done, instructions);
+		if (profiled)
+			// the jumps to the beginning of the code do not count as a new entry
+			increment(writer, counters.getEntryCounter(block));
 
-		// we return the beginning of the Java bytecode generated for the block
-		return result;
+		for (int pos = 0; pos < order.size(); pos++) {
+			Block current = order.get(pos);
+			writer.place(starts.get(current));
+			current.getBytecode().writeJavaBytecode(writer);
+			writeJavaBytecodeFollows(writer, current, pos + 1 < order.size() ? order.get(pos + 1) : null, starts, profiled);
+		}
 	}
 
 	/**
-	 * Auxiliary method that generates the Java bytecode for the blocks
-	 * that follow a given block. That Java bytecode might include some
-	 * <i>glue</i>, such as the conditional Java bytecode for the branching code blocks.
+	 * Auxiliary method that writes the <i>glue</i> between a block and its follows,
+	 * as {@link #generateJavaBytecodeFollows(Block, Block, Map, boolean)} generates it.
 	 *
-	 * @param block the block for whose followers the code is being generated
-	 * @param done the set of blocks which have been already processed
-	 * @param instructions the Java bytecode that has already been generated from the predecessors
-	 *                     and from the code of {@code block}. It gets modified
-	 *                     in order to include the Java bytecode generated for the followers
-	 *                     of {@code block}, including some <i>glue</i>
+	 * @param writer the writer of the code of the method
+	 * @param block the block for whose followers the glue is being written
+	 * @param next the block laid out immediately after {@code block}, if any
+	 * @param starts the label at the beginning of each block
+	 * @param profiled true if and only if the glue must count the edges that leave {@code block}
 	 */
- 
-	private void generateJavaBytecodeFollows(Block block, Map<Block, InstructionHandle> done, InstructionList instructions) {
+
+	private void writeJavaBytecodeFollows(CodeWriter writer, Block block, Block next, Map<Block, CodeWriter.Label> starts, boolean profiled) {
 		List<Block> follows = block.getFollows();
 
-		// this is where the Java bytecode currently ends
-		InstructionHandle ourLast = instructions.getEnd();
+		if (follows.isEmpty())
+			return;
+		else if (follows.size() > 1 && follows.get(0).getBytecode().getHead() instanceof BranchingBytecode) {
+			Block no = follows.get(1), yes = follows.get(0);
+			Integer edges = profiled ? counters.getEdgeCounters(block) : null;
+
+			if (edges != null) {
+				int fallPos = next == yes ? 0 : 1;
+				Block fall = follows.get(fallPos), other = follows.get(1 - fallPos);
+				CodeWriter.Label fallGlue = new CodeWriter.Label();
+
+				((BranchingBytecode) fall.getBytecode().getHead()).writeJavaBytecode(writer, fallGlue);
+				increment(writer, edges + 1 - fallPos);
+				writer.jump(Constants.GOTO, starts.get(other));
+				writer.place(fallGlue);
+				increment(writer, edges + fallPos);
+				if (fall != next)
+					writer.jump(Constants.GOTO, starts.get(fall));
+			}
+			else if (next == no)
+				((BranchingBytecode) yes.getBytecode().getHead()).writeJavaBytecode(writer, starts.get(yes));
+			else if (next == yes)
+				((BranchingBytecode) no.getBytecode().getHead()).writeJavaBytecode(writer, starts.get(no));
+			else {
+				((BranchingBytecode) yes.getBytecode().getHead()).writeJavaBytecode(writer, starts.get(yes));
+				writer.jump(Constants.GOTO, starts.get(no));
+			}
+		}
+		else if (follows.get(0) != next)
+			writer.jump(Constants.GOTO, starts.get(follows.get(0)));
+	}
 
-		if (!follows.isEmpty())
-			if (follows.get(0).getBytecode().getHead() instanceof BranchingBytecode) {
-				// we are facing a branch due to a comparison bytecode. That bytecode
-				// and its negation are at the beginning of our two following blocks
+	/**
+	 * Writes the Java bytecode that increments an execution counter.
+	 *
+	 * @param writer the writer of the code of the method
+	 * @param counter the number of the counter
+	 */
 
-				// we get the condition of the branching
-				BranchingBytecode condition = (BranchingBytecode) follows.get(0).getBytecode().getHead();
+	private void increment(CodeWriter writer, int counter) {
+		writer.field(Constants.GETSTATIC, getClassName(), ProfileCounters.FIELD_NAME, "[J", 1);
+		writer.constant(counter);
+		writer.op(Constants.DUP2, 2);
+		writer.op(Constants.LALOAD, 0);
+		writer.op(Constants.LCONST_1, 2);
+		writer.op(Constants.LADD, -2);
+		writer.op(Constants.LASTORE, -4);
+	}
 
-				// we append the code for the two blocks that follow the block
-				InstructionHandle noH = generateJavaBytecode(follows.get(1), done, instructions);
-				InstructionHandle yesH = generateJavaBytecode(follows.get(0), done, instructions);
+	/**
+	 * Generates the Java bytecode that increments an execution counter.
+	 *
+	 * @param counter the number of the counter
+	 * @return the Java bytecode
+	 */
 
-				// in between, we put some code that jumps to yesH if condition holds, and to noH otherwise
-				instructions.append(ourLast, condition.generateJavaBytecode(this, yesH, noH));
-			}
-			else {
-				// we append the code for the first follower
-				InstructionHandle followJB = generateJavaBytecode(follows.get(0), done, instructions);
-
-				// in between, we put a goto bytecode. Note that we need it since we have no guarantee
-				// that the code for follows will be appended exactly after that for the block. The
-				// follows blocks might indeed have been already translated into Java bytecode, and hence
-				// followJB might be an internal program point in instructions
-				instructions.append(ourLast, new GOTO(followJB));
-			}
+	private InstructionList increment(int counter) {
+		InstructionList il = new InstructionList();
+		il.append(factory.createGetStatic(getClassName(), ProfileCounters.FIELD_NAME, new ArrayType(Type.LONG, 1)));
+		il.append(new PUSH(getConstantPool(), counter));
+		il.append(InstructionConstants.DUP2);
+		il.append(InstructionConstants.LALOAD);
+		il.append(InstructionConstants.LCONST_1);
+		il.append(InstructionConstants.LADD);
+		il.append(InstructionConstants.LASTORE);
+
+		return il;
 	}
 
 	/**
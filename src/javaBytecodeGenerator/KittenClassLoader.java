@@ -0,0 +1,115 @@
+package javaBytecodeGenerator;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.bcel.classfile.JavaClass;
+
+import runTime.Console;
+
+/**
+ * A class loader for the Java classes generated for a Kitten program, kept in memory
+ * rather than dumped on the file system. It lets the compiler run the program in the
+ * same Java Virtual Machine where it has been compiled. The generated classes take precedence
+ * over the class files with the same name that might be in the class path, such as those
+ * of a previous compilation. The other classes, such as those of the runtime, are
+ * loaded by the class loader of the compiler.
+ */
+
+public class KittenClassLoader extends ClassLoader {
+
+	/**
+	 * The bytes of the generated classes, for each of their names.
+	 */
+
+	private final Map<String, byte[]> classes = new HashMap<>();
+
+	/**
+	 * Builds a class loader for some generated classes.
+	 *
+	 * @param classes the classes, for each of their names
+	 */
+
+	public KittenClassLoader(Map<String, JavaClass> classes) {
+		super(KittenClassLoader.class.getClassLoader());
+
+		for (Map.Entry<String, JavaClass> clazz: classes.entrySet())
+			this.classes.put(clazz.getKey(), clazz.getValue().getBytes());
+	}
+
+	@Override
+	protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+		if (!classes.containsKey(name))
+			return super.loadClass(name, resolve);
+
+		synchronized (getClassLoadingLock(name)) {
+			Class<?> result = findLoadedClass(name);
+			if (result == null)
+				result = findClass(name);
+
+			if (resolve)
+				resolveClass(result);
+
+			return result;
+		}
+	}
+
+	@Override
+	protected Class<?> findClass(String name) throws ClassNotFoundException {
+		byte[] bytes = classes.get(name);
+		if (bytes == null)
+			throw new ClassNotFoundException(name);
+
+		return defineClass(name, bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Determines if a class has been generated.
+	 *
+	 * @param name the name of the class
+	 * @return true if and only if this loader holds a generated class with that name
+	 */
+
+	public boolean contains(String name) {
+		return classes.containsKey(name);
+	}
+
+	/**
+	 * Runs the {@code main} method of a generated class, in the current thread.
+	 * If the program fails with an exception, the exception is thrown again,
+	 * as if it had been thrown by a program run in its own Java Virtual Machine.
+	 * The output of the program is buffered only while it runs: afterwards,
+	 * the standard output and the handler of uncaught exceptions are as before.
+	 *
+	 * @param name the name of the class
+	 * @throws ClassNotFoundException if the class cannot be found
+	 * @throws NoSuchMethodException if the class has no {@code main} method
+	 */
+
+	public void run(String name) throws ClassNotFoundException, NoSuchMethodException {
+		Method main = loadClass(name).getMethod("main", String[].class);
+
+		Console.install();
+		try {
+			main.invoke(null, (Object) new String[0]);
+		}
+		catch (IllegalAccessException e) {
+			// the main method of the generated classes is public
+			throw new IllegalStateException(e);
+		}
+		catch (InvocationTargetException e) {
+			// Kitten programs only throw unchecked exceptions
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			else if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			else
+				throw new IllegalStateException(e.getCause());
+		}
+		finally {
+			Console.uninstall();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,188 @@
+package javaBytecodeGenerator;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.bcel.classfile.JavaClass;
+
+import errorMsg.Diagnostic;
+import errorMsg.DiagnosticListener;
+import lexical.SourceProvider;
+import optimization.PassManager;
+import translation.Program;
+import types.ClassType;
+
+/**
+ * The Kitten compiler, as a library. It reads the source code of the classes from a
+ * {@link SourceProvider}, sends the generated Java classes to an {@link OutputSink} and
+ * reports the errors to a {@link DiagnosticListener}, so that it can be embedded in other
+ * tools without any temporary file or directory. For instance:
+ *
+ * <pre>
+ * Map&lt;String, byte[]&gt; classes = new HashMap&lt;&gt;();
+ * KittenCompiler compiler = new KittenCompiler(SourceProvider.of(sources), OutputSink.of(classes), diagnostics::add);
+ * if (compiler.compile("Main"))
+ *   ...
+ * </pre>
+ *
+ * Since the class types of the compiled program are shared, compilations
+ * are performed one at a time, also by distinct compilers.
+ */
+
+public class KittenCompiler {
+
+	/**
+	 * The provider of the source code of the classes.
+	 */
+
+	private final SourceProvider sources;
+
+	/**
+	 * The receiver of the generated classes.
+	 */
+
+	private final OutputSink output;
+
+	/**
+	 * The receiver of the errors.
+	 */
+
+	private final DiagnosticListener listener;
+
+	/**
+	 * The optimizations applied to the Kitten code.
+	 */
+
+	private PassManager passes = new PassManager(PassManager.DEFAULT_LEVEL);
+
+	/**
+	 * The backend that writes the classes.
+	 */
+
+	private Backend backend = Backend.BCEL;
+
+	/**
+	 * True if and only if the strings must be compiled into Java strings, when possible.
+	 */
+
+	private boolean javaStrings;
+
+	/**
+	 * True if and only if the generated code must count its executions.
+	 */
+
+	private boolean profile;
+
+	/**
+	 * The number of errors reported by the current compilation.
+	 */
+
+	private int errors;
+
+	/**
+	 * Creates a compiler.
+	 *
+	 * @param sources the provider of the source code of the classes
+	 * @param output the receiver of the generated classes
+	 * @param listener the receiver of the errors
+	 */
+
+	public KittenCompiler(SourceProvider sources, OutputSink output, DiagnosticListener listener) {
+		this.sources = sources;
+		this.output = output;
+		this.listener = listener;
+	}
+
+	/**
+	 * Sets the optimizations applied to the Kitten code. By default, they are those
+	 * of the default optimization level.
+	 *
+	 * @param passes the optimizations
+	 */
+
+	public void setPasses(PassManager passes) {
+		this.passes = passes;
+	}
+
+	/**
+	 * Sets the backend that writes the classes. By default, this is {@link Backend#BCEL}.
+	 *
+	 * @param backend the backend
+	 */
+
+	public void setBackend(Backend backend) {
+		this.backend = backend;
+	}
+
+	/**
+	 * Sets the way the strings are compiled. By default, they are compiled into
+	 * {@code runTime.String} wrappers. Otherwise, they are compiled into Java strings,
+	 * unless the program modifies or subclasses them.
+	 *
+	 * @param javaStrings true if and only if the strings must be compiled into Java strings
+	 */
+
+	public void setJavaStrings(boolean javaStrings) {
+		this.javaStrings = javaStrings;
+	}
+
+	/**
+	 * Sets if the generated code must count its executions, so that it dumps
+	 * a profile file when it terminates. By default, it does not.
+	 *
+	 * @param profile true if and only if the generated code must count its executions
+	 */
+
+	public void setProfile(boolean profile) {
+		this.profile = profile;
+	}
+
+	/**
+	 * Compiles a class and all the classes that it references. Each generated class,
+	 * including the test classes, is sent to the output sink of this compiler.
+	 * Nothing is sent if an error is found.
+	 *
+	 * @param className the name of the class, with or without the trailing {@code .kit}
+	 * @return true if and only if the compilation has found no error
+	 * @throws IOException if the output sink cannot write a class
+	 */
+
+	public boolean compile(String className) throws IOException {
+		synchronized (KittenCompiler.class) {
+			errors = 0;
+
+			// we compile from scratch, forgetting the classes of previous compilations
+			ClassType.reset();
+			ClassType.setSources(sources, diagnostic -> {
+				errors++;
+				listener.report(diagnostic);
+			});
+
+			try {
+				ClassType clazz = ClassType.mkFromFileName(className);
+
+				// the referenced classes might contain errors as well
+				if (errors > 0)
+					return false;
+
+				Program program = clazz.translate();
+				if (!passes.run(program)) {
+					listener.report(new Diagnostic(clazz + ".kit", -1, -1, "the optimized Kitten code is not well-formed"));
+					return false;
+				}
+
+				// strings modified in place cannot be compiled into Java strings
+				ClassType.setJavaStrings(javaStrings && program.allowsJavaStrings());
+
+				for (Map.Entry<String, JavaClass> generated: program.generateJavaClasses(profile, backend).entrySet())
+					output.write(generated.getKey(), generated.getValue().getBytes());
+
+				return true;
+			}
+			finally {
+				// later compilations through the Main classes read from the file system again
+				ClassType.setSources(SourceProvider.CURRENT_DIRECTORY, DiagnosticListener.STANDARD_OUTPUT);
+			}
+		}
+	}
+}
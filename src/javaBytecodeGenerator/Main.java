@@ -1,24 +1,105 @@
 package javaBytecodeGenerator;
 
 
+import java.util.Map;
+
+import org.apache.bcel.classfile.JavaClass;
+
 import errorMsg.ErrorMsg;
+import optimization.PassManager;
+import runTime.Profile;
 import types.ClassType;
 import translation.Program;
 
 public class Main {
 	public static void main(String[] args) {
-		if (args.length == 0) {
+		String fileName = null;
+		PassManager.Level level = PassManager.DEFAULT_LEVEL;
+		int unrollFactor = -1, specializationBudget = -1, maxMethodSize = -1;
+		boolean verify = false, statistics = false, profileGenerate = false, javaStrings = false, store = false;
+		String profileUse = null, run = null, jar = null;
+		Backend backend = Backend.BCEL;
+
+		// the options precede the name of the file to compile
+		for (String arg: args)
+			if (arg.equals("-O0") || arg.equals("-O1") || arg.equals("-O2"))
+				level = PassManager.Level.valueOf(arg.substring(1));
+			else if (arg.startsWith("-unroll=") && isNumber(arg.substring(8)))
+				unrollFactor = Math.max(1, Integer.parseInt(arg.substring(8)));
+			else if (arg.startsWith("-budget=") && isNumber(arg.substring(8)))
+				specializationBudget = Integer.parseInt(arg.substring(8));
+			else if (arg.startsWith("-split=") && isNumber(arg.substring(7)))
+				maxMethodSize = Integer.parseInt(arg.substring(7));
+			else if (arg.equals("-verify"))
+				verify = true;
+			else if (arg.equals("-stats"))
+				statistics = true;
+			else if (arg.equals("-backend=bcel") || arg.equals("-backend=stackmap") || arg.equals("-backend=direct"))
+				backend = Backend.valueOf(arg.substring(9).toUpperCase());
+			else if (arg.equals("-strings=runtime") || arg.equals("-strings=java"))
+				javaStrings = arg.equals("-strings=java");
+			else if (arg.equals("-run") || arg.equals("-test"))
+				run = arg;
+			else if (arg.startsWith("-jar=") && arg.length() > 5)
+				jar = arg.substring(5);
+			else if (arg.equals("-store"))
+				store = true;
+			else if (arg.equals("--profile-generate"))
+				profileGenerate = true;
+			else if (arg.equals("--profile-use"))
+				profileUse = Profile.DEFAULT_FILE_NAME;
+			else if (arg.startsWith("--profile-use=") && arg.length() > 14)
+				profileUse = arg.substring(14);
+			else if (arg.startsWith("-") || fileName != null) {
+				System.out.println("Unknown option " + arg);
+				usage();
+				return;
+			}
+			else
+				fileName = arg;
+
+		if (fileName == null) {
 			System.out.println("You must specify a Kitten class name to compile");
+			usage();
+			return;
+		}
+
+		if (profileGenerate && profileUse != null) {
+			System.out.println("You cannot generate and use a profile at the same time");
+			usage();
+			return;
+		}
+
+		if (run != null && jar != null) {
+			System.out.println("You cannot run a program in memory and write it into a JAR at the same time");
+			usage();
 			return;
 		}
 
+		if (store && jar == null) {
+			System.out.println("You can store the classes without compression only inside a JAR");
+			usage();
+			return;
+		}
+
+		PassManager passes = new PassManager(level);
+		if (unrollFactor >= 0)
+			passes.setUnrollFactor(unrollFactor);
+		if (specializationBudget >= 0)
+			passes.setSpecializationBudget(specializationBudget);
+		if (maxMethodSize >= 0)
+			passes.setMaxMethodSize(maxMethodSize);
+		passes.setVerify(verify);
+		passes.setStatistics(statistics);
+
 		long totalTime = System.currentTimeMillis();
+		Map<String, JavaClass> classes = null;
 
 		// we build the class type for the file name passed as a parameter.
 		// This triggers type-checking of that class and of all classes referenced from it
 		long time = System.currentTimeMillis();
 		
-		ClassType clazz = ClassType.mkFromFileName(args[0]);
+		ClassType clazz = ClassType.mkFromFileName(fileName);
 		ErrorMsg errorMsg = clazz.getErrorMsg();
 		System.out.println("Parsing and type-checking completed     \t[" + (System.currentTimeMillis() - time) + "ms]");
 
@@ -31,18 +112,119 @@ public class Main {
 
 			System.out.println("Translation into Kitten bytecode completed \t[" + (System.currentTimeMillis() - time) + "ms]");
 
+			if (statistics)
+				System.out.println("Reachable code: " + program.getSigs().size() + " class members, "
+					+ program.getReachability().getBlocks() + " blocks, " + program.getReachability().getBytecodes() + " bytecodes");
+
 			time = System.currentTimeMillis();
-			program.dumpCodeDot();
+			// we optimize the Kitten bytecode before dumping it, so that the dot files show the optimized code
+			boolean verified = passes.run(program);
+
+			System.out.println("Kitten bytecode optimization (-" + level + ") completed\t[" + (System.currentTimeMillis() - time) + "ms]");
+
+			// we do not generate Java bytecode from Kitten code that is not well-formed
+			if (!verified) {
+				System.out.println("Total compilation time was " + (System.currentTimeMillis() - totalTime) + "ms");
+				return;
+			}
+
+			if (profileUse != null) {
+				time = System.currentTimeMillis();
+				// the counters drive the layout of the Java bytecode
+				int attached = program.useProfile(profileUse);
+
+				System.out.println("Profile of " + attached + " classes read from " + profileUse + "\t[" + (System.currentTimeMillis() - time) + "ms]");
+			}
 
-			System.out.println("Kitten bytecode dumping in dot format completed\t[" + (System.currentTimeMillis() - time) + "ms]");
+			// strings modified in place cannot be compiled into Java strings
+			if (javaStrings && !program.allowsJavaStrings())
+				System.out.println("Strings are modified or subclassed: compiling them into runTime.String");
+			else
+				ClassType.setJavaStrings(javaStrings);
+
+			time = System.currentTimeMillis();
+			// a program that is run in memory writes no file
+			if (run == null) {
+				program.dumpCodeDot();
+				program.dumpCallGraph();
+
+				System.out.println("Kitten bytecode and call graph dumping completed\t[" + (System.currentTimeMillis() - time) + "ms]");
+			}
 
 			// we translate, into Java bytecode, the Kitten code of every class member which
-		    // is reachable from the class we translated. This also generates the class files
-		    program.generateJavaBytecode();
+		    // is reachable from the class we translated. This also generates the class files,
+		    // or the JAR, unless the program is run in memory
+		    if (run != null)
+		    	classes = program.generateJavaClasses(profileGenerate, backend);
+		    else if (jar != null)
+		    	program.generateJar(profileGenerate, backend, jar, !store);
+		    else
+		    	program.generateJavaBytecode(profileGenerate, backend);
 
 		    System.out.println("Java bytecode generation completed       \t[" + (System.currentTimeMillis() - time) + "ms]");
 		}
 
 		System.out.println("Total compilation time was " + (System.currentTimeMillis() - totalTime) + "ms");
+
+		if (classes != null)
+			run(new KittenClassLoader(classes), run.equals("-test") ? clazz.getName() + "Test" : clazz.getName());
+	}
+
+	/**
+	 * Runs the {@code main} method of a class compiled in memory.
+	 *
+	 * @param loader the loader of the compiled classes
+	 * @param name the name of the class
+	 */
+
+	private static void run(KittenClassLoader loader, String name) {
+		if (!loader.contains(name)) {
+			System.out.println("There is no class " + name + " to run");
+			return;
+		}
+
+		try {
+			loader.run(name);
+		}
+		catch (ClassNotFoundException | NoSuchMethodException e) {
+			System.out.println("Class " + name + " has no main method");
+		}
+	}
+
+	/**
+	 * Prints the options accepted by the compiler.
+	 */
+
+	private static void usage() {
+		System.out.println("Usage: Main [options] file.kit");
+		System.out.println("  -O0, -O1, -O2   the optimization level (default -" + PassManager.DEFAULT_LEVEL + ")");
+		System.out.println("  -unroll=N       the number of copies of the body of unrolled loops");
+		System.out.println("  -budget=N       the number of bytecodes that method specialization can add");
+		System.out.println("  -split=N        the size in bytes beyond which methods are split (0 never splits)");
+		System.out.println("  -verify         verify the Kitten code after each optimization pass");
+		System.out.println("  -stats          report time and code size changes of each optimization pass");
+		System.out.println("  -backend=B      write the class files with BCEL (bcel, default), in the modern");
+		System.out.println("                  format with stack maps (stackmap) or writing their code directly (direct)");
+		System.out.println("  -strings=S      compile the strings into runTime.String wrappers (runtime, default)");
+		System.out.println("                  or into Java strings (java), if they are never modified by input()");
+		System.out.println("  -run            run the compiled class in memory, without writing any file");
+		System.out.println("  -test           run the tests of the compiled class in memory, without writing any file");
+		System.out.println("  -jar=F          write all the classes into the JAR file F, rather than into class files");
+		System.out.println("  -store          store the classes inside the JAR without compression, for faster loading");
+		System.out.println("  --profile-generate  count the executions of the generated code and dump them into "
+			+ Profile.DEFAULT_FILE_NAME + " when it terminates");
+		System.out.println("  --profile-use[=F]   lay out the code according to the profile file F (default "
+			+ Profile.DEFAULT_FILE_NAME + ")");
+	}
+
+	/**
+	 * Determines if a string is a non-negative decimal number.
+	 *
+	 * @param s the string
+	 * @return true if and only if {@code s} is made of decimal digits only
+	 */
+
+	private static boolean isNumber(String s) {
+		return s.matches("[0-9]{1,9}");
 	}
-}
\ No newline at end of file
+}
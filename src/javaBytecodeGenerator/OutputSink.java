@@ -0,0 +1,49 @@
+package javaBytecodeGenerator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A receiver of the Java classes generated for a Kitten program.
+ */
+
+public interface OutputSink {
+
+	/**
+	 * Yields a sink that dumps each class into its class file, inside a given directory.
+	 *
+	 * @param directory the directory
+	 * @return the sink
+	 */
+
+	static OutputSink directory(String directory) {
+		return (className, bytes) -> {
+			try (FileOutputStream file = new FileOutputStream(new File(directory, className + ".class"))) {
+				file.write(bytes);
+			}
+		};
+	}
+
+	/**
+	 * Yields a sink that keeps the classes in memory.
+	 *
+	 * @param classes the map where the bytes of each class are put, for each class name
+	 * @return the sink
+	 */
+
+	static OutputSink of(Map<String, byte[]> classes) {
+		return classes::put;
+	}
+
+	/**
+	 * Receives a generated class.
+	 *
+	 * @param className the name of the class
+	 * @param bytes the bytes of the class, in the format of Java class files
+	 * @throws IOException if the class cannot be written
+	 */
+
+	void write(String className, byte[] bytes) throws IOException;
+}
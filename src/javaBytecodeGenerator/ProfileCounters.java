@@ -0,0 +1,200 @@
+package javaBytecodeGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import optimization.ControlFlowGraph;
+import runTime.Profile;
+import translation.Block;
+import types.ClassMemberSignature;
+import types.ClassType;
+import types.CodeSignature;
+import types.MethodSignature;
+
+/**
+ * The execution counters of the code of a class. There is a counter for the
+ * entry of each constructor and method and a counter for each edge leaving a
+ * block with more than one follow. The edges leaving a block with a single follow
+ * are not counted, since they never need a jump when the code is laid out.
+ * <br><br>
+ * Counters are numbered in a deterministic order, so that the counters
+ * dumped by the execution of a class compiled with profiling enabled can be
+ * attached back to the same code when the class is compiled again with the same options.
+ */
+
+public class ProfileCounters {
+
+	/**
+	 * The name of the static field that holds the counters in the generated class.
+	 */
+
+	final static String FIELD_NAME = "$profile";
+
+	/**
+	 * The constructors and methods of the class, in the order in which their counters are numbered.
+	 */
+
+	private final List<CodeSignature> code = new ArrayList<>();
+
+	/**
+	 * The counter of the entry of each constructor and method, indexed by the first block of its code.
+	 */
+
+	private final Map<Block, Integer> entries = new HashMap<>();
+
+	/**
+	 * The first counter of the edges leaving each block with more than one follow.
+	 * The edge towards the {@code i}th follow uses the {@code i}th counter from there.
+	 */
+
+	private final Map<Block, Integer> edges = new HashMap<>();
+
+	/**
+	 * The blocks of the code of each constructor and method.
+	 */
+
+	private final Map<CodeSignature, List<Block>> blocks = new HashMap<>();
+
+	/**
+	 * The number of counters.
+	 */
+
+	private int size;
+
+	/**
+	 * A hash of the structure of the code of the class.
+	 */
+
+	private long checksum = 0xcbf29ce484222325L;
+
+	/**
+	 * Numbers the counters of the constructors and methods of a class.
+	 *
+	 * @param clazz the class
+	 * @param sigs the signatures that are translated into Java bytecode. Only those of {@code clazz} are considered
+	 */
+
+	public ProfileCounters(ClassType clazz, Set<ClassMemberSignature> sigs) {
+		for (CodeSignature constructor: clazz.getConstructors())
+			if (sigs.contains(constructor))
+				code.add(constructor);
+
+		for (Set<MethodSignature> methods: clazz.getMethods().values())
+			for (MethodSignature method: methods)
+				if (sigs.contains(method))
+					code.add(method);
+
+		// the order of the constructors and methods of a class is not stable across runs of the compiler
+		Collections.sort(code, new Comparator<CodeSignature>() {
+
+			@Override
+			public int compare(CodeSignature sig1, CodeSignature sig2) {
+				return sig1.toString().compareTo(sig2.toString());
+			}
+		});
+
+		for (CodeSignature sig: code) {
+			hash(sig.toString().hashCode());
+			entries.put(sig.getCode(), size++);
+
+			// the blocks are numbered in depth-first order, which only depends on the code
+			List<Block> blocksOfSig = new ControlFlowGraph(sig).getBlocks();
+			blocks.put(sig, blocksOfSig);
+			for (Block block: blocksOfSig) {
+				int follows = block.getFollows().size();
+				hash(follows);
+
+				if (follows > 1) {
+					edges.put(block, size);
+					size += follows;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a number to the checksum of the code.
+	 *
+	 * @param value the number
+	 */
+
+	private void hash(int value) {
+		checksum = (checksum ^ value) * 0x100000001b3L;
+	}
+
+	/**
+	 * Yields the number of counters.
+	 *
+	 * @return the number of counters
+	 */
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Yields a hash of the structure of the code of the class, that
+	 * identifies the version of the code that has been profiled.
+	 *
+	 * @return the hash
+	 */
+
+	public long getChecksum() {
+		return checksum;
+	}
+
+	/**
+	 * Yields the counter of the entry of a constructor or method.
+	 *
+	 * @param block the first block of the code of the constructor or method
+	 * @return the number of the counter, or {@code null} if {@code block} is not the beginning of profiled code
+	 */
+
+	Integer getEntryCounter(Block block) {
+		return entries.get(block);
+	}
+
+	/**
+	 * Yields the first counter of the edges leaving a block.
+	 *
+	 * @param block the block
+	 * @return the number of the counter of the edge towards the first follow of {@code block},
+	 *         or {@code null} if its edges are not counted
+	 */
+
+	Integer getEdgeCounters(Block block) {
+		return edges.get(block);
+	}
+
+	/**
+	 * Attaches the counters observed by profiling to the constructors and methods of the class
+	 * and to the blocks of their code.
+	 *
+	 * @param profile the counters observed for the class
+	 * @return false if and only if {@code profile} refers to a different version of the code of the class
+	 */
+
+	public boolean attach(Profile profile) {
+		long[] counters = profile.getCounters();
+		if (profile.getChecksum() != checksum || counters.length != size)
+			return false;
+
+		for (CodeSignature sig: code) {
+			sig.setInvocationCount(counters[entries.get(sig.getCode())]);
+
+			for (Block block: blocks.get(sig)) {
+				Integer first = edges.get(block);
+				if (first != null)
+					block.setFollowCounts(Arrays.copyOfRange(counters, first, first + block.getFollows().size()));
+			}
+		}
+
+		return true;
+	}
+}
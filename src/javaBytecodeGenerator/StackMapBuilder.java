@@ -0,0 +1,948 @@
+package javaBytecodeGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.bcel.Constants;
+import org.apache.bcel.classfile.CodeException;
+import org.apache.bcel.generic.ACONST_NULL;
+import org.apache.bcel.generic.ANEWARRAY;
+import org.apache.bcel.generic.ARRAYLENGTH;
+import org.apache.bcel.generic.ATHROW;
+import org.apache.bcel.generic.AALOAD;
+import org.apache.bcel.generic.ArithmeticInstruction;
+import org.apache.bcel.generic.ArrayInstruction;
+import org.apache.bcel.generic.ArrayType;
+import org.apache.bcel.generic.BasicType;
+import org.apache.bcel.generic.BranchInstruction;
+import org.apache.bcel.generic.CHECKCAST;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.ConstantPushInstruction;
+import org.apache.bcel.generic.ConversionInstruction;
+import org.apache.bcel.generic.DCMPG;
+import org.apache.bcel.generic.DCMPL;
+import org.apache.bcel.generic.DUP;
+import org.apache.bcel.generic.DUP2;
+import org.apache.bcel.generic.DUP2_X1;
+import org.apache.bcel.generic.DUP2_X2;
+import org.apache.bcel.generic.DUP_X1;
+import org.apache.bcel.generic.DUP_X2;
+import org.apache.bcel.generic.FCMPG;
+import org.apache.bcel.generic.FCMPL;
+import org.apache.bcel.generic.FieldInstruction;
+import org.apache.bcel.generic.GETFIELD;
+import org.apache.bcel.generic.GETSTATIC;
+import org.apache.bcel.generic.GotoInstruction;
+import org.apache.bcel.generic.IINC;
+import org.apache.bcel.generic.INSTANCEOF;
+import org.apache.bcel.generic.INVOKESPECIAL;
+import org.apache.bcel.generic.INVOKESTATIC;
+import org.apache.bcel.generic.IfInstruction;
+import org.apache.bcel.generic.Instruction;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.InvokeInstruction;
+import org.apache.bcel.generic.LCMP;
+import org.apache.bcel.generic.LDC;
+import org.apache.bcel.generic.LDC2_W;
+import org.apache.bcel.generic.LoadInstruction;
+import org.apache.bcel.generic.MONITORENTER;
+import org.apache.bcel.generic.MONITOREXIT;
+import org.apache.bcel.generic.MULTIANEWARRAY;
+import org.apache.bcel.generic.NEW;
+import org.apache.bcel.generic.NEWARRAY;
+import org.apache.bcel.generic.NOP;
+import org.apache.bcel.generic.ObjectType;
+import org.apache.bcel.generic.POP;
+import org.apache.bcel.generic.POP2;
+import org.apache.bcel.generic.PUTFIELD;
+import org.apache.bcel.generic.ReturnInstruction;
+import org.apache.bcel.generic.SWAP;
+import org.apache.bcel.generic.Select;
+import org.apache.bcel.generic.StoreInstruction;
+import org.apache.bcel.generic.Type;
+import org.apache.bcel.generic.TypedInstruction;
+
+import types.ClassType;
+
+/**
+ * A builder of the {@code StackMapTable} attribute of the code of a method.
+ * That attribute reports the types of the local variables and of the stack
+ * elements at the beginning of each basic block of the code. It is required
+ * by the Java Virtual Machine for class files of version 50 or later, and
+ * lets it verify the code in a single linear pass.
+ * <br><br>
+ * The types are computed by an abstract interpretation of the Java bytecode,
+ * starting from the types of the parameters of the method. Where two paths
+ * of the code join, the types of the same reference are merged into their
+ * least common superclass, looked up in the Kitten classes or, for the
+ * classes of the run-time, through reflection. Code that is never executed
+ * is replaced with {@code nop}s followed by an {@code athrow}, as the verifier
+ * requires for dead code.
+ */
+
+final class StackMapBuilder {
+
+	/**
+	 * The name of the class whose code is analyzed.
+	 */
+
+	private final String className;
+
+	/**
+	 * The constant pool of the class. The classes used in the frames are added to it.
+	 */
+
+	private final ConstantPoolGen cpg;
+
+	/**
+	 * The code, whose dead instructions get replaced.
+	 */
+
+	private final byte[] code;
+
+	/**
+	 * The instructions of the code.
+	 */
+
+	private final InstructionHandle[] instructions;
+
+	/**
+	 * The exception handlers of the code.
+	 */
+
+	private final CodeException[] handlers;
+
+	/**
+	 * The frame at the beginning of each instruction, {@code null} if the instruction is not reachable.
+	 */
+
+	private final Frame[] frames;
+
+	/**
+	 * The frame at the beginning of the code, as implied by the parameters of the method.
+	 */
+
+	private final Frame initial;
+
+	/**
+	 * The positions of the instructions that need a frame, since they begin a basic block.
+	 */
+
+	private final BitSet starts = new BitSet();
+
+	/**
+	 * The superclass of each Kitten class, indexed by name.
+	 */
+
+	private final Map<String, String> superclasses = new HashMap<>();
+
+	/**
+	 * Computes the frames of the code of a method.
+	 *
+	 * @param className the name of the class where the method is defined
+	 * @param cpg the constant pool of the class
+	 * @param methodName the name of the method
+	 * @param isStatic true if and only if the method is static
+	 * @param parameters the types of the parameters of the method
+	 * @param maxLocals the number of local variables used by the code
+	 * @param code the code. Its dead instructions are replaced in place
+	 * @param handlers the exception handlers of the code
+	 */
+
+	StackMapBuilder(String className, ConstantPoolGen cpg, String methodName, boolean isStatic, Type[] parameters, int maxLocals, byte[] code, CodeException[] handlers) {
+		this.className = className;
+		this.cpg = cpg;
+		this.code = code;
+		this.handlers = handlers;
+
+		// the Kitten classes implemented by a class of the run-time, such as String, are looked up through reflection
+		for (ClassType clazz: ClassType.getAll())
+			if (clazz.toBCEL().toString().equals(clazz.getName()))
+				superclasses.put(clazz.getName(), clazz.getSuperclass() != null ? clazz.getSuperclass().toBCEL().toString() : "java.lang.Object");
+
+		InstructionList il = new InstructionList(code);
+		il.setPositions();
+		this.instructions = il.getInstructionHandles();
+		this.frames = new Frame[instructions.length];
+
+		// the initial frame holds the receiver and the parameters
+		this.initial = new Frame(maxLocals);
+		int local = 0;
+		if (!isStatic)
+			initial.locals[local++] = methodName.equals("<init>") && !className.equals("java.lang.Object") ? VType.UNINITIALIZED_THIS : VType.object(className);
+
+		for (Type parameter: parameters) {
+			initial.store(local, VType.of(parameter));
+			local += parameter.getSize();
+		}
+
+		interpret();
+	}
+
+	/**
+	 * Propagates the frames from the beginning of the code until a fixpoint is reached.
+	 */
+
+	private void interpret() {
+		Map<Integer, Integer> indexOf = new HashMap<>();
+		for (int pos = 0; pos < instructions.length; pos++)
+			indexOf.put(instructions[pos].getPosition(), pos);
+
+		LinkedList<Integer> workList = new LinkedList<>();
+		frames[0] = initial.copy();
+		workList.add(0);
+
+		for (CodeException handler: handlers)
+			starts.set(indexOf.get(handler.getHandlerPC()));
+
+		while (!workList.isEmpty()) {
+			int pos = workList.removeFirst();
+			Instruction instruction = instructions[pos].getInstruction();
+			Frame frame = frames[pos].copy();
+
+			// the handlers that cover this instruction can be entered with its locals
+			for (CodeException handler: handlers)
+				if (handler.getStartPC() <= instructions[pos].getPosition() && instructions[pos].getPosition() < handler.getEndPC()) {
+					Frame entry = frame.copy();
+					entry.stack.clear();
+					entry.stack.add(handler.getCatchType() == 0 ? VType.object("java.lang.Throwable")
+						: VType.object(cpg.getConstantPool().getConstantString(handler.getCatchType(), Constants.CONSTANT_Class).replace('/', '.')));
+					propagate(entry, indexOf.get(handler.getHandlerPC()), workList);
+				}
+
+			execute(instruction, instructions[pos].getPosition(), frame);
+
+			if (instruction instanceof BranchInstruction) {
+				for (InstructionHandle target: targetsOf((BranchInstruction) instruction)) {
+					int targetPos = indexOf.get(target.getPosition());
+					starts.set(targetPos);
+					propagate(frame, targetPos, workList);
+				}
+			}
+
+			if (instruction instanceof GotoInstruction || instruction instanceof Select
+					|| instruction instanceof ReturnInstruction || instruction instanceof ATHROW) {
+				// the following instruction can only be reached by a jump
+				if (pos + 1 < instructions.length)
+					starts.set(pos + 1);
+			}
+			else if (pos + 1 < instructions.length)
+				propagate(frame, pos + 1, workList);
+		}
+	}
+
+	/**
+	 * Yields the targets of a branch instruction.
+	 *
+	 * @param branch the branch instruction
+	 * @return its targets
+	 */
+
+	private static InstructionHandle[] targetsOf(BranchInstruction branch) {
+		if (branch instanceof Select) {
+			InstructionHandle[] targets = ((Select) branch).getTargets();
+			InstructionHandle[] result = Arrays.copyOf(targets, targets.length + 1);
+			result[targets.length] = branch.getTarget();
+			return result;
+		}
+		else
+			return new InstructionHandle[] { branch.getTarget() };
+	}
+
+	/**
+	 * Merges a frame into that at the beginning of an instruction, and schedules
+	 * that instruction for interpretation if its frame has changed.
+	 *
+	 * @param frame the frame
+	 * @param pos the index of the instruction
+	 * @param workList the instructions scheduled for interpretation
+	 */
+
+	private void propagate(Frame frame, int pos, LinkedList<Integer> workList) {
+		if (frames[pos] == null) {
+			frames[pos] = frame.copy();
+			workList.add(pos);
+		}
+		else if (frames[pos].merge(frame, this))
+			workList.add(pos);
+	}
+
+	/**
+	 * Computes the effect of an instruction on a frame.
+	 *
+	 * @param instruction the instruction
+	 * @param position the position of the instruction in the code
+	 * @param frame the frame before the instruction. It gets modified into the frame after the instruction
+	 */
+
+	private void execute(Instruction instruction, int position, Frame frame) {
+		List<VType> stack = frame.stack;
+
+		if (instruction instanceof LoadInstruction)
+			stack.add(frame.locals[((LoadInstruction) instruction).getIndex()]);
+		else if (instruction instanceof StoreInstruction)
+			frame.store(((StoreInstruction) instruction).getIndex(), frame.pop());
+		else if (instruction instanceof ConstantPushInstruction)
+			stack.add(VType.of(((ConstantPushInstruction) instruction).getType(cpg)));
+		else if (instruction instanceof ACONST_NULL)
+			stack.add(VType.NULL);
+		else if (instruction instanceof LDC)
+			stack.add(VType.of(((LDC) instruction).getType(cpg)));
+		else if (instruction instanceof LDC2_W)
+			stack.add(VType.of(((LDC2_W) instruction).getType(cpg)));
+		else if (instruction instanceof LCMP || instruction instanceof FCMPL || instruction instanceof FCMPG
+				|| instruction instanceof DCMPL || instruction instanceof DCMPG) {
+			frame.popWords(instruction.consumeStack(cpg));
+			stack.add(VType.INTEGER);
+		}
+		else if (instruction instanceof ArithmeticInstruction || instruction instanceof ConversionInstruction) {
+			frame.popWords(instruction.consumeStack(cpg));
+			stack.add(VType.of(((TypedInstruction) instruction).getType(cpg)));
+		}
+		else if (instruction instanceof FieldInstruction) {
+			FieldInstruction field = (FieldInstruction) instruction;
+			if (instruction instanceof GETFIELD || instruction instanceof GETSTATIC) {
+				if (instruction instanceof GETFIELD)
+					frame.pop();
+				stack.add(VType.of(field.getFieldType(cpg)));
+			}
+			else {
+				frame.pop();
+				if (instruction instanceof PUTFIELD)
+					frame.pop();
+			}
+		}
+		else if (instruction instanceof InvokeInstruction) {
+			InvokeInstruction invoke = (InvokeInstruction) instruction;
+			for (int count = invoke.getArgumentTypes(cpg).length; count > 0; count--)
+				frame.pop();
+
+			if (!(instruction instanceof INVOKESTATIC)) {
+				VType receiver = frame.pop();
+				if (instruction instanceof INVOKESPECIAL && invoke.getMethodName(cpg).equals("<init>"))
+					// the receiver is now initialized, wherever it is held
+					frame.replace(receiver, receiver == VType.UNINITIALIZED_THIS ? VType.object(className) : VType.object(newClassAt(receiver.offset)));
+			}
+
+			if (invoke.getReturnType(cpg) != Type.VOID)
+				stack.add(VType.of(invoke.getReturnType(cpg)));
+		}
+		else if (instruction instanceof NEW)
+			stack.add(VType.uninitialized(position));
+		else if (instruction instanceof NEWARRAY) {
+			frame.pop();
+			stack.add(VType.of(((NEWARRAY) instruction).getType()));
+		}
+		else if (instruction instanceof ANEWARRAY) {
+			frame.pop();
+			stack.add(VType.of(new ArrayType(((ANEWARRAY) instruction).getType(cpg), 1)));
+		}
+		else if (instruction instanceof MULTIANEWARRAY) {
+			for (int count = ((MULTIANEWARRAY) instruction).getDimensions(); count > 0; count--)
+				frame.pop();
+			stack.add(VType.of(((MULTIANEWARRAY) instruction).getType(cpg)));
+		}
+		else if (instruction instanceof ARRAYLENGTH || instruction instanceof INSTANCEOF) {
+			frame.pop();
+			stack.add(VType.INTEGER);
+		}
+		else if (instruction instanceof CHECKCAST) {
+			frame.pop();
+			stack.add(VType.of(((CHECKCAST) instruction).getType(cpg)));
+		}
+		else if (instruction instanceof ArrayInstruction) {
+			if (instruction.produceStack(cpg) == 0)
+				// a store into an array
+				frame.popWords(instruction.consumeStack(cpg));
+			else {
+				frame.pop();
+				VType array = frame.pop();
+				stack.add(instruction instanceof AALOAD ? array.elementType() : VType.of(((ArrayInstruction) instruction).getType(cpg)));
+			}
+		}
+		else if (instruction instanceof POP)
+			frame.pop();
+		else if (instruction instanceof POP2)
+			frame.popWords(2);
+		else if (instruction instanceof DUP)
+			stack.add(stack.get(stack.size() - 1));
+		else if (instruction instanceof DUP_X1)
+			stack.add(stack.size() - 2, stack.get(stack.size() - 1));
+		else if (instruction instanceof DUP_X2)
+			stack.add(stack.size() - (stack.get(stack.size() - 2).size == 2 ? 2 : 3), stack.get(stack.size() - 1));
+		else if (instruction instanceof DUP2) {
+			if (stack.get(stack.size() - 1).size == 2)
+				stack.add(stack.get(stack.size() - 1));
+			else
+				stack.addAll(new ArrayList<>(stack.subList(stack.size() - 2, stack.size())));
+		}
+		else if (instruction instanceof DUP2_X1 || instruction instanceof DUP2_X2) {
+			int copied = stack.get(stack.size() - 1).size == 2 ? 1 : 2;
+			List<VType> top = new ArrayList<>(stack.subList(stack.size() - copied, stack.size()));
+			int under = 0, words = instruction instanceof DUP2_X1 ? 1 : 2;
+			for (int pos = stack.size() - copied - 1; words > 0; pos--, under++)
+				words -= stack.get(pos).size;
+			stack.addAll(stack.size() - copied - under, top);
+		}
+		else if (instruction instanceof SWAP)
+			stack.add(stack.size() - 2, stack.remove(stack.size() - 1));
+		else if (instruction instanceof IfInstruction || instruction instanceof Select || instruction instanceof ReturnInstruction
+				|| instruction instanceof ATHROW || instruction instanceof MONITORENTER || instruction instanceof MONITOREXIT)
+			frame.popWords(instruction.consumeStack(cpg));
+		else if (!(instruction instanceof GotoInstruction || instruction instanceof NOP || instruction instanceof IINC))
+			throw new IllegalArgumentException("Cannot compute the stack map for " + instruction);
+	}
+
+	/**
+	 * Yields the class instantiated by the {@code new} instruction at the given position.
+	 *
+	 * @param position the position
+	 * @return the name of the class
+	 */
+
+	private String newClassAt(int position) {
+		for (InstructionHandle handle: instructions)
+			if (handle.getPosition() == position)
+				return ((NEW) handle.getInstruction()).getLoadClassType(cpg).getClassName();
+
+		throw new IllegalArgumentException("No new instruction at " + position);
+	}
+
+	/**
+	 * Yields the superclass of a class.
+	 *
+	 * @param name the name of the class
+	 * @return the name of its superclass, {@code null} if {@code name} is {@code java.lang.Object}
+	 */
+
+	private String superclassOf(String name) {
+		if (name.equals("java.lang.Object"))
+			return null;
+
+		String result = superclasses.get(name);
+		if (result == null) {
+			try {
+				Class<?> superclass = Class.forName(name, false, StackMapBuilder.class.getClassLoader()).getSuperclass();
+				result = superclass != null ? superclass.getName() : "java.lang.Object";
+			}
+			catch (ClassNotFoundException e) {
+				result = "java.lang.Object";
+			}
+
+			superclasses.put(name, result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Yields the least common superclass of two classes.
+	 *
+	 * @param name1 the name of the first class
+	 * @param name2 the name of the second class
+	 * @return the name of the least common superclass
+	 */
+
+	private String commonSuperclass(String name1, String name2) {
+		List<String> ancestors = new ArrayList<>();
+		for (String cursor = name1; cursor != null; cursor = superclassOf(cursor))
+			ancestors.add(cursor);
+
+		for (String cursor = name2; cursor != null; cursor = superclassOf(cursor))
+			if (ancestors.contains(cursor))
+				return cursor;
+
+		return "java.lang.Object";
+	}
+
+	/**
+	 * Yields the least upper bound of two reference types.
+	 *
+	 * @param type1 the first type
+	 * @param type2 the second type
+	 * @return the least upper bound
+	 */
+
+	private VType lub(VType type1, VType type2) {
+		boolean array1 = type1.name.startsWith("["), array2 = type2.name.startsWith("[");
+
+		if (array1 && array2) {
+			VType element1 = type1.elementType(), element2 = type2.elementType();
+			if (element1.kind == VType.OBJECT && element2.kind == VType.OBJECT)
+				return lub(element1, element2).arrayType();
+		}
+		else if (!array1 && !array2)
+			return VType.object(commonSuperclass(type1.name, type2.name));
+
+		return VType.object("java.lang.Object");
+	}
+
+	/**
+	 * Yields the {@code StackMapTable} attribute of the code, without its name and length.
+	 *
+	 * @return the content of the attribute
+	 */
+
+	byte[] getStackMapTable() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			replaceDeadCode();
+
+			List<Integer> positions = new ArrayList<>();
+			for (int pos = starts.nextSetBit(0); pos >= 0; pos = starts.nextSetBit(pos + 1))
+				positions.add(pos);
+
+			out.writeShort(positions.size());
+			List<VType> previous = initial.encodedLocals();
+			int previousOffset = -1;
+
+			for (int pos: positions) {
+				int offset = instructions[pos].getPosition();
+				writeFrame(out, offset - previousOffset - 1, previous, frames[pos]);
+				previous = frames[pos].encodedLocals();
+				previousOffset = offset;
+			}
+		}
+		catch (IOException e) {
+			// impossible, since we write in memory
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Replaces each sequence of unreachable instructions with {@code nop}s followed
+	 * by an {@code athrow}, and gives it a frame that only holds a {@code Throwable}.
+	 */
+
+	private void replaceDeadCode() {
+		for (int pos = 0; pos < instructions.length; pos++)
+			if (frames[pos] == null) {
+				int end = pos;
+				while (end + 1 < instructions.length && frames[end + 1] == null && !starts.get(end + 1))
+					end++;
+
+				int from = instructions[pos].getPosition();
+				int to = end + 1 < instructions.length ? instructions[end + 1].getPosition() : code.length;
+				Arrays.fill(code, from, to - 1, (byte) Constants.NOP);
+				code[to - 1] = (byte) Constants.ATHROW;
+
+				Frame dead = new Frame(0);
+				dead.stack.add(VType.object("java.lang.Throwable"));
+				frames[pos] = dead;
+				starts.set(pos);
+				pos = end;
+			}
+	}
+
+	/**
+	 * Writes a frame, in the most compact form with respect to the previous one.
+	 *
+	 * @param out the stream where the frame is written
+	 * @param delta the distance from the previous frame, minus one
+	 * @param previous the locals of the previous frame
+	 * @param frame the frame
+	 * @throws IOException if the frame cannot be written
+	 */
+
+	private void writeFrame(DataOutputStream out, int delta, List<VType> previous, Frame frame) throws IOException {
+		List<VType> locals = frame.encodedLocals();
+		List<VType> stack = frame.stack;
+		int extra = locals.size() - previous.size();
+
+		if (stack.isEmpty() && locals.equals(previous)) {
+			if (delta < 64)
+				out.writeByte(delta); // same_frame
+			else {
+				out.writeByte(251); // same_frame_extended
+				out.writeShort(delta);
+			}
+		}
+		else if (stack.size() == 1 && locals.equals(previous)) {
+			if (delta < 64)
+				out.writeByte(64 + delta); // same_locals_1_stack_item_frame
+			else {
+				out.writeByte(247); // same_locals_1_stack_item_frame_extended
+				out.writeShort(delta);
+			}
+			writeType(out, stack.get(0));
+		}
+		else if (stack.isEmpty() && extra > 0 && extra <= 3 && locals.subList(0, previous.size()).equals(previous)) {
+			out.writeByte(251 + extra); // append_frame
+			out.writeShort(delta);
+			for (VType type: locals.subList(previous.size(), locals.size()))
+				writeType(out, type);
+		}
+		else if (stack.isEmpty() && extra < 0 && extra >= -3 && previous.subList(0, locals.size()).equals(locals)) {
+			out.writeByte(251 + extra); // chop_frame
+			out.writeShort(delta);
+		}
+		else {
+			out.writeByte(255); // full_frame
+			out.writeShort(delta);
+			out.writeShort(locals.size());
+			for (VType type: locals)
+				writeType(out, type);
+			out.writeShort(stack.size());
+			for (VType type: stack)
+				writeType(out, type);
+		}
+	}
+
+	/**
+	 * Writes a type in a frame.
+	 *
+	 * @param out the stream where the type is written
+	 * @param type the type
+	 * @throws IOException if the type cannot be written
+	 */
+
+	private void writeType(DataOutputStream out, VType type) throws IOException {
+		out.writeByte(type.kind);
+
+		if (type.kind == VType.OBJECT)
+			out.writeShort(cpg.addClass(type.name));
+		else if (type.kind == VType.UNINITIALIZED)
+			out.writeShort(type.offset);
+	}
+
+	/**
+	 * A verification type, that is, the type of a local variable or stack element as seen by the verifier.
+	 */
+
+	private static class VType {
+
+		/**
+		 * The kinds of verification types, numbered as in the class file format.
+		 */
+
+		private final static int TOP = 0, INT = 1, FLOAT = 2, DOUBLE = 3, LONG = 4, NULL_KIND = 5,
+			UNINITIALIZED_THIS_KIND = 6, OBJECT = 7, UNINITIALIZED = 8;
+
+		/**
+		 * The unusable type.
+		 */
+
+		private final static VType TOP_TYPE = new VType(TOP, "", 0);
+
+		/**
+		 * The type of integers, booleans, characters, bytes and shorts.
+		 */
+
+		private final static VType INTEGER = new VType(INT, "", 0);
+
+		/**
+		 * The type of {@code null}.
+		 */
+
+		private final static VType NULL = new VType(NULL_KIND, "", 0);
+
+		/**
+		 * The type of the receiver of a constructor, before it calls the constructor of its superclass.
+		 */
+
+		private final static VType UNINITIALIZED_THIS = new VType(UNINITIALIZED_THIS_KIND, "", 0);
+
+		/**
+		 * The kind of this type.
+		 */
+
+		private final int kind;
+
+		/**
+		 * The name of the class of this type, for object types. Arrays are named by their descriptor.
+		 */
+
+		private final String name;
+
+		/**
+		 * The position of the {@code new} instruction that created an uninitialized object.
+		 */
+
+		private final int offset;
+
+		/**
+		 * The number of words taken by this type in the local variables and in the stack.
+		 */
+
+		private final int size;
+
+		/**
+		 * Builds a verification type.
+		 *
+		 * @param kind the kind of the type
+		 * @param name the name of the class, for object types
+		 * @param offset the position of the {@code new} instruction, for uninitialized objects
+		 */
+
+		private VType(int kind, String name, int offset) {
+			this.kind = kind;
+			this.name = name;
+			this.offset = offset;
+			this.size = kind == LONG || kind == DOUBLE ? 2 : 1;
+		}
+
+		/**
+		 * Yields the type of the objects of a class or of the arrays with the given descriptor.
+		 *
+		 * @param name the name of the class or the descriptor of the arrays
+		 * @return the type
+		 */
+
+		private static VType object(String name) {
+			return new VType(OBJECT, name, 0);
+		}
+
+		/**
+		 * Yields the type of an object created by a {@code new} instruction and not yet initialized.
+		 *
+		 * @param offset the position of the {@code new} instruction
+		 * @return the type
+		 */
+
+		private static VType uninitialized(int offset) {
+			return new VType(UNINITIALIZED, "", offset);
+		}
+
+		/**
+		 * Yields the verification type for a Java type.
+		 *
+		 * @param type the Java type
+		 * @return the verification type
+		 */
+
+		private static VType of(Type type) {
+			if (type instanceof ArrayType)
+				return object(type.getSignature());
+			else if (type instanceof ObjectType)
+				return object(((ObjectType) type).getClassName());
+			else if (type == Type.NULL)
+				return NULL;
+			else if (type == Type.FLOAT)
+				return new VType(FLOAT, "", 0);
+			else if (type == Type.LONG)
+				return new VType(LONG, "", 0);
+			else if (type == Type.DOUBLE)
+				return new VType(DOUBLE, "", 0);
+			else if (type instanceof BasicType)
+				return INTEGER;
+			else
+				throw new IllegalArgumentException("Unexpected type " + type);
+		}
+
+		/**
+		 * Yields the type of the elements of the arrays of this type.
+		 *
+		 * @return the type of the elements. It is {@code null} if this is the type of {@code null}
+		 */
+
+		private VType elementType() {
+			if (kind == NULL_KIND)
+				return NULL;
+			else
+				return of(Type.getType(name.substring(1).replace('.', '/')));
+		}
+
+		/**
+		 * Yields the type of the arrays whose elements have this type.
+		 *
+		 * @return the type of the arrays
+		 */
+
+		private VType arrayType() {
+			return object(name.startsWith("[") ? "[" + name : "[L" + name.replace('.', '/') + ";");
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof VType && ((VType) other).kind == kind
+				&& ((VType) other).name.equals(name) && ((VType) other).offset == offset;
+		}
+
+		@Override
+		public int hashCode() {
+			return kind ^ name.hashCode() ^ offset;
+		}
+	}
+
+	/**
+	 * The types of the local variables and of the stack elements at a program point.
+	 */
+
+	private static class Frame {
+
+		/**
+		 * The types of the local variables. The second word of a {@code long}
+		 * or {@code double} holds the unusable type.
+		 */
+
+		private final VType[] locals;
+
+		/**
+		 * The types of the stack elements, from the bottom of the stack.
+		 * A {@code long} or {@code double} is a single element.
+		 */
+
+		private final List<VType> stack = new ArrayList<>();
+
+		/**
+		 * Builds a frame with unusable local variables and an empty stack.
+		 *
+		 * @param maxLocals the number of local variables
+		 */
+
+		private Frame(int maxLocals) {
+			this.locals = new VType[maxLocals];
+			Arrays.fill(locals, VType.TOP_TYPE);
+		}
+
+		/**
+		 * Yields a copy of this frame.
+		 *
+		 * @return the copy
+		 */
+
+		private Frame copy() {
+			Frame result = new Frame(locals.length);
+			System.arraycopy(locals, 0, result.locals, 0, locals.length);
+			result.stack.addAll(stack);
+
+			return result;
+		}
+
+		/**
+		 * Removes the topmost element of the stack.
+		 *
+		 * @return the type of the removed element
+		 */
+
+		private VType pop() {
+			return stack.remove(stack.size() - 1);
+		}
+
+		/**
+		 * Removes the topmost elements of the stack, that take the given number of words.
+		 *
+		 * @param words the number of words
+		 */
+
+		private void popWords(int words) {
+			while (words > 0)
+				words -= pop().size;
+		}
+
+		/**
+		 * Stores a value into a local variable.
+		 *
+		 * @param local the number of the local variable
+		 * @param type the type of the value
+		 */
+
+		private void store(int local, VType type) {
+			// a long or double that held the previous variable is now broken
+			if (local > 0 && locals[local - 1].size == 2)
+				locals[local - 1] = VType.TOP_TYPE;
+
+			locals[local] = type;
+			if (type.size == 2)
+				locals[local + 1] = VType.TOP_TYPE;
+		}
+
+		/**
+		 * Replaces a type everywhere in this frame.
+		 *
+		 * @param from the type to replace
+		 * @param to the replacement
+		 */
+
+		private void replace(VType from, VType to) {
+			for (int local = 0; local < locals.length; local++)
+				if (locals[local].equals(from))
+					locals[local] = to;
+
+			for (int pos = 0; pos < stack.size(); pos++)
+				if (stack.get(pos).equals(from))
+					stack.set(pos, to);
+		}
+
+		/**
+		 * Merges another frame into this one.
+		 *
+		 * @param other the other frame. Its stack must have the same height
+		 * @param builder the builder that computes the least upper bound of references
+		 * @return true if and only if this frame has changed
+		 */
+
+		private boolean merge(Frame other, StackMapBuilder builder) {
+			boolean changed = false;
+
+			for (int local = 0; local < locals.length; local++) {
+				VType merged = merge(locals[local], other.locals[local], builder);
+				if (!merged.equals(locals[local])) {
+					locals[local] = merged;
+					changed = true;
+				}
+			}
+
+			for (int pos = 0; pos < stack.size(); pos++) {
+				VType merged = merge(stack.get(pos), other.stack.get(pos), builder);
+				if (!merged.equals(stack.get(pos))) {
+					stack.set(pos, merged);
+					changed = true;
+				}
+			}
+
+			return changed;
+		}
+
+		/**
+		 * Merges two types.
+		 *
+		 * @param type1 the first type
+		 * @param type2 the second type
+		 * @param builder the builder that computes the least upper bound of references
+		 * @return the most precise type that includes both
+		 */
+
+		private static VType merge(VType type1, VType type2, StackMapBuilder builder) {
+			if (type1.equals(type2))
+				return type1;
+			else if (type1.kind == VType.NULL_KIND && type2.kind == VType.OBJECT)
+				return type2;
+			else if (type2.kind == VType.NULL_KIND && type1.kind == VType.OBJECT)
+				return type1;
+			else if (type1.kind == VType.OBJECT && type2.kind == VType.OBJECT)
+				return builder.lub(type1, type2);
+			else
+				return VType.TOP_TYPE;
+		}
+
+		/**
+		 * Yields the types of the local variables as written in a frame: a {@code long}
+		 * or {@code double} is a single element and the trailing unusable variables are omitted.
+		 *
+		 * @return the types
+		 */
+
+		private List<VType> encodedLocals() {
+			List<VType> result = new ArrayList<>();
+			for (int local = 0; local < locals.length; local += locals[local].size)
+				result.add(locals[local]);
+
+			while (!result.isEmpty() && result.get(result.size() - 1).kind == VType.TOP)
+				result.remove(result.size() - 1);
+
+			return result;
+		}
+	}
+}
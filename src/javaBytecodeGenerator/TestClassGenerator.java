@@ -44,11 +44,25 @@ public class TestClassGenerator extends JavaClassGenerator {
 	 * @param sigs a set of class member signatures. These are those that must be translated
 	 */
 	public TestClassGenerator(ClassType clazz, Set<ClassMemberSignature> sigs) {
+		this(clazz, sigs, false);
+	}
+
+	/**
+	 * Builds a test class generator for the given class type, possibly sharing its string literals.
+	 *
+	 * @param clazz the class type
+	 * @param sigs a set of class member signatures. These are those that must be translated
+	 * @param shareLiterals true if and only if each string literal must be created only once
+	 *                      (see {@link JavaClassGenerator#shareLiterals()})
+	 */
+	public TestClassGenerator(ClassType clazz, Set<ClassMemberSignature> sigs, boolean shareLiterals) {
 
 		// test class extends only java.lang.Object
 		super(clazz.getName()+"Test", "java.lang.Object",
 				Constants.ACC_PUBLIC);
 		
+		if (shareLiterals)
+			shareLiterals();
 		
 		// we add the fixtures
 		for (FixtureSignature fix : clazz.getFixture())
@@ -9,6 +9,7 @@ package lexical;
  * @author <A HREF="mailto:fausto.spoto@univr.it">Fausto Spoto</A>
  */
 import java.io.FileInputStream;
+import errorMsg.DiagnosticListener;
 import errorMsg.ErrorMsg;
 import syntactical.sym;
 @SuppressWarnings("unused")
@@ -105,6 +106,33 @@ public Lexer(String fileName) throws java.io.FileNotFoundException {
   }
   yy_reader = new java.io.BufferedReader(new java.io.InputStreamReader(inp));
 }
+/**
+ * Creates a lexical analyser for a given class name, whose source code
+ * is read from a given provider.
+ *
+ * @param fileName the name of the file to be lexically analysed
+ *                 (with or without the trailing {@code .kit})
+ * @param sources the provider of the source code
+ * @param listener the receiver of the errors found in the source code
+ * @throws java.io.IOException if the source code cannot be found or read
+ */
+public Lexer(String fileName, SourceProvider sources, DiagnosticListener listener) throws java.io.IOException {
+  this();
+  String className = fileName.endsWith(".kit") ? fileName.substring(0, fileName.length() - 4) : fileName;
+  fileName = className + ".kit";
+  errorMsg = new ErrorMsg(fileName, listener);
+  try {
+    yy_reader = new java.io.BufferedReader(sources.open(className));
+  }
+  catch (java.io.FileNotFoundException e) {
+    errorMsg.error(-1, "Cannot find \"" + fileName + "\"");
+    throw e;
+  }
+  catch (java.io.IOException e) {
+    errorMsg.error(-1, "Cannot read \"" + fileName + "\"");
+    throw e;
+  }
+}
 // ritorna il simbolo della classe che si sta parsando
 public String parsedClass() {
   return errorMsg.getFileName().substring(0, errorMsg.getFileName().length() - 4);
@@ -0,0 +1,73 @@
+package lexical;
+
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Map;
+
+/**
+ * A provider of the source code of the Kitten classes, that the lexical analyser
+ * reads when a class is referenced for the first time.
+ */
+
+public interface SourceProvider {
+
+	/**
+	 * The provider that reads the source code of a class {@code C} from the
+	 * file {@code C.kit} in the current directory. This is what the compiler does by default.
+	 */
+
+	SourceProvider CURRENT_DIRECTORY = className -> new FileReader(className + ".kit");
+
+	/**
+	 * Yields a provider that reads the source code of the classes from memory.
+	 *
+	 * @param sources the source code of the classes, for each of their names
+	 * @return the provider. It throws a {@code FileNotFoundException} for the classes
+	 *         that are not in {@code sources}
+	 */
+
+	static SourceProvider of(Map<String, String> sources) {
+		return className -> {
+			String source = sources.get(className);
+			if (source == null)
+				throw new FileNotFoundException(className + ".kit");
+
+			return new StringReader(source);
+		};
+	}
+
+	/**
+	 * Yields a provider that reads the source code of the classes from this provider
+	 * or, for the classes that this provider cannot find, from another provider.
+	 * For instance, {@code SourceProvider.of(sources).orElse(SourceProvider.CURRENT_DIRECTORY)}
+	 * reads the classes from memory, but {@code Object} and {@code String} from the file system.
+	 *
+	 * @param other the other provider
+	 * @return the provider
+	 */
+
+	default SourceProvider orElse(SourceProvider other) {
+		return className -> {
+			try {
+				return open(className);
+			}
+			catch (FileNotFoundException e) {
+				return other.open(className);
+			}
+		};
+	}
+
+	/**
+	 * Opens the source code of a class.
+	 *
+	 * @param className the name of the class, without the trailing {@code .kit}
+	 * @return the reader of the source code of the class
+	 * @throws FileNotFoundException if the source code of the class cannot be found
+	 * @throws IOException if the source code of the class cannot be read
+	 */
+
+	Reader open(String className) throws IOException;
+}
@@ -0,0 +1,512 @@
+package optimization;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import translation.Block;
+import translation.Program;
+import types.CodeSignature;
+import types.TestSignature;
+import bytecode.Bytecode;
+import bytecode.CALL;
+
+/**
+ * The call graph of a program. Its nodes are the methods and constructors
+ * reachable from the start of the program, from its tests and from its fixtures.
+ * Each call inside their code is a call site, linked to each of its dynamic targets.
+ * <br><br>
+ * The graph also provides its strongly connected components, that is,
+ * the sets of methods and constructors that are mutually recursive. They are
+ * sorted from the callees to the callers (bottom-up), which is the order
+ * of visit of interprocedural analyses that summarise the callees before their callers.
+ * The graph is a snapshot of the code at the time of its construction: the
+ * call sites refer to the blocks and positions of the calls at that time.
+ */
+
+public class CallGraph {
+
+	/**
+	 * A call inside the code of a method or constructor.
+	 */
+
+	public static class CallSite {
+
+		/**
+		 * The method or constructor that contains the call.
+		 */
+
+		private final CodeSignature caller;
+
+		/**
+		 * The block that contains the call.
+		 */
+
+		private final Block block;
+
+		/**
+		 * The position of the call inside the code of {@code block}.
+		 */
+
+		private final int position;
+
+		/**
+		 * The call.
+		 */
+
+		private final CALL call;
+
+		/**
+		 * Builds a call site.
+		 *
+		 * @param caller the method or constructor that contains the call
+		 * @param block the block that contains the call
+		 * @param position the position of the call inside the code of {@code block}
+		 * @param call the call
+		 */
+
+		private CallSite(CodeSignature caller, Block block, int position, CALL call) {
+			this.caller = caller;
+			this.block = block;
+			this.position = position;
+			this.call = call;
+		}
+
+		/**
+		 * Yields the method or constructor that contains the call.
+		 *
+		 * @return the caller
+		 */
+
+		public CodeSignature getCaller() {
+			return caller;
+		}
+
+		/**
+		 * Yields the block that contains the call.
+		 *
+		 * @return the block
+		 */
+
+		public Block getBlock() {
+			return block;
+		}
+
+		/**
+		 * Yields the position of the call inside the code of its block.
+		 *
+		 * @return the position, starting from 0
+		 */
+
+		public int getPosition() {
+			return position;
+		}
+
+		/**
+		 * Yields the call.
+		 *
+		 * @return the call
+		 */
+
+		public CALL getCall() {
+			return call;
+		}
+
+		/**
+		 * Yields the methods or constructors that might be called at this site.
+		 *
+		 * @return the dynamic targets of the call
+		 */
+
+		public Set<CodeSignature> getTargets() {
+			return call.getDynamicTargets();
+		}
+	}
+
+	/**
+	 * The nodes of the graph, in the order they are reached.
+	 */
+
+	private final Set<CodeSignature> nodes = new LinkedHashSet<>();
+
+	/**
+	 * The call sites inside the code of each node.
+	 */
+
+	private final Map<CodeSignature, List<CallSite>> sites = new HashMap<>();
+
+	/**
+	 * The callees of each node.
+	 */
+
+	private final Map<CodeSignature, Set<CodeSignature>> callees = new HashMap<>();
+
+	/**
+	 * The callers of each node.
+	 */
+
+	private final Map<CodeSignature, Set<CodeSignature>> callers = new HashMap<>();
+
+	/**
+	 * The strongly connected components of the graph, from the callees to the callers.
+	 */
+
+	private final List<List<CodeSignature>> components;
+
+	/**
+	 * The index, inside {@link #components}, of the component of each node.
+	 */
+
+	private final Map<CodeSignature, Integer> componentOf = new HashMap<>();
+
+	/**
+	 * Builds the call graph of the given program, from its start, tests and fixtures.
+	 * It is assumed that the program has already been translated into Kitten code.
+	 *
+	 * @param program the program
+	 */
+
+	public CallGraph(Program program) {
+		this(rootsOf(program));
+	}
+
+	/**
+	 * Builds the call graph of the methods and constructors reachable from the given ones.
+	 * It is assumed that they have already been translated into Kitten code.
+	 *
+	 * @param roots the methods and constructors where the graph starts
+	 */
+
+	public CallGraph(Collection<? extends CodeSignature> roots) {
+		Deque<CodeSignature> worklist = new ArrayDeque<>();
+		for (CodeSignature root: roots)
+			if (nodes.add(root))
+				worklist.add(root);
+
+		while (!worklist.isEmpty()) {
+			CodeSignature caller = worklist.poll();
+			List<CallSite> inside = new ArrayList<>();
+			Set<CodeSignature> targets = new LinkedHashSet<>();
+
+			if (caller.getCode() != null)
+				for (Block block: new ControlFlowGraph(caller).getBlocks()) {
+					List<Bytecode> code = ControlFlowGraph.toList(block.getBytecode());
+
+					for (int pos = 0; pos < code.size(); pos++)
+						if (code.get(pos) instanceof CALL) {
+							CallSite site = new CallSite(caller, block, pos, (CALL) code.get(pos));
+							inside.add(site);
+							targets.addAll(site.getTargets());
+						}
+				}
+
+			sites.put(caller, inside);
+			callees.put(caller, targets);
+			callers.put(caller, new LinkedHashSet<CodeSignature>());
+
+			for (CodeSignature target: targets)
+				if (nodes.add(target))
+					worklist.add(target);
+		}
+
+		for (CodeSignature caller: nodes)
+			for (CodeSignature callee: callees.get(caller))
+				callers.get(callee).add(caller);
+
+		components = computeComponents();
+		for (int pos = 0; pos < components.size(); pos++)
+			for (CodeSignature node: components.get(pos))
+				componentOf.put(node, pos);
+	}
+
+	/**
+	 * Yields the start, tests and fixtures of a program.
+	 *
+	 * @param program the program
+	 * @return the methods and constructors where the call graph of {@code program} starts
+	 */
+
+	private static List<CodeSignature> rootsOf(Program program) {
+		List<CodeSignature> roots = new ArrayList<>();
+		if (program.getStart() != null)
+			roots.add(program.getStart());
+
+		for (Set<TestSignature> tests: program.getTsigs().values())
+			roots.addAll(tests);
+
+		roots.addAll(program.getFsigs());
+
+		return roots;
+	}
+
+	/**
+	 * Yields the nodes of this graph.
+	 *
+	 * @return the methods and constructors in this graph, in the order they are reached
+	 */
+
+	public Set<CodeSignature> getNodes() {
+		return Collections.unmodifiableSet(nodes);
+	}
+
+	/**
+	 * Yields the call sites inside the code of a node of this graph.
+	 *
+	 * @param caller the node
+	 * @return the call sites inside the code of {@code caller}
+	 */
+
+	public List<CallSite> getCallSites(CodeSignature caller) {
+		List<CallSite> result = sites.get(caller);
+		return result != null ? Collections.unmodifiableList(result) : Collections.<CallSite>emptyList();
+	}
+
+	/**
+	 * Yields the methods and constructors that might be called by a node of this graph.
+	 *
+	 * @param caller the node
+	 * @return the dynamic targets of the call sites of {@code caller}
+	 */
+
+	public Set<CodeSignature> getCallees(CodeSignature caller) {
+		Set<CodeSignature> result = callees.get(caller);
+		return result != null ? Collections.unmodifiableSet(result) : Collections.<CodeSignature>emptySet();
+	}
+
+	/**
+	 * Yields the methods and constructors that might call a node of this graph.
+	 *
+	 * @param callee the node
+	 * @return the nodes that have a call site whose dynamic targets include {@code callee}
+	 */
+
+	public Set<CodeSignature> getCallers(CodeSignature callee) {
+		Set<CodeSignature> result = callers.get(callee);
+		return result != null ? Collections.unmodifiableSet(result) : Collections.<CodeSignature>emptySet();
+	}
+
+	/**
+	 * Yields the strongly connected components of this graph, from the callees to the callers.
+	 * Each component follows all components that it might call.
+	 *
+	 * @return the components
+	 */
+
+	public List<List<CodeSignature>> getComponents() {
+		return Collections.unmodifiableList(components);
+	}
+
+	/**
+	 * Yields the strongly connected component of a node of this graph.
+	 *
+	 * @param node the node
+	 * @return the nodes that are mutually recursive with {@code node}, including {@code node} itself
+	 */
+
+	public List<CodeSignature> getComponent(CodeSignature node) {
+		Integer pos = componentOf.get(node);
+		return pos != null ? Collections.unmodifiableList(components.get(pos)) : Collections.singletonList(node);
+	}
+
+	/**
+	 * Determines if a node of this graph might call itself, directly or indirectly.
+	 *
+	 * @param node the node
+	 * @return true if and only if {@code node} is recursive
+	 */
+
+	public boolean isRecursive(CodeSignature node) {
+		return getComponent(node).size() > 1 || getCallees(node).contains(node);
+	}
+
+	/**
+	 * Yields the nodes of this graph in bottom-up order, that is,
+	 * from the callees to the callers. Mutually recursive nodes are contiguous.
+	 *
+	 * @return the nodes in bottom-up order
+	 */
+
+	public List<CodeSignature> bottomUp() {
+		List<CodeSignature> result = new ArrayList<>();
+		for (List<CodeSignature> component: components)
+			result.addAll(component);
+
+		return result;
+	}
+
+	/**
+	 * Yields the nodes of this graph in top-down order, that is,
+	 * from the callers to the callees. Mutually recursive nodes are contiguous.
+	 *
+	 * @return the nodes in top-down order
+	 */
+
+	public List<CodeSignature> topDown() {
+		List<CodeSignature> result = bottomUp();
+		Collections.reverse(result);
+
+		return result;
+	}
+
+	/**
+	 * Writes the edges of this graph, one per line, as the caller and the
+	 * callee separated by a tab. There is an edge for each dynamic target of each call site.
+	 *
+	 * @param where the writer where the edges must be written
+	 * @throws IOException if an input/output error occurs
+	 */
+
+	public void writeEdges(Writer where) throws IOException {
+		for (CodeSignature caller: nodes)
+			for (CallSite site: sites.get(caller))
+				for (CodeSignature callee: site.getTargets())
+					where.write(caller + "\t" + callee + "\n");
+
+		where.flush();
+	}
+
+	/**
+	 * Writes this graph in JSON format. Each node is reported with its component,
+	 * its number of call sites and its number of callers. Each edge refers to the
+	 * nodes by their position in the list of nodes and reports the index of its call site inside the caller.
+	 *
+	 * @param where the writer where the graph must be written
+	 * @throws IOException if an input/output error occurs
+	 */
+
+	public void writeJSON(Writer where) throws IOException {
+		Map<CodeSignature, Integer> ids = new LinkedHashMap<>();
+		for (CodeSignature node: nodes)
+			ids.put(node, ids.size());
+
+		where.write("{\n  \"nodes\": [");
+		String separator = "\n";
+		for (CodeSignature node: nodes) {
+			where.write(separator + "    {\"id\": " + ids.get(node) + ", \"name\": " + quote(node.toString())
+				+ ", \"component\": " + componentOf.get(node) + ", \"recursive\": " + isRecursive(node)
+				+ ", \"sites\": " + sites.get(node).size() + ", \"callers\": " + callers.get(node).size() + "}");
+			separator = ",\n";
+		}
+
+		where.write("\n  ],\n  \"edges\": [");
+		separator = "\n";
+		for (CodeSignature caller: nodes) {
+			int index = 0;
+			for (CallSite site: sites.get(caller)) {
+				for (CodeSignature callee: site.getTargets()) {
+					where.write(separator + "    {\"from\": " + ids.get(caller) + ", \"to\": " + ids.get(callee) + ", \"site\": " + index + "}");
+					separator = ",\n";
+				}
+
+				index++;
+			}
+		}
+
+		where.write("\n  ]\n}\n");
+		where.flush();
+	}
+
+	/**
+	 * Yields a JSON string literal for the given text.
+	 *
+	 * @param text the text
+	 * @return {@code text} between double quotes, with the special characters escaped
+	 */
+
+	private static String quote(String text) {
+		StringBuilder result = new StringBuilder("\"");
+		for (char c: text.toCharArray())
+			if (c == '"' || c == '\\')
+				result.append('\\').append(c);
+			else if (c < ' ')
+				result.append(String.format("\\u%04x", (int) c));
+			else
+				result.append(c);
+
+		return result.append('"').toString();
+	}
+
+	/**
+	 * Computes the strongly connected components of this graph, through
+	 * an iterative version of Tarjan's algorithm.
+	 *
+	 * @return the components, from the callees to the callers
+	 */
+
+	private List<List<CodeSignature>> computeComponents() {
+		List<List<CodeSignature>> result = new ArrayList<>();
+		Map<CodeSignature, Integer> index = new HashMap<>();
+		Map<CodeSignature, Integer> low = new HashMap<>();
+		Deque<CodeSignature> stack = new ArrayDeque<>();
+		Set<CodeSignature> onStack = new HashSet<>();
+
+		for (CodeSignature root: nodes) {
+			if (index.containsKey(root))
+				continue;
+
+			// the nodes being visited, with the iterator over their callees still to be visited
+			Deque<CodeSignature> path = new ArrayDeque<>();
+			Deque<Iterator<CodeSignature>> iterators = new ArrayDeque<>();
+			CodeSignature next = root;
+
+			do {
+				if (next != null) {
+					index.put(next, index.size());
+					low.put(next, index.get(next));
+					stack.push(next);
+					onStack.add(next);
+					path.push(next);
+					iterators.push(callees.get(next).iterator());
+				}
+
+				next = null;
+				CodeSignature node = path.peek();
+				Iterator<CodeSignature> it = iterators.peek();
+
+				if (it.hasNext()) {
+					CodeSignature callee = it.next();
+					if (!index.containsKey(callee))
+						next = callee;
+					else if (onStack.contains(callee))
+						low.put(node, Math.min(low.get(node), index.get(callee)));
+				}
+				else {
+					path.pop();
+					iterators.pop();
+
+					if (!path.isEmpty())
+						low.put(path.peek(), Math.min(low.get(path.peek()), low.get(node)));
+
+					if (low.get(node).equals(index.get(node))) {
+						List<CodeSignature> component = new ArrayList<>();
+						CodeSignature member;
+
+						do {
+							member = stack.pop();
+							onStack.remove(member);
+							component.add(member);
+						}
+						while (member != node);
+
+						result.add(component);
+					}
+				}
+			}
+			while (!path.isEmpty());
+		}
+
+		return result;
+	}
+}
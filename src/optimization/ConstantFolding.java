@@ -0,0 +1,323 @@
+package optimization;
+
+import java.util.List;
+
+import translation.Block;
+import types.CodeSignature;
+import types.FloatType;
+import types.IntType;
+import bytecode.ADD;
+import bytecode.AND;
+import bytecode.ArithmeticBinOpBytecode;
+import bytecode.BranchingBytecode;
+import bytecode.BranchingComparisonBytecode;
+import bytecode.Bytecode;
+import bytecode.CAST;
+import bytecode.CONST;
+import bytecode.ComparisonBinOpBytecode;
+import bytecode.DIV;
+import bytecode.EQ;
+import bytecode.GE;
+import bytecode.GT;
+import bytecode.IF_CMPEQ;
+import bytecode.IF_CMPGE;
+import bytecode.IF_CMPGT;
+import bytecode.IF_CMPLE;
+import bytecode.IF_CMPLT;
+import bytecode.IF_CMPNE;
+import bytecode.IF_FALSE;
+import bytecode.IF_TRUE;
+import bytecode.LE;
+import bytecode.LT;
+import bytecode.MUL;
+import bytecode.NE;
+import bytecode.NEG;
+import bytecode.OR;
+import bytecode.POP;
+import bytecode.SUB;
+
+/**
+ * A folding of the operations over constants in the code of a method or constructor.
+ * Arithmetic, comparison, logical operations and numerical casts applied to constants
+ * are replaced by their result. Constants that are immediately discarded are removed.
+ * A branch whose condition is computed over constants is replaced by a jump
+ * to the only block that can be executed, so that the other one might become dead code.
+ */
+
+public class ConstantFolding implements Pass {
+
+	/**
+	 * Folds the operations over constants in the code of the given method or constructor.
+	 *
+	 * @param sig the method or constructor
+	 * @return the number of folded operations and branches
+	 */
+
+	@Override
+	public int optimize(CodeSignature sig) {
+		int folded = 0;
+
+		for (boolean changed = true; changed; ) {
+			changed = false;
+
+			for (Block block: new ControlFlowGraph(sig).getBlocks()) {
+				List<Bytecode> code = ControlFlowGraph.toList(block.getBytecode());
+				int before = folded;
+
+				folded += foldOperations(code);
+				if (foldBranch(block, code))
+					folded++;
+
+				if (folded > before) {
+					block.setBytecode(ControlFlowGraph.fromList(code));
+					changed = true;
+				}
+			}
+		}
+
+		return folded;
+	}
+
+	/**
+	 * Folds the operations over constants inside the given code.
+	 *
+	 * @param code the code, that gets modified
+	 * @return the number of folded operations
+	 */
+
+	private static int foldOperations(List<Bytecode> code) {
+		int folded = 0;
+
+		for (int pos = 0; pos < code.size(); pos++) {
+			Bytecode bytecode = code.get(pos);
+
+			if (pos >= 2 && code.get(pos - 2) instanceof CONST && code.get(pos - 1) instanceof CONST) {
+				Object left = ((CONST) code.get(pos - 2)).getConstant(), right = ((CONST) code.get(pos - 1)).getConstant();
+				CONST result = binary(bytecode, left, right);
+
+				if (result != null) {
+					code.subList(pos - 2, pos + 1).clear();
+					code.add(pos - 2, result);
+					pos -= 2;
+					folded++;
+					continue;
+				}
+			}
+
+			if (pos >= 1 && code.get(pos - 1) instanceof CONST) {
+				CONST result = unary(bytecode, ((CONST) code.get(pos - 1)).getConstant());
+
+				if (result != null || bytecode instanceof POP) {
+					code.subList(pos - 1, pos + 1).clear();
+					if (result != null)
+						code.add(pos - 1, result);
+
+					// the previous bytecodes might now be foldable
+					pos = Math.max(pos - 3, -1);
+					folded++;
+				}
+			}
+		}
+
+		return folded;
+	}
+
+	/**
+	 * Yields the result of a unary operation over a constant.
+	 *
+	 * @param operation the operation
+	 * @param value the constant
+	 * @return the bytecode that loads the result, or {@code null} if it cannot be computed
+	 */
+
+	private static CONST unary(Bytecode operation, Object value) {
+		if (operation instanceof NEG && value instanceof Integer)
+			return new CONST(-(Integer) value);
+		else if (operation instanceof NEG && value instanceof Float)
+			return new CONST(-(Float) value);
+		else if (operation instanceof CAST && value instanceof Integer && ((CAST) operation).getIntoType() == FloatType.INSTANCE)
+			return new CONST((float) (Integer) value);
+		else if (operation instanceof CAST && value instanceof Float && ((CAST) operation).getIntoType() == IntType.INSTANCE)
+			return new CONST((int) (float) (Float) value);
+		else
+			return null;
+	}
+
+	/**
+	 * Yields the result of a binary operation over two constants.
+	 *
+	 * @param operation the operation
+	 * @param left the constant deeper in the stack
+	 * @param right the constant on top of the stack
+	 * @return the bytecode that loads the result, or {@code null} if it cannot be computed
+	 */
+
+	private static CONST binary(Bytecode operation, Object left, Object right) {
+		if (operation instanceof ArithmeticBinOpBytecode && left instanceof Integer && right instanceof Integer) {
+			int l = (Integer) left, r = (Integer) right;
+
+			if (operation instanceof ADD)
+				return new CONST(l + r);
+			else if (operation instanceof SUB)
+				return new CONST(l - r);
+			else if (operation instanceof MUL)
+				return new CONST(l * r);
+			else if (operation instanceof DIV && r != 0)
+				// the division by zero is left to the execution, that raises an exception
+				return new CONST(l / r);
+		}
+		else if (operation instanceof ArithmeticBinOpBytecode && left instanceof Float && right instanceof Float) {
+			float l = (Float) left, r = (Float) right;
+
+			if (operation instanceof ADD)
+				return new CONST(l + r);
+			else if (operation instanceof SUB)
+				return new CONST(l - r);
+			else if (operation instanceof MUL)
+				return new CONST(l * r);
+			else if (operation instanceof DIV)
+				return new CONST(l / r);
+		}
+		else if (operation instanceof AND && left instanceof Boolean && right instanceof Boolean)
+			return new CONST((Boolean) left && (Boolean) right);
+		else if (operation instanceof OR && left instanceof Boolean && right instanceof Boolean)
+			return new CONST((Boolean) left || (Boolean) right);
+		else if (operation instanceof ComparisonBinOpBytecode) {
+			Boolean result = compare(operation, left, right);
+			if (result != null)
+				return new CONST(result);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Yields the result of a comparison between two constants.
+	 *
+	 * @param comparison the comparison, either a comparison operation or a branch
+	 * @param left the constant deeper in the stack
+	 * @param right the constant on top of the stack
+	 * @return the result of the comparison, or {@code null} if it cannot be computed
+	 */
+
+	private static Boolean compare(Bytecode comparison, Object left, Object right) {
+		if (comparison instanceof EQ || comparison instanceof IF_CMPEQ)
+			return equal(left, right);
+		else if (comparison instanceof NE || comparison instanceof IF_CMPNE) {
+			Boolean result = equal(left, right);
+			return result != null ? !result : null;
+		}
+		else if (left instanceof Integer && right instanceof Integer)
+			return order(comparison, (Integer) left, (Integer) right);
+		else if (left instanceof Float && right instanceof Float
+				// the comparisons with NaN depend on the Java bytecode used to translate them
+				&& !((Float) left).isNaN() && !((Float) right).isNaN())
+			return order(comparison, (Float) left, (Float) right);
+
+		return null;
+	}
+
+	/**
+	 * Yields the result of an ordering comparison between two numbers.
+	 * Integers are compared as {@code double}s, that represent them exactly.
+	 *
+	 * @param comparison the comparison, either a comparison operation or a branch
+	 * @param left the number deeper in the stack
+	 * @param right the number on top of the stack
+	 * @return the result of the comparison, or {@code null} if it is not an ordering comparison
+	 */
+
+	private static Boolean order(Bytecode comparison, double left, double right) {
+		if (comparison instanceof LT || comparison instanceof IF_CMPLT)
+			return left < right;
+		else if (comparison instanceof LE || comparison instanceof IF_CMPLE)
+			return left <= right;
+		else if (comparison instanceof GT || comparison instanceof IF_CMPGT)
+			return left > right;
+		else if (comparison instanceof GE || comparison instanceof IF_CMPGE)
+			return left >= right;
+		else
+			return null;
+	}
+
+	/**
+	 * Yields the result of an equality comparison between two constants.
+	 *
+	 * @param left the first constant
+	 * @param right the second constant
+	 * @return the result of the comparison, or {@code null} if it cannot be computed
+	 */
+
+	private static Boolean equal(Object left, Object right) {
+		if (left == null || right == null)
+			return left == right;
+		else if (left instanceof Float && right instanceof Float)
+			// 0.0 and -0.0 are equal, NaN is different from itself
+			return (float) (Float) left == (float) (Float) right;
+		else if (left.getClass() == right.getClass())
+			return left.equals(right);
+		else
+			return null;
+	}
+
+	/**
+	 * Replaces a branch over constants at the end of a block with a jump to the block that gets executed.
+	 *
+	 * @param block the block
+	 * @param code the code of the block, that gets modified
+	 * @return true if and only if the branch has been replaced
+	 */
+
+	private static boolean foldBranch(Block block, List<Bytecode> code) {
+		if (block.getFollows().size() != 2)
+			return false;
+
+		Block chosen = null;
+		int consumed = -1;
+
+		for (Block follow: block.getFollows()) {
+			Bytecode head = follow.getBytecode().getHead();
+			if (!(head instanceof BranchingBytecode))
+				return false;
+
+			int pops = head instanceof BranchingComparisonBytecode ? 2 : 1;
+			if (code.size() < pops)
+				return false;
+
+			Boolean taken;
+			if (pops == 1 && code.get(code.size() - 1) instanceof CONST) {
+				Object value = ((CONST) code.get(code.size() - 1)).getConstant();
+				taken = head instanceof IF_TRUE ? Boolean.TRUE.equals(value) : head instanceof IF_FALSE ? Boolean.FALSE.equals(value) : null;
+			}
+			else if (pops == 2 && code.get(code.size() - 2) instanceof CONST && code.get(code.size() - 1) instanceof CONST)
+				taken = compare(head, ((CONST) code.get(code.size() - 2)).getConstant(), ((CONST) code.get(code.size() - 1)).getConstant());
+			else
+				return false;
+
+			if (taken == null || (consumed >= 0 && consumed != pops))
+				return false;
+
+			consumed = pops;
+			if (taken) {
+				if (chosen != null)
+					return false;
+
+				chosen = follow;
+			}
+		}
+
+		if (chosen == null)
+			return false;
+
+		// the executed block without its branch, since it might be reached from elsewhere
+		Block rest = new Block();
+		rest.setBytecode(ControlFlowGraph.fromList(ControlFlowGraph.toList(chosen.getBytecode().getTail())));
+		rest.getFollows().addAll(chosen.getFollows());
+
+		code.subList(code.size() - consumed, code.size()).clear();
+		block.getFollows().clear();
+		block.getFollows().add(rest);
+
+		return true;
+	}
+}
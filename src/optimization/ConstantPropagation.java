@@ -0,0 +1,475 @@
+package optimization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import absyn.MethodDeclaration;
+import translation.Block;
+import translation.Program;
+import types.ClassType;
+import types.CodeSignature;
+import types.FixtureSignature;
+import types.MethodSignature;
+import types.Type;
+import types.TypeList;
+import bytecode.Bytecode;
+import bytecode.CALL;
+import bytecode.CONST;
+import bytecode.LOAD;
+import bytecode.STORE;
+import bytecode.VIRTUALCALL;
+
+/**
+ * An interprocedural propagation of the constants passed as actual parameters.
+ * If every call to a method or constructor passes the same constant for a
+ * parameter, the uses of that parameter inside its code are replaced by the constant.
+ * <br><br>
+ * Moreover, methods can be specialized for the constants passed at some of their
+ * call sites: a copy of the method is built, without the parameters whose
+ * value is known, and those call sites are redirected to the copy. Only small
+ * methods are copied and the total size of the copies is bounded by a budget.
+ * The patterns of constants passed at more call sites are specialized first.
+ * The constants become visible to the intraprocedural optimizations of the
+ * copies, such as {@link ConstantFolding}.
+ */
+
+public class ConstantPropagation {
+
+	/**
+	 * The default maximal number of bytecodes that can be added to the program by specialization.
+	 */
+
+	public final static int DEFAULT_BUDGET = 1000;
+
+	/**
+	 * The maximal number of bytecodes of a method that gets specialized.
+	 */
+
+	public final static int MAX_SPECIALIZED_SIZE = 200;
+
+	/**
+	 * A marker for the actual parameters whose value is not a known constant.
+	 */
+
+	private final static Object NOT_CONSTANT = new Object();
+
+	/**
+	 * The maximal number of bytecodes that can still be added to the program by specialization.
+	 */
+
+	private int budget;
+
+	/**
+	 * The number of specialized methods built so far, used to give them distinct names.
+	 */
+
+	private int specialized;
+
+	/**
+	 * The flow of the values inside the blocks that contain call sites.
+	 */
+
+	private final Map<Block, StackFlow> flows = new HashMap<>();
+
+	/**
+	 * The rewriting of the blocks that contain call sites or uses of constant parameters.
+	 * A bytecode is removed if it is mapped to an empty list.
+	 */
+
+	private final Map<Block, Map<Integer, List<Bytecode>>> rewritings = new LinkedHashMap<>();
+
+	/**
+	 * Builds a propagation of constants with the default budget for specialization.
+	 */
+
+	public ConstantPropagation() {
+		this(DEFAULT_BUDGET);
+	}
+
+	/**
+	 * Builds a propagation of constants with the given budget for specialization.
+	 *
+	 * @param budget the maximal number of bytecodes that can be added to the
+	 *               program by specialization. Use 0 to disable specialization
+	 */
+
+	public ConstantPropagation(int budget) {
+		this.budget = budget;
+	}
+
+	/**
+	 * Propagates the constant parameters of the methods and constructors of a program.
+	 * The specialized methods are added to the program and to their defining class.
+	 * It is assumed that the program has already been translated into Kitten code.
+	 *
+	 * @param program the program
+	 * @return the number of parameters replaced by constants plus the number of specialized methods
+	 */
+
+	public int optimize(Program program) {
+		CallGraph graph = new CallGraph(program);
+		flows.clear();
+		rewritings.clear();
+		int result = 0;
+
+		// the code is modified only at the end, since the call graph refers to the original code
+		List<Runnable> specializations = new ArrayList<>();
+
+		for (CodeSignature sig: graph.getNodes()) {
+			if (sig.getCode() == null || sig instanceof FixtureSignature || sig.getName().equals("main")
+					|| sig.getDefiningClass().getName().equals("String") || sig.getParameters() == TypeList.EMPTY)
+				continue;
+
+			// the constants passed at each call site
+			Map<CallGraph.CallSite, List<Object>> actuals = new LinkedHashMap<>();
+			for (CodeSignature caller: graph.getCallers(sig))
+				for (CallGraph.CallSite site: graph.getCallSites(caller))
+					if (site.getTargets().contains(sig))
+						actuals.put(site, constantsAt(site));
+
+			if (actuals.isEmpty())
+				continue;
+
+			// the parameters that receive the same constant at every call site
+			List<Object> common = new ArrayList<>(actuals.values().iterator().next());
+			for (List<Object> constants: actuals.values())
+				for (int formal = 0; formal < common.size(); formal++)
+					if (!same(common.get(formal), constants.get(formal)))
+						common.set(formal, NOT_CONSTANT);
+
+			for (int formal = 0; formal < common.size(); formal++)
+				if (common.get(formal) != NOT_CONSTANT && replaceUses(sig, formal + 1, common.get(formal)))
+					result++;
+
+			if (sig instanceof MethodSignature) {
+				List<Runnable> added = specialize((MethodSignature) sig, actuals, program);
+				specializations.addAll(added);
+				result += added.size();
+			}
+		}
+
+		for (Runnable specialization: specializations)
+			specialization.run();
+
+		for (Map.Entry<Block, Map<Integer, List<Bytecode>>> entry: rewritings.entrySet()) {
+			List<Bytecode> original = ControlFlowGraph.toList(entry.getKey().getBytecode());
+			List<Bytecode> code = new ArrayList<>();
+			for (int pos = 0; pos < original.size(); pos++)
+				if (entry.getValue().containsKey(pos))
+					code.addAll(entry.getValue().get(pos));
+				else
+					code.add(original.get(pos));
+
+			entry.getKey().setBytecode(ControlFlowGraph.fromList(code));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Yields the constants passed as actual parameters at a call site.
+	 *
+	 * @param site the call site
+	 * @return the constant passed for each formal parameter, or {@link #NOT_CONSTANT}
+	 */
+
+	private List<Object> constantsAt(CallGraph.CallSite site) {
+		StackFlow flow = flowOf(site.getBlock());
+		List<Object> result = new ArrayList<>();
+
+		// the first operand of the call is the receiver
+		int[] operands = flow.operands[site.getPosition()];
+		for (int arg = 1; arg < operands.length; arg++) {
+			int producer = operands[arg];
+			if (producer >= 0 && flow.code.get(producer) instanceof CONST)
+				result.add(((CONST) flow.code.get(producer)).getConstant());
+			else
+				result.add(NOT_CONSTANT);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Yields the flow of the values inside a block, as it was before any modification.
+	 *
+	 * @param block the block
+	 * @return the flow
+	 */
+
+	private StackFlow flowOf(Block block) {
+		StackFlow flow = flows.get(block);
+		if (flow == null)
+			flows.put(block, flow = new StackFlow(ControlFlowGraph.toList(block.getBytecode())));
+
+		return flow;
+	}
+
+	/**
+	 * Determines if two actual parameters are the same constant.
+	 *
+	 * @param first the first actual parameter
+	 * @param second the second actual parameter
+	 * @return true if and only if they are the same constant. Floating-point
+	 *         constants are compared by their bits, so that -0.0 differs from 0.0
+	 */
+
+	private static boolean same(Object first, Object second) {
+		if (first == NOT_CONSTANT || second == NOT_CONSTANT)
+			return false;
+		else if (first == null || second == null)
+			return first == second;
+		else
+			return first.equals(second);
+	}
+
+	/**
+	 * Replaces the uses of a local variable with a constant, in the code of a method or constructor,
+	 * if that local variable is never assigned.
+	 *
+	 * @param sig the method or constructor
+	 * @param var the local variable
+	 * @param constant the constant
+	 * @return true if and only if the replacement has been performed
+	 */
+
+	private boolean replaceUses(CodeSignature sig, int var, Object constant) {
+		List<Block> blocks = new ControlFlowGraph(sig).getBlocks();
+
+		for (Block block: blocks)
+			for (Bytecode bytecode: ControlFlowGraph.toList(block.getBytecode()))
+				if (bytecode instanceof STORE && ((STORE) bytecode).getVarNum() == var)
+					return false;
+
+		for (Block block: blocks) {
+			List<Bytecode> bytecodes = ControlFlowGraph.toList(block.getBytecode());
+			for (int pos = 0; pos < bytecodes.size(); pos++)
+				if (bytecodes.get(pos) instanceof LOAD && ((LOAD) bytecodes.get(pos)).getVarNum() == var)
+					rewrite(block, pos, Collections.<Bytecode>singletonList(constant(constant)));
+		}
+
+		return true;
+	}
+
+	/**
+	 * Schedules the rewriting of a bytecode of a block.
+	 *
+	 * @param block the block
+	 * @param pos the position of the bytecode inside the original code of {@code block}
+	 * @param replacement the code that replaces the bytecode
+	 */
+
+	private void rewrite(Block block, int pos, List<Bytecode> replacement) {
+		Map<Integer, List<Bytecode>> rewriting = rewritings.get(block);
+		if (rewriting == null)
+			rewritings.put(block, rewriting = new HashMap<>());
+
+		rewriting.put(pos, replacement);
+	}
+
+	/**
+	 * Yields a bytecode that loads a constant.
+	 *
+	 * @param constant the constant
+	 * @return the bytecode
+	 */
+
+	private static CONST constant(Object constant) {
+		if (constant instanceof Integer)
+			return new CONST((Integer) constant);
+		else if (constant instanceof Float)
+			return new CONST((Float) constant);
+		else if (constant instanceof Boolean)
+			return new CONST((Boolean) constant);
+		else
+			return new CONST();
+	}
+
+	/**
+	 * Decides the specializations of a method for the constants passed at its call sites.
+	 *
+	 * @param sig the method
+	 * @param actuals the constants passed at each call site of {@code sig}
+	 * @param program the program that contains {@code sig}
+	 * @return the actions that build the specialized methods and redirect the call sites
+	 */
+
+	private List<Runnable> specialize(final MethodSignature sig, Map<CallGraph.CallSite, List<Object>> actuals, final Program program) {
+		List<Runnable> result = new ArrayList<>();
+		final int size = sizeOf(sig);
+		if (size > MAX_SPECIALIZED_SIZE)
+			return result;
+
+		// the call sites that only reach sig, grouped by the constants that they pass
+		final Map<List<Object>, List<CallGraph.CallSite>> patterns = new LinkedHashMap<>();
+		for (Map.Entry<CallGraph.CallSite, List<Object>> entry: actuals.entrySet())
+			if (entry.getKey().getTargets().size() == 1 && !(entry.getKey().getCaller() instanceof FixtureSignature)
+					&& entry.getValue().size() > Collections.frequency(entry.getValue(), NOT_CONSTANT)) {
+
+				List<CallGraph.CallSite> sites = patterns.get(entry.getValue());
+				if (sites == null)
+					patterns.put(entry.getValue(), sites = new ArrayList<>());
+
+				sites.add(entry.getKey());
+			}
+
+		// the most frequent patterns are specialized first
+		List<List<Object>> sorted = new ArrayList<>(patterns.keySet());
+		Collections.sort(sorted, new Comparator<List<Object>>() {
+
+			@Override
+			public int compare(List<Object> first, List<Object> second) {
+				return patterns.get(second).size() - patterns.get(first).size();
+			}
+		});
+
+		for (final List<Object> pattern: sorted)
+			if (size <= budget) {
+				budget -= size;
+				final String name = (sig.getName() + "$" + specialized++).intern();
+
+				result.add(new Runnable() {
+
+					@Override
+					public void run() {
+						MethodSignature clone = specialization(sig, pattern, name, program);
+						for (CallGraph.CallSite site: patterns.get(pattern))
+							redirect(site, pattern, clone);
+					}
+				});
+			}
+
+		return result;
+	}
+
+	/**
+	 * Builds a copy of a method, specialized for the given constant parameters.
+	 * The copy is added to the program and to the defining class of the method.
+	 *
+	 * @param sig the method
+	 * @param pattern the constant passed for each parameter, or {@link #NOT_CONSTANT}
+	 * @param name the name of the copy
+	 * @param program the program that contains {@code sig}
+	 * @return the copy
+	 */
+
+	private MethodSignature specialization(MethodSignature sig, List<Object> pattern, String name, Program program) {
+		List<Type> formals = new ArrayList<>();
+		for (TypeList cursor = sig.getParameters(); cursor != TypeList.EMPTY; cursor = cursor.getTail())
+			formals.add(cursor.getHead());
+
+		// the parameters that are not constant are kept, in order. The others become local variables
+		int[] renaming = new int[formals.size() + 1];
+		List<Type> kept = new ArrayList<>();
+		for (int formal = 0; formal < formals.size(); formal++)
+			if (pattern.get(formal) == NOT_CONSTANT) {
+				kept.add(formals.get(formal));
+				renaming[formal + 1] = kept.size();
+			}
+
+		int next = kept.size();
+		for (int formal = 0; formal < formals.size(); formal++)
+			if (pattern.get(formal) != NOT_CONSTANT)
+				renaming[formal + 1] = ++next;
+
+		TypeList parameters = TypeList.EMPTY;
+		for (int formal = kept.size() - 1; formal >= 0; formal--)
+			parameters = parameters.push(kept.get(formal));
+
+		ClassType clazz = sig.getDefiningClass();
+		MethodSignature clone = new MethodSignature(clazz, sig.getReturnType(), parameters, name, (MethodDeclaration) sig.getAbstractSyntax());
+
+		clone.setCode(copy(sig, renaming));
+		clazz.addMethod(name, clone);
+		program.getSigs().add(clone);
+
+		// the uses of the parameters that are never modified become uses of the constants.
+		// The other parameters are initialised before the copy of the code
+		List<Bytecode> initialisation = new ArrayList<>();
+		for (int formal = 0; formal < formals.size(); formal++)
+			if (pattern.get(formal) != NOT_CONSTANT && !replaceUses(clone, renaming[formal + 1], pattern.get(formal))) {
+				initialisation.add(constant(pattern.get(formal)));
+				initialisation.add(new STORE(renaming[formal + 1], formals.get(formal)));
+			}
+
+		if (!initialisation.isEmpty())
+			clone.setCode(new Block(ControlFlowGraph.fromList(initialisation), clone.getCode()));
+
+		return clone;
+	}
+
+	/**
+	 * Builds a copy of the code of a method, where the parameters are renamed.
+	 *
+	 * @param sig the method
+	 * @param renaming the new name of each parameter. Other local variables are not renamed
+	 * @return the entry of the copy
+	 */
+
+	private static Block copy(MethodSignature sig, int[] renaming) {
+		Map<Block, Block> copies = new HashMap<>();
+		List<Block> blocks = new ControlFlowGraph(sig).getBlocks();
+
+		for (Block block: blocks) {
+			List<Bytecode> code = new ArrayList<>();
+			for (Bytecode bytecode: ControlFlowGraph.toList(block.getBytecode()))
+				if (bytecode instanceof LOAD && ((LOAD) bytecode).getVarNum() > 0 && ((LOAD) bytecode).getVarNum() < renaming.length)
+					code.add(new LOAD(renaming[((LOAD) bytecode).getVarNum()], ((LOAD) bytecode).getType()));
+				else if (bytecode instanceof STORE && ((STORE) bytecode).getVarNum() > 0 && ((STORE) bytecode).getVarNum() < renaming.length)
+					code.add(new STORE(renaming[((STORE) bytecode).getVarNum()], ((STORE) bytecode).getType()));
+				else
+					code.add(bytecode);
+
+			Block copy = new Block();
+			copy.setBytecode(ControlFlowGraph.fromList(code));
+			copies.put(block, copy);
+		}
+
+		for (Block block: blocks)
+			for (Block follow: block.getFollows())
+				copies.get(block).getFollows().add(copies.get(follow));
+
+		return copies.get(sig.getCode());
+	}
+
+	/**
+	 * Schedules the redirection of a call site to a specialized method.
+	 * The constant actual parameters are not passed anymore.
+	 *
+	 * @param site the call site
+	 * @param pattern the constant passed for each parameter, or {@link #NOT_CONSTANT}
+	 * @param clone the specialized method
+	 */
+
+	private void redirect(CallGraph.CallSite site, List<Object> pattern, MethodSignature clone) {
+		int[] operands = flowOf(site.getBlock()).operands[site.getPosition()];
+		for (int formal = 0; formal < pattern.size(); formal++)
+			if (pattern.get(formal) != NOT_CONSTANT)
+				rewrite(site.getBlock(), operands[formal + 1], Collections.<Bytecode>emptyList());
+
+		CALL call = site.getCall();
+		rewrite(site.getBlock(), site.getPosition(),
+			Arrays.<Bytecode>asList(new VIRTUALCALL((ClassType) call.getReceiverType(), clone)));
+	}
+
+	/**
+	 * Yields the number of bytecodes in the code of a method.
+	 *
+	 * @param sig the method
+	 * @return the number of bytecodes
+	 */
+
+	private static int sizeOf(MethodSignature sig) {
+		int size = 0;
+		for (Block block: new ControlFlowGraph(sig).getBlocks())
+			size += ControlFlowGraph.toList(block.getBytecode()).size();
+
+		return size;
+	}
+}
@@ -0,0 +1,198 @@
+package optimization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import translation.Block;
+import types.CodeSignature;
+import bytecode.Bytecode;
+import bytecode.BytecodeList;
+import bytecode.LOAD;
+import bytecode.NOP;
+import bytecode.STORE;
+
+/**
+ * The graph of blocks of the Kitten code of a method or constructor,
+ * together with the predecessors of each block. It is the view of the
+ * code that the optimizations use in order to rewrite it.
+ */
+
+public class ControlFlowGraph {
+
+	/**
+	 * The method or constructor whose code is represented by this graph.
+	 */
+
+	private final CodeSignature sig;
+
+	/**
+	 * The blocks reachable from the beginning of the code, in depth-first order.
+	 */
+
+	private final List<Block> blocks = new ArrayList<>();
+
+	/**
+	 * A map from each block to its predecessors.
+	 */
+
+	private final Map<Block, List<Block>> predecessors = new HashMap<>();
+
+	/**
+	 * The number of the first local variable that is not used by the code.
+	 */
+
+	private int nextLocal;
+
+	/**
+	 * Builds the graph of blocks of the code of the given method or constructor.
+	 *
+	 * @param sig the method or constructor. Its code must have been already translated
+	 */
+
+	public ControlFlowGraph(CodeSignature sig) {
+		this.sig = sig;
+
+		// the receiver, or the arguments of main, and the parameters
+		// are always held in the first local variables
+		this.nextLocal = sig.getParameters().getSize() + 1;
+
+		// we visit the blocks with an explicit stack, so that very
+		// large methods do not exhaust the Java stack
+		Set<Block> seen = new HashSet<>();
+		List<Block> stack = new ArrayList<>();
+		stack.add(sig.getCode());
+		seen.add(sig.getCode());
+
+		while (!stack.isEmpty()) {
+			Block block = stack.remove(stack.size() - 1);
+			blocks.add(block);
+			predecessors.put(block, new ArrayList<Block>());
+
+			for (BytecodeList cursor = block.getBytecode(); cursor != null; cursor = cursor.getTail()) {
+				Bytecode bytecode = cursor.getHead();
+				if (bytecode instanceof LOAD)
+					nextLocal = Math.max(nextLocal, ((LOAD) bytecode).getVarNum() + 1);
+				else if (bytecode instanceof STORE)
+					nextLocal = Math.max(nextLocal, ((STORE) bytecode).getVarNum() + 1);
+			}
+
+			// we push the successors in reverse order, so that they are visited in order
+			List<Block> follows = block.getFollows();
+			for (int pos = follows.size() - 1; pos >= 0; pos--)
+				if (seen.add(follows.get(pos)))
+					stack.add(follows.get(pos));
+		}
+
+		for (Block block: blocks)
+			for (Block follow: block.getFollows())
+				predecessors.get(follow).add(block);
+	}
+
+	/**
+	 * Yields the method or constructor whose code is represented by this graph.
+	 *
+	 * @return the method or constructor
+	 */
+
+	public CodeSignature getSignature() {
+		return sig;
+	}
+
+	/**
+	 * Yields the block where the code starts.
+	 *
+	 * @return the block where the code starts
+	 */
+
+	public Block getEntry() {
+		return sig.getCode();
+	}
+
+	/**
+	 * Yields the blocks of this graph, in depth-first order from the entry.
+	 *
+	 * @return the blocks of this graph
+	 */
+
+	public List<Block> getBlocks() {
+		return Collections.unmodifiableList(blocks);
+	}
+
+	/**
+	 * Yields the predecessors of the given block.
+	 *
+	 * @param block the block. It must belong to this graph
+	 * @return the predecessors of {@code block}
+	 */
+
+	public List<Block> getPredecessors(Block block) {
+		return Collections.unmodifiableList(predecessors.get(block));
+	}
+
+	/**
+	 * Yields a local variable that is not used by the code of this graph
+	 * nor by any previous call to this method.
+	 *
+	 * @return the number of the fresh local variable
+	 */
+
+	public int newLocal() {
+		return nextLocal++;
+	}
+
+	/**
+	 * Makes every block that jumps to {@code target} jump to {@code replacement}
+	 * instead, except for {@code replacement} itself and for the blocks in {@code excluded}.
+	 * The predecessors of this graph are not updated.
+	 *
+	 * @param target the block whose incoming edges are redirected
+	 * @param replacement the new destination of those edges
+	 * @param excluded the predecessors whose edges must not be redirected
+	 */
+
+	public void redirect(Block target, Block replacement, Set<Block> excluded) {
+		for (Block pred: predecessors.get(target))
+			if (pred != replacement && !excluded.contains(pred)) {
+				List<Block> follows = pred.getFollows();
+				for (int pos = 0; pos < follows.size(); pos++)
+					if (follows.get(pos) == target)
+						follows.set(pos, replacement);
+			}
+	}
+
+	/**
+	 * Yields the bytecodes of a list of bytecodes, in order.
+	 *
+	 * @param bytecode the list of bytecodes. It can be {@code null}
+	 * @return the bytecodes in {@code bytecode}
+	 */
+
+	public static List<Bytecode> toList(BytecodeList bytecode) {
+		List<Bytecode> result = new ArrayList<>();
+		for (BytecodeList cursor = bytecode; cursor != null; cursor = cursor.getTail())
+			result.add(cursor.getHead());
+
+		return result;
+	}
+
+	/**
+	 * Yields a list of bytecodes containing the given bytecodes, in order.
+	 *
+	 * @param bytecodes the bytecodes
+	 * @return the list of bytecodes. If {@code bytecodes} is empty, it
+	 *         contains just a {@code nop}, since blocks are never empty
+	 */
+
+	public static BytecodeList fromList(List<Bytecode> bytecodes) {
+		BytecodeList result = null;
+		for (int pos = bytecodes.size() - 1; pos >= 0; pos--)
+			result = new BytecodeList(bytecodes.get(pos), result);
+
+		return result != null ? result : new BytecodeList(new NOP());
+	}
+}
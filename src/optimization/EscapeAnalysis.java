@@ -0,0 +1,378 @@
+package optimization;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import translation.Block;
+import types.BooleanType;
+import types.ClassType;
+import types.CodeSignature;
+import types.ConstructorSignature;
+import types.FieldSignature;
+import types.FloatType;
+import types.IntType;
+import types.Type;
+import types.TypeList;
+import types.VoidType;
+import bytecode.Bytecode;
+import bytecode.CONST;
+import bytecode.CONSTRUCTORCALL;
+import bytecode.DUP;
+import bytecode.GETFIELD;
+import bytecode.LOAD;
+import bytecode.NEW;
+import bytecode.PUTFIELD;
+import bytecode.RETURN;
+import bytecode.STORE;
+
+/**
+ * An escape analysis of the objects created in a method or constructor, followed by
+ * the scalar replacement of the objects that do not escape. An object does not
+ * escape if it is created with {@code new} and stored into a local variable,
+ * that is only used to read and write the fields of the object. Moreover, the
+ * constructor of the object, and those of its superclasses, must be straight-line
+ * code that only uses {@code this} to read and write its fields.
+ * <br><br>
+ * Such objects are never created: each of their fields is held in a new local
+ * variable, initialised with the default value of the field and then by the
+ * code of the constructors, that is copied where the object was created.
+ */
+
+public class EscapeAnalysis implements Pass {
+
+	/**
+	 * The graph of the code being optimized.
+	 */
+
+	private ControlFlowGraph cfg;
+
+	/**
+	 * The flow of the values inside each block of the code being optimized.
+	 */
+
+	private final Map<Block, StackFlow> flows = new HashMap<>();
+
+	/**
+	 * Replaces with local variables the objects that do not escape from
+	 * the code of the given method or constructor.
+	 *
+	 * @param sig the method or constructor
+	 * @return the number of local variables whose objects have been replaced
+	 */
+
+	@Override
+	public int optimize(CodeSignature sig) {
+		cfg = new ControlFlowGraph(sig);
+		flows.clear();
+
+		// the local variables that are assigned an object somewhere, except the receiver and the parameters
+		int firstLocal = sig.getParameters().getSize() + (sig.getName().equals("main") ? 0 : 1);
+		List<Integer> candidates = new ArrayList<>();
+		for (Block block: cfg.getBlocks()) {
+			flows.put(block, new StackFlow(ControlFlowGraph.toList(block.getBytecode())));
+
+			for (Bytecode bytecode: flows.get(block).code)
+				if (bytecode instanceof STORE && ((STORE) bytecode).getVarNum() >= firstLocal
+						&& ((STORE) bytecode).getType() instanceof ClassType && !candidates.contains(((STORE) bytecode).getVarNum()))
+					candidates.add(((STORE) bytecode).getVarNum());
+		}
+
+		int replaced = 0;
+		for (int var: candidates)
+			if (replace(var))
+				replaced++;
+
+		return replaced;
+	}
+
+	/**
+	 * Replaces the objects held in a local variable with local variables for their fields,
+	 * if the local variable only holds objects that do not escape. The same local variable
+	 * can be reused for variables of primitive type, in disjoint scopes: they are not
+	 * affected by the replacement.
+	 *
+	 * @param var the local variable
+	 * @return true if and only if the replacement has been performed
+	 */
+
+	private boolean replace(int var) {
+		// the new local variables that hold the fields of the objects
+		Map<FieldSignature, Integer> fields = new LinkedHashMap<>();
+
+		// the rewriting of each block: a bytecode is removed if it is mapped to an empty list
+		Map<Block, Map<Integer, List<Bytecode>>> rewritings = new HashMap<>();
+
+		// the positions, in each block, where an object is created
+		Map<Block, List<Integer>> creations = new HashMap<>();
+
+		for (Block block: cfg.getBlocks()) {
+			StackFlow flow = flows.get(block);
+			Map<Integer, List<Bytecode>> rewriting = new HashMap<>();
+
+			for (int pos = 0; pos < flow.code.size(); pos++) {
+				Bytecode bytecode = flow.code.get(pos);
+
+				if (bytecode instanceof LOAD && ((LOAD) bytecode).getVarNum() == var && ((LOAD) bytecode).getType() instanceof ClassType) {
+					// the variable can only be used as receiver of a field access
+					int consumer = flow.onlyConsumer(pos, 0);
+					List<Bytecode> access;
+					if (consumer < 0 || (access = accessField(flow.code.get(consumer), fields)) == null)
+						return false;
+
+					rewriting.put(pos, new ArrayList<Bytecode>());
+					rewriting.put(consumer, access);
+				}
+				else if (bytecode instanceof STORE && ((STORE) bytecode).getVarNum() == var && ((STORE) bytecode).getType() instanceof ClassType) {
+					// the variable can only be assigned a new object: new C; dup; actuals; constructorcall C
+					int dup = flow.operands[pos][0];
+					int creation = dup >= 0 && flow.code.get(dup) instanceof DUP ? flow.operands[dup][0] : -1;
+					if (creation < 0 || !(flow.code.get(creation) instanceof NEW)
+							|| flow.consumers.get(creation).size() != 1 || flow.consumers.get(dup).size() != 2)
+						return false;
+
+					int constructor = -1;
+					for (int[] use: flow.consumers.get(dup))
+						if (use[0] != pos)
+							constructor = use[0];
+
+					if (constructor < 0 || !(flow.code.get(constructor) instanceof CONSTRUCTORCALL)
+							|| flow.operands[constructor][0] != dup)
+						return false;
+
+					List<Bytecode> initialisation = construct((ConstructorSignature) ((CONSTRUCTORCALL) flow.code.get(constructor)).getStaticTarget(), fields);
+					if (initialisation == null)
+						return false;
+
+					rewriting.put(creation, new ArrayList<Bytecode>());
+					rewriting.put(dup, new ArrayList<Bytecode>());
+					rewriting.put(pos, new ArrayList<Bytecode>());
+					rewriting.put(constructor, initialisation);
+
+					List<Integer> inBlock = creations.get(block);
+					if (inBlock == null)
+						creations.put(block, inBlock = new ArrayList<>());
+
+					inBlock.add(constructor);
+				}
+			}
+
+			if (!rewriting.isEmpty())
+				rewritings.put(block, rewriting);
+		}
+
+		if (creations.isEmpty())
+			return false;
+
+		// every creation initialises all fields to their default value, before the constructors
+		for (Map.Entry<Block, List<Integer>> entry: creations.entrySet())
+			for (int constructor: entry.getValue()) {
+				List<Bytecode> initialisation = new ArrayList<>();
+				for (Map.Entry<FieldSignature, Integer> field: fields.entrySet()) {
+					initialisation.add(defaultValue(field.getKey().getType()));
+					initialisation.add(new STORE(field.getValue(), field.getKey().getType()));
+				}
+
+				List<Bytecode> code = rewritings.get(entry.getKey()).get(constructor);
+				// the actual parameters of the constructor are stored first
+				int actuals = ((CONSTRUCTORCALL) flows.get(entry.getKey()).code.get(constructor)).getStaticTarget().getParameters().getSize();
+				code.addAll(actuals, initialisation);
+			}
+
+		for (Map.Entry<Block, Map<Integer, List<Bytecode>>> entry: rewritings.entrySet()) {
+			StackFlow flow = flows.get(entry.getKey());
+			List<Bytecode> code = new ArrayList<>();
+			for (int pos = 0; pos < flow.code.size(); pos++)
+				if (entry.getValue().containsKey(pos))
+					code.addAll(entry.getValue().get(pos));
+				else
+					code.add(flow.code.get(pos));
+
+			entry.getKey().setBytecode(ControlFlowGraph.fromList(code));
+			flows.put(entry.getKey(), new StackFlow(code));
+		}
+
+		return true;
+	}
+
+	/**
+	 * Yields the code that replaces an access to a field of a replaced object.
+	 *
+	 * @param access the access: a {@code getfield} or {@code putfield}
+	 * @param fields the local variables that hold the fields of the replaced objects.
+	 *               It gets expanded if {@code access} refers to a new field
+	 * @return the code, or {@code null} if {@code access} is not an access to a field
+	 */
+
+	private List<Bytecode> accessField(Bytecode access, Map<FieldSignature, Integer> fields) {
+		List<Bytecode> result = new ArrayList<>();
+
+		if (access instanceof GETFIELD) {
+			FieldSignature field = ((GETFIELD) access).getField();
+			result.add(new LOAD(localFor(field, fields), field.getType()));
+		}
+		else if (access instanceof PUTFIELD) {
+			FieldSignature field = ((PUTFIELD) access).getField();
+			result.add(new STORE(localFor(field, fields), field.getType()));
+		}
+		else
+			return null;
+
+		return result;
+	}
+
+	/**
+	 * Yields the local variable that holds a field of the replaced objects.
+	 *
+	 * @param field the field
+	 * @param fields the local variables that hold the fields of the replaced objects.
+	 *               It gets expanded if {@code field} is new
+	 * @return the local variable
+	 */
+
+	private int localFor(FieldSignature field, Map<FieldSignature, Integer> fields) {
+		Integer local = fields.get(field);
+		if (local == null)
+			fields.put(field, local = cfg.newLocal());
+
+		return local;
+	}
+
+	/**
+	 * Yields the code that replaces a call to a constructor of a replaced object.
+	 * It stores the actual parameters into new local variables and then executes a copy of the
+	 * code of the constructor, where the fields of {@code this} are replaced by local variables.
+	 *
+	 * @param constructor the constructor
+	 * @param fields the local variables that hold the fields of the replaced objects.
+	 *               It gets expanded if the constructor refers to new fields
+	 * @return the code, or {@code null} if the constructor does not have the required shape
+	 */
+
+	private List<Bytecode> construct(ConstructorSignature constructor, Map<FieldSignature, Integer> fields) {
+		List<Bytecode> body = straightLine(constructor.getCode());
+		if (body == null)
+			return null;
+
+		StackFlow flow = new StackFlow(body);
+		int last = flow.code.size() - 1;
+		if (!(flow.code.get(last) instanceof RETURN) || ((RETURN) flow.code.get(last)).getType() != VoidType.INSTANCE)
+			return null;
+
+		// the local variables of the constructor are renamed into new local variables
+		Map<Integer, Integer> renaming = new HashMap<>();
+		List<Bytecode> result = new ArrayList<>();
+
+		// the actual parameters are on the stack, the last one on top
+		List<Type> formals = new ArrayList<>();
+		for (TypeList cursor = constructor.getParameters(); cursor != TypeList.EMPTY; cursor = cursor.getTail())
+			formals.add(cursor.getHead());
+
+		for (int formal = formals.size(); formal > 0; formal--) {
+			renaming.put(formal, cfg.newLocal());
+			result.add(new STORE(renaming.get(formal), formals.get(formal - 1)));
+		}
+
+		Map<Integer, List<Bytecode>> rewriting = new HashMap<>();
+		for (int pos = 0; pos < last; pos++) {
+			Bytecode bytecode = flow.code.get(pos);
+
+			if (bytecode instanceof LOAD && ((LOAD) bytecode).getVarNum() == 0) {
+				// this can only be used as receiver of a field access or of the constructor of the superclass
+				int consumer = flow.onlyConsumer(pos, 0);
+				if (consumer < 0)
+					return null;
+
+				List<Bytecode> replacement = accessField(flow.code.get(consumer), fields);
+				if (replacement == null && flow.code.get(consumer) instanceof CONSTRUCTORCALL)
+					replacement = construct((ConstructorSignature) ((CONSTRUCTORCALL) flow.code.get(consumer)).getStaticTarget(), fields);
+
+				if (replacement == null)
+					return null;
+
+				rewriting.put(pos, new ArrayList<Bytecode>());
+				rewriting.put(consumer, replacement);
+			}
+			else if (bytecode instanceof STORE && ((STORE) bytecode).getVarNum() == 0)
+				return null;
+		}
+
+		for (int pos = 0; pos < last; pos++) {
+			Bytecode bytecode = flow.code.get(pos);
+
+			if (rewriting.containsKey(pos))
+				result.addAll(rewriting.get(pos));
+			else if (bytecode instanceof LOAD) {
+				LOAD load = (LOAD) bytecode;
+				result.add(new LOAD(rename(load.getVarNum(), renaming), load.getType()));
+			}
+			else if (bytecode instanceof STORE) {
+				STORE store = (STORE) bytecode;
+				result.add(new STORE(rename(store.getVarNum(), renaming), store.getType()));
+			}
+			else
+				result.add(bytecode);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Yields the code of a chain of blocks, each followed by the next one only.
+	 *
+	 * @param block the first block of the chain
+	 * @return the code of the blocks of the chain, one after the other,
+	 *         or {@code null} if {@code block} is not the beginning of a chain ending with no successor
+	 */
+
+	private static List<Bytecode> straightLine(Block block) {
+		List<Bytecode> result = new ArrayList<>();
+		Set<Block> seen = new HashSet<>();
+
+		for (; block != null; block = block.getFollows().isEmpty() ? null : block.getFollows().get(0))
+			if (block.getFollows().size() > 1 || !seen.add(block))
+				return null;
+			else
+				result.addAll(ControlFlowGraph.toList(block.getBytecode()));
+
+		return seen.isEmpty() ? null : result;
+	}
+
+	/**
+	 * Yields the new name of a local variable of a constructor whose code is copied.
+	 *
+	 * @param var the local variable of the constructor
+	 * @param renaming the renaming of the local variables. It gets expanded if {@code var} is new
+	 * @return the new local variable
+	 */
+
+	private int rename(int var, Map<Integer, Integer> renaming) {
+		Integer local = renaming.get(var);
+		if (local == null)
+			renaming.put(var, local = cfg.newLocal());
+
+		return local;
+	}
+
+	/**
+	 * Yields the bytecode that loads the default value of a field.
+	 *
+	 * @param type the type of the field
+	 * @return the bytecode
+	 */
+
+	private static Bytecode defaultValue(Type type) {
+		if (type == IntType.INSTANCE)
+			return new CONST(0);
+		else if (type == FloatType.INSTANCE)
+			return new CONST(0.0f);
+		else if (type == BooleanType.INSTANCE)
+			return new CONST(false);
+		else
+			return new CONST();
+	}
+}
@@ -0,0 +1,552 @@
+package optimization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import translation.Block;
+import types.CodeSignature;
+import types.IntType;
+import bytecode.ADD;
+import bytecode.ArithmeticBinOpBytecode;
+import bytecode.BranchingBytecode;
+import bytecode.BranchingComparisonBytecode;
+import bytecode.Bytecode;
+import bytecode.CONST;
+import bytecode.IF_CMPEQ;
+import bytecode.IF_CMPGE;
+import bytecode.IF_CMPGT;
+import bytecode.IF_CMPLE;
+import bytecode.IF_CMPLT;
+import bytecode.IF_CMPNE;
+import bytecode.LOAD;
+import bytecode.MUL;
+import bytecode.STORE;
+import bytecode.SUB;
+
+/**
+ * An optimization of the innermost loops of a method or constructor.
+ * A loop is considered here if it consists of a header, that evaluates
+ * the condition of the loop, and of a body made of a single block that
+ * jumps back to the header. This is the shape of {@code for} and {@code while}
+ * loops without conditionals inside their body. For those loops, this
+ * optimization finds the <i>induction variables</i>, that is, the {@code int}
+ * local variables that are only modified by adding a constant to them at each
+ * iteration. Multiplications of an induction variable by a constant or by a
+ * local variable that is not modified inside the loop are replaced by a new local
+ * variable, that is initialised before the loop and incremented whenever the
+ * induction variable is incremented (<i>strength reduction</i>). Moreover, if the
+ * number of iterations of the loop is known at compile-time, its body is
+ * replicated a given number of times, so that the condition of the loop is
+ * checked less often (<i>loop unrolling</i>).
+ */
+
+public class LoopOptimizer implements Pass {
+
+	/**
+	 * The number of copies of the body of a loop that are put in sequence
+	 * by default, when the number of iterations of the loop is known.
+	 */
+
+	public final static int DEFAULT_UNROLL_FACTOR = 4;
+
+	/**
+	 * The maximal number of bytecodes of the body of an unrolled loop.
+	 * Larger loops are not unrolled, to avoid code explosion.
+	 */
+
+	private final static int MAX_UNROLLED_SIZE = 256;
+
+	/**
+	 * The maximal number of iterations that are simulated in order to compute
+	 * the number of iterations of a loop. Longer loops are not unrolled.
+	 */
+
+	private final static int MAX_TRIP_COUNT = 1 << 20;
+
+	/**
+	 * The number of copies of the body of a loop that are put in sequence,
+	 * when the number of iterations of the loop is known. If it is
+	 * less than 2, no loop gets unrolled.
+	 */
+
+	private final int unrollFactor;
+
+	/**
+	 * Builds an optimizer of loops that unrolls loops with the default factor.
+	 */
+
+	public LoopOptimizer() {
+		this(DEFAULT_UNROLL_FACTOR);
+	}
+
+	/**
+	 * Builds an optimizer of loops.
+	 *
+	 * @param unrollFactor the number of copies of the body of a loop that are
+	 *                     put in sequence when the number of iterations of the
+	 *                     loop is known. Use 1 to disable loop unrolling
+	 */
+
+	public LoopOptimizer(int unrollFactor) {
+		this.unrollFactor = unrollFactor;
+	}
+
+	/**
+	 * Optimizes the loops in the code of the given method or constructor.
+	 *
+	 * @param sig the method or constructor
+	 * @return the number of loops that have been modified
+	 */
+
+	@Override
+	public int optimize(CodeSignature sig) {
+		int optimized = 0;
+		ControlFlowGraph cfg = new ControlFlowGraph(sig);
+
+		for (Block header: cfg.getBlocks())
+			// the graph is rebuilt after each optimized loop, since the optimization adds blocks to it.
+			// It is not rebuilt otherwise, or the pass would be quadratic in the size of the code
+			if (optimize(cfg, header)) {
+				cfg = new ControlFlowGraph(sig);
+				optimized++;
+			}
+
+		return optimized;
+	}
+
+	/**
+	 * Optimizes the loop whose condition is evaluated in the given block, if any.
+	 *
+	 * @param cfg the graph of the code where the loop occurs
+	 * @param header the block that is the candidate header of a loop
+	 * @return true if and only if the loop has been modified
+	 */
+
+	private boolean optimize(ControlFlowGraph cfg, Block header) {
+		List<Block> follows = header.getFollows();
+		if (follows.size() != 2 || header.getBytecode().getHead() instanceof BranchingBytecode)
+			return false;
+
+		// the body is the only successor of the header that jumps back to it
+		Block body;
+		if (isBodyOf(cfg, follows.get(0), header) && !isBodyOf(cfg, follows.get(1), header))
+			body = follows.get(0);
+		else if (isBodyOf(cfg, follows.get(1), header) && !isBodyOf(cfg, follows.get(0), header))
+			body = follows.get(1);
+		else
+			return false;
+
+		// the blocks that enter the loop from outside
+		List<Block> entries = new ArrayList<>(cfg.getPredecessors(header));
+		entries.remove(body);
+		if (entries.isEmpty())
+			return false;
+
+		List<Bytecode> headerCode = ControlFlowGraph.toList(header.getBytecode());
+		List<Bytecode> bodyCode = ControlFlowGraph.toList(body.getBytecode());
+
+		// the first bytecode of the body is the condition for staying in the loop
+		BranchingBytecode condition = (BranchingBytecode) bodyCode.remove(0);
+
+		// the code that will be executed before entering the loop
+		List<Bytecode> preheader = new ArrayList<>();
+
+		Map<Integer, Integer> steps = inductionVariables(headerCode, bodyCode);
+		boolean changed = false;
+
+		// we look for the number of iterations before strength reduction,
+		// since the latter modifies the code of the header
+		int tripCount = tripCount(entries, headerCode, condition, steps);
+
+		for (Map.Entry<Integer, Integer> iv: steps.entrySet())
+			changed |= strengthReduce(cfg, iv.getKey(), iv.getValue(), headerCode, bodyCode, preheader);
+
+		if (unrollFactor > 1 && tripCount >= unrollFactor && bodyCode.size() * unrollFactor <= MAX_UNROLLED_SIZE) {
+			// the remaining iterations are executed before the loop
+			for (int copy = 0; copy < tripCount % unrollFactor; copy++)
+				preheader.addAll(bodyCode);
+
+			List<Bytecode> unrolled = new ArrayList<>();
+			for (int copy = 0; copy < unrollFactor; copy++)
+				unrolled.addAll(bodyCode);
+
+			bodyCode = unrolled;
+			changed = true;
+		}
+
+		if (!changed)
+			return false;
+
+		bodyCode.add(0, condition);
+		header.setBytecode(ControlFlowGraph.fromList(headerCode));
+		body.setBytecode(ControlFlowGraph.fromList(bodyCode));
+
+		if (!preheader.isEmpty())
+			// we put the preheader between the entries and the loop
+			cfg.redirect(header, new Block(ControlFlowGraph.fromList(preheader), header),
+				Collections.singleton(body));
+
+		return true;
+	}
+
+	/**
+	 * Determines if a block is the body of the loop whose condition is evaluated in a given header.
+	 *
+	 * @param cfg the graph of the code where the blocks occur
+	 * @param block the candidate body
+	 * @param header the header
+	 * @return true if and only if {@code block} is only reachable from
+	 *         {@code header} and jumps back to {@code header} only
+	 */
+
+	private static boolean isBodyOf(ControlFlowGraph cfg, Block block, Block header) {
+		return block != header && block.getFollows().size() == 1 && block.getFollows().get(0) == header
+			&& cfg.getPredecessors(block).size() == 1;
+	}
+
+	/**
+	 * Yields the induction variables of a loop. They are the {@code int} local
+	 * variables that are modified only once inside the loop, in its body, by
+	 * adding or subtracting a constant.
+	 *
+	 * @param headerCode the code of the header of the loop
+	 * @param bodyCode the code of the body of the loop, without its initial condition
+	 * @return a map from each induction variable to the constant added to it at each iteration
+	 */
+
+	private static Map<Integer, Integer> inductionVariables(List<Bytecode> headerCode, List<Bytecode> bodyCode) {
+		Map<Integer, Integer> result = new LinkedHashMap<>();
+
+		for (int pos = 3; pos < bodyCode.size(); pos++)
+			if (bodyCode.get(pos) instanceof STORE) {
+				STORE store = (STORE) bodyCode.get(pos);
+				int var = store.getVarNum();
+				Bytecode operation = bodyCode.get(pos - 1);
+				Integer step = intConstant(bodyCode.get(pos - 2));
+
+				if (store.getType() == IntType.INSTANCE && isLoad(bodyCode.get(pos - 3), var) && step != null
+						&& (operation instanceof ADD || operation instanceof SUB)
+						&& ((ArithmeticBinOpBytecode) operation).getType() == IntType.INSTANCE
+						&& stores(headerCode, var) == 0 && stores(bodyCode, var) == 1)
+					result.put(var, operation instanceof ADD ? step : -step);
+			}
+
+		return result;
+	}
+
+	/**
+	 * Replaces the multiplications of an induction variable by a constant or by
+	 * a local variable that is not modified inside the loop with a new local variable.
+	 * The latter is initialised before the loop and updated whenever the
+	 * induction variable is updated.
+	 *
+	 * @param cfg the graph of the code where the loop occurs
+	 * @param var the induction variable
+	 * @param step the constant added to {@code var} at each iteration
+	 * @param headerCode the code of the header of the loop. It gets modified
+	 * @param bodyCode the code of the body of the loop, without its initial condition. It gets modified
+	 * @param preheader the code executed before entering the loop. It gets modified
+	 * @return true if and only if at least a multiplication has been replaced
+	 */
+
+	private static boolean strengthReduce(ControlFlowGraph cfg, int var, int step,
+			List<Bytecode> headerCode, List<Bytecode> bodyCode, List<Bytecode> preheader) {
+
+		boolean changed = false;
+
+		// we first reduce the multiplications by a constant, grouping them by constant
+		for (Integer factor; (factor = findConstantFactor(var, headerCode, bodyCode)) != null; ) {
+			int product = cfg.newLocal();
+
+			replaceProducts(var, new CONST(factor), product, headerCode);
+			replaceProducts(var, new CONST(factor), product, bodyCode);
+
+			preheader.add(new LOAD(var, IntType.INSTANCE));
+			preheader.add(new CONST(factor));
+			preheader.add(new MUL(IntType.INSTANCE));
+			preheader.add(new STORE(product, IntType.INSTANCE));
+
+			insertUpdate(var, product, new CONST(step * factor), bodyCode);
+			changed = true;
+		}
+
+		// then the multiplications by a local variable that is not modified in the loop
+		for (Integer other; (other = findInvariantFactor(var, headerCode, bodyCode)) != null; ) {
+			int product = cfg.newLocal(), stride = cfg.newLocal();
+
+			replaceProducts(var, new LOAD(other, IntType.INSTANCE), product, headerCode);
+			replaceProducts(var, new LOAD(other, IntType.INSTANCE), product, bodyCode);
+
+			preheader.add(new LOAD(other, IntType.INSTANCE));
+			preheader.add(new CONST(step));
+			preheader.add(new MUL(IntType.INSTANCE));
+			preheader.add(new STORE(stride, IntType.INSTANCE));
+			preheader.add(new LOAD(var, IntType.INSTANCE));
+			preheader.add(new LOAD(other, IntType.INSTANCE));
+			preheader.add(new MUL(IntType.INSTANCE));
+			preheader.add(new STORE(product, IntType.INSTANCE));
+
+			insertUpdate(var, product, new LOAD(stride, IntType.INSTANCE), bodyCode);
+			changed = true;
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Looks for a multiplication of an induction variable by a constant
+	 * inside a loop. Multiplications by 0 and by 1 are left untouched.
+	 *
+	 * @param var the induction variable
+	 * @param headerCode the code of the header of the loop
+	 * @param bodyCode the code of the body of the loop
+	 * @return the constant, if any multiplication has been found. Yields {@code null} otherwise
+	 */
+
+	private static Integer findConstantFactor(int var, List<Bytecode> headerCode, List<Bytecode> bodyCode) {
+		for (List<Bytecode> code: List.of(headerCode, bodyCode))
+			for (int pos = 2; pos < code.size(); pos++)
+				if (isIntMul(code.get(pos))) {
+					Bytecode first = code.get(pos - 2), second = code.get(pos - 1);
+					Integer factor = null;
+
+					if (isLoad(first, var))
+						factor = intConstant(second);
+					else if (isLoad(second, var))
+						factor = intConstant(first);
+
+					if (factor != null && factor != 0 && factor != 1)
+						return factor;
+				}
+
+		return null;
+	}
+
+	/**
+	 * Looks for a multiplication of an induction variable by an {@code int}
+	 * local variable that is not modified inside a loop.
+	 *
+	 * @param var the induction variable
+	 * @param headerCode the code of the header of the loop
+	 * @param bodyCode the code of the body of the loop
+	 * @return the number of the local variable, if any multiplication has been
+	 *         found. Yields {@code null} otherwise
+	 */
+
+	private static Integer findInvariantFactor(int var, List<Bytecode> headerCode, List<Bytecode> bodyCode) {
+		for (List<Bytecode> code: List.of(headerCode, bodyCode))
+			for (int pos = 2; pos < code.size(); pos++)
+				if (isIntMul(code.get(pos))) {
+					Bytecode first = code.get(pos - 2), second = code.get(pos - 1);
+					Bytecode other = isLoad(first, var) ? second : (isLoad(second, var) ? first : null);
+
+					if (other instanceof LOAD && ((LOAD) other).getType() == IntType.INSTANCE) {
+						int otherVar = ((LOAD) other).getVarNum();
+						if (otherVar != var && stores(headerCode, otherVar) == 0 && stores(bodyCode, otherVar) == 0)
+							return otherVar;
+					}
+				}
+
+		return null;
+	}
+
+	/**
+	 * Replaces, inside some code, the multiplications of a variable by a given
+	 * operand with the load of a local variable.
+	 *
+	 * @param var the variable that is multiplied
+	 * @param operand the bytecode that loads the other factor of the multiplication
+	 * @param product the local variable that holds the product
+	 * @param code the code. It gets modified
+	 */
+
+	private static void replaceProducts(int var, Bytecode operand, int product, List<Bytecode> code) {
+		for (int pos = 2; pos < code.size(); pos++)
+			if (isIntMul(code.get(pos))) {
+				Bytecode first = code.get(pos - 2), second = code.get(pos - 1);
+
+				if ((isLoad(first, var) && sameOperand(operand, second)) || (isLoad(second, var) && sameOperand(operand, first))) {
+					code.subList(pos - 2, pos + 1).clear();
+					code.add(pos - 2, new LOAD(product, IntType.INSTANCE));
+					pos -= 2;
+				}
+			}
+	}
+
+	/**
+	 * Determines if two bytecodes load the same integer, either a constant or a local variable.
+	 *
+	 * @param bytecode1 the first bytecode
+	 * @param bytecode2 the second bytecode
+	 * @return true if and only if both bytecodes are {@code const} of the same
+	 *         integer or {@code load} of the same local variable
+	 */
+
+	private static boolean sameOperand(Bytecode bytecode1, Bytecode bytecode2) {
+		if (bytecode1 instanceof LOAD)
+			return isLoad(bytecode2, ((LOAD) bytecode1).getVarNum());
+		else
+			return intConstant(bytecode1) != null && intConstant(bytecode1).equals(intConstant(bytecode2));
+	}
+
+	/**
+	 * Inserts, after the update of an induction variable, the corresponding
+	 * update of a local variable that holds a multiple of the induction variable.
+	 *
+	 * @param var the induction variable
+	 * @param product the local variable that holds the multiple of {@code var}
+	 * @param increment the bytecode that loads the quantity to add to {@code product}
+	 * @param bodyCode the code of the body of the loop. It gets modified
+	 */
+
+	private static void insertUpdate(int var, int product, Bytecode increment, List<Bytecode> bodyCode) {
+		for (int pos = 0; pos < bodyCode.size(); pos++)
+			if (bodyCode.get(pos) instanceof STORE && ((STORE) bodyCode.get(pos)).getVarNum() == var) {
+				bodyCode.addAll(pos + 1, List.of
+					(new LOAD(product, IntType.INSTANCE), increment,
+					 new ADD(IntType.INSTANCE), new STORE(product, IntType.INSTANCE)));
+
+				return;
+			}
+	}
+
+	/**
+	 * Computes the number of iterations of a loop, if it is known at compile-time.
+	 * This is the case when the loop compares an induction variable with a constant
+	 * and the induction variable is initialised with a constant just before the loop.
+	 *
+	 * @param entries the blocks that enter the loop from outside
+	 * @param headerCode the code of the header of the loop
+	 * @param condition the condition for executing the body of the loop
+	 * @param steps the induction variables of the loop, with their increments
+	 * @return the number of iterations of the loop, or -1 if it is not known
+	 */
+
+	private static int tripCount(List<Block> entries, List<Bytecode> headerCode, BranchingBytecode condition, Map<Integer, Integer> steps) {
+		if (entries.size() != 1 || headerCode.size() != 2 || !isIntComparison(condition))
+			return -1;
+
+		// the induction variable can be the first or the second operand of the comparison
+		boolean varFirst = headerCode.get(0) instanceof LOAD;
+		Bytecode load = headerCode.get(varFirst ? 0 : 1);
+		Integer bound = intConstant(headerCode.get(varFirst ? 1 : 0));
+		if (!(load instanceof LOAD) || bound == null || !steps.containsKey(((LOAD) load).getVarNum()))
+			return -1;
+
+		int var = ((LOAD) load).getVarNum();
+		int step = steps.get(var);
+
+		// we look for the initial value of the induction variable
+		List<Bytecode> entryCode = ControlFlowGraph.toList(entries.get(0).getBytecode());
+		Integer start = null;
+		for (int pos = 1; pos < entryCode.size(); pos++)
+			if (entryCode.get(pos) instanceof STORE && ((STORE) entryCode.get(pos)).getVarNum() == var)
+				start = intConstant(entryCode.get(pos - 1));
+
+		if (start == null)
+			return -1;
+
+		// we simulate the loop, with the same overflows as at run-time
+		int count = 0;
+		for (int value = start; varFirst ? holds(condition, value, bound) : holds(condition, bound, value); value += step)
+			if (++count > MAX_TRIP_COUNT)
+				return -1;
+
+		return count;
+	}
+
+	/**
+	 * Determines if a condition holds for two integer values.
+	 *
+	 * @param condition the condition. It must be a comparison of integers
+	 * @param left the first value compared
+	 * @param right the second value compared
+	 * @return true if and only if the condition holds
+	 */
+
+	private static boolean holds(BranchingBytecode condition, int left, int right) {
+		if (condition instanceof IF_CMPLT)
+			return left < right;
+		else if (condition instanceof IF_CMPLE)
+			return left <= right;
+		else if (condition instanceof IF_CMPGT)
+			return left > right;
+		else if (condition instanceof IF_CMPGE)
+			return left >= right;
+		else if (condition instanceof IF_CMPEQ)
+			return left == right;
+		else
+			return left != right;
+	}
+
+	/**
+	 * Determines if a condition is a comparison of two integers.
+	 *
+	 * @param condition the condition
+	 * @return true if and only if {@code condition} compares two integers
+	 */
+
+	private static boolean isIntComparison(BranchingBytecode condition) {
+		return (condition instanceof IF_CMPLT || condition instanceof IF_CMPLE || condition instanceof IF_CMPGT
+			|| condition instanceof IF_CMPGE || condition instanceof IF_CMPEQ || condition instanceof IF_CMPNE)
+			&& ((BranchingComparisonBytecode) condition).getType() == IntType.INSTANCE;
+	}
+
+	/**
+	 * Determines if a bytecode is a multiplication of integers.
+	 *
+	 * @param bytecode the bytecode
+	 * @return true if and only if {@code bytecode} multiplies two integers
+	 */
+
+	private static boolean isIntMul(Bytecode bytecode) {
+		return bytecode instanceof MUL && ((MUL) bytecode).getType() == IntType.INSTANCE;
+	}
+
+	/**
+	 * Determines if a bytecode loads a given local variable.
+	 *
+	 * @param bytecode the bytecode
+	 * @param var the number of the local variable
+	 * @return true if and only if {@code bytecode} loads {@code var}
+	 */
+
+	private static boolean isLoad(Bytecode bytecode, int var) {
+		return bytecode instanceof LOAD && ((LOAD) bytecode).getVarNum() == var;
+	}
+
+	/**
+	 * Yields the integer constant loaded by a bytecode, if any.
+	 *
+	 * @param bytecode the bytecode
+	 * @return the integer loaded by {@code bytecode}, if it is a {@code const}
+	 *         of an integer. Yields {@code null} otherwise
+	 */
+
+	private static Integer intConstant(Bytecode bytecode) {
+		if (bytecode instanceof CONST && ((CONST) bytecode).getConstant() instanceof Integer)
+			return (Integer) ((CONST) bytecode).getConstant();
+		else
+			return null;
+	}
+
+	/**
+	 * Counts the assignments to a local variable inside some code.
+	 *
+	 * @param code the code
+	 * @param var the number of the local variable
+	 * @return the number of {@code store} bytecodes for {@code var} in {@code code}
+	 */
+
+	private static int stores(List<Bytecode> code, int var) {
+		int result = 0;
+		for (Bytecode bytecode: code)
+			if (bytecode instanceof STORE && ((STORE) bytecode).getVarNum() == var)
+				result++;
+
+		return result;
+	}
+}
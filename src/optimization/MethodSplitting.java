@@ -0,0 +1,876 @@
+package optimization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import translation.Block;
+import translation.Program;
+import types.ArrayType;
+import types.ClassMemberSignature;
+import types.CodeSignature;
+import types.ConstructorSignature;
+import types.FixtureSignature;
+import types.HelperSignature;
+import types.PrimitiveType;
+import types.TestSignature;
+import types.Type;
+import types.TypeList;
+import types.VoidType;
+import bytecode.ARRAYLOAD;
+import bytecode.ARRAYSTORE;
+import bytecode.ArithmeticBinOpBytecode;
+import bytecode.BooleanBinOpBytecode;
+import bytecode.BranchingBytecode;
+import bytecode.Bytecode;
+import bytecode.BytecodeList;
+import bytecode.ComparisonBinOpBytecode;
+import bytecode.CALL;
+import bytecode.CAST;
+import bytecode.CONST;
+import bytecode.DUP;
+import bytecode.LOAD;
+import bytecode.NEG;
+import bytecode.NEWARRAY;
+import bytecode.NEWSTRING;
+import bytecode.NOP;
+import bytecode.POP;
+import bytecode.RETURN;
+import bytecode.STATICCALL;
+import bytecode.STORE;
+
+/**
+ * A splitting of the methods and constructors whose code would be translated into
+ * too much Java bytecode. The Java Virtual Machine rejects methods larger than 64KB
+ * and does not compile into machine code those larger than 8000 bytes.
+ * <br><br>
+ * The splitting outlines regions of the code with a single entry and a single
+ * exit into private static helper methods. The local variables that are live at the
+ * entry of a region and used inside it are passed as parameters, including {@code this}.
+ * The local variables modified inside the region and live at its exit are the results
+ * of the helper. Regions that return from the method are never outlined.
+ * The largest region that fits the limit is outlined first, until the code fits the limit.
+ * Large blocks are first cut at the points where the stack is empty, so that
+ * long sequences of statements can be split as well.
+ * <br><br>
+ * The size of the Java bytecode is over-approximated, since it is only known after its generation.
+ */
+
+public class MethodSplitting {
+
+	/**
+	 * The maximal size of the Java bytecode of a method, if no other size is specified.
+	 * It is the largest size of the methods that the Java Virtual Machine compiles into machine code.
+	 */
+
+	public final static int DEFAULT_MAX_SIZE = 8000;
+
+	/**
+	 * The size of the Java bytecode that glues a block to its follows.
+	 */
+
+	private final static int GLUE_SIZE = 5;
+
+	/**
+	 * The maximal size of the Java bytecode of the code of each method or constructor.
+	 */
+
+	private final int maxSize;
+
+	/**
+	 * The number of helper methods created so far. It is used to give them unique names.
+	 */
+
+	private int helpers;
+
+	/**
+	 * Builds a splitting of the methods that keeps them within the default size.
+	 */
+
+	public MethodSplitting() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Builds a splitting of the methods that keeps them within the given size.
+	 *
+	 * @param maxSize the maximal size of the Java bytecode of each method, in bytes
+	 */
+
+	public MethodSplitting(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Splits the methods and constructors of the given program that are too large.
+	 * The helper methods are added to the program and are split in turn, if needed.
+	 * Fixtures and tests are never split.
+	 *
+	 * @param program the program
+	 * @return the number of helper methods added to the program
+	 */
+
+	public int optimize(Program program) {
+		LinkedList<CodeSignature> workList = new LinkedList<>();
+		for (ClassMemberSignature sig: program.getSigs())
+			if (sig instanceof CodeSignature && !(sig instanceof FixtureSignature) && !(sig instanceof TestSignature)
+					&& ((CodeSignature) sig).getCode() != null)
+				workList.add((CodeSignature) sig);
+
+		int added = 0;
+
+		while (!workList.isEmpty()) {
+			CodeSignature sig = workList.removeFirst();
+			if (sizeOf(new ControlFlowGraph(sig).getBlocks()) <= maxSize)
+				continue;
+
+			cut(sig);
+
+			List<HelperSignature> helpers;
+			do {
+				if ((helpers = outline(sig)).isEmpty()) {
+					System.out.println("Could not split the code of " + sig + " within " + maxSize + " bytes");
+					break;
+				}
+
+				for (HelperSignature helper: helpers) {
+					helper.getDefiningClass().addMethod(helper.getName(), helper);
+					program.getSigs().add(helper);
+					workList.add(helper);
+					added++;
+				}
+			}
+			while (sizeOf(new ControlFlowGraph(sig).getBlocks()) > maxSize);
+		}
+
+		return added;
+	}
+
+	/**
+	 * Cuts the large blocks of a method or constructor at the points where the stack is empty,
+	 * so that each piece can be outlined on its own.
+	 *
+	 * @param sig the method or constructor
+	 */
+
+	private void cut(CodeSignature sig) {
+		ControlFlowGraph cfg = new ControlFlowGraph(sig);
+		Map<Block, Integer> heights = heights(cfg);
+		int pieceSize = Math.max(maxSize / 4, 1);
+
+		for (Block block: cfg.getBlocks()) {
+			Integer height = heights.get(block);
+			if (height == null)
+				continue;
+
+			List<Bytecode> code = ControlFlowGraph.toList(block.getBytecode());
+			int size = 0, h = height;
+
+			for (int pos = 0; pos < code.size() - 1; pos++) {
+				Bytecode bytecode = code.get(pos);
+				size += sizeOf(bytecode);
+				if (StackEffect.pops(bytecode) < 0)
+					break;
+
+				h += StackEffect.pushes(bytecode) - StackEffect.pops(bytecode);
+				// the code after a branch is cut as well, since regions cannot start with a branch
+				if (h == 0 && (size >= pieceSize || pos == 0 && bytecode instanceof BranchingBytecode)) {
+					// the rest of the code goes into a new block, that might be cut in turn
+					Block rest = new Block();
+					rest.setBytecode(ControlFlowGraph.fromList(code.subList(pos + 1, code.size())));
+					rest.getFollows().addAll(block.getFollows());
+					block.getFollows().clear();
+					block.getFollows().add(rest);
+
+					code = new ArrayList<>(code.subList(0, pos + 1));
+					block.setBytecode(ControlFlowGraph.fromList(code));
+					block = rest;
+					code = ControlFlowGraph.toList(rest.getBytecode());
+					pos = -1;
+					size = 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Outlines the largest regions of the code of a method or constructor that fit the limit.
+	 * Disjoint regions are outlined together, largest first, until the code is expected to fit
+	 * the limit, so that very large code is not analysed again after each region.
+	 *
+	 * @param sig the method or constructor
+	 * @return the helper methods that contain the outlined regions. It is empty if no region can be outlined
+	 */
+
+	private List<HelperSignature> outline(CodeSignature sig) {
+		ControlFlowGraph cfg = new ControlFlowGraph(sig);
+		Map<Block, Integer> heights = heights(cfg);
+		Map<Block, Block> ipdoms = postDominators(cfg);
+
+		Map<Block, Integer> sizes = new HashMap<>();
+		for (Block block: cfg.getBlocks())
+			sizes.put(block, sizeOf(Collections.singleton(block)));
+
+		Map<Block, Set<Integer>> liveness = liveness(cfg);
+		List<Region> candidates = new ArrayList<>();
+		Set<Block> covered = new HashSet<>();
+		for (Block entry: cfg.getBlocks())
+			// the blocks inside a candidate region rarely start a larger region, hence they are skipped
+			if (entry != cfg.getEntry() && !covered.contains(entry) && isBoundary(entry, heights)) {
+				Region candidate = largestRegion(cfg, entry, ipdoms, heights, sizes, liveness);
+				if (candidate != null) {
+					candidates.add(candidate);
+					covered.addAll(region(candidate.entry, candidate.exit));
+				}
+			}
+
+		// the largest regions are tried first
+		Collections.sort(candidates);
+
+		List<HelperSignature> helpers = new ArrayList<>();
+		// the blocks of the regions outlined so far and their exits, that other regions cannot touch
+		Set<Block> touched = new HashSet<>();
+		int size = sizeOf(cfg.getBlocks());
+
+		for (Region candidate: candidates) {
+			if (size <= maxSize)
+				break;
+
+			Set<Block> region = region(candidate.entry, candidate.exit);
+			if (touched.contains(candidate.exit) || !Collections.disjoint(touched, region))
+				continue;
+
+			// the local variables read before being written and those written and read later
+			List<Integer> parameters = new ArrayList<>(liveness.get(candidate.entry));
+			parameters.retainAll(localsOf(region));
+			Collections.sort(parameters);
+			List<Integer> results = new ArrayList<>(liveness.get(candidate.exit));
+			results.retainAll(storedIn(region));
+
+			// the call must be smaller than the region, that must fit the limit together with the writing of its results
+			if (candidate.size > 4 * parameters.size() + 20 * results.size() + 12 + GLUE_SIZE
+					&& candidate.size + 20 * results.size() + 2 * GLUE_SIZE <= maxSize
+					&& typesOf(region, parameters) != null && typesOf(region, results) != null) {
+				touched.addAll(region);
+				touched.add(candidate.exit);
+				size -= candidate.size - 4 * parameters.size() - 20 * results.size() - 12 - GLUE_SIZE;
+				helpers.add(outline(sig, cfg, region, candidate.entry, candidate.exit, parameters, results));
+			}
+		}
+
+		return helpers;
+	}
+
+	/**
+	 * Yields the largest region of code that starts at a given block, has a single entry and a single exit
+	 * and fits the limit. Its exit is a post-dominator of the block: the region up to a post-dominator
+	 * is built by extending the region up to the previous one.
+	 *
+	 * @param cfg the graph of the code
+	 * @param entry the block where the region starts
+	 * @param ipdoms the immediate post-dominator of each block, if any
+	 * @param heights the height of the stack at the beginning of the blocks
+	 * @param sizes the size of the Java bytecode of each block
+	 * @param liveness the local variables live at the beginning of each block
+	 * @return the region, or {@code null} if there is none
+	 */
+
+	private Region largestRegion(ControlFlowGraph cfg, Block entry, Map<Block, Block> ipdoms, Map<Block, Integer> heights,
+			Map<Block, Integer> sizes, Map<Block, Set<Integer>> liveness) {
+		Set<Block> region = new HashSet<>();
+		LinkedList<Block> workList = new LinkedList<>();
+		Region result = null;
+		// the number of edges that enter the region elsewhere than at its entry
+		int entering = 0, size = 0;
+		workList.add(entry);
+
+		for (Block exit = ipdoms.get(entry); exit != null && !region.contains(exit); exit = ipdoms.get(exit)) {
+			while (!workList.isEmpty()) {
+				Block block = workList.removeFirst();
+				if (block == exit || !region.add(block))
+					continue;
+
+				size += sizes.get(block);
+				if (block != entry)
+					for (Block pred: cfg.getPredecessors(block))
+						if (!region.contains(pred))
+							entering++;
+
+				for (Block follow: block.getFollows())
+					if (follow != entry && follow != block && region.contains(follow))
+						entering--;
+
+				workList.addAll(block.getFollows());
+			}
+
+			if (size + 2 * GLUE_SIZE > maxSize || region.contains(cfg.getEntry()))
+				break;
+			// the results of the region are among the local variables live at its exit
+			else if (entering == 0 && isBoundary(exit, heights) && size + 20 * liveness.get(exit).size() + 2 * GLUE_SIZE <= maxSize)
+				result = new Region(entry, exit, size);
+
+			// the region is extended from its exit, up to the next post-dominator
+			workList.add(exit);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Moves a region of code into a new helper method and replaces it with a call to that helper.
+	 * A single result is returned by the helper. Otherwise, the results are written into
+	 * arrays, one for each type of results, that the caller passes after the parameters.
+	 *
+	 * @param sig the method or constructor that contains the region
+	 * @param cfg the graph of the code of {@code sig}
+	 * @param region the blocks of the region
+	 * @param entry the only block of the region that is reached from outside
+	 * @param exit the only block outside the region that is reached from the region
+	 * @param parameters the local variables passed to the helper, in increasing order
+	 * @param results the local variables modified by the helper and used later
+	 * @return the helper
+	 */
+
+	private HelperSignature outline(CodeSignature sig, ControlFlowGraph cfg, Set<Block> region, Block entry, Block exit, List<Integer> parameters, List<Integer> results) {
+		List<Type> parameterTypes = typesOf(region, parameters), resultTypes = typesOf(region, results);
+
+		// the results are grouped by type, each group into an array
+		Map<Type, List<Integer>> groups = new LinkedHashMap<>();
+		if (results.size() > 1)
+			for (int pos = 0; pos < results.size(); pos++) {
+				List<Integer> group = groups.get(resultTypes.get(pos));
+				if (group == null)
+					groups.put(resultTypes.get(pos), group = new ArrayList<>());
+
+				group.add(results.get(pos));
+			}
+
+		// the parameters of the helper are its first local variables, followed by the arrays for the results
+		Map<Integer, Integer> renaming = new HashMap<>();
+		for (int pos = 0; pos < parameters.size(); pos++)
+			renaming.put(parameters.get(pos), pos);
+
+		int firstLocal = parameters.size() + groups.size();
+		for (int local: localsOf(region))
+			if (!renaming.containsKey(local))
+				renaming.put(local, firstLocal++);
+
+		List<Type> helperTypes = new ArrayList<>(parameterTypes);
+		for (Type type: groups.keySet())
+			helperTypes.add(ArrayType.mk(type));
+
+		TypeList types = TypeList.EMPTY;
+		for (int pos = helperTypes.size() - 1; pos >= 0; pos--)
+			types = types.push(helperTypes.get(pos));
+
+		Type returnType = results.size() == 1 ? resultTypes.get(0) : VoidType.INSTANCE;
+		String name = ((sig instanceof ConstructorSignature ? "init" : sig.getName()) + "$part" + helpers++).intern();
+		HelperSignature helper = new HelperSignature(sig.getDefiningClass(), returnType, types, name);
+
+		// the region returns to the caller instead of jumping to the exit
+		List<Bytecode> back = new ArrayList<>();
+		if (results.size() == 1)
+			back.add(new LOAD(renaming.get(results.get(0)), returnType));
+		else {
+			int array = parameters.size();
+			for (Map.Entry<Type, List<Integer>> group: groups.entrySet()) {
+				for (int pos = 0; pos < group.getValue().size(); pos++) {
+					back.add(new LOAD(array, ArrayType.mk(group.getKey())));
+					back.add(new CONST(pos));
+					back.add(new LOAD(renaming.get(group.getValue().get(pos)), group.getKey()));
+					back.add(new ARRAYSTORE(group.getKey()));
+				}
+
+				array++;
+			}
+		}
+
+		back.add(new RETURN(returnType));
+		Block ret = new Block();
+		ret.setBytecode(ControlFlowGraph.fromList(back));
+
+		for (Block block: region) {
+			List<Bytecode> code = ControlFlowGraph.toList(block.getBytecode());
+			for (int pos = 0; pos < code.size(); pos++)
+				if (code.get(pos) instanceof LOAD)
+					code.set(pos, new LOAD(renaming.get(((LOAD) code.get(pos)).getVarNum()), ((LOAD) code.get(pos)).getType()));
+				else if (code.get(pos) instanceof STORE)
+					code.set(pos, new STORE(renaming.get(((STORE) code.get(pos)).getVarNum()), ((STORE) code.get(pos)).getType()));
+
+			block.setBytecode(ControlFlowGraph.fromList(code));
+			List<Block> follows = block.getFollows();
+			for (int pos = 0; pos < follows.size(); pos++)
+				if (follows.get(pos) == exit)
+					follows.set(pos, ret);
+		}
+
+		helper.setCode(entry);
+
+		// the region gets replaced by a call to the helper
+		List<Bytecode> call = new ArrayList<>();
+		List<Integer> arrays = new ArrayList<>();
+		for (Map.Entry<Type, List<Integer>> group: groups.entrySet()) {
+			arrays.add(cfg.newLocal());
+			call.add(new CONST(group.getValue().size()));
+			call.add(new NEWARRAY(group.getKey()));
+			call.add(new STORE(arrays.get(arrays.size() - 1), ArrayType.mk(group.getKey())));
+		}
+
+		for (int pos = 0; pos < parameters.size(); pos++)
+			call.add(new LOAD(parameters.get(pos), parameterTypes.get(pos)));
+		int array = 0;
+		for (Type type: groups.keySet())
+			call.add(new LOAD(arrays.get(array++), ArrayType.mk(type)));
+
+		call.add(new STATICCALL(helper));
+
+		if (results.size() == 1)
+			call.add(new STORE(results.get(0), returnType));
+		else {
+			array = 0;
+			for (Map.Entry<Type, List<Integer>> group: groups.entrySet()) {
+				for (int pos = 0; pos < group.getValue().size(); pos++) {
+					call.add(new LOAD(arrays.get(array), ArrayType.mk(group.getKey())));
+					call.add(new CONST(pos));
+					call.add(new ARRAYLOAD(group.getKey()));
+					call.add(new STORE(group.getValue().get(pos), group.getKey()));
+				}
+
+				array++;
+			}
+		}
+
+		Block caller = new Block();
+		caller.setBytecode(ControlFlowGraph.fromList(call));
+		caller.getFollows().add(exit);
+		cfg.redirect(entry, caller, region);
+
+		return helper;
+	}
+
+	/**
+	 * Yields the region of code between a block and one of its post-dominators.
+	 *
+	 * @param entry the block
+	 * @param exit the post-dominator of {@code entry}
+	 * @return the blocks reachable from {@code entry} without crossing {@code exit}
+	 */
+
+	private static Set<Block> region(Block entry, Block exit) {
+		Set<Block> region = new HashSet<>();
+		LinkedList<Block> workList = new LinkedList<>();
+		region.add(entry);
+		workList.add(entry);
+
+		while (!workList.isEmpty())
+			for (Block follow: workList.removeFirst().getFollows())
+				if (follow != exit && region.add(follow))
+					workList.add(follow);
+
+		return region;
+	}
+
+	/**
+	 * Determines if the region of code between two blocks can start or end at a block.
+	 *
+	 * @param block the block
+	 * @param heights the height of the stack at the beginning of the blocks
+	 * @return true if and only if the stack is empty at the beginning of {@code block},
+	 *         that does not start with a branch
+	 */
+
+	private static boolean isBoundary(Block block, Map<Block, Integer> heights) {
+		Integer height = heights.get(block);
+		return height != null && height == 0 && !(block.getBytecode().getHead() instanceof BranchingBytecode);
+	}
+
+	/**
+	 * Yields the local variables used in a region of code.
+	 *
+	 * @param region the blocks of the region
+	 * @return the local variables loaded or stored in {@code region}
+	 */
+
+	private static Set<Integer> localsOf(Set<Block> region) {
+		Set<Integer> locals = new TreeSet<>();
+
+		for (Block block: region)
+			for (Bytecode bytecode: ControlFlowGraph.toList(block.getBytecode()))
+				if (bytecode instanceof LOAD)
+					locals.add(((LOAD) bytecode).getVarNum());
+				else if (bytecode instanceof STORE)
+					locals.add(((STORE) bytecode).getVarNum());
+
+		return locals;
+	}
+
+	/**
+	 * Yields the local variables stored in a region of code.
+	 *
+	 * @param region the blocks of the region
+	 * @return the local variables stored in {@code region}
+	 */
+
+	private static Set<Integer> storedIn(Set<Block> region) {
+		Set<Integer> locals = new HashSet<>();
+
+		for (Block block: region)
+			for (Bytecode bytecode: ControlFlowGraph.toList(block.getBytecode()))
+				if (bytecode instanceof STORE)
+					locals.add(((STORE) bytecode).getVarNum());
+
+		return locals;
+	}
+
+	/**
+	 * Yields the types of some local variables inside a region of code.
+	 *
+	 * @param region the blocks of the region
+	 * @param locals the local variables
+	 * @return the type of each of {@code locals}, in order, or {@code null} if
+	 *         some of them is used with distinct types inside {@code region}
+	 */
+
+	private static List<Type> typesOf(Set<Block> region, List<Integer> locals) {
+		Map<Integer, Type> types = new HashMap<>();
+
+		for (Block block: region)
+			for (Bytecode bytecode: ControlFlowGraph.toList(block.getBytecode())) {
+				int local;
+				Type type;
+
+				if (bytecode instanceof LOAD) {
+					local = ((LOAD) bytecode).getVarNum();
+					type = ((LOAD) bytecode).getType();
+				}
+				else if (bytecode instanceof STORE) {
+					local = ((STORE) bytecode).getVarNum();
+					type = ((STORE) bytecode).getType();
+				}
+				else
+					continue;
+
+				// local variables are reused with distinct types in distinct scopes
+				Type previous = types.put(local, type);
+				if (previous != null && previous != type && locals.contains(local))
+					return null;
+			}
+
+		List<Type> result = new ArrayList<>();
+		for (int local: locals)
+			result.add(types.get(local));
+
+		return result;
+	}
+
+	/**
+	 * Yields the height of the stack at the beginning of the blocks of some code.
+	 *
+	 * @param cfg the graph of the code
+	 * @return the height of the stack at the beginning of each block, if known
+	 */
+
+	private static Map<Block, Integer> heights(ControlFlowGraph cfg) {
+		Map<Block, Integer> heights = new HashMap<>();
+		LinkedList<Block> workList = new LinkedList<>();
+		heights.put(cfg.getEntry(), 0);
+		workList.add(cfg.getEntry());
+
+		while (!workList.isEmpty()) {
+			Block block = workList.removeFirst();
+			int height = heights.get(block);
+
+			for (Bytecode bytecode: ControlFlowGraph.toList(block.getBytecode()))
+				if (height >= 0 && StackEffect.pops(bytecode) >= 0)
+					height += StackEffect.pushes(bytecode) - StackEffect.pops(bytecode);
+				else
+					height = -1;
+
+			if (height >= 0)
+				for (Block follow: block.getFollows())
+					if (!heights.containsKey(follow)) {
+						heights.put(follow, height);
+						workList.add(follow);
+					}
+		}
+
+		return heights;
+	}
+
+	/**
+	 * Yields the local variables live at the beginning of the blocks of some code.
+	 *
+	 * @param cfg the graph of the code
+	 * @return the local variables that might be read before being written, from the beginning of each block
+	 */
+
+	private static Map<Block, Set<Integer>> liveness(ControlFlowGraph cfg) {
+		Map<Block, Set<Integer>> uses = new HashMap<>(), definitions = new HashMap<>(), live = new HashMap<>();
+
+		for (Block block: cfg.getBlocks()) {
+			Set<Integer> used = new HashSet<>(), defined = new HashSet<>();
+
+			for (Bytecode bytecode: ControlFlowGraph.toList(block.getBytecode()))
+				if (bytecode instanceof LOAD && !defined.contains(((LOAD) bytecode).getVarNum()))
+					used.add(((LOAD) bytecode).getVarNum());
+				else if (bytecode instanceof STORE)
+					defined.add(((STORE) bytecode).getVarNum());
+
+			uses.put(block, used);
+			definitions.put(block, defined);
+			live.put(block, new HashSet<>(used));
+		}
+
+		// the blocks are visited backwards, since liveness flows from the follows to their predecessors
+		List<Block> blocks = new ArrayList<>(cfg.getBlocks());
+		Collections.reverse(blocks);
+
+		for (boolean changed = true; changed; ) {
+			changed = false;
+
+			for (Block block: blocks) {
+				Set<Integer> in = live.get(block);
+
+				for (Block follow: block.getFollows())
+					for (int local: live.get(follow))
+						if (!definitions.get(block).contains(local) && in.add(local))
+							changed = true;
+			}
+		}
+
+		return live;
+	}
+
+	/**
+	 * Yields the immediate post-dominator of the blocks of some code, that is, the first
+	 * block that is met along every path from a block to the end of the code.
+	 * It uses the algorithm by Cooper, Harvey and Kennedy over the reversed graph.
+	 *
+	 * @param cfg the graph of the code
+	 * @return the immediate post-dominator of each block, if any
+	 */
+
+	private static Map<Block, Block> postDominators(ControlFlowGraph cfg) {
+		List<Block> blocks = cfg.getBlocks();
+
+		// the blocks in reverse post-order of the reversed graph, from a virtual end of the code
+		List<Block> order = new ArrayList<>();
+		Set<Block> seen = new HashSet<>();
+		LinkedList<Block> stack = new LinkedList<>();
+		LinkedList<Integer> next = new LinkedList<>();
+
+		for (Block block: blocks)
+			if (block.getFollows().isEmpty() && seen.add(block)) {
+				stack.push(block);
+				next.push(0);
+
+				while (!stack.isEmpty()) {
+					Block top = stack.peek();
+					List<Block> preds = cfg.getPredecessors(top);
+					int pos = next.pop();
+
+					if (pos < preds.size()) {
+						next.push(pos + 1);
+						if (seen.add(preds.get(pos))) {
+							stack.push(preds.get(pos));
+							next.push(0);
+						}
+					}
+					else {
+						stack.pop();
+						order.add(top);
+					}
+				}
+			}
+
+		Collections.reverse(order);
+		Map<Block, Integer> index = new HashMap<>();
+		for (Block block: order)
+			index.put(block, index.size());
+
+		// null stands for the virtual end of the code, that post-dominates the returning blocks
+		Map<Block, Block> ipdoms = new HashMap<>();
+		Set<Block> done = new HashSet<>();
+
+		for (boolean changed = true; changed; ) {
+			changed = false;
+
+			for (Block block: order) {
+				Block ipdom = null;
+				boolean first = true;
+
+				if (!block.getFollows().isEmpty())
+					for (Block follow: block.getFollows())
+						if (done.contains(follow)) {
+							if (first) {
+								ipdom = follow;
+								first = false;
+							}
+							else
+								ipdom = intersect(ipdom, follow, ipdoms, index);
+						}
+
+				if (first && !block.getFollows().isEmpty())
+					continue;
+
+				if (!done.contains(block) || ipdoms.get(block) != ipdom) {
+					ipdoms.put(block, ipdom);
+					done.add(block);
+					changed = true;
+				}
+			}
+		}
+
+		return ipdoms;
+	}
+
+	/**
+	 * Yields the nearest common post-dominator of two blocks.
+	 *
+	 * @param b1 the first block, {@code null} for the virtual end of the code
+	 * @param b2 the second block, {@code null} for the virtual end of the code
+	 * @param ipdoms the immediate post-dominators computed so far
+	 * @param index the position of each block in reverse post-order of the reversed graph
+	 * @return the nearest common post-dominator
+	 */
+
+	private static Block intersect(Block b1, Block b2, Map<Block, Block> ipdoms, Map<Block, Integer> index) {
+		while (b1 != b2)
+			if (b1 == null || b2 == null)
+				return null;
+			else if (index.get(b1) > index.get(b2))
+				b1 = ipdoms.get(b1);
+			else
+				b2 = ipdoms.get(b2);
+
+		return b1;
+	}
+
+	/**
+	 * Yields an over-approximation of the size of the Java bytecode generated for some blocks.
+	 *
+	 * @param blocks the blocks
+	 * @return the size, in bytes
+	 */
+
+	private static int sizeOf(Iterable<Block> blocks) {
+		int size = 0;
+		for (Block block: blocks) {
+			for (BytecodeList cursor = block.getBytecode(); cursor != null; cursor = cursor.getTail())
+				size += sizeOf(cursor.getHead());
+
+			size += GLUE_SIZE;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Yields an over-approximation of the size of the Java bytecode generated for a Kitten bytecode.
+	 *
+	 * @param bytecode the Kitten bytecode
+	 * @return the size, in bytes
+	 */
+
+	private static int sizeOf(Bytecode bytecode) {
+		if (bytecode instanceof NOP || bytecode instanceof DUP || bytecode instanceof POP || bytecode instanceof NEG
+				|| bytecode instanceof ArithmeticBinOpBytecode || bytecode instanceof BooleanBinOpBytecode
+				|| bytecode instanceof ARRAYLOAD || bytecode instanceof ARRAYSTORE || bytecode instanceof RETURN)
+			return 1;
+		else if (bytecode instanceof LOAD)
+			return sizeOfLocal(((LOAD) bytecode).getVarNum());
+		else if (bytecode instanceof STORE)
+			return sizeOfLocal(((STORE) bytecode).getVarNum());
+		else if (bytecode instanceof CONST) {
+			Object constant = ((CONST) bytecode).getConstant();
+			if (constant instanceof Integer && (Integer) constant >= -1 && (Integer) constant <= 5)
+				return 1;
+			else if (constant instanceof Integer && (Integer) constant >= Byte.MIN_VALUE && (Integer) constant <= Byte.MAX_VALUE)
+				return 2;
+			else if (constant instanceof Integer || constant instanceof Float)
+				// sipush, ldc or ldc_w
+				return 3;
+			else
+				return 1;
+		}
+		else if (bytecode instanceof CAST && ((CAST) bytecode).getIntoType() instanceof PrimitiveType)
+			return 1;
+		else if (bytecode instanceof NEWARRAY || bytecode instanceof CALL)
+			return 5;
+		else if (bytecode instanceof ComparisonBinOpBytecode)
+			// a comparison, a branch and a jump
+			return 9;
+		else if (bytecode instanceof NEWSTRING)
+			// a new string is built and converted into a Kitten string
+			return 13;
+		else if (bytecode instanceof BranchingBytecode)
+			return 12;
+		else
+			// field accesses, casts and allocations
+			return 3;
+	}
+
+	/**
+	 * Yields the size of the Java bytecode that loads or stores a local variable.
+	 *
+	 * @param local the number of the local variable
+	 * @return the size, in bytes
+	 */
+
+	private static int sizeOfLocal(int local) {
+		// the first local variables have a short form, those beyond 255 need a wide prefix
+		return local < 4 ? 1 : local < 256 ? 2 : 4;
+	}
+
+	/**
+	 * A region of code with a single entry and a single exit.
+	 */
+
+	private static class Region implements Comparable<Region> {
+
+		/**
+		 * The only block of the region that is reached from outside.
+		 */
+
+		private final Block entry;
+
+		/**
+		 * The only block outside the region that is reached from the region.
+		 */
+
+		private final Block exit;
+
+		/**
+		 * The size of the Java bytecode of the region.
+		 */
+
+		private final int size;
+
+		/**
+		 * Builds a region of code.
+		 *
+		 * @param entry the only block of the region that is reached from outside
+		 * @param exit the only block outside the region that is reached from the region
+		 * @param size the size of the Java bytecode of the region
+		 */
+
+		private Region(Block entry, Block exit, int size) {
+			this.entry = entry;
+			this.exit = exit;
+			this.size = size;
+		}
+
+		@Override
+		public int compareTo(Region other) {
+			// larger regions come first
+			return other.size - size;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package optimization;
+
+import types.CodeSignature;
+
+/**
+ * A transformation of the Kitten code of a single method or constructor.
+ * Passes are run in sequence by a {@link PassManager}.
+ */
+
+public interface Pass {
+
+	/**
+	 * Transforms the code of the given method or constructor.
+	 *
+	 * @param sig the method or constructor. Its code must have been already translated
+	 * @return the number of transformations performed, 0 if the code has not been modified
+	 */
+
+	int optimize(CodeSignature sig);
+}
@@ -0,0 +1,387 @@
+package optimization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import translation.Block;
+import translation.Program;
+import types.ClassMemberSignature;
+import types.CodeSignature;
+import types.FixtureSignature;
+
+/**
+ * A manager of the optimizations of the Kitten code of a program. It runs
+ * a pipeline of passes that depends on the optimization level. The manager can
+ * verify the code after each pass and can collect, for each pass, the time
+ * it took and its effect on the size of the code.
+ */
+
+public class PassManager {
+
+	/**
+	 * The optimization levels, from the fastest to compile to the fastest to run.
+	 */
+
+	public enum Level {
+
+		/**
+		 * No optimization.
+		 */
+
+		O0,
+
+		/**
+		 * The optimizations that look at a single method or constructor at a time
+		 * and never enlarge its code.
+		 */
+
+		O1,
+
+		/**
+		 * All optimizations, including the interprocedural ones and those that enlarge the code.
+		 * Moreover, each string literal is created only once, so that two evaluations of
+		 * the same literal are the same string, also for {@code =}.
+		 */
+
+		O2
+	}
+
+	/**
+	 * The optimization level used if none is specified. The interprocedural optimizations
+	 * and those that enlarge the code must be required explicitly, with {@link Level#O2}.
+	 */
+
+	public final static Level DEFAULT_LEVEL = Level.O1;
+
+	/**
+	 * The optimization level.
+	 */
+
+	private final Level level;
+
+	/**
+	 * The number of times the body of the loops gets unrolled.
+	 */
+
+	private int unrollFactor = LoopOptimizer.DEFAULT_UNROLL_FACTOR;
+
+	/**
+	 * The maximal number of bytecodes that can be added by the specialization of methods.
+	 */
+
+	private int specializationBudget = ConstantPropagation.DEFAULT_BUDGET;
+
+	/**
+	 * The maximal size of the Java bytecode of a method, beyond which it gets split.
+	 */
+
+	private int maxMethodSize = MethodSplitting.DEFAULT_MAX_SIZE;
+
+	/**
+	 * True if and only if the code must be verified after each pass.
+	 */
+
+	private boolean verify;
+
+	/**
+	 * True if and only if the statistics of the passes must be reported.
+	 */
+
+	private boolean statistics;
+
+	/**
+	 * The statistics of each pass, in order of execution.
+	 */
+
+	private final Map<String, Statistics> stats = new LinkedHashMap<>();
+
+	/**
+	 * Builds a manager for the given optimization level.
+	 *
+	 * @param level the optimization level
+	 */
+
+	public PassManager(Level level) {
+		this.level = level;
+	}
+
+	/**
+	 * Yields the optimization level of this manager.
+	 *
+	 * @return the optimization level
+	 */
+
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Sets the number of times the body of the loops gets unrolled.
+	 *
+	 * @param unrollFactor the number of copies of the body, at least 1. A value of 1 disables unrolling
+	 */
+
+	public void setUnrollFactor(int unrollFactor) {
+		this.unrollFactor = unrollFactor;
+	}
+
+	/**
+	 * Sets the maximal number of bytecodes that can be added by the specialization of methods.
+	 *
+	 * @param specializationBudget the budget. A value of 0 disables specialization
+	 */
+
+	public void setSpecializationBudget(int specializationBudget) {
+		this.specializationBudget = specializationBudget;
+	}
+
+	/**
+	 * Sets the maximal size of the Java bytecode of a method, beyond which it gets split into helper methods.
+	 * Methods are split at every optimization level, since the Java Virtual Machine cannot run them otherwise.
+	 *
+	 * @param maxMethodSize the size, in bytes. A value of 0 disables splitting
+	 */
+
+	public void setMaxMethodSize(int maxMethodSize) {
+		this.maxMethodSize = maxMethodSize;
+	}
+
+	/**
+	 * Requires the code to be verified after translation and after each pass.
+	 *
+	 * @param verify true if and only if the code must be verified
+	 */
+
+	public void setVerify(boolean verify) {
+		this.verify = verify;
+	}
+
+	/**
+	 * Requires the statistics of the passes to be reported at the end of the optimization.
+	 *
+	 * @param statistics true if and only if the statistics must be reported
+	 */
+
+	public void setStatistics(boolean statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Optimizes the Kitten code of the signatures in the given program. It is
+	 * assumed that all these signatures have already been translated into Kitten code.
+	 * Fixtures are not optimized, since only their first block gets
+	 * translated into Java bytecode.
+	 *
+	 * @param program the program
+	 * @return false if and only if verification is enabled and the code
+	 *         of the program is not well-formed after some pass
+	 */
+
+	public boolean run(Program program) {
+		if (verify && !verify(codeOf(program), "translation"))
+			return false;
+
+		if (level == Level.O2) {
+			// this changes the result of = between literals, hence it is not done at the lower levels
+			program.allowSharedLiterals();
+
+			// the interprocedural propagation of constants might add specialized methods to this program
+			int[] before = statistics ? sizeOf(codeOf(program)) : null;
+			long time = System.nanoTime();
+			int changes = new ConstantPropagation(specializationBudget).optimize(program);
+			record("ConstantPropagation", changes, System.nanoTime() - time, before, codeOf(program));
+
+			if (verify && !verify(codeOf(program), "ConstantPropagation"))
+				return false;
+		}
+
+		List<Pass> passes = getPasses(program);
+
+		for (CodeSignature sig: codeOf(program))
+			for (Pass pass: passes) {
+				List<CodeSignature> optimized = Collections.singletonList(sig);
+				int[] before = statistics ? sizeOf(optimized) : null;
+				long time = System.nanoTime();
+				int changes = pass.optimize(sig);
+				record(pass.getClass().getSimpleName(), changes, System.nanoTime() - time, before, optimized);
+
+				if (verify && !verify(optimized, pass.getClass().getSimpleName()))
+					return false;
+			}
+
+		if (maxMethodSize > 0) {
+			// the splitting comes last, since the other passes might enlarge the code
+			int[] before = statistics ? sizeOf(codeOf(program)) : null;
+			long time = System.nanoTime();
+			int changes = new MethodSplitting(maxMethodSize).optimize(program);
+			record("MethodSplitting", changes, System.nanoTime() - time, before, codeOf(program));
+
+			if (verify && !verify(codeOf(program), "MethodSplitting"))
+				return false;
+		}
+
+		if (statistics)
+			report();
+
+		return true;
+	}
+
+	/**
+	 * Yields the pipeline of passes applied to each method and constructor, in order.
+	 *
+	 * @param program the program whose code gets optimized
+	 * @return the passes
+	 */
+
+	private List<Pass> getPasses(Program program) {
+		List<Pass> passes = new ArrayList<>();
+
+		if (level == Level.O1) {
+			passes.add(new TailCallElimination());
+			passes.add(new ConstantFolding());
+			passes.add(new ValueNumbering());
+		}
+		else if (level == Level.O2) {
+			// the elimination of tail calls builds new loops, that can be optimized later.
+			// Scalar replacement turns fields into local variables, that the other optimizations understand.
+			// Folding exposes the constant bounds of loops.
+			// Strength reduction looks for the products that value numbering would hide into temporaries
+			passes.add(new TailCallElimination());
+			passes.add(new EscapeAnalysis());
+			passes.add(new ConstantFolding());
+			passes.add(new LoopOptimizer(unrollFactor));
+			// the side-effects are computed before the code gets modified, since optimizations never add any
+			passes.add(new ValueNumbering(new PurityAnalysis(program)));
+		}
+
+		return passes;
+	}
+
+	/**
+	 * Yields the methods and constructors of a program whose code can be optimized.
+	 *
+	 * @param program the program
+	 * @return the methods and constructors
+	 */
+
+	private static List<CodeSignature> codeOf(Program program) {
+		List<CodeSignature> result = new ArrayList<>();
+
+		for (ClassMemberSignature sig: program.getSigs())
+			if (sig instanceof CodeSignature && !(sig instanceof FixtureSignature) && ((CodeSignature) sig).getCode() != null)
+				result.add((CodeSignature) sig);
+
+		return result;
+	}
+
+	/**
+	 * Verifies the code of some methods or constructors and reports the first one that is not well-formed.
+	 *
+	 * @param sigs the methods or constructors
+	 * @param after the name of the last pass that modified their code
+	 * @return true if and only if the code of all {@code sigs} is well-formed
+	 */
+
+	private static boolean verify(List<CodeSignature> sigs, String after) {
+		for (CodeSignature sig: sigs) {
+			String error = Verifier.check(sig);
+			if (error != null) {
+				System.out.println("Verification of the code of " + sig + " failed after " + after + ": " + error);
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Yields the size of the code of some methods or constructors.
+	 *
+	 * @param sigs the methods or constructors
+	 * @return the number of bytecodes and the number of blocks in their code
+	 */
+
+	private static int[] sizeOf(List<CodeSignature> sigs) {
+		int[] size = new int[2];
+
+		for (CodeSignature sig: sigs)
+			for (Block block: new ControlFlowGraph(sig).getBlocks()) {
+				size[0] += ControlFlowGraph.toList(block.getBytecode()).size();
+				size[1]++;
+			}
+
+		return size;
+	}
+
+	/**
+	 * Records the statistics of an execution of a pass, if they are required.
+	 *
+	 * @param name the name of the pass
+	 * @param changes the number of transformations performed by the pass
+	 * @param time the time taken by the pass, in nanoseconds
+	 * @param before the size of the code before the pass, as computed by {@link #sizeOf(List)}
+	 * @param sigs the methods or constructors whose code has been optimized
+	 */
+
+	private void record(String name, int changes, long time, int[] before, List<CodeSignature> sigs) {
+		if (statistics) {
+			Statistics stat = stats.get(name);
+			if (stat == null)
+				stats.put(name, stat = new Statistics());
+
+			int[] after = sizeOf(sigs);
+			stat.changes += changes;
+			stat.time += time;
+			stat.bytecodes += after[0] - before[0];
+			stat.blocks += after[1] - before[1];
+		}
+	}
+
+	/**
+	 * Prints the statistics of the passes.
+	 */
+
+	private void report() {
+		System.out.println(String.format("%-24s%10s%12s%12s%10s", "Optimization pass", "changes", "time", "bytecodes", "blocks"));
+
+		for (Map.Entry<String, Statistics> entry: stats.entrySet()) {
+			Statistics stat = entry.getValue();
+			System.out.println(String.format("%-24s%10d%10.2fms%+12d%+10d",
+				entry.getKey(), stat.changes, stat.time / 1e6, stat.bytecodes, stat.blocks));
+		}
+	}
+
+	/**
+	 * The statistics of a pass, accumulated over all its executions.
+	 */
+
+	private static class Statistics {
+
+		/**
+		 * The number of transformations performed by the pass.
+		 */
+
+		private int changes;
+
+		/**
+		 * The time taken by the pass, in nanoseconds.
+		 */
+
+		private long time;
+
+		/**
+		 * The number of bytecodes added by the pass, negative if it removed some.
+		 */
+
+		private int bytecodes;
+
+		/**
+		 * The number of blocks added by the pass, negative if it removed some.
+		 */
+
+		private int blocks;
+	}
+}
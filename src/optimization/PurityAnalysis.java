@@ -0,0 +1,319 @@
+package optimization;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import translation.Block;
+import translation.Program;
+import types.CodeSignature;
+import types.ConstructorSignature;
+import types.TypeList;
+import bytecode.ARRAYLOAD;
+import bytecode.ARRAYSTORE;
+import bytecode.Bytecode;
+import bytecode.CALL;
+import bytecode.CONSTRUCTORCALL;
+import bytecode.GETFIELD;
+import bytecode.LOAD;
+import bytecode.NEW;
+import bytecode.NEWARRAY;
+import bytecode.NEWSTRING;
+import bytecode.PUTFIELD;
+import bytecode.STORE;
+
+/**
+ * An interprocedural analysis of the side-effects of the methods and constructors
+ * of a program. Each of them is classified as pure, if it neither reads nor
+ * modifies the heap and performs no input or output; as read-only, if it might
+ * read but never modifies the heap nor performs input or output; or as effectful otherwise.
+ * The analysis also determines if a method or constructor might allocate new objects or arrays.
+ * <br><br>
+ * The effects of a piece of code include those of the code it might call, as
+ * given by the {@link CallGraph} of the program. Hence the summaries are computed
+ * for the strongly connected components of the call graph, from the callees
+ * to the callers, by iterating the summaries of each component up to a fixpoint.
+ * <br><br>
+ * A constructor that uses {@code this} only to access its fields, and to call
+ * the constructor of the superclass, does not modify the heap when it
+ * initialises the fields of {@code this}, since that object has just been created.
+ * The methods of {@code String} are implemented in Java and their effects are
+ * known in advance. Purity does not imply termination nor the absence of exceptions.
+ */
+
+public class PurityAnalysis {
+
+	/**
+	 * The classification of the side-effects of a method or constructor,
+	 * from the most to the least precise.
+	 */
+
+	public enum Purity {
+
+		/**
+		 * The code neither reads nor modifies the heap and performs no input or output.
+		 */
+
+		PURE,
+
+		/**
+		 * The code might read but never modifies the heap and performs no input or output.
+		 */
+
+		READ_ONLY,
+
+		/**
+		 * The code might modify the heap or perform input or output.
+		 */
+
+		EFFECTFUL;
+
+		/**
+		 * Yields the classification of code that has both this and the given effects.
+		 *
+		 * @param other the other effects
+		 * @return the least precise between this and {@code other}
+		 */
+
+		public Purity join(Purity other) {
+			return compareTo(other) >= 0 ? this : other;
+		}
+	}
+
+	/**
+	 * The classification of each method or constructor of the program.
+	 */
+
+	private final Map<CodeSignature, Purity> purities = new HashMap<>();
+
+	/**
+	 * The methods and constructors of the program that might allocate objects or arrays.
+	 */
+
+	private final Set<CodeSignature> allocating = new HashSet<>();
+
+	/**
+	 * Analyses the methods and constructors of the given program.
+	 * It is assumed that they have already been translated into Kitten code.
+	 *
+	 * @param program the program
+	 */
+
+	public PurityAnalysis(Program program) {
+		this(new CallGraph(program));
+	}
+
+	/**
+	 * Analyses the methods and constructors in the given call graph.
+	 *
+	 * @param graph the call graph
+	 */
+
+	public PurityAnalysis(CallGraph graph) {
+		for (CodeSignature sig: graph.getNodes())
+			if (sig.getCode() != null && !isNative(sig))
+				analyse(sig);
+
+		// the components are met from the callees to the callers
+		for (List<CodeSignature> component: graph.getComponents()) {
+			boolean changed;
+
+			do {
+				changed = false;
+
+				for (CodeSignature sig: component)
+					if (purities.containsKey(sig))
+						for (CodeSignature callee: graph.getCallees(sig)) {
+							Purity purity = purities.get(sig).join(getPurity(callee));
+							if (purity != purities.get(sig)) {
+								purities.put(sig, purity);
+								changed = true;
+							}
+
+							if (allocates(callee) && allocating.add(sig))
+								changed = true;
+						}
+			}
+			while (changed);
+		}
+	}
+
+	/**
+	 * Yields the classification of the side-effects of a method or constructor.
+	 *
+	 * @param sig the method or constructor
+	 * @return the classification. This is {@link Purity#EFFECTFUL} for code that has not been analysed
+	 */
+
+	public Purity getPurity(CodeSignature sig) {
+		if (isNative(sig))
+			return nativePurity(sig);
+
+		Purity purity = purities.get(sig);
+		return purity != null ? purity : Purity.EFFECTFUL;
+	}
+
+	/**
+	 * Yields the classification of the side-effects of a call, that is,
+	 * of the least precise of its dynamic targets.
+	 *
+	 * @param call the call
+	 * @return the classification
+	 */
+
+	public Purity getPurity(CALL call) {
+		Purity result = Purity.PURE;
+		for (CodeSignature target: call.getDynamicTargets())
+			result = result.join(getPurity(target));
+
+		return result;
+	}
+
+	/**
+	 * Determines if a method or constructor neither reads nor modifies the heap
+	 * and performs no input or output.
+	 *
+	 * @param sig the method or constructor
+	 * @return true if and only if {@code sig} is pure
+	 */
+
+	public boolean isPure(CodeSignature sig) {
+		return getPurity(sig) == Purity.PURE;
+	}
+
+	/**
+	 * Determines if a method or constructor never modifies the heap and performs no input or output.
+	 *
+	 * @param sig the method or constructor
+	 * @return true if and only if {@code sig} is pure or read-only
+	 */
+
+	public boolean isReadOnly(CodeSignature sig) {
+		return getPurity(sig) != Purity.EFFECTFUL;
+	}
+
+	/**
+	 * Determines if a method or constructor might allocate objects or arrays.
+	 *
+	 * @param sig the method or constructor
+	 * @return true if and only if {@code sig} might allocate. This is
+	 *         true for code that has not been analysed
+	 */
+
+	public boolean allocates(CodeSignature sig) {
+		if (isNative(sig))
+			return sig.getName().equals("concat") || sig.getName().equals("substring");
+		else
+			return allocating.contains(sig) || !purities.containsKey(sig);
+	}
+
+	/**
+	 * Computes the side-effects of the code of a method or constructor, without
+	 * considering the code that it calls.
+	 *
+	 * @param sig the method or constructor
+	 */
+
+	private void analyse(CodeSignature sig) {
+		ControlFlowGraph cfg = new ControlFlowGraph(sig);
+		boolean confined = sig instanceof ConstructorSignature && isConfined(cfg);
+		Purity purity = Purity.PURE;
+
+		for (Block block: cfg.getBlocks()) {
+			StackFlow flow = new StackFlow(ControlFlowGraph.toList(block.getBytecode()));
+
+			for (int pos = 0; pos < flow.code.size(); pos++) {
+				Bytecode bytecode = flow.code.get(pos);
+
+				if (bytecode instanceof GETFIELD || bytecode instanceof ARRAYLOAD)
+					purity = purity.join(Purity.READ_ONLY);
+				else if (bytecode instanceof PUTFIELD) {
+					// the fields of this are initialised without side-effects by a confined constructor
+					int receiver = flow.operands[pos][0];
+					if (!confined || receiver < 0 || !isThis(flow.code.get(receiver)))
+						purity = Purity.EFFECTFUL;
+				}
+				else if (bytecode instanceof ARRAYSTORE)
+					purity = Purity.EFFECTFUL;
+				else if (bytecode instanceof NEW || bytecode instanceof NEWARRAY || bytecode instanceof NEWSTRING)
+					allocating.add(sig);
+			}
+		}
+
+		purities.put(sig, purity);
+	}
+
+	/**
+	 * Determines if the code of a constructor uses {@code this} only to access its fields
+	 * and to call the constructor of the superclass. In that case, {@code this} cannot
+	 * be reached from elsewhere while the constructor runs.
+	 *
+	 * @param cfg the graph of the code of the constructor
+	 * @return true if and only if that condition holds
+	 */
+
+	private static boolean isConfined(ControlFlowGraph cfg) {
+		for (Block block: cfg.getBlocks()) {
+			StackFlow flow = new StackFlow(ControlFlowGraph.toList(block.getBytecode()));
+
+			for (int pos = 0; pos < flow.code.size(); pos++) {
+				Bytecode bytecode = flow.code.get(pos);
+
+				if (bytecode instanceof STORE && ((STORE) bytecode).getVarNum() == 0)
+					return false;
+				else if (isThis(bytecode)) {
+					int consumer = flow.onlyConsumer(pos, 0);
+					if (consumer < 0)
+						return false;
+
+					Bytecode use = flow.code.get(consumer);
+					if (!(use instanceof GETFIELD || use instanceof PUTFIELD || use instanceof CONSTRUCTORCALL))
+						return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Determines if a bytecode loads {@code this}.
+	 *
+	 * @param bytecode the bytecode
+	 * @return true if and only if {@code bytecode} is a {@code load 0}
+	 */
+
+	private static boolean isThis(Bytecode bytecode) {
+		return bytecode instanceof LOAD && ((LOAD) bytecode).getVarNum() == 0;
+	}
+
+	/**
+	 * Determines if a method or constructor is implemented in Java.
+	 *
+	 * @param sig the method or constructor
+	 * @return true if and only if {@code sig} is defined in class {@code String}
+	 */
+
+	private static boolean isNative(CodeSignature sig) {
+		return sig.getDefiningClass().getName().equals("String");
+	}
+
+	/**
+	 * Yields the classification of the side-effects of a method or constructor implemented in Java.
+	 *
+	 * @param sig the method or constructor
+	 * @return the classification
+	 */
+
+	private static Purity nativePurity(CodeSignature sig) {
+		if (sig.getName().equals("output") || sig.getName().equals("input"))
+			return Purity.EFFECTFUL;
+		else if (sig instanceof ConstructorSignature && sig.getParameters() == TypeList.EMPTY)
+			return Purity.PURE;
+		else
+			// the characters of a string can be modified by input()
+			return Purity.READ_ONLY;
+	}
+}
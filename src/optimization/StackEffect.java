@@ -0,0 +1,94 @@
+package optimization;
+
+import types.VoidType;
+import bytecode.ARRAYLOAD;
+import bytecode.ARRAYSTORE;
+import bytecode.BinOpBytecode;
+import bytecode.BranchingComparisonBytecode;
+import bytecode.BranchingConstantComparisonBytecode;
+import bytecode.Bytecode;
+import bytecode.CALL;
+import bytecode.CAST;
+import bytecode.CONST;
+import bytecode.DUP;
+import bytecode.GETFIELD;
+import bytecode.LOAD;
+import bytecode.NEG;
+import bytecode.NEW;
+import bytecode.NEWARRAY;
+import bytecode.NEWSTRING;
+import bytecode.NOP;
+import bytecode.POP;
+import bytecode.PUTFIELD;
+import bytecode.RETURN;
+import bytecode.STATICCALL;
+import bytecode.STORE;
+
+/**
+ * The effect of the Kitten bytecodes on the stack of the Kitten abstract machine.
+ */
+
+public final class StackEffect {
+
+	/**
+	 * This class only contains static methods.
+	 */
+
+	private StackEffect() {}
+
+	/**
+	 * Yields the number of stack elements consumed by a bytecode.
+	 *
+	 * @param bytecode the bytecode
+	 * @return the number of stack elements popped by {@code bytecode},
+	 *         or -1 if it is not known
+	 */
+
+	public static int pops(Bytecode bytecode) {
+		if (bytecode instanceof NOP || bytecode instanceof CONST || bytecode instanceof LOAD
+				|| bytecode instanceof NEW || bytecode instanceof NEWSTRING)
+			return 0;
+		else if (bytecode instanceof STORE || bytecode instanceof DUP || bytecode instanceof POP
+				|| bytecode instanceof NEG || bytecode instanceof CAST || bytecode instanceof GETFIELD
+				|| bytecode instanceof BranchingConstantComparisonBytecode)
+			return 1;
+		else if (bytecode instanceof BinOpBytecode || bytecode instanceof PUTFIELD
+				|| bytecode instanceof ARRAYLOAD || bytecode instanceof BranchingComparisonBytecode)
+			return 2;
+		else if (bytecode instanceof ARRAYSTORE)
+			return 3;
+		else if (bytecode instanceof NEWARRAY)
+			return ((NEWARRAY) bytecode).getDimensions();
+		else if (bytecode instanceof STATICCALL)
+			// the actual parameters only
+			return ((CALL) bytecode).getStaticTarget().getParameters().getSize();
+		else if (bytecode instanceof CALL)
+			// the receiver and the actual parameters
+			return ((CALL) bytecode).getStaticTarget().getParameters().getSize() + 1;
+		else if (bytecode instanceof RETURN)
+			return ((RETURN) bytecode).getType() == VoidType.INSTANCE ? 0 : 1;
+		else
+			return -1;
+	}
+
+	/**
+	 * Yields the number of stack elements produced by a bytecode.
+	 *
+	 * @param bytecode the bytecode
+	 * @return the number of stack elements pushed by {@code bytecode}
+	 */
+
+	public static int pushes(Bytecode bytecode) {
+		if (bytecode instanceof DUP)
+			return 2;
+		else if (bytecode instanceof CONST || bytecode instanceof LOAD || bytecode instanceof NEW
+				|| bytecode instanceof NEWSTRING || bytecode instanceof NEG || bytecode instanceof CAST
+				|| bytecode instanceof GETFIELD || bytecode instanceof BinOpBytecode
+				|| bytecode instanceof ARRAYLOAD || bytecode instanceof NEWARRAY)
+			return 1;
+		else if (bytecode instanceof CALL)
+			return ((CALL) bytecode).getStaticTarget().getReturnType() == VoidType.INSTANCE ? 0 : 1;
+		else
+			return 0;
+	}
+}
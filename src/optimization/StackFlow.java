@@ -0,0 +1,97 @@
+package optimization;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import bytecode.Bytecode;
+
+/**
+ * The flow of the values on the stack inside a block of code. It relates
+ * each bytecode with the bytecodes that produce its operands and with
+ * those that consume its results.
+ */
+
+final class StackFlow {
+
+	/**
+	 * The code of the block.
+	 */
+
+	final List<Bytecode> code;
+
+	/**
+	 * The position of the producer of each operand of each bytecode,
+	 * from the deepest in the stack. It is -1 for the operands produced
+	 * before the block.
+	 */
+
+	final int[][] operands;
+
+	/**
+	 * The consumers of the results of each bytecode, as pairs of position of the consumer
+	 * and index of the operand. The position is -1 for the results consumed after the block.
+	 */
+
+	final List<List<int[]>> consumers = new ArrayList<>();
+
+	/**
+	 * Computes the flow of the values inside the given code.
+	 *
+	 * @param code the code
+	 */
+
+	StackFlow(List<Bytecode> code) {
+		this.code = code;
+		this.operands = new int[code.size()][];
+
+		// the position of the producers of the elements on the stack
+		List<Integer> stack = new ArrayList<>();
+
+		for (int pos = 0; pos < code.size(); pos++) {
+			Bytecode bytecode = code.get(pos);
+			consumers.add(new ArrayList<int[]>());
+
+			int pops = StackEffect.pops(bytecode);
+			if (pops < 0) {
+				// we do not know this bytecode: its operands and results are not tracked
+				for (int producer: stack)
+					consumers.get(producer).add(new int[] { -1, -1 });
+
+				stack.clear();
+				operands[pos] = new int[0];
+				continue;
+			}
+
+			operands[pos] = new int[pops];
+			for (int arg = pops - 1; arg >= 0; arg--)
+				if (stack.isEmpty())
+					operands[pos][arg] = -1;
+				else {
+					int producer = stack.remove(stack.size() - 1);
+					operands[pos][arg] = producer;
+					consumers.get(producer).add(new int[] { pos, arg });
+				}
+
+			for (int pushes = StackEffect.pushes(bytecode); pushes > 0; pushes--)
+				stack.add(pos);
+		}
+
+		// the elements left on the stack are consumed after the block
+		for (int producer: stack)
+			consumers.get(producer).add(new int[] { -1, -1 });
+	}
+
+	/**
+	 * Yields the only consumer of the result of a bytecode, if it uses it as a given operand.
+	 *
+	 * @param producer the position of the bytecode
+	 * @param arg the index of the operand
+	 * @return the position of the only consumer of the result of {@code producer},
+	 *         if it consumes it as its {@code arg}th operand. Yields -1 otherwise
+	 */
+
+	int onlyConsumer(int producer, int arg) {
+		List<int[]> uses = consumers.get(producer);
+		return uses.size() == 1 && uses.get(0)[1] == arg ? uses.get(0)[0] : -1;
+	}
+}
@@ -0,0 +1,288 @@
+package optimization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import translation.Block;
+import types.ClassType;
+import types.CodeSignature;
+import types.IntType;
+import types.MethodSignature;
+import types.Type;
+import types.TypeList;
+import bytecode.ADD;
+import bytecode.ArithmeticBinOpBytecode;
+import bytecode.Bytecode;
+import bytecode.BytecodeList;
+import bytecode.CALL;
+import bytecode.CONST;
+import bytecode.IF_CMPEQ;
+import bytecode.LOAD;
+import bytecode.MUL;
+import bytecode.RETURN;
+import bytecode.STORE;
+
+/**
+ * An elimination of the self-recursive tail calls of a method. A call is
+ * self-recursive if its only dynamic target is the method itself, which is the
+ * case when the method is not overridden in the subclasses of the receiver.
+ * A self-recursive call is in tail position if its result is immediately returned.
+ * Such calls are replaced by the assignment of the actual parameters to the
+ * formal parameters, followed by a jump back to the beginning of the method.
+ * If the receiver is not {@code this}, it is assigned to {@code this} and
+ * the call is only performed, for raising the exception, when the receiver is {@code nil}.
+ * <br><br>
+ * Methods returning {@code int} can also contain calls whose result is added to
+ * (or multiplied by) a value, as in {@code return 1 + this.m(x - 1)}. These calls
+ * are eliminated by introducing an accumulator, that is, a local variable that
+ * holds the sum (or product) of the values seen so far and that is added to (or
+ * multiplied by) the value of the other {@code return}s of the method.
+ */
+
+public class TailCallElimination implements Pass {
+
+	/**
+	 * Eliminates the self-recursive tail calls in the code of the given method.
+	 * Constructors, tests and the {@code main} method are left untouched.
+	 *
+	 * @param sig the method
+	 * @return the number of eliminated calls
+	 */
+
+	@Override
+	public int optimize(CodeSignature sig) {
+		if (!(sig instanceof MethodSignature) || sig.getName().equals("main"))
+			return 0;
+
+		ControlFlowGraph cfg = new ControlFlowGraph(sig);
+
+		// the operation used to accumulate the values added to the result
+		// of the recursive calls, if any. All accumulating calls must use the same
+		Class<?> accumulation = null;
+		Set<Block> sites = new HashSet<>();
+
+		for (Block block: cfg.getBlocks()) {
+			List<Bytecode> code = withReturn(block);
+			int size = code.size();
+
+			if (size >= 2 && code.get(size - 1) instanceof RETURN)
+				if (isSelfCall(code.get(size - 2), sig))
+					sites.add(block);
+				else if (size >= 3 && isSelfCall(code.get(size - 3), sig) && isAccumulation(code.get(size - 2), sig)
+						&& (accumulation == null || accumulation == code.get(size - 2).getClass())) {
+
+					accumulation = code.get(size - 2).getClass();
+					sites.add(block);
+				}
+		}
+
+		if (sites.isEmpty())
+			return 0;
+
+		// the calls jump back to the original beginning of the method
+		Block loop = sig.getCode();
+		int accumulator = -1;
+
+		if (accumulation != null) {
+			accumulator = cfg.newLocal();
+
+			// all other returns must take into account the accumulated value
+			for (Block block: cfg.getBlocks())
+				if (!sites.contains(block)) {
+					List<Bytecode> code = ControlFlowGraph.toList(block.getBytecode());
+					if (!code.isEmpty() && code.get(code.size() - 1) instanceof RETURN) {
+						code.addAll(code.size() - 1, combine(accumulation, accumulator));
+						block.setBytecode(ControlFlowGraph.fromList(code));
+					}
+				}
+
+			// the accumulator is initialised with the neutral element of the operation
+			sig.setCode(new Block(ControlFlowGraph.fromList(Arrays.asList
+				(new CONST(accumulation == ADD.class ? 0 : 1), new STORE(accumulator, IntType.INSTANCE))), loop));
+		}
+
+		for (Block site: sites)
+			eliminate(cfg, site, loop, accumulation, accumulator);
+
+		return sites.size();
+	}
+
+	/**
+	 * Replaces the tail call at the end of the given block with a jump to the beginning of the method.
+	 *
+	 * @param cfg the graph of the code of the method
+	 * @param site the block that ends with the tail call
+	 * @param loop the beginning of the method
+	 * @param accumulation the class of the operation used to accumulate values, or {@code null}
+	 * @param accumulator the local variable holding the accumulated value, if any
+	 */
+
+	private static void eliminate(ControlFlowGraph cfg, Block site, Block loop, Class<?> accumulation, int accumulator) {
+		List<Bytecode> code = withReturn(site);
+		Bytecode operation = code.get(code.size() - 2);
+		boolean accumulates = operation instanceof ArithmeticBinOpBytecode;
+		int position = code.size() - (accumulates ? 3 : 2);
+		CALL call = (CALL) code.get(position);
+		RETURN ret = (RETURN) code.get(code.size() - 1);
+		int receiver = receiverOf(code, position);
+
+		List<Bytecode> prefix = new ArrayList<>(code.subList(0, position));
+
+		// the actual parameters are assigned to the formal parameters, from the last one
+		List<Type> formals = new ArrayList<>();
+		for (TypeList cursor = call.getStaticTarget().getParameters(); cursor != TypeList.EMPTY; cursor = cursor.getTail())
+			formals.add(cursor.getHead());
+
+		for (int formal = formals.size(); formal > 0; formal--)
+			prefix.add(new STORE(formal, formals.get(formal - 1)));
+
+		// the value that was going to be combined with the result of the call is accumulated
+		List<Bytecode> update = new ArrayList<>();
+		if (accumulates) {
+			update.addAll(combine(accumulation, accumulator));
+			update.add(new STORE(accumulator, IntType.INSTANCE));
+		}
+
+		site.getFollows().clear();
+
+		if (receiver >= 0) {
+			// the receiver is this: we do not need it anymore
+			prefix.remove(receiver);
+			prefix.addAll(update);
+			site.setBytecode(ControlFlowGraph.fromList(prefix));
+			site.getFollows().add(loop);
+		}
+		else {
+			// the receiver is stored in a temporary and becomes the new this, if it is not nil
+			ClassType receiverType = (ClassType) call.getReceiverType();
+			int temporary = cfg.newLocal();
+			prefix.add(new STORE(temporary, receiverType));
+			prefix.add(new LOAD(temporary, receiverType));
+			prefix.add(new CONST());
+			site.setBytecode(ControlFlowGraph.fromList(prefix));
+
+			// if the receiver is nil, we perform the call, that raises the exception
+			List<Bytecode> failure = new ArrayList<>();
+			failure.add(new LOAD(temporary, receiverType));
+			for (int formal = 1; formal <= formals.size(); formal++)
+				failure.add(new LOAD(formal, formals.get(formal - 1)));
+			failure.add(call);
+			if (accumulates)
+				failure.add(operation);
+			failure.add(ret);
+
+			Block isNil = new Block(ret);
+			isNil.setBytecode(ControlFlowGraph.fromList(failure));
+
+			List<Bytecode> success = new ArrayList<>();
+			success.add(new LOAD(temporary, receiverType));
+			success.add(new STORE(0, receiverType));
+			success.addAll(update);
+
+			Block branch = new Block(new IF_CMPEQ(receiverType), isNil,
+				new Block(ControlFlowGraph.fromList(success), loop));
+
+			site.getFollows().addAll(branch.getFollows());
+		}
+	}
+
+	/**
+	 * Yields the code of a block, followed by the {@code return} that is executed
+	 * immediately after it, if any. This is the case of a block whose only
+	 * successor contains just a {@code return}, as it happens at the end of {@code void} methods.
+	 *
+	 * @param block the block
+	 * @return the code of {@code block}, possibly followed by a {@code return}
+	 */
+
+	private static List<Bytecode> withReturn(Block block) {
+		List<Bytecode> code = ControlFlowGraph.toList(block.getBytecode());
+
+		if (block.getFollows().size() == 1) {
+			BytecodeList next = block.getFollows().get(0).getBytecode();
+			if (next.getHead() instanceof RETURN && next.getTail() == null)
+				code.add(next.getHead());
+		}
+
+		return code;
+	}
+
+	/**
+	 * Yields the code that combines the value on top of the stack with an accumulator.
+	 *
+	 * @param accumulation the class of the operation used to accumulate values
+	 * @param accumulator the local variable holding the accumulated value
+	 * @return the code, that leaves the combined value on top of the stack
+	 */
+
+	private static List<Bytecode> combine(Class<?> accumulation, int accumulator) {
+		return Arrays.asList(new LOAD(accumulator, IntType.INSTANCE),
+			accumulation == ADD.class ? new ADD(IntType.INSTANCE) : new MUL(IntType.INSTANCE));
+	}
+
+	/**
+	 * Determines if a bytecode is a call whose only dynamic target is the given method.
+	 *
+	 * @param bytecode the bytecode
+	 * @param sig the method
+	 * @return true if and only if {@code bytecode} always calls {@code sig}
+	 */
+
+	private static boolean isSelfCall(Bytecode bytecode, CodeSignature sig) {
+		return bytecode instanceof CALL && ((CALL) bytecode).getDynamicTargets().equals(Collections.singleton(sig));
+	}
+
+	/**
+	 * Determines if a bytecode can be used to accumulate the results of a method.
+	 *
+	 * @param bytecode the bytecode
+	 * @param sig the method
+	 * @return true if and only if {@code bytecode} is an addition or multiplication of
+	 *         integers and {@code sig} returns an integer. Those operations are associative
+	 *         and commutative, also in the presence of overflows
+	 */
+
+	private static boolean isAccumulation(Bytecode bytecode, CodeSignature sig) {
+		return (bytecode instanceof ADD || bytecode instanceof MUL) && sig.getReturnType() == IntType.INSTANCE
+			&& ((ArithmeticBinOpBytecode) bytecode).getType() == IntType.INSTANCE;
+	}
+
+	/**
+	 * Yields the position of the bytecode that loads {@code this} as receiver of a call.
+	 *
+	 * @param code the code of a block
+	 * @param call the position of the call inside {@code code}
+	 * @return the position of the {@code load 0} that pushes the receiver of the call,
+	 *         or -1 if the receiver is not pushed in this way inside {@code code}
+	 */
+
+	private static int receiverOf(List<Bytecode> code, int call) {
+		// the position of the bytecode that pushed each element on the stack,
+		// or -1 for elements that have not been pushed by a load
+		List<Integer> stack = new ArrayList<>();
+
+		for (int pos = 0; pos < call; pos++) {
+			Bytecode bytecode = code.get(pos);
+			int pops = StackEffect.pops(bytecode);
+			if (pops < 0)
+				return -1;
+
+			for (; pops > 0 && !stack.isEmpty(); pops--)
+				stack.remove(stack.size() - 1);
+
+			for (int pushes = StackEffect.pushes(bytecode); pushes > 0; pushes--)
+				stack.add(bytecode instanceof LOAD ? pos : -1);
+		}
+
+		int depth = StackEffect.pops(code.get(call));
+		if (stack.size() < depth)
+			return -1;
+
+		int producer = stack.get(stack.size() - depth);
+		return producer >= 0 && ((LOAD) code.get(producer)).getVarNum() == 0 ? producer : -1;
+	}
+}
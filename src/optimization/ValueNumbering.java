@@ -0,0 +1,833 @@
+package optimization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import translation.Block;
+import types.BooleanType;
+import types.CodeSignature;
+import types.ReferenceType;
+import types.Type;
+import types.VoidType;
+import bytecode.ADD;
+import bytecode.AND;
+import bytecode.ARRAYLOAD;
+import bytecode.ARRAYSTORE;
+import bytecode.ArithmeticBinOpBytecode;
+import bytecode.BooleanBinOpBytecode;
+import bytecode.BranchingComparisonBytecode;
+import bytecode.BranchingConstantComparisonBytecode;
+import bytecode.Bytecode;
+import bytecode.CALL;
+import bytecode.CAST;
+import bytecode.CONST;
+import bytecode.ComparisonBinOpBytecode;
+import bytecode.DUP;
+import bytecode.EQ;
+import bytecode.GETFIELD;
+import bytecode.LOAD;
+import bytecode.MUL;
+import bytecode.NE;
+import bytecode.NEG;
+import bytecode.NEW;
+import bytecode.NEWARRAY;
+import bytecode.NEWSTRING;
+import bytecode.NOP;
+import bytecode.OR;
+import bytecode.POP;
+import bytecode.PUTFIELD;
+import bytecode.RETURN;
+import bytecode.STORE;
+
+/**
+ * A value numbering of the Kitten code of a method or constructor, that
+ * removes the recomputation of expressions whose value is already available.
+ * The code is simulated over a symbolic stack, so that every arithmetic, comparison
+ * and logical operation, every field load and every array load gets a <i>value number</i>:
+ * two expressions with the same value number are guaranteed to compute the same value.
+ * Field loads are invalidated by assignments to the same field, array loads by
+ * assignments into an array of the same kind and both of them by method and constructor calls,
+ * unless a purity analysis guarantees that the callees never modify the heap.
+ * <br><br>
+ * The analysis is global over the <i>extended basic blocks</i> of the code, that is,
+ * over trees of blocks where each block but the root has a single predecessor.
+ * A recomputation is replaced by a load from the local variable that already holds
+ * its value, if any, or from a fresh local variable where the value is saved
+ * at its first computation.
+ */
+
+public class ValueNumbering implements Pass {
+
+	/**
+	 * The side-effects of the methods and constructors of the program, if known.
+	 */
+
+	private final PurityAnalysis purity;
+
+	/**
+	 * The value numbers given to the expressions, that are identified by their
+	 * operator and the value numbers of their operands.
+	 */
+
+	private final Map<List<Object>, Integer> numbers = new HashMap<>();
+
+	/**
+	 * The occurrences of each value number inside the code, in the order they are met.
+	 */
+
+	private final Map<Integer, List<Occurrence>> occurrences = new LinkedHashMap<>();
+
+	/**
+	 * The position of each block in a preorder visit of the trees of extended basic blocks.
+	 */
+
+	private final Map<Block, Integer> preorder = new HashMap<>();
+
+	/**
+	 * The largest position, in the preorder visit, of the blocks in the tree rooted at each block.
+	 */
+
+	private final Map<Block, Integer> last = new HashMap<>();
+
+	/**
+	 * The next value number that has never been used.
+	 */
+
+	private int counter;
+
+	/**
+	 * Builds a value numbering that assumes that every call might modify the heap.
+	 */
+
+	public ValueNumbering() {
+		this(null);
+	}
+
+	/**
+	 * Builds a value numbering that uses the given side-effects of the callees.
+	 *
+	 * @param purity the side-effects of the methods and constructors of the program.
+	 *               If this is {@code null}, every call is assumed to modify the heap
+	 */
+
+	public ValueNumbering(PurityAnalysis purity) {
+		this.purity = purity;
+	}
+
+	/**
+	 * Removes the recomputation of expressions in the code of the given method or constructor.
+	 *
+	 * @param sig the method or constructor
+	 * @return the number of recomputations that have been removed
+	 */
+
+	@Override
+	public int optimize(CodeSignature sig) {
+		numbers.clear();
+		occurrences.clear();
+		preorder.clear();
+		last.clear();
+		counter = 0;
+
+		ControlFlowGraph cfg = new ControlFlowGraph(sig);
+		for (Block block: cfg.getBlocks())
+			if (isRoot(cfg, block))
+				analyse(cfg, block);
+
+		return rewrite(cfg);
+	}
+
+	/**
+	 * Determines if a block is the root of an extended basic block.
+	 *
+	 * @param cfg the graph of the code
+	 * @param block the block
+	 * @return true if and only if {@code block} does not have a single predecessor
+	 *         other than itself
+	 */
+
+	private static boolean isRoot(ControlFlowGraph cfg, Block block) {
+		List<Block> preds = cfg.getPredecessors(block);
+		return block == cfg.getEntry() || preds.size() != 1 || preds.get(0) == block;
+	}
+
+	/**
+	 * Simulates the code of the extended basic block rooted at the given block,
+	 * and takes note of the occurrences of the value numbers. The visit uses an
+	 * explicit stack, so that very deep trees do not exhaust the Java stack.
+	 *
+	 * @param cfg the graph of the code
+	 * @param root the root of the extended basic block
+	 */
+
+	private void analyse(ControlFlowGraph cfg, Block root) {
+		List<Object> stack = new ArrayList<>();
+		stack.add(new State(counter++));
+		stack.add(root);
+
+		while (!stack.isEmpty()) {
+			Object top = stack.remove(stack.size() - 1);
+
+			if (top instanceof Exit)
+				// all blocks in the tree of the exited block have been visited
+				last.put(((Exit) top).block, preorder.size() - 1);
+			else {
+				Block block = (Block) top;
+				State state = (State) stack.remove(stack.size() - 1);
+				preorder.put(block, preorder.size());
+				simulate(block, state);
+
+				stack.add(new Exit(block));
+				for (Block follow: block.getFollows())
+					if (!isRoot(cfg, follow)) {
+						stack.add(state.copy());
+						stack.add(follow);
+					}
+			}
+		}
+	}
+
+	/**
+	 * Simulates the code of a block over a symbolic state.
+	 *
+	 * @param block the block
+	 * @param state the state at the beginning of the block. It gets modified
+	 *              into the state at the end of the block
+	 */
+
+	private void simulate(Block block, State state) {
+		List<Bytecode> code = ControlFlowGraph.toList(block.getBytecode());
+
+		for (int pos = 0; pos < code.size(); pos++) {
+			Bytecode bytecode = code.get(pos);
+
+			if (bytecode instanceof NOP)
+				continue;
+			else if (bytecode instanceof CONST) {
+				CONST constant = (CONST) bytecode;
+				int number = numberOf(Arrays.asList(CONST.class, constant.getType(), constant.getConstant()));
+				state.push(new Value(number, constant.getType(), pos, pos));
+			}
+			else if (bytecode instanceof LOAD) {
+				LOAD load = (LOAD) bytecode;
+				Integer number = state.locals.get(load.getVarNum());
+				if (number == null)
+					// the value of the variable is not known here: it is a new value
+					state.locals.put(load.getVarNum(), number = counter++);
+
+				state.push(new Value(number, load.getType(), pos, pos));
+			}
+			else if (bytecode instanceof STORE)
+				state.locals.put(((STORE) bytecode).getVarNum(), state.pop().number);
+			else if (bytecode instanceof DUP) {
+				// the copies on the stack are not computed by contiguous code anymore
+				Value value = state.pop();
+				state.push(new Value(value.number, value.type, -1, pos));
+				state.push(new Value(value.number, value.type, -1, pos));
+			}
+			else if (bytecode instanceof POP)
+				state.pop();
+			else if (bytecode instanceof ArithmeticBinOpBytecode || bytecode instanceof ComparisonBinOpBytecode
+					|| bytecode instanceof BooleanBinOpBytecode) {
+
+				Value right = state.pop(), left = state.pop();
+				Type type;
+				if (bytecode instanceof ArithmeticBinOpBytecode)
+					type = ((ArithmeticBinOpBytecode) bytecode).getType();
+				else if (bytecode instanceof ComparisonBinOpBytecode)
+					type = ((ComparisonBinOpBytecode) bytecode).getType();
+				else
+					type = BooleanType.INSTANCE;
+
+				// the operands of commutative operations are put in a canonical order
+				int first = left.number, second = right.number;
+				if (isCommutative(bytecode) && first > second) {
+					first = right.number;
+					second = left.number;
+				}
+
+				Type result = bytecode instanceof ArithmeticBinOpBytecode ? type : BooleanType.INSTANCE;
+				state.push(expression(block, pos, state, result,
+					Arrays.asList(bytecode.getClass(), type, first, second), left, right));
+			}
+			else if (bytecode instanceof NEG) {
+				NEG neg = (NEG) bytecode;
+				Value value = state.pop();
+				state.push(expression(block, pos, state, neg.getType(),
+					Arrays.asList(NEG.class, neg.getType(), value.number), value));
+			}
+			else if (bytecode instanceof CAST) {
+				CAST cast = (CAST) bytecode;
+				Value value = state.pop();
+				state.push(expression(block, pos, state, cast.getIntoType(),
+					Arrays.asList(CAST.class, cast.getFromType(), cast.getIntoType(), value.number), value));
+			}
+			else if (bytecode instanceof GETFIELD) {
+				GETFIELD getfield = (GETFIELD) bytecode;
+				Value receiver = state.pop();
+				state.push(expression(block, pos, state, getfield.getField().getType(),
+					Arrays.asList(GETFIELD.class, getfield.getField(), receiver.number,
+						state.versionOf(getfield.getField())), receiver));
+			}
+			else if (bytecode instanceof ARRAYLOAD) {
+				ARRAYLOAD arrayload = (ARRAYLOAD) bytecode;
+				Value index = state.pop(), array = state.pop();
+				state.push(expression(block, pos, state, arrayload.getType(),
+					Arrays.asList(ARRAYLOAD.class, arrayload.getType(), array.number, index.number,
+						state.versionOf(kindOf(arrayload.getType()))), array, index));
+			}
+			else if (bytecode instanceof PUTFIELD) {
+				state.pop();
+				state.pop();
+				// we assume that distinct fields are never aliased
+				state.memory.put(((PUTFIELD) bytecode).getField(), counter++);
+			}
+			else if (bytecode instanceof ARRAYSTORE) {
+				state.pop();
+				state.pop();
+				state.pop();
+				// we assume that arrays of distinct kinds are never aliased
+				state.memory.put(kindOf(((ARRAYSTORE) bytecode).getType()), counter++);
+			}
+			else if (bytecode instanceof CALL) {
+				CodeSignature target = ((CALL) bytecode).getStaticTarget();
+				for (int arg = target.getParameters().getSize(); arg >= 0; arg--)
+					state.pop();
+
+				// the callee might modify every field and array
+				if (purity == null || purity.getPurity((CALL) bytecode) == PurityAnalysis.Purity.EFFECTFUL) {
+					state.memory.clear();
+					state.heap = counter++;
+				}
+
+				if (target.getReturnType() != VoidType.INSTANCE)
+					state.push(state.unknown(target.getReturnType()));
+			}
+			else if (bytecode instanceof NEW)
+				state.push(state.unknown(((NEW) bytecode).getType()));
+			else if (bytecode instanceof NEWSTRING)
+				// every string literal yields a distinct object
+				state.push(state.unknown(null));
+			else if (bytecode instanceof NEWARRAY) {
+				for (int dim = ((NEWARRAY) bytecode).getDimensions(); dim > 0; dim--)
+					state.pop();
+
+				state.push(state.unknown(null));
+			}
+			else if (bytecode instanceof BranchingComparisonBytecode) {
+				state.pop();
+				state.pop();
+			}
+			else if (bytecode instanceof BranchingConstantComparisonBytecode)
+				state.pop();
+			else if (bytecode instanceof RETURN) {
+				if (((RETURN) bytecode).getType() != VoidType.INSTANCE)
+					state.pop();
+			}
+			else {
+				// we do not know this bytecode: we forget everything
+				state.stack.clear();
+				state.memory.clear();
+				state.heap = counter++;
+			}
+		}
+	}
+
+	/**
+	 * Yields the value number of an expression, creating a new one if needed.
+	 *
+	 * @param key the operator of the expression followed by the value numbers of its operands
+	 * @return the value number
+	 */
+
+	private int numberOf(List<Object> key) {
+		Integer number = numbers.get(key);
+		if (number == null)
+			numbers.put(key, number = counter++);
+
+		return number;
+	}
+
+	/**
+	 * Yields the value of an expression and takes note of its occurrence.
+	 *
+	 * @param block the block where the expression occurs
+	 * @param pos the position of the operator of the expression inside the code of {@code block}
+	 * @param state the state before the operator
+	 * @param type the type of the value of the expression
+	 * @param key the operator of the expression followed by the value numbers of its operands
+	 * @param operands the operands of the expression, in the order they are pushed on the stack
+	 * @return the value of the expression
+	 */
+
+	private Value expression(Block block, int pos, State state, Type type, List<Object> key, Value... operands) {
+		int number = numberOf(key);
+
+		// the code of the expression can be replaced only if it consists of
+		// the contiguous code of its operands, followed by the operator
+		int start = operands[0].start;
+		for (int arg = 0; arg < operands.length && start >= 0; arg++)
+			if (operands[arg].start < 0 || operands[arg].end + 1 != (arg + 1 < operands.length ? operands[arg + 1].start : pos))
+				start = -1;
+
+		List<Occurrence> list = occurrences.get(number);
+		if (list == null)
+			occurrences.put(number, list = new ArrayList<>());
+
+		list.add(new Occurrence(block, start, pos, type, state.holderOf(number)));
+
+		return new Value(number, type, start, pos);
+	}
+
+	/**
+	 * Determines if a binary operation is commutative.
+	 *
+	 * @param bytecode the bytecode of the operation
+	 * @return true if and only if the order of the operands of {@code bytecode} is irrelevant
+	 */
+
+	private static boolean isCommutative(Bytecode bytecode) {
+		return bytecode instanceof ADD || bytecode instanceof MUL || bytecode instanceof EQ
+			|| bytecode instanceof NE || bytecode instanceof AND || bytecode instanceof OR;
+	}
+
+	/**
+	 * Yields the kind of an array with the given elements. Arrays of distinct
+	 * kinds are never aliased. All arrays of references are of the same kind,
+	 * since an array of a class can be used as an array of a superclass.
+	 *
+	 * @param elementsType the type of the elements of the array
+	 * @return the kind of the array
+	 */
+
+	private static Object kindOf(Type elementsType) {
+		return elementsType instanceof ReferenceType ? ReferenceType.class : elementsType;
+	}
+
+	/**
+	 * Replaces the recomputations of expressions found by the analysis.
+	 *
+	 * @param cfg the graph of the code
+	 * @return the number of replaced recomputations
+	 */
+
+	private int rewrite(ControlFlowGraph cfg) {
+		// larger expressions are considered first, since their replacement
+		// makes the replacement of their subexpressions useless
+		List<List<Occurrence>> byNumber = new ArrayList<>(occurrences.values());
+		Collections.sort(byNumber, (list1, list2) -> largest(list2) - largest(list1));
+
+		Map<Block, List<Occurrence>> removed = new HashMap<>();
+		Set<Occurrence> saved = new HashSet<>();
+		Map<Block, List<Occurrence>> savedIn = new HashMap<>();
+		Map<Occurrence, Integer> temporaries = new HashMap<>();
+		int replaced = 0;
+
+		for (List<Occurrence> list: byNumber) {
+			int temporary = -1;
+
+			for (int pos = 0; pos < list.size(); pos++) {
+				Occurrence occurrence = list.get(pos);
+				// an occurrence is not replaced if it contains the code of an occurrence
+				// already replaced or saved, since that code might have been rewritten
+				if (occurrence.start < 0 || isInsideRemoved(occurrence, removed)
+						|| containsDecided(occurrence, removed) || containsDecided(occurrence, savedIn))
+					continue;
+
+				if (occurrence.holder < 0) {
+					// we look for a previous computation of the same value that is always executed before
+					Occurrence previous = null;
+					for (int other = pos - 1; other >= 0 && previous == null; other--)
+						if (dominates(list.get(other), occurrence) && !isInsideRemoved(list.get(other), removed))
+							previous = list.get(other);
+
+					if (previous == null)
+						continue;
+
+					if (temporary < 0)
+						temporary = cfg.newLocal();
+
+					// a previous computation replaced by the temporary does not need to be saved again
+					if (!temporaries.containsKey(previous) && saved.add(previous)) {
+						List<Occurrence> inBlock = savedIn.get(previous.block);
+						if (inBlock == null)
+							savedIn.put(previous.block, inBlock = new ArrayList<>());
+
+						inBlock.add(previous);
+					}
+
+					temporaries.put(occurrence, temporary);
+				}
+
+				List<Occurrence> inBlock = removed.get(occurrence.block);
+				if (inBlock == null)
+					removed.put(occurrence.block, inBlock = new ArrayList<>());
+
+				inBlock.add(occurrence);
+				replaced++;
+			}
+
+			// the computations that save the value use the same temporary as the replaced ones
+			for (Occurrence occurrence: list)
+				if (saved.contains(occurrence))
+					temporaries.putIfAbsent(occurrence, temporary);
+		}
+
+		// we rewrite the code of each modified block, from its end, so that positions remain valid
+		Set<Block> modified = new HashSet<>(removed.keySet());
+		for (Occurrence occurrence: saved)
+			modified.add(occurrence.block);
+
+		for (Block block: modified) {
+			List<Bytecode> code = ControlFlowGraph.toList(block.getBytecode());
+
+			for (int pos = code.size() - 1; pos >= 0; pos--) {
+				for (Occurrence occurrence: saved)
+					if (occurrence.block == block && occurrence.end == pos)
+						code.addAll(pos + 1, Arrays.asList(new DUP(occurrence.type),
+							new STORE(temporaries.get(occurrence), occurrence.type)));
+
+				if (removed.containsKey(block))
+					for (Occurrence occurrence: removed.get(block))
+						if (occurrence.start == pos && !isInsideRemoved(occurrence, removed)) {
+							int local = occurrence.holder >= 0 ? occurrence.holder : temporaries.get(occurrence);
+							code.subList(occurrence.start, occurrence.end + 1).clear();
+							code.add(occurrence.start, new LOAD(local, occurrence.type));
+						}
+			}
+
+			block.setBytecode(ControlFlowGraph.fromList(code));
+		}
+
+		return replaced;
+	}
+
+	/**
+	 * Yields the length of the code of the largest replaceable occurrence in a list.
+	 *
+	 * @param list the list of occurrences
+	 * @return the length of the largest replaceable occurrence, or 0 if there is none
+	 */
+
+	private static int largest(List<Occurrence> list) {
+		int result = 0;
+		for (Occurrence occurrence: list)
+			if (occurrence.start >= 0)
+				result = Math.max(result, occurrence.end - occurrence.start + 1);
+
+		return result;
+	}
+
+	/**
+	 * Determines if an occurrence lies inside the code of a larger occurrence that has been removed.
+	 *
+	 * @param occurrence the occurrence
+	 * @param removed the removed occurrences, for each block
+	 * @return true if and only if {@code occurrence} is strictly contained in a removed occurrence
+	 */
+
+	private static boolean isInsideRemoved(Occurrence occurrence, Map<Block, List<Occurrence>> removed) {
+		List<Occurrence> inBlock = removed.get(occurrence.block);
+		if (inBlock != null)
+			for (Occurrence other: inBlock)
+				if (other != occurrence && other.start <= occurrence.end && occurrence.end <= other.end
+						&& other.end - other.start > occurrence.end - occurrence.start)
+					return true;
+
+		return false;
+	}
+
+	/**
+	 * Determines if an occurrence contains the code of another occurrence in a given set.
+	 *
+	 * @param occurrence the occurrence
+	 * @param decided the set of occurrences, for each block
+	 * @return true if and only if some occurrence in {@code decided} is strictly
+	 *         contained in {@code occurrence}
+	 */
+
+	private static boolean containsDecided(Occurrence occurrence, Map<Block, List<Occurrence>> decided) {
+		List<Occurrence> inBlock = decided.get(occurrence.block);
+		if (inBlock != null)
+			for (Occurrence other: inBlock)
+				if (other != occurrence && occurrence.start <= other.end && other.end < occurrence.end)
+					return true;
+
+		return false;
+	}
+
+	/**
+	 * Determines if an occurrence is always executed before another.
+	 *
+	 * @param previous the first occurrence
+	 * @param next the second occurrence
+	 * @return true if and only if every execution of {@code next} is preceded by
+	 *         an execution of {@code previous} in the same extended basic block
+	 */
+
+	private boolean dominates(Occurrence previous, Occurrence next) {
+		if (previous.block == next.block)
+			return previous.end < next.end && (next.start < 0 || previous.end < next.start);
+
+		int start = preorder.get(previous.block), position = preorder.get(next.block);
+		return start < position && position <= last.get(previous.block);
+	}
+
+	/**
+	 * The symbolic state of the execution at a program point.
+	 */
+
+	private class State {
+
+		/**
+		 * The values on the stack, from the bottom.
+		 */
+
+		private final List<Value> stack;
+
+		/**
+		 * The value number of the local variables whose value is known.
+		 */
+
+		private final Map<Integer, Integer> locals;
+
+		/**
+		 * The version of the fields and kinds of arrays that have been modified
+		 * since the last call.
+		 */
+
+		private final Map<Object, Integer> memory;
+
+		/**
+		 * The version of the fields and arrays that have not been modified since the last call.
+		 */
+
+		private int heap;
+
+		/**
+		 * Builds a state where nothing is known.
+		 *
+		 * @param heap the version of the fields and arrays
+		 */
+
+		private State(int heap) {
+			this.stack = new ArrayList<>();
+			this.locals = new HashMap<>();
+			this.memory = new HashMap<>();
+			this.heap = heap;
+		}
+
+		/**
+		 * Yields a copy of this state, for a successor block. The values on the
+		 * stack of the copy cannot be replaced, since their code is in another block.
+		 *
+		 * @return the copy
+		 */
+
+		private State copy() {
+			State result = new State(heap);
+			for (Value value: stack)
+				result.stack.add(new Value(value.number, value.type, -1, -1));
+
+			result.locals.putAll(locals);
+			result.memory.putAll(memory);
+
+			return result;
+		}
+
+		/**
+		 * Pushes a value on the stack.
+		 *
+		 * @param value the value
+		 */
+
+		private void push(Value value) {
+			stack.add(value);
+		}
+
+		/**
+		 * Pops a value from the stack. If the stack is empty, the value was pushed
+		 * before the extended basic block and is consequently unknown.
+		 *
+		 * @return the value
+		 */
+
+		private Value pop() {
+			return stack.isEmpty() ? unknown(null) : stack.remove(stack.size() - 1);
+		}
+
+		/**
+		 * Yields a new value about which nothing is known.
+		 *
+		 * @param type the type of the value
+		 * @return the value
+		 */
+
+		private Value unknown(Type type) {
+			return new Value(counter++, type, -1, -1);
+		}
+
+		/**
+		 * Yields the version of a field or kind of arrays.
+		 *
+		 * @param location the field or kind of arrays
+		 * @return the version
+		 */
+
+		private int versionOf(Object location) {
+			Integer version = memory.get(location);
+			return version != null ? version : heap;
+		}
+
+		/**
+		 * Yields a local variable that holds the given value number, if any.
+		 *
+		 * @param number the value number
+		 * @return the number of the local variable, or -1 if there is none
+		 */
+
+		private int holderOf(int number) {
+			for (Map.Entry<Integer, Integer> entry: locals.entrySet())
+				if (entry.getValue() == number)
+					return entry.getKey();
+
+			return -1;
+		}
+	}
+
+	/**
+	 * A value on the symbolic stack.
+	 */
+
+	private static class Value {
+
+		/**
+		 * The value number of the value.
+		 */
+
+		private final int number;
+
+		/**
+		 * The type of the value. This is {@code null} if it is not relevant.
+		 */
+
+		private final Type type;
+
+		/**
+		 * The position, in its block, of the first bytecode of the code that computes
+		 * the value. This is -1 if that code is not contiguous or not in the current block.
+		 */
+
+		private final int start;
+
+		/**
+		 * The position, in its block, of the last bytecode of the code that computes the value.
+		 */
+
+		private final int end;
+
+		/**
+		 * Builds a value on the symbolic stack.
+		 *
+		 * @param number the value number of the value
+		 * @param type the type of the value
+		 * @param start the position of the first bytecode that computes the value
+		 * @param end the position of the last bytecode that computes the value
+		 */
+
+		private Value(int number, Type type, int start, int end) {
+			this.number = number;
+			this.type = type;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * An occurrence of an expression in the code.
+	 */
+
+	private static class Occurrence {
+
+		/**
+		 * The block where the expression occurs.
+		 */
+
+		private final Block block;
+
+		/**
+		 * The position of the first bytecode of the expression, or -1 if the
+		 * code of the expression cannot be replaced.
+		 */
+
+		private final int start;
+
+		/**
+		 * The position of the operator of the expression.
+		 */
+
+		private final int end;
+
+		/**
+		 * The type of the value of the expression.
+		 */
+
+		private final Type type;
+
+		/**
+		 * A local variable that holds the value of the expression where it occurs,
+		 * or -1 if there is none.
+		 */
+
+		private final int holder;
+
+		/**
+		 * Builds an occurrence of an expression.
+		 *
+		 * @param block the block where the expression occurs
+		 * @param start the position of the first bytecode of the expression
+		 * @param end the position of the operator of the expression
+		 * @param type the type of the value of the expression
+		 * @param holder a local variable that holds the value of the expression
+		 */
+
+		private Occurrence(Block block, int start, int end, Type type, int holder) {
+			this.block = block;
+			this.start = start;
+			this.end = end;
+			this.type = type;
+			this.holder = holder;
+		}
+	}
+
+	/**
+	 * A marker on the stack of the visit, meaning that all blocks
+	 * in the tree of a block have been visited.
+	 */
+
+	private static class Exit {
+
+		/**
+		 * The block whose tree has been visited.
+		 */
+
+		private final Block block;
+
+		/**
+		 * Builds the marker.
+		 *
+		 * @param block the block whose tree has been visited
+		 */
+
+		private Exit(Block block) {
+			this.block = block;
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package optimization;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import translation.Block;
+import types.CodeSignature;
+import bytecode.BranchingBytecode;
+import bytecode.Bytecode;
+import bytecode.BytecodeList;
+import bytecode.RETURN;
+
+/**
+ * A checker of the structural invariants of the Kitten code of a method or constructor,
+ * that the generation of Java bytecode relies upon. It is used between the
+ * optimization passes, to spot the pass that breaks the code.
+ */
+
+final class Verifier {
+
+	/**
+	 * This class only contains static methods.
+	 */
+
+	private Verifier() {}
+
+	/**
+	 * Checks the code of a method or constructor. Each block must contain
+	 * some bytecode; the follows of a block that has more than one must start with
+	 * a branch; a block without follows must end with a {@code return}; the stack
+	 * must never underflow and must have the same height whenever a block is entered.
+	 *
+	 * @param sig the method or constructor
+	 * @return the description of the first violation of the invariants, or {@code null} if there is none
+	 */
+
+	static String check(CodeSignature sig) {
+		if (sig.getCode() == null)
+			return "missing code";
+
+		ControlFlowGraph cfg = new ControlFlowGraph(sig);
+		for (Block block: cfg.getBlocks()) {
+			BytecodeList bytecode = block.getBytecode();
+
+			if (bytecode == null || bytecode.getHead() == null)
+				return "empty block";
+			else if (block.getFollows().isEmpty() && !(last(bytecode) instanceof RETURN))
+				return "block without follows that does not return: " + bytecode;
+			else if (block.getFollows().size() > 1)
+				for (Block follow: block.getFollows())
+					if (follow.getBytecode() == null || !(follow.getBytecode().getHead() instanceof BranchingBytecode))
+						return "alternative that does not start with a branch: " + follow.getBytecode();
+		}
+
+		// we propagate the height of the stack from the entry of the code
+		Map<Block, Integer> heights = new HashMap<>();
+		LinkedList<Block> workList = new LinkedList<>();
+		heights.put(cfg.getEntry(), 0);
+		workList.add(cfg.getEntry());
+
+		while (!workList.isEmpty()) {
+			Block block = workList.removeFirst();
+			int height = heights.get(block);
+
+			for (Bytecode bytecode: ControlFlowGraph.toList(block.getBytecode())) {
+				int pops = StackEffect.pops(bytecode);
+				if (pops < 0) {
+					// the effect of this bytecode is not known, hence the following ones cannot be checked
+					height = -1;
+					break;
+				}
+
+				if (height < pops)
+					return "stack underflow at " + bytecode + " in " + block.getBytecode();
+
+				height += StackEffect.pushes(bytecode) - pops;
+			}
+
+			if (height >= 0)
+				for (Block follow: block.getFollows()) {
+					Integer previous = heights.get(follow);
+					if (previous == null) {
+						heights.put(follow, height);
+						workList.add(follow);
+					}
+					else if (previous != height)
+						return "stack of height " + height + " and " + previous + " at the beginning of " + follow.getBytecode();
+				}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Yields the last bytecode of a list.
+	 *
+	 * @param bytecode the list
+	 * @return its last bytecode
+	 */
+
+	private static Bytecode last(BytecodeList bytecode) {
+		List<Bytecode> code = ControlFlowGraph.toList(bytecode);
+		return code.get(code.size() - 1);
+	}
+}
@@ -0,0 +1,79 @@
+package runTime;
+
+/**
+ * A chain of concatenations of Kitten strings, such as {@code s.concat(a).concat(b).concat(c)},
+ * being computed. The compiler translates such a chain into a single concatenation,
+ * so that the intermediate strings are never built: the string at the start of the chain
+ * and each concatenated value are appended to a buffer, that is turned into a string at its end.
+ * As for the {@code concat()} methods of Kitten strings, the computation stops if a concatenated
+ * string is {@code nil}. When we refer to Java's {@code java.lang.String},
+ * we must use its fully qualified name.
+ */
+
+public class Concatenation {
+	private final StringBuilder buffer;
+
+	/* starts a chain with the given string */
+	private Concatenation(java.lang.String s) {
+		buffer = new StringBuilder(s.length() + 32);
+		buffer.append(s);
+	}
+
+	/* starts a chain with a Kitten string */
+	public static Concatenation of(String s) {
+		if (s == null)
+			throw Strings.nil("concat");
+
+		return new Concatenation(s.toString());
+	}
+
+	/* starts a chain with a Kitten string compiled into a Java string */
+	public static Concatenation of(java.lang.String s) {
+		if (s == null)
+			throw Strings.nil("concat");
+
+		return new Concatenation(s);
+	}
+
+	/* appends a Kitten string at the end of the chain */
+	public Concatenation append(String s) {
+		buffer.append(s.toString());
+		return this;
+	}
+
+	/* appends a Kitten string compiled into a Java string at the end of the chain */
+	public Concatenation append(java.lang.String s) {
+		// we fail if s is nil, rather than appending "null"
+		buffer.append(s.toString());
+		return this;
+	}
+
+	/* appends "f" at the end of the chain */
+	public Concatenation append(float f) {
+		buffer.append(f);
+		return this;
+	}
+
+	/* appends "i" at the end of the chain */
+	public Concatenation append(int i) {
+		buffer.append(i);
+		return this;
+	}
+
+	/* appends "b" at the end of the chain */
+	public Concatenation append(boolean b) {
+		buffer.append(b);
+		return this;
+	}
+
+	/* yields the Kitten string at the end of the chain */
+	public String toKittenString() {
+		return new String(buffer.toString());
+	}
+
+	/* yields the Java string at the end of the chain */
+	@Override
+	public java.lang.String toString() {
+		return buffer.toString();
+	}
+}
\ No newline at end of file
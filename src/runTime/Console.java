@@ -0,0 +1,326 @@
+package runTime;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * The standard input and output of Kitten programs. The output is accumulated into a
+ * large buffer, shared by all strings, that is written only when it is full, before reading
+ * from the standard input and when the Java Virtual Machine exits, also because of an exception.
+ * Since Kitten programs are single-threaded, the buffer is not synchronized. While the buffering
+ * is installed, {@code System.out} is replaced with a stream that writes into the same buffer,
+ * so that the order of the output of the program and of the runtime is kept. The buffering
+ * is installed when this class is first used. A program run inside another Java application,
+ * such as the compiler, must be surrounded by {@link #install()} and {@link #uninstall()},
+ * so that the application gets its standard output and its handler of uncaught exceptions back.
+ * The buffering is never installed if the system property {@code kitten.unbuffered} is {@code true}:
+ * the output is then written immediately, which is useful to measure the benefit of the buffer.
+ * The input is read through a single buffered reader, shared by all strings.
+ * When we refer to Java's {@code java.lang.String}, we must use its fully qualified name.
+ */
+
+public class Console {
+
+	/**
+	 * The size of the output buffer.
+	 */
+
+	private final static int SIZE = 1 << 16;
+
+	/**
+	 * The output buffer.
+	 */
+
+	private final static byte[] buffer = new byte[SIZE];
+
+	/**
+	 * The number of bytes in {@link #buffer}.
+	 */
+
+	private static int size;
+
+	/**
+	 * True if and only if the Java Virtual Machine is exiting. From then on,
+	 * the output is written immediately.
+	 */
+
+	private static boolean exiting;
+
+	/**
+	 * True if and only if the buffering is installed. Otherwise, the output is written immediately.
+	 */
+
+	private static boolean installed;
+
+	/**
+	 * True if and only if the buffering must never be installed.
+	 */
+
+	private final static boolean unbuffered = Boolean.getBoolean("kitten.unbuffered");
+
+	/**
+	 * The standard output before the buffering was installed.
+	 */
+
+	private static PrintStream previousOut;
+
+	/**
+	 * The handler of uncaught exceptions before the buffering was installed.
+	 */
+
+	private static Thread.UncaughtExceptionHandler previousHandler;
+
+	/**
+	 * The standard output, where the buffer gets written.
+	 */
+
+	private final static OutputStream out = new FileOutputStream(FileDescriptor.out);
+
+	/**
+	 * The character set of the standard output.
+	 */
+
+	private final static Charset charset;
+
+	/**
+	 * True if and only if {@link #charset} encodes each ASCII character into its code.
+	 */
+
+	private final static boolean asciiCompatible;
+
+	/**
+	 * The reader of the standard input.
+	 */
+
+	private final static BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+
+	/**
+	 * The standard output that writes into the buffer.
+	 */
+
+	private final static PrintStream buffered;
+
+	/**
+	 * The hook that writes the buffer when the Java Virtual Machine exits.
+	 */
+
+	private final static Thread hook = new Thread() {
+
+		@Override
+		public void run() {
+			exiting = true;
+			flush();
+		}
+	};
+
+	/**
+	 * The handler of uncaught exceptions, that writes the buffer before the report
+	 * of the exception, that goes to the standard error.
+	 */
+
+	private final static Thread.UncaughtExceptionHandler handler = new Thread.UncaughtExceptionHandler() {
+
+		@Override
+		public void uncaughtException(Thread thread, Throwable throwable) {
+			flush();
+			System.err.print("Exception in thread \"" + thread.getName() + "\" ");
+			throwable.printStackTrace(System.err);
+		}
+	};
+
+	static {
+		java.lang.String encoding = System.getProperty("sun.stdout.encoding");
+		charset = encoding != null && Charset.isSupported(encoding) ? Charset.forName(encoding) : Charset.defaultCharset();
+		asciiCompatible = Arrays.equals("Kitten".getBytes(charset), new byte[] { 'K', 'i', 't', 't', 'e', 'n' });
+
+		PrintStream stream = null;
+		try {
+			stream = new PrintStream(new OutputStream() {
+
+				@Override
+				public void write(int b) {
+					Console.write(new byte[] { (byte) b }, 0, 1);
+				}
+
+				@Override
+				public void write(byte[] bytes, int offset, int length) {
+					Console.write(bytes, offset, length);
+				}
+
+				@Override
+				public void flush() {
+					Console.flush();
+				}
+			}, false, charset.name());
+		}
+		catch (UnsupportedEncodingException e) {
+			// the character set is supported, since it has been found above
+		}
+
+		buffered = stream;
+		install();
+	}
+
+	/**
+	 * This class only contains static methods.
+	 */
+
+	private Console() {}
+
+	/**
+	 * Installs the buffering of the output: {@code System.out} gets replaced and the buffer
+	 * will be written when the Java Virtual Machine exits, also because of an uncaught exception.
+	 * Nothing happens if the buffering is already installed or if the system property
+	 * {@code kitten.unbuffered} is {@code true}.
+	 */
+
+	public static void install() {
+		if (installed || unbuffered)
+			return;
+
+		// what has been printed so far is written before what gets buffered
+		System.out.flush();
+
+		previousOut = System.out;
+		previousHandler = Thread.getDefaultUncaughtExceptionHandler();
+		System.setOut(buffered);
+		Thread.setDefaultUncaughtExceptionHandler(handler);
+		Runtime.getRuntime().addShutdownHook(hook);
+		installed = true;
+	}
+
+	/**
+	 * Writes the buffer and uninstalls the buffering of the output: {@code System.out}, the
+	 * handler of uncaught exceptions and the shutdown hooks are given back as they were before
+	 * {@link #install()}. Later output is written immediately. Nothing happens if the buffering
+	 * is not installed.
+	 */
+
+	public static void uninstall() {
+		if (!installed)
+			return;
+
+		installed = false;
+		flush();
+		System.setOut(previousOut);
+		Thread.setDefaultUncaughtExceptionHandler(previousHandler);
+
+		try {
+			Runtime.getRuntime().removeShutdownHook(hook);
+		}
+		catch (IllegalStateException e) {
+			// the Java Virtual Machine is exiting: the hook writes the buffer anyway
+		}
+	}
+
+	/**
+	 * Prints a string on the standard output.
+	 *
+	 * @param s the string
+	 */
+
+	public static void print(java.lang.String s) {
+		int length = s.length();
+		if (!asciiCompatible || length > SIZE) {
+			byte[] bytes = s.getBytes(charset);
+			write(bytes, 0, bytes.length);
+			return;
+		}
+
+		if (size + length > SIZE)
+			flush();
+
+		// the ASCII characters are copied into the buffer without any encoder
+		int start = size;
+		for (int pos = 0; pos < length; pos++) {
+			char c = s.charAt(pos);
+			if (c >= 0x80) {
+				size = start;
+				byte[] bytes = s.getBytes(charset);
+				write(bytes, 0, bytes.length);
+				return;
+			}
+
+			buffer[size++] = (byte) c;
+		}
+
+		if (exiting || !installed)
+			flush();
+	}
+
+	/**
+	 * Reads a line from the standard input. The output gets written first,
+	 * since it might be a prompt for the user.
+	 *
+	 * @return the line, without its line terminator
+	 * @throws NoSuchElementException if the standard input is over
+	 */
+
+	public static java.lang.String readLine() {
+		flush();
+
+		try {
+			java.lang.String line = in.readLine();
+			if (line != null)
+				return line;
+		}
+		catch (IOException e) {
+			// we behave as at the end of the input
+		}
+
+		throw new NoSuchElementException("No line found");
+	}
+
+	/**
+	 * Writes the buffer on the standard output.
+	 */
+
+	public static void flush() {
+		try {
+			out.write(buffer, 0, size);
+			out.flush();
+		}
+		catch (IOException e) {
+			// as System.out, we ignore the errors on the standard output
+		}
+
+		size = 0;
+	}
+
+	/**
+	 * Adds some bytes to the output buffer.
+	 *
+	 * @param bytes the array of the bytes
+	 * @param offset the position of the first byte inside {@code bytes}
+	 * @param length the number of bytes
+	 */
+
+	private static void write(byte[] bytes, int offset, int length) {
+		if (size + length > SIZE)
+			flush();
+
+		if (length > SIZE)
+			try {
+				out.write(bytes, offset, length);
+			}
+			catch (IOException e) {
+				// as System.out, we ignore the errors on the standard output
+			}
+		else {
+			System.arraycopy(bytes, offset, buffer, size, length);
+			size += length;
+		}
+
+		if (exiting || !installed)
+			flush();
+	}
+}
\ No newline at end of file
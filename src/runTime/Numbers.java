@@ -0,0 +1,244 @@
+package runTime;
+
+/**
+ * The conversions between Kitten strings and numbers. The parsing of numbers works directly
+ * on the characters of the string and reports an illegal format through an explicit
+ * result, rather than by throwing and catching an exception. It accepts exactly the same
+ * strings as {@code Integer.parseInt()} and {@code Float.parseFloat()}, with the same results.
+ * The concatenation of a number to a string writes its digits directly into the resulting string.
+ * When we refer to Java's {@code java.lang.String}, we must use its fully qualified name.
+ */
+
+public class Numbers {
+
+	/**
+	 * The result of the parsing of a string that is not a number.
+	 */
+
+	public final static long ILLEGAL = Long.MIN_VALUE;
+
+	/**
+	 * The powers of ten that are exactly represented as floats.
+	 */
+
+	private final static float[] POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+
+	/**
+	 * This class only contains static methods.
+	 */
+
+	private Numbers() {}
+
+	/**
+	 * Parses a string into an integer, as {@code Integer.parseInt()}.
+	 *
+	 * @param s the string
+	 * @return the integer, or {@link #ILLEGAL} if {@code s} is not an integer
+	 */
+
+	public static long parseInt(java.lang.String s) {
+		int length = s.length(), pos = 0;
+		boolean negative = false;
+
+		if (length > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+			negative = s.charAt(0) == '-';
+			pos++;
+		}
+
+		if (pos == length)
+			return ILLEGAL;
+
+		long result = 0;
+		for (; pos < length; pos++) {
+			char c = s.charAt(pos);
+			int digit = c >= '0' && c <= '9' ? c - '0' : Character.digit(c, 10);
+			if (digit < 0)
+				return ILLEGAL;
+
+			result = result * 10 + digit;
+			if (result > 1L + Integer.MAX_VALUE)
+				return ILLEGAL;
+		}
+
+		if (negative)
+			return -result;
+		else if (result > Integer.MAX_VALUE)
+			return ILLEGAL;
+		else
+			return result;
+	}
+
+	/**
+	 * Parses a string into a float, as {@code Float.parseFloat()}.
+	 * The decimal numbers with at most seven significant digits and a small exponent are computed
+	 * directly, with a single, correctly rounded, float operation. The others are checked
+	 * here and then computed by {@code Float.parseFloat()}.
+	 *
+	 * @param s the string
+	 * @return the bits of the float, as yielded by {@code Float.floatToRawIntBits()},
+	 *         as a non-negative long, or {@link #ILLEGAL} if {@code s} is not a float
+	 */
+
+	public static long parseFloat(java.lang.String s) {
+		int start = 0, end = s.length();
+
+		// Float.parseFloat() ignores leading and trailing white space
+		while (start < end && s.charAt(start) <= ' ')
+			start++;
+		while (end > start && s.charAt(end - 1) <= ' ')
+			end--;
+
+		int pos = start;
+		boolean negative = false;
+		if (pos < end && (s.charAt(pos) == '-' || s.charAt(pos) == '+')) {
+			negative = s.charAt(pos) == '-';
+			pos++;
+		}
+
+		if (s.startsWith("NaN", pos) && pos + 3 == end)
+			return bits(Float.NaN);
+		else if (s.startsWith("Infinity", pos) && pos + 8 == end)
+			return bits(negative ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY);
+		else if (s.startsWith("0x", pos) || s.startsWith("0X", pos))
+			// hexadecimal floats are rare: we let Java check them
+			try {
+				return bits(Float.parseFloat(s));
+			}
+			catch (NumberFormatException e) {
+				return ILLEGAL;
+			}
+
+		// the significant digits, at most 18, and the number of integer digits beyond them
+		long mantissa = 0;
+		int digits = 0, dropped = 0, exponent = 0;
+		boolean anyDigit = false, point = false;
+
+		for (; pos < end; pos++) {
+			char c = s.charAt(pos);
+			if (c >= '0' && c <= '9') {
+				anyDigit = true;
+				if (digits < 18) {
+					if (mantissa > 0 || c != '0')
+						digits++;
+
+					mantissa = mantissa * 10 + c - '0';
+					if (point)
+						exponent--;
+				}
+				else if (!point)
+					dropped++;
+			}
+			else if (c == '.' && !point)
+				point = true;
+			else
+				break;
+		}
+
+		if (!anyDigit)
+			return ILLEGAL;
+
+		if (pos < end && (s.charAt(pos) == 'e' || s.charAt(pos) == 'E')) {
+			pos++;
+			boolean negativeExponent = false;
+			if (pos < end && (s.charAt(pos) == '-' || s.charAt(pos) == '+')) {
+				negativeExponent = s.charAt(pos) == '-';
+				pos++;
+			}
+
+			int explicit = 0;
+			boolean anyExponentDigit = false;
+			for (; pos < end && s.charAt(pos) >= '0' && s.charAt(pos) <= '9'; pos++) {
+				anyExponentDigit = true;
+				if (explicit < 100000)
+					explicit = explicit * 10 + s.charAt(pos) - '0';
+			}
+
+			if (!anyExponentDigit)
+				return ILLEGAL;
+
+			exponent += negativeExponent ? -explicit : explicit;
+		}
+
+		if (pos < end && "fFdD".indexOf(s.charAt(pos)) >= 0)
+			pos++;
+
+		if (pos < end)
+			return ILLEGAL;
+
+		// the string is a legal float: we check if it can be computed directly
+		if (digits < 18 && dropped == 0) {
+			while (mantissa != 0 && mantissa % 10 == 0) {
+				mantissa /= 10;
+				exponent++;
+			}
+
+			// as in Float.parseFloat(), so that the result is the same
+			if (mantissa < 10000000 && exponent >= -10 && exponent <= 10) {
+				float result = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+				return bits(negative ? -result : result);
+			}
+		}
+
+		return bits(Float.parseFloat(s));
+	}
+
+	/**
+	 * Yields the bits of a float, as a non-negative long.
+	 *
+	 * @param f the float
+	 * @return the bits of {@code f}, as yielded by {@code Float.floatToRawIntBits()}
+	 */
+
+	private static long bits(float f) {
+		return Float.floatToRawIntBits(f) & 0xffffffffL;
+	}
+
+	/**
+	 * Yields the float whose bits have been yielded by {@link #parseFloat(java.lang.String)}.
+	 *
+	 * @param bits the bits
+	 * @return the float
+	 */
+
+	public static float toFloat(long bits) {
+		return Float.intBitsToFloat((int) bits);
+	}
+
+	/**
+	 * Yields the concatenation of a string and an integer.
+	 *
+	 * @param s the string
+	 * @param i the integer
+	 * @return the concatenation
+	 */
+
+	public static java.lang.String concat(java.lang.String s, int i) {
+		// 11 characters are enough for any integer
+		return new StringBuilder(s.length() + 11).append(s).append(i).toString();
+	}
+
+	/**
+	 * Yields the concatenation of a string and a float.
+	 *
+	 * @param s the string
+	 * @param f the float
+	 * @return the concatenation
+	 */
+
+	public static java.lang.String concat(java.lang.String s, float f) {
+		// 15 characters are enough for any float
+		return new StringBuilder(s.length() + 15).append(s).append(f).toString();
+	}
+
+	/**
+	 * Yields the concatenation of a string and a Boolean.
+	 *
+	 * @param s the string
+	 * @param b the Boolean
+	 * @return the concatenation
+	 */
+
+	public static java.lang.String concat(java.lang.String s, boolean b) {
+		return s.concat(b ? "true" : "false");
+	}
+}
\ No newline at end of file
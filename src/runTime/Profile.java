@@ -0,0 +1,268 @@
+package runTime;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The execution counters of a class compiled with profiling enabled. Each class
+ * registers its counters when it gets initialized and all counters are dumped
+ * into a profile file when the Java Virtual Machine exits. If that file already
+ * contains the counters of a class, they are added to the new ones, so that the
+ * profile accumulates over many runs.
+ * <br><br>
+ * The file starts with a magic number and the number of classes. Then, for each class,
+ * it contains its name, the checksum of the structure of its code, the number of its
+ * counters and the counters themselves. Counters are written as variable-length
+ * integers, so that small counts take a single byte. The file is named {@code kitten.profile},
+ * unless the {@code kitten.profile} system property specifies another name.
+ */
+
+public class Profile {
+
+	/**
+	 * The name of the profile file, if none is specified.
+	 */
+
+	public final static java.lang.String DEFAULT_FILE_NAME = "kitten.profile";
+
+	/**
+	 * The number at the beginning of the profile files.
+	 */
+
+	private final static int MAGIC = 0x4b505246;
+
+	/**
+	 * The counters of the classes registered so far, indexed by class name.
+	 */
+
+	private final static Map<java.lang.String, Profile> registered = new LinkedHashMap<>();
+
+	/**
+	 * The name of the profiled class.
+	 */
+
+	private final java.lang.String className;
+
+	/**
+	 * The checksum of the structure of the code of the class, used to
+	 * recognize a profile of a different version of the class.
+	 */
+
+	private final long checksum;
+
+	/**
+	 * The counters of the class.
+	 */
+
+	private final long[] counters;
+
+	/**
+	 * Builds the counters of a class.
+	 *
+	 * @param className the name of the class
+	 * @param checksum the checksum of the structure of the code of the class
+	 * @param counters the counters
+	 */
+
+	private Profile(java.lang.String className, long checksum, long[] counters) {
+		this.className = className;
+		this.checksum = checksum;
+		this.counters = counters;
+	}
+
+	/**
+	 * Yields the name of the profiled class.
+	 *
+	 * @return the name of the class
+	 */
+
+	public java.lang.String getClassName() {
+		return className;
+	}
+
+	/**
+	 * Yields the checksum of the structure of the code of the profiled class.
+	 *
+	 * @return the checksum
+	 */
+
+	public long getChecksum() {
+		return checksum;
+	}
+
+	/**
+	 * Yields the counters of the profiled class.
+	 *
+	 * @return the counters
+	 */
+
+	public long[] getCounters() {
+		return counters;
+	}
+
+	/**
+	 * Registers the counters of a class. This is called by the static
+	 * initializer of the classes compiled with profiling enabled.
+	 *
+	 * @param counters the counters, that the class increments during its execution
+	 * @param className the name of the class
+	 * @param checksum the checksum of the structure of the code of the class
+	 */
+
+	public static void register(long[] counters, java.lang.String className, long checksum) {
+		synchronized (registered) {
+			if (registered.isEmpty())
+				// the counters are dumped when the Java Virtual Machine exits, also because of an exception
+				Runtime.getRuntime().addShutdownHook(new Thread() {
+
+					@Override
+					public void run() {
+						dump();
+					}
+				});
+
+			registered.put(className, new Profile(className, checksum, counters));
+		}
+	}
+
+	/**
+	 * Writes the counters of the registered classes into the profile file,
+	 * adding those already in the file for the same version of the same classes.
+	 */
+
+	private static void dump() {
+		java.lang.String fileName = System.getProperty("kitten.profile", DEFAULT_FILE_NAME);
+		Map<java.lang.String, Profile> profiles;
+
+		try {
+			profiles = read(fileName);
+		}
+		catch (IOException e) {
+			// a corrupted profile is overwritten
+			profiles = new LinkedHashMap<>();
+		}
+
+		synchronized (registered) {
+			for (Profile profile: registered.values()) {
+				Profile old = profiles.get(profile.className);
+				long[] counters = profile.counters.clone();
+
+				if (old != null && old.checksum == profile.checksum && old.counters.length == counters.length)
+					for (int pos = 0; pos < counters.length; pos++)
+						counters[pos] += old.counters[pos];
+
+				profiles.put(profile.className, new Profile(profile.className, profile.checksum, counters));
+			}
+		}
+
+		try {
+			write(fileName, profiles);
+		}
+		catch (IOException e) {
+			System.err.println("Could not dump the profile into " + fileName);
+		}
+	}
+
+	/**
+	 * Reads a profile file.
+	 *
+	 * @param fileName the name of the file
+	 * @return the counters in the file, indexed by class name. This is empty if the file does not exist
+	 * @throws IOException if the file cannot be read or is not a profile file
+	 */
+
+	public static Map<java.lang.String, Profile> read(java.lang.String fileName) throws IOException {
+		Map<java.lang.String, Profile> profiles = new LinkedHashMap<>();
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException(fileName + " is not a profile file");
+
+			for (int classes = in.readInt(); classes > 0; classes--) {
+				java.lang.String className = in.readUTF();
+				long checksum = in.readLong();
+				long[] counters = new long[(int) readVarLong(in)];
+				for (int pos = 0; pos < counters.length; pos++)
+					counters[pos] = readVarLong(in);
+
+				profiles.put(className, new Profile(className, checksum, counters));
+			}
+		}
+		catch (FileNotFoundException e) {
+			// there is no profile yet
+		}
+
+		return profiles;
+	}
+
+	/**
+	 * Writes a profile file.
+	 *
+	 * @param fileName the name of the file
+	 * @param profiles the counters to write, indexed by class name
+	 * @throws IOException if the file cannot be written
+	 */
+
+	private static void write(java.lang.String fileName, Map<java.lang.String, Profile> profiles) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(profiles.size());
+
+			for (Profile profile: profiles.values()) {
+				out.writeUTF(profile.className);
+				out.writeLong(profile.checksum);
+				writeVarLong(out, profile.counters.length);
+				for (long counter: profile.counters)
+					writeVarLong(out, counter);
+			}
+		}
+	}
+
+	/**
+	 * Writes a non-negative number in as many bytes as needed, seven bits per byte.
+	 * The highest bit of each byte is set if and only if more bytes follow.
+	 *
+	 * @param out the stream where the number is written
+	 * @param value the number
+	 * @throws IOException if the number cannot be written
+	 */
+
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			out.writeByte((int) (value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Reads a number written by {@link #writeVarLong(DataOutputStream, long)}.
+	 *
+	 * @param in the stream from which the number is read
+	 * @return the number
+	 * @throws IOException if the number cannot be read
+	 */
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+
+		throw new EOFException("malformed counter in the profile file");
+	}
+}
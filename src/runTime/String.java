@@ -1,7 +1,5 @@
 package runTime;
 
-import java.util.Scanner;
-
 /**
  * The class the implements Kitten strings. When we refer to Java's {@code java.lang.String},
  * we must use its fully qualified name.
@@ -32,24 +30,24 @@ public class String {
 
 	/* converts a string into integer */
 	public int toInt() {
-		try {
-			return Integer.parseInt(value);
-		}
-		catch (NumberFormatException e) {
+		long result = Numbers.parseInt(value);
+		if (result == Numbers.ILLEGAL) {
 			System.out.println("illegal integer format");
 			return 0;
 		}
+
+		return (int) result;
 	}
 
 	/* converts a string into float */
 	public float toFloat() {
-		try {
-			return Float.parseFloat(value);
-		}
-		catch (NumberFormatException e) {
+		long result = Numbers.parseFloat(value);
+		if (result == Numbers.ILLEGAL) {
 			System.out.println("illegal float format");
 			return 0;
 		}
+
+		return Numbers.toFloat(result);
 	}
 
 	/* checks that two strings are equal */
@@ -57,17 +55,15 @@ public class String {
 		return value.equals(other.value);
 	}
 
-	/* prints the string to the screen */
+	/* prints the string to the screen, through the output buffer shared by all strings */
 	public void output() {
-		System.out.print(value);
+		Console.print(value);
 	}
 
-	private final Scanner keyboard = new Scanner(System.in);
-
 	/* reads from the keyboard a sequence of character until the first newline and
 	   stores it into the string */
 	public void input() {
-		value = keyboard.nextLine();
+		value = Console.readLine();
 	}
 
 	/* yields the concatenation of "this" and then "s" */
@@ -77,17 +73,17 @@ public class String {
 
 	/* yields the concatenation of "this" and then "f" */
 	public String concat(float f) {
-		return new String(value + f);
+		return new String(Numbers.concat(value, f));
 	}
 
 	/* yields the concatenation of "this" and then "i" */
 	public String concat(int i) {
-		return new String(value + i);
+		return new String(Numbers.concat(value, i));
 	}
 
 	/* yields the concatenation of "this" and then "b" */
 	public String concat(boolean b) {
-		return new String(value + b);
+		return new String(Numbers.concat(value, b));
 	}
 
 	public String substring(int start, int end) {
@@ -0,0 +1,118 @@
+package runTime;
+
+import java.util.Arrays;
+
+/**
+ * The methods of Kitten strings, when these are compiled into Java strings rather
+ * than into {@code runTime.String} wrappers. Each method receives the string
+ * that was the receiver of the Kitten call as its first parameter. There is no
+ * {@code input()} method, since Java strings cannot be modified. As in {@code runTime.String},
+ * the computation stops if the receiver is {@code nil}, with a {@code NullPointerException}
+ * that looks thrown at the Kitten call site. When we refer to Java's
+ * {@code java.lang.String}, we must use its fully qualified name.
+ */
+
+public class Strings {
+
+	/* yields the exception for the call of a method on a nil string. It looks thrown
+	   by the caller of the method, as for a call on a nil runTime.String */
+	static NullPointerException nil(java.lang.String method) {
+		NullPointerException e = new NullPointerException("Cannot invoke \"String." + method + "()\" because the receiver is nil");
+		StackTraceElement[] trace = e.getStackTrace();
+		// we drop the frames of this method and of the method of the string
+		e.setStackTrace(Arrays.copyOfRange(trace, 2, trace.length));
+		return e;
+	}
+
+	/* yields the length of a string */
+	public static int length(java.lang.String s) {
+		if (s == null)
+			throw nil("length");
+
+		return s.length();
+	}
+
+	/* converts a string into integer */
+	public static int toInt(java.lang.String s) {
+		if (s == null)
+			throw nil("toInt");
+
+		long result = Numbers.parseInt(s);
+		if (result == Numbers.ILLEGAL) {
+			System.out.println("illegal integer format");
+			return 0;
+		}
+
+		return (int) result;
+	}
+
+	/* converts a string into float */
+	public static float toFloat(java.lang.String s) {
+		if (s == null)
+			throw nil("toFloat");
+
+		long result = Numbers.parseFloat(s);
+		if (result == Numbers.ILLEGAL) {
+			System.out.println("illegal float format");
+			return 0;
+		}
+
+		return Numbers.toFloat(result);
+	}
+
+	/* checks that two strings are equal */
+	public static boolean equals(java.lang.String s, java.lang.String other) {
+		if (s == null)
+			throw nil("equals");
+
+		// we fail if other is nil, as in runTime.String
+		return s.equals(other.toString());
+	}
+
+	/* prints the string to the screen */
+	public static void output(java.lang.String s) {
+		if (s == null)
+			throw nil("output");
+
+		Console.print(s);
+	}
+
+	/* yields the concatenation of "s" and then "other" */
+	public static java.lang.String concat(java.lang.String s, java.lang.String other) {
+		if (s == null)
+			throw nil("concat");
+
+		return s.concat(other);
+	}
+
+	/* yields the concatenation of "s" and then "f" */
+	public static java.lang.String concat(java.lang.String s, float f) {
+		if (s == null)
+			throw nil("concat");
+
+		return Numbers.concat(s, f);
+	}
+
+	/* yields the concatenation of "s" and then "i" */
+	public static java.lang.String concat(java.lang.String s, int i) {
+		if (s == null)
+			throw nil("concat");
+
+		return Numbers.concat(s, i);
+	}
+
+	/* yields the concatenation of "s" and then "b" */
+	public static java.lang.String concat(java.lang.String s, boolean b) {
+		if (s == null)
+			throw nil("concat");
+
+		return Numbers.concat(s, b);
+	}
+
+	public static java.lang.String substring(java.lang.String s, int start, int end) {
+		if (s == null)
+			throw nil("substring");
+
+		return s.substring(start, end);
+	}
+}
\ No newline at end of file
@@ -1,18 +1,11 @@
 package translation;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
-import types.ClassMemberSignature;
-import types.CodeSignature;
-import types.FixtureSignature;
-import types.TestSignature;
 import bytecode.BranchingBytecode;
 import bytecode.Bytecode;
 import bytecode.BytecodeList;
-import bytecode.CALL;
 import bytecode.FinalBytecode;
 import bytecode.NOP;
 
@@ -49,6 +42,13 @@ public class Block {
 
 	private boolean mergeable;
 
+	/**
+	 * The number of times that the computation went from this block to each of its
+	 * follows, in the same order, or {@code null} if that is not known.
+	 */
+
+	private long[] followCounts;
+
 	/**
 	 * The number of blocks created so far.
 	 */
@@ -147,7 +147,7 @@ public class Block {
 	 * @param follow the only successor of this block
 	 */
 
-	private Block(BytecodeList bytecode, Block follow) {
+	public Block(BytecodeList bytecode, Block follow) {
 		this(bytecode);
 
 		follows.add(follow);
@@ -202,6 +202,38 @@ public class Block {
 		return bytecode;
 	}
 
+	/**
+	 * Replaces the bytecode inside this block. This is used by the
+	 * optimizations that rewrite the code after it has been translated.
+	 *
+	 * @param bytecode the new bytecode inside this block. This should not be {@code null}
+	 */
+
+	public void setBytecode(BytecodeList bytecode) {
+		this.bytecode = bytecode;
+	}
+
+	/**
+	 * Yields the number of times that the computation went from this block to each of its follows.
+	 *
+	 * @return the counts, in the same order as the follows, or {@code null} if they are not known
+	 */
+
+	public long[] getFollowCounts() {
+		return followCounts;
+	}
+
+	/**
+	 * Sets the number of times that the computation went from this block to each of its follows,
+	 * as observed by profiling.
+	 *
+	 * @param followCounts the counts, in the same order as the follows, or {@code null} if they are not known
+	 */
+
+	public void setFollowCounts(long[] followCounts) {
+		this.followCounts = followCounts;
+	}
+
 	/**
 	 * Adds a bytecode before this block. This results in the same
 	 * block being modified or in a new block linked to {@code this}.
@@ -214,7 +246,8 @@ public class Block {
 		// we can expand our code if we have no predecessors,
 		// or otherwise we will also affect the view that our predecessors have of us
 		if (mergeable) {
-			this.bytecode = new BytecodeList(bytecode).append(this.bytecode);
+			// prefixing an immutable list does not copy it, hence translation is linear in the size of the code
+			this.bytecode = new BytecodeList(bytecode, BytecodeList.skipNOPs(this.bytecode));
 			return this;
 		}
 		else
@@ -232,77 +265,21 @@ public class Block {
 	}
 
 	/**
-	 * Cleans-up this block and all those reachable from it, also in the
-	 * methods called from this block. It removes useless {@code nop}'s and merges a block, with only
-	 * one successor which has only one predecessor, with that successor.
-	 *
-	 * @param program the program which is being cleaned-up
+	 * Removes the useless {@code nop}'s among the follows of this block. Each follow that
+	 * contains a {@code nop} only is replaced with its own follows.
 	 */
 
-	void cleanUp(Program program) {
-		// the start method of the program is definitely called
+	void removeNOPFollows() {
+		List<Block> newFollows = new ArrayList<>();
 
-		program.getSigs().add(program.getStart());
-		
-		//add tests
-		for (Set<TestSignature> tests : program.getTsigs().values()) {
-			for (TestSignature test: tests) {
-				program.getSigs().add((ClassMemberSignature) test);
-			}
-		}
-		
-		//add fixtures
-		for (FixtureSignature fix : program.getFsigs()) {	
-			program.getSigs().add((ClassMemberSignature) fix);
-		}
-		
-		
-		cleanUp(new HashSet<Block>(), program);
-	}
+		// we consider each successor and remove isolated nop's
+		for (Block follow: follows)
+			if (follow != this && follow.bytecode.getHead() instanceof NOP &&
+			follow.bytecode.getTail() == null)
+				newFollows.addAll(follow.follows);
+			else
+				newFollows.add(follow);
 
-	/**
-	 * Auxiliary method that cleans-up this block and all those reachable
-	 * from it. It removes useless {@code nop}'s and merges a block, with only
-	 * one successor which has only one predecessor, with that successor.
-	 *
-	 * @param done the set of blocks which have been already cleaned-up
-	 * @param program the program which is being cleaned-up
-	 */
-
-	private void cleanUp(Set<Block> done, Program program) {
-		if (!done.contains(this)) {
-			done.add(this);
-
-			List<Block> newFollows = new ArrayList<>();
-
-			// we consider each successor and remove isolated nop's
-			for (Block follow: follows)
-				if (follow != this && follow.bytecode.getHead() instanceof NOP &&
-				follow.bytecode.getTail() == null)
-					newFollows.addAll(follow.follows);
-				else
-					newFollows.add(follow);
-
-			follows = newFollows;
-
-			// we continue with the successors
-			for (Block follow: follows)
-				follow.cleanUp(done,program);
-
-			// if the bytecode contains a reference to a field or to a
-			// constructor or to a method, we add it to the signatures
-			// for the program and update its statistics
-			for (BytecodeList bs = bytecode; bs != null; bs = bs.getTail()) {
-				Bytecode bytecode = bs.getHead();
-
-				// we take note that the program contains the bytecodes in the block
-				program.storeBytecode(bytecode);
-
-				if (bytecode instanceof CALL)
-					// we continue by cleaning the dynamic targets
-					for (CodeSignature target: ((CALL) bytecode).getDynamicTargets())
-						target.getCode().cleanUp(done,program);
-			}
-		}
+		follows = newFollows;
 	}
 }
\ No newline at end of file
@@ -1,25 +1,41 @@
 package translation;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
 
 
+import org.apache.bcel.classfile.JavaClass;
 
+import javaBytecodeGenerator.Backend;
 import javaBytecodeGenerator.DefaultClassGenerator;
+import javaBytecodeGenerator.ProfileCounters;
 import javaBytecodeGenerator.TestClassGenerator;
+import optimization.CallGraph;
+import runTime.Profile;
 
 import types.ClassMemberSignature;
 import types.CodeSignature;
 import types.ClassType;
 import types.FixtureSignature;
+import types.MethodSignature;
 import types.TestSignature;
-import bytecode.Bytecode;
-import bytecode.CALL;
-import bytecode.FieldAccessBytecode;
 
 /**
  * A program, that is, a set of class member signatures.
@@ -53,6 +69,18 @@ public class Program {
 
 	private final CodeSignature start;
 
+	/**
+	 * The computation of the class members of this program, at its last clean-up.
+	 */
+
+	private Reachability reachability;
+
+	/**
+	 * True if and only if each string literal of this program can be created only once.
+	 */
+
+	private boolean sharedLiterals;
+
 	/**
 	 * Builds a program, that is, a set of class member signatures.
 	 *
@@ -66,9 +94,8 @@ public class Program {
 		this.tsigs = new HashMap<String, Set<TestSignature>>();
 		this.fsigs = new HashSet<FixtureSignature>();
 
-		// we clean-up the code, in order to remove useless nop's and merge blocks whenever possible
-		if (start != null)
-			cleanUp();
+		// we clean-up the code, in order to translate the reachable class members and remove useless nop's
+		cleanUp();
 	}
 	
 	/**
@@ -86,9 +113,8 @@ public class Program {
 		this.tsigs = testsigs;
 		this.fsigs = fixsigs;
 
-		// we clean-up the code, in order to remove useless nop's and merge blocks whenever possible
-		if (start != null)
-			cleanUp();
+		// we clean-up the code, in order to translate the reachable class members and remove useless nop's
+		cleanUp();
 	}
 
 	/**
@@ -141,14 +167,84 @@ public class Program {
 		return getStart().getCode();
 	}
 
+	/**
+	 * Yields the computation of the class members of this program, as performed at its last clean-up.
+	 * It reports how much code is reachable.
+	 *
+	 * @return the computation
+	 */
+
+	public Reachability getReachability() {
+		return reachability;
+	}
+
 	/**
 	 * Cleans-up the code of this program. This amounts to removing useless
-	 * nop's or methods or constructors that are not called.
+	 * nop's or methods or constructors that are not called. The class members are
+	 * recomputed from the start of this program and from its tests and fixtures,
+	 * translating those that have not been translated into Kitten code yet.
 	 */
 
 	public void cleanUp() {
 		sigs.clear();
-		start.getCode().cleanUp(this);
+		reachability = new Reachability(sigs);
+
+		for (FixtureSignature fix: fsigs)
+			reachability.reach(fix);
+
+		for (Set<TestSignature> tests: tsigs.values())
+			for (TestSignature test: tests)
+				reachability.reach(test);
+
+		if (start != null)
+			reachability.reach(start);
+	}
+
+	/**
+	 * Determines if this program modifies a string in place, through {@code String.input()}.
+	 * Otherwise, strings are immutable and can be shared.
+	 *
+	 * @return true if and only if {@code String.input()} is reachable in this program
+	 */
+
+	public boolean modifiesStrings() {
+		for (ClassMemberSignature sig: sigs)
+			if (sig instanceof MethodSignature && sig.getDefiningClass().getName().equals("String")
+					&& ((MethodSignature) sig).getName().equals("input"))
+				return true;
+
+		return false;
+	}
+
+	/**
+	 * Allows each string literal of this program to be created only once, in a static field
+	 * of its class, rather than at each of its evaluations. This changes the semantics of the program,
+	 * since two evaluations of the same literal become the same string and hence equal for {@code =}.
+	 * Literals are anyway created at each evaluation if a string is modified in place.
+	 */
+
+	public void allowSharedLiterals() {
+		sharedLiterals = true;
+	}
+
+	/**
+	 * Determines if the strings of this program can be compiled into Java strings
+	 * (see {@link ClassType#setJavaStrings(boolean)}). This is not the case if a string
+	 * is modified in place, through {@code String.input()}, or if a class extends {@code String},
+	 * since Java strings cannot be modified nor subclassed.
+	 *
+	 * @return true if and only if the strings of this program can be compiled into Java strings
+	 */
+
+	public boolean allowsJavaStrings() {
+		if (modifiesStrings())
+			return false;
+
+		for (ClassType clazz: ClassType.getAll())
+			if (clazz.getSuperclass() != null && clazz.getSuperclass().getName().equals("String"))
+				return false;
+
+		return true;
 	}
 
 	/**
@@ -167,6 +263,21 @@ public class Program {
 				}
 	}
 
+	/**
+	 * Dumps the call graph of this program into a JSON file, named after the class of its start.
+	 * It is assumed that this program has already been translated into Kitten code.
+	 */
+
+	public void dumpCallGraph() {
+		if (start != null)
+			try (FileWriter json = new FileWriter(start.getDefiningClass() + ".callgraph.json")) {
+				new CallGraph(this).writeJSON(json);
+			}
+			catch (IOException e) {
+				System.out.println("Could not dump the call graph of the program");
+			}
+	}
+
 	/**
 	 * Writes a dot file containing a representation of the graph of blocks
 	 * for the code of the given code signature (method or constructor).
@@ -193,39 +304,77 @@ public class Program {
 
 	/**
 	 * Auxiliary method which writes in the dot file a box standing for the
-	 * given block, linked to the following blocks, if any.
+	 * given block and for all blocks reachable from it, linked to their following blocks.
+	 * The blocks are visited in depth-first order, through an explicit stack rather than
+	 * recursion, so that very large code does not exhaust the stack of the Java Virtual Machine.
+	 * The arrow towards a block is written after the boxes of the blocks reachable from it.
 	 *
 	 * @param block the block
 	 * @param where the file where the dot representation must be written
 	 * @param done the set of blocks which have been processed up to now
-	 * @return the identifier of {@code block} in the dot file
 	 * @throws IOException if an input/output error occurs
 	 */
 
-	private String toDot(Block block, FileWriter where, Set<Block> done) throws IOException {
-		String name = block.dotNodeName();
+	private void toDot(Block block, FileWriter where, Set<Block> done) throws IOException {
+		// the blocks being visited, each with the iterator over its follows still to visit
+		LinkedList<Block> blocks = new LinkedList<>();
+		LinkedList<Iterator<Block>> iterators = new LinkedList<>();
+		toDotBox(block, where);
+		done.add(block);
+		blocks.push(block);
+		iterators.push(block.getFollows().iterator());
+
+		while (!blocks.isEmpty())
+			if (iterators.peek().hasNext()) {
+				Block follow = iterators.peek().next();
+
+				if (done.add(follow)) {
+					// the arrow is written when the visit of the follow is over
+					toDotBox(follow, where);
+					blocks.push(follow);
+					iterators.push(follow.getFollows().iterator());
+				}
+				else
+					toDotArrow(blocks.peek(), follow, where);
+			}
+			else {
+				Block visited = blocks.pop();
+				iterators.pop();
+				if (!blocks.isEmpty())
+					toDotArrow(blocks.peek(), visited, where);
+			}
+	}
 
-		// did we already dumped the given block in the file?
-		if (!done.contains(block)) {
-			// we never dumped the block before: we add it to the set of already dumped blocks
-			done.add(block);
+	/**
+	 * Writes in the dot file a box standing for the given block.
+	 *
+	 * @param block the block
+	 * @param where the file where the dot representation must be written
+	 * @throws IOException if an input/output error occurs
+	 */
 
-			// we add a box to the dot file
-			where.write(name + " [ shape = box, label = \"block " + block.getId() + "\\n");
+	private void toDotBox(Block block, FileWriter where) throws IOException {
+		// we add a box to the dot file
+		where.write(block.dotNodeName() + " [ shape = box, label = \"block " + block.getId() + "\\n");
 
-			// in the middle there is a dump of the bytecode inside the block
-			where.write(block.getBytecode().toString().replaceAll("\n","\\\\n"));
+		// in the middle there is a dump of the bytecode inside the block
+		where.write(block.getBytecode().toString().replaceAll("\n","\\\\n"));
 
-			// end of the label of the node
-			where.write("\"];\n");
+		// end of the label of the node
+		where.write("\"];\n");
+	}
 
-			// we add a dot representation for the follows of the block
-			for (Block follow: block.getFollows())
-				where.write(name + "->" + toDot(follow, where, done) + " [color = blue label = \"\" fontsize = 8]\n");
-		}
+	/**
+	 * Writes in the dot file an arrow from a block to one of its follows.
+	 *
+	 * @param block the block
+	 * @param follow the follow
+	 * @param where the file where the dot representation must be written
+	 * @throws IOException if an input/output error occurs
+	 */
 
-		// we return the unique identifier of the block in the dot file
-		return name;
+	private void toDotArrow(Block block, Block follow, FileWriter where) throws IOException {
+		where.write(block.dotNodeName() + "->" + follow.dotNodeName() + " [color = blue label = \"\" fontsize = 8]\n");
 	}
 
 	/**
@@ -234,50 +383,155 @@ public class Program {
 	 */
 
 	public void generateJavaBytecode() {
-		// we consider one class at the time and we generate its Java bytecode
-		for (ClassType clazz: ClassType.getAll())
+		generateJavaBytecode(false, Backend.BCEL);
+	}
+
+	/**
+	 * Generates the Java bytecode for all the class types and
+	 * dumps the relative {@code .class} files on the file system.
+	 * The generated code might count its executions, so that it dumps
+	 * a profile file when it terminates. That file can be later read by {@link #useProfile(String)}.
+	 *
+	 * @param profile true if and only if the generated code must count its executions
+	 * @param backend the backend that writes the class files
+	 */
+
+	public void generateJavaBytecode(boolean profile, Backend backend) {
+		for (Map.Entry<String, JavaClass> clazz: generateJavaClasses(profile, backend).entrySet())
 			try {
-				new DefaultClassGenerator(clazz, sigs).getJavaClass().dump(clazz + ".class");
-				//if there are tests, generate the test class
-				if (clazz.getTest().size() > 0){
-					new TestClassGenerator(clazz, sigs).getJavaClass().dump(
-							clazz + "Test.class");
-					
-				}
+				clazz.getValue().dump(clazz.getKey() + ".class");
 			}
 			catch (IOException e) {
-				System.out.println("Could not dump the Java bytecode for class " + clazz);
+				System.out.println("Could not dump the Java bytecode for class " + clazz.getKey());
 			}
 	}
 
 	/**
-	 * Takes note that this program contains the given bytecode. This amounts
-	 * to adding some signature to the set of signatures for the program.
+	 * Generates the Java bytecode for all the class types and writes it into a single JAR file,
+	 * through a single buffered stream. The entries are sorted by name, so that the same
+	 * program always yields its classes in the same order. The manifest comes first and names
+	 * the class where this program starts, if any, as the main class of the archive.
 	 *
-	 * @param bytecode the bytecode
+	 * @param profile true if and only if the generated code must count its executions
+	 * @param backend the backend that writes the classes
+	 * @param fileName the name of the JAR file
+	 * @param compress true if and only if the manifest and the classes must be compressed. Otherwise
+	 *                 they are stored as they are, which makes the archive larger but faster to load
 	 */
 
-	protected void storeBytecode(Bytecode bytecode) {
-		if (bytecode instanceof FieldAccessBytecode){
-			sigs.add(((FieldAccessBytecode) bytecode).getField());
-			sigs.addAll(((FieldAccessBytecode) bytecode).getField()
-				.getDefiningClass().getFixture());
-			for (String name : ((FieldAccessBytecode) bytecode).getField()
-					.getDefiningClass().getTest().keySet()) {
-				sigs.addAll(((FieldAccessBytecode) bytecode).getField()
-						.getDefiningClass().getTest().get(name));
-			}
-			
-		}else if (bytecode instanceof CALL){
-			// a call instruction might call many methods or constructors at runtime
-			sigs.addAll(((CALL) bytecode).getDynamicTargets());
-			sigs.addAll(((CALL) bytecode).getStaticTarget().getDefiningClass()
-				.getFixture());
-			for (String name : ((CALL) bytecode).getStaticTarget()
-					.getDefiningClass().getTest().keySet()) {
-				sigs.addAll(((CALL) bytecode).getStaticTarget().getDefiningClass()
-						.getTest().get(name));
-			}
+	public void generateJar(boolean profile, Backend backend, String fileName, boolean compress) {
+		Map<String, JavaClass> classes = new TreeMap<>(generateJavaClasses(profile, backend));
+
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		// a program without main has no entry point
+		if (start != null)
+			manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, start.getDefiningClass().getName());
+
+		// the manifest is written as the other entries, so that it gets stored if they are stored
+		try (JarOutputStream jar = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16))) {
+			CRC32 crc = new CRC32();
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			manifest.write(bytes);
+			putEntry(jar, JarFile.MANIFEST_NAME, bytes.toByteArray(), compress, crc);
+
+			for (Map.Entry<String, JavaClass> clazz: classes.entrySet())
+				putEntry(jar, clazz.getKey() + ".class", clazz.getValue().getBytes(), compress, crc);
+		}
+		catch (IOException e) {
+			System.out.println("Could not write the Java bytecode into " + fileName);
+		}
+	}
+
+	/**
+	 * Writes an entry into a JAR file.
+	 *
+	 * @param jar the stream of the JAR file
+	 * @param name the name of the entry
+	 * @param bytes the content of the entry
+	 * @param compress true if and only if the entry must be compressed, rather than stored
+	 * @param crc the checksum used for the stored entries
+	 * @throws IOException if the entry cannot be written
+	 */
+
+	private static void putEntry(JarOutputStream jar, String name, byte[] bytes, boolean compress, CRC32 crc) throws IOException {
+		ZipEntry entry = new ZipEntry(name);
+
+		// stored entries must declare their size and checksum before their bytes
+		if (!compress) {
+			crc.reset();
+			crc.update(bytes);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(bytes.length);
+			entry.setCompressedSize(bytes.length);
+			entry.setCrc(crc.getValue());
+		}
+
+		jar.putNextEntry(entry);
+		jar.write(bytes);
+		jar.closeEntry();
+	}
+
+	/**
+	 * Generates the Java bytecode for all the class types, without dumping it on the file system.
+	 * Each string literal is created only once, if this is allowed (see {@link #allowSharedLiterals()})
+	 * and no string is modified in place.
+	 *
+	 * @param profile true if and only if the generated code must count its executions
+	 * @param backend the backend that writes the classes
+	 * @return the Java classes, for each of their names, in order of generation. For each
+	 *         class type with tests, its test class follows it
+	 */
+
+	public Map<String, JavaClass> generateJavaClasses(boolean profile, Backend backend) {
+		Map<String, JavaClass> result = new LinkedHashMap<>();
+
+		boolean shareLiterals = sharedLiterals && !modifiesStrings();
+
+		// we consider one class at the time and we generate its Java bytecode
+		for (ClassType clazz: ClassType.getAll()) {
+			result.put(clazz.getName(), new DefaultClassGenerator(clazz, sigs, profile, backend, shareLiterals).getJavaClass(backend));
+			//if there are tests, generate the test class
+			if (clazz.getTest().size() > 0)
+				result.put(clazz.getName() + "Test", new TestClassGenerator(clazz, sigs, shareLiterals).getJavaClass(backend));
 		}
+
+		return result;
+	}
+
+	/**
+	 * Reads a profile file, dumped by the execution of this program compiled with profiling
+	 * enabled, and attaches its counters to the methods and constructors of this program and to
+	 * the blocks of their code. The code must have been optimized in the same way as when
+	 * it was compiled with profiling enabled, or otherwise the counters are ignored.
+	 *
+	 * @param fileName the name of the profile file
+	 * @return the number of classes whose counters have been attached
+	 */
+
+	public int useProfile(String fileName) {
+		Map<String, Profile> profiles;
+
+		try {
+			profiles = Profile.read(fileName);
+		}
+		catch (IOException e) {
+			System.out.println("Could not read the profile file " + fileName);
+			return 0;
+		}
+
+		int attached = 0;
+		for (ClassType clazz: ClassType.getAll()) {
+			Profile profile = profiles.get(clazz.getName());
+
+			if (profile != null)
+				if (new ProfileCounters(clazz, sigs).attach(profile))
+					attached++;
+				else
+					System.out.println("Ignoring the stale profile of class " + clazz);
+		}
+
+		return attached;
 	}
 }
\ No newline at end of file
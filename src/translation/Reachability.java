@@ -0,0 +1,275 @@
+package translation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import types.ClassMemberSignature;
+import types.ClassType;
+import types.CodeSignature;
+import types.TestSignature;
+import types.TypeList;
+import bytecode.Bytecode;
+import bytecode.BytecodeList;
+import bytecode.CALL;
+import bytecode.FieldAccessBytecode;
+
+/**
+ * The computation of the class members reachable from some roots, such as the
+ * start of a program and its tests and fixtures. It is a single visit of their code,
+ * that translates each method or constructor into Kitten code when it is first reached
+ * and removes the useless {@code nop}'s among the follows of each block.
+ * A field, a method or a constructor makes also reachable the tests and fixtures of its class.
+ * A test makes also reachable the empty constructor of its class.
+ * <br><br>
+ * The visit is depth-first and uses an explicit stack rather than recursion, so that
+ * very large code does not exhaust the stack of the Java Virtual Machine. The code of a
+ * method or constructor is visited as soon as a call to it is found, hence the
+ * methods and constructors are translated in the same order as by a recursive translation.
+ */
+
+public class Reachability {
+
+	/**
+	 * The class members reached so far.
+	 */
+
+	private final Set<ClassMemberSignature> reached;
+
+	/**
+	 * The blocks of code reached so far.
+	 */
+
+	private final Set<Block> blocks = new HashSet<>();
+
+	/**
+	 * The tests and fixtures of the classes met so far.
+	 */
+
+	private final Map<ClassType, List<ClassMemberSignature>> testsAndFixtures = new HashMap<>();
+
+	/**
+	 * The number of bytecodes in the blocks of code reached so far.
+	 */
+
+	private int bytecodes;
+
+	/**
+	 * Builds the computation of the class members reachable from some roots.
+	 *
+	 * @param reached the set where the reachable class members get added
+	 */
+
+	public Reachability(Set<ClassMemberSignature> reached) {
+		this.reached = reached;
+	}
+
+	/**
+	 * Adds a class member to the reachable ones, together with all those reachable from it.
+	 * The methods and constructors that have not been translated into Kitten code yet get translated.
+	 *
+	 * @param root the class member
+	 */
+
+	public void reach(ClassMemberSignature root) {
+		LinkedList<Visit> stack = new LinkedList<>();
+		stack.push(new Visit(root));
+
+		while (!stack.isEmpty()) {
+			Block next = stack.peek().next();
+
+			if (next == null)
+				stack.pop();
+			else
+				visit(next, stack);
+		}
+	}
+
+	/**
+	 * Yields the number of blocks of code reached so far.
+	 *
+	 * @return the number of blocks
+	 */
+
+	public int getBlocks() {
+		return blocks.size();
+	}
+
+	/**
+	 * Yields the number of bytecodes in the blocks of code reached so far.
+	 *
+	 * @return the number of bytecodes
+	 */
+
+	public int getBytecodes() {
+		return bytecodes;
+	}
+
+	/**
+	 * Starts the visit of a block, if it has not been reached yet.
+	 *
+	 * @param block the block
+	 * @param stack the visits in progress. The visit of {@code block} is pushed on it
+	 */
+
+	private void visit(Block block, LinkedList<Visit> stack) {
+		if (blocks.add(block))
+			stack.push(new Visit(block));
+	}
+
+	/**
+	 * Adds a class member to the reachable ones.
+	 *
+	 * @param member the class member
+	 * @param pending the class members still to reach. The members that become
+	 *                reachable because of {@code member} are added to it
+	 * @return the code of {@code member}, if it is a method or constructor not reached yet.
+	 *         It gets translated, if it has not been translated yet. Yields {@code null} otherwise
+	 */
+
+	private Block enter(ClassMemberSignature member, List<ClassMemberSignature> pending) {
+		if (!reached.add(member) || !(member instanceof CodeSignature))
+			return null;
+
+		// the tests are run on an object of their class, built through its empty constructor
+		if (member instanceof TestSignature)
+			pending.add(member.getDefiningClass().constructorLookup(TypeList.EMPTY));
+
+		CodeSignature sig = (CodeSignature) member;
+		if (sig.getCode() == null)
+			sig.getAbstractSyntax().translate();
+
+		return sig.getCode();
+	}
+
+	/**
+	 * Adds to a list the class members that are referenced by a bytecode.
+	 *
+	 * @param bytecode the bytecode
+	 * @param members the list
+	 */
+
+	private void referencedBy(Bytecode bytecode, List<ClassMemberSignature> members) {
+		if (bytecode instanceof FieldAccessBytecode) {
+			members.add(((FieldAccessBytecode) bytecode).getField());
+			members.addAll(testsAndFixturesOf(((FieldAccessBytecode) bytecode).getField().getDefiningClass()));
+		}
+		else if (bytecode instanceof CALL) {
+			// a call instruction might call many methods or constructors at runtime
+			members.addAll(((CALL) bytecode).getDynamicTargets());
+			members.addAll(testsAndFixturesOf(((CALL) bytecode).getStaticTarget().getDefiningClass()));
+		}
+	}
+
+	/**
+	 * Yields the tests and fixtures of a class. They are computed only once for each class.
+	 *
+	 * @param clazz the class
+	 * @return the fixtures and tests of {@code clazz}, in this order
+	 */
+
+	private List<ClassMemberSignature> testsAndFixturesOf(ClassType clazz) {
+		List<ClassMemberSignature> result = testsAndFixtures.get(clazz);
+
+		if (result == null) {
+			result = new ArrayList<ClassMemberSignature>(clazz.getFixture());
+			for (Set<TestSignature> tests: clazz.getTest().values())
+				result.addAll(tests);
+
+			testsAndFixtures.put(clazz, result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * The visit of a block, in progress. It first removes the useless {@code nop}'s
+	 * among the follows of the block. Then it yields, for each bytecode of the block,
+	 * the code of the methods and constructors referenced by the bytecode and not reached yet.
+	 * At the end, it yields the follows of the block. These must be visited in turn.
+	 * The visit of a root has no block and yields the code of the root only.
+	 */
+
+	private class Visit {
+
+		/**
+		 * The block being visited, {@code null} for the visit of a root.
+		 */
+
+		private final Block block;
+
+		/**
+		 * The bytecode of {@link #block} still to visit.
+		 */
+
+		private BytecodeList bytecode;
+
+		/**
+		 * The class members referenced by the last visited bytecode, still to reach.
+		 */
+
+		private final LinkedList<ClassMemberSignature> pending = new LinkedList<>();
+
+		/**
+		 * The number of follows of {@link #block} yielded so far.
+		 */
+
+		private int follows;
+
+		/**
+		 * Starts the visit of a block.
+		 *
+		 * @param block the block
+		 */
+
+		private Visit(Block block) {
+			this.block = block;
+			this.bytecode = block.getBytecode();
+
+			block.removeNOPFollows();
+		}
+
+		/**
+		 * Starts the visit of a root.
+		 *
+		 * @param root the root
+		 */
+
+		private Visit(ClassMemberSignature root) {
+			this.block = null;
+			pending.add(root);
+		}
+
+		/**
+		 * Continues the visit of the block, up to the next block that must be visited.
+		 *
+		 * @return the next block that must be visited, possibly already reached,
+		 *         or {@code null} if the visit of the block is over
+		 */
+
+		private Block next() {
+			while (!pending.isEmpty() || bytecode != null)
+				if (pending.isEmpty()) {
+					referencedBy(bytecode.getHead(), pending);
+					bytecode = bytecode.getTail();
+					bytecodes++;
+				}
+				else {
+					Block code = enter(pending.removeFirst(), pending);
+					if (code != null)
+						// we continue with the code of the method or constructor
+						return code;
+				}
+
+			// we continue with the successors
+			if (block != null && follows < block.getFollows().size())
+				return block.getFollows().get(follows++);
+			else
+				return null;
+		}
+	}
+}
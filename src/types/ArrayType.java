@@ -68,6 +68,15 @@ public class ArrayType extends ReferenceType {
 			return ArrayType.mk(ArrayType.mk(elementsType,dimensions - 1));
 	}
 
+	/**
+	 * Forgets the array types built so far, since their elements
+	 * might be the class types of a previous compilation.
+	 */
+
+	static void reset() {
+		memory.clear();
+	}
+
 	/**
 	 * Returns the type of the elements of this array.
 	 *
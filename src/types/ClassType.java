@@ -13,9 +13,11 @@ import java.util.Set;
 
 
 import lexical.Lexer;
+import lexical.SourceProvider;
 import syntactical.Parser;
 import translation.Program;
 import absyn.ClassDefinition;
+import errorMsg.DiagnosticListener;
 import errorMsg.ErrorMsg;
 
 /**
@@ -119,7 +121,7 @@ public final class ClassType extends ReferenceType {
 		ClassDefinition abstractSyntax;
 
 		try {
-			Parser parser = new Parser(new Lexer(name));
+			Parser parser = new Parser(new Lexer(name, sources, listener));
 			errorMsg = parser.getErrorMsg();
 			abstractSyntax = (ClassDefinition) parser.parse().value;
 		}
@@ -554,19 +556,95 @@ public final class ClassType extends ReferenceType {
 	/**
 	 * Translates a Kitten type into its BCEL equivalent. It generates an
 	 * {@code org.apache.bcel.generic.ObjectType} for the name of this class.
-	 * For {@code String}, it generates one for {@code runTime.String}.
+	 * For {@code String}, it generates one for {@code runTime.String} or,
+	 * if Kitten strings are compiled into Java strings, for {@code java.lang.String}
+	 * (see {@link #setJavaStrings(boolean)}).
 	 *
 	 * @return the BCEL type corresponding to this Kitten type
 	 */
 
 	@Override
 	public final org.apache.bcel.generic.Type toBCEL() {
-		// we transform "String" into "runTime.String"
+		// we transform "String" into "runTime.String" or "java.lang.String"
 		if (name.equals("String"))
-			return new org.apache.bcel.generic.ObjectType(runTime.String.class.getName());
+			return javaStrings ? org.apache.bcel.generic.Type.STRING
+				: new org.apache.bcel.generic.ObjectType(runTime.String.class.getName());
 		else
 			return new org.apache.bcel.generic.ObjectType(name.toString());
 	}
+
+	/**
+	 * True if and only if Kitten strings are compiled into Java strings.
+	 */
+
+	private static boolean javaStrings;
+
+	/**
+	 * Determines if Kitten strings are compiled into Java strings.
+	 *
+	 * @return true if and only if Kitten strings are compiled into {@code java.lang.String}'s,
+	 *         false if they are compiled into {@code runTime.String} wrappers
+	 */
+
+	public static boolean getJavaStrings() {
+		return javaStrings;
+	}
+
+	/**
+	 * Sets the way Kitten strings are compiled. By default, they are compiled into
+	 * {@code runTime.String} wrappers of Java strings. Otherwise, they are compiled
+	 * directly into {@code java.lang.String}'s and their methods are compiled into calls
+	 * to the static methods of {@code runTime.Strings}. This avoids the allocation
+	 * of a wrapper for each string, but can be used only if no string is modified in place,
+	 * that is, if {@code String.input()} is never called (see {@link Program#allowsJavaStrings()}).
+	 *
+	 * @param javaStrings true if and only if Kitten strings must be compiled into Java strings
+	 */
+
+	public static void setJavaStrings(boolean javaStrings) {
+		ClassType.javaStrings = javaStrings;
+	}
+
+	/**
+	 * The provider of the source code of the classes.
+	 */
+
+	private static SourceProvider sources = SourceProvider.CURRENT_DIRECTORY;
+
+	/**
+	 * The receiver of the errors found in the source code of the classes.
+	 */
+
+	private static DiagnosticListener listener = DiagnosticListener.STANDARD_OUTPUT;
+
+	/**
+	 * Sets where the source code of the classes is read from and where the errors found
+	 * in that code are reported. By default, the source code of a class {@code C} is read
+	 * from the file {@code C.kit} in the current directory and the errors are printed
+	 * on the standard output. This affects the classes that have not been built yet.
+	 *
+	 * @param sources the provider of the source code of the classes
+	 * @param listener the receiver of the errors found in the source code of the classes
+	 */
+
+	public static void setSources(SourceProvider sources, DiagnosticListener listener) {
+		ClassType.sources = sources;
+		ClassType.listener = listener;
+	}
+
+	/**
+	 * Forgets all class and array types built so far and compiles the strings into
+	 * {@code runTime.String} wrappers again, so that a new program can be compiled
+	 * from scratch, possibly from different source code.
+	 */
+
+	public static void reset() {
+		memory.clear();
+		ArrayType.reset();
+		setObjectType(null);
+		javaStrings = false;
+	}
+
 	/**
 	 * A table which binds each symbol to its corresponding {@code KittenClassType}.
 	 * This lets us have a unique {@code KittenClassType} for a given name.
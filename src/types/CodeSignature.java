@@ -42,6 +42,13 @@ public abstract class CodeSignature extends ClassMemberSignature {
 
     private Block code;
 
+    /**
+     * The number of times that this constructor or method has been called,
+     * as observed by profiling, or -1 if that is not known.
+     */
+
+    private long invocationCount = -1;
+
     /**
      * Builds a signature for a code object.
      *
@@ -164,6 +171,28 @@ public abstract class CodeSignature extends ClassMemberSignature {
     	this.code = addPrefixToCode(code);
     }
 
+    /**
+     * Yields the number of times that this constructor or method has been called,
+     * as observed by profiling.
+     *
+     * @return the number of calls, or -1 if it is not known
+     */
+
+    public long getInvocationCount() {
+    	return invocationCount;
+    }
+
+    /**
+     * Sets the number of times that this constructor or method has been called,
+     * as observed by profiling.
+     *
+     * @param invocationCount the number of calls, or -1 if it is not known
+     */
+
+    public void setInvocationCount(long invocationCount) {
+    	this.invocationCount = invocationCount;
+    }
+
     /**
      * Adds a prefix to the Kitten bytecode generated for this constructor or
      * method. This allows for instance constructors to add a call to the
@@ -1,5 +1,7 @@
 package types;
 
+import javaBytecodeGenerator.Backend;
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.Constants;
@@ -63,6 +65,23 @@ public class ConstructorSignature extends CodeSignature {
 	 */
 
 	public void createConstructor(JavaClassGenerator classGen) {
+		if (classGen.getBackend() == Backend.DIRECT) {
+			// the code is written directly, without building its BCEL representation
+			CodeWriter writer = new CodeWriter(classGen, getParameters().getSize() + 1);
+
+			// the constructor of the Kitten Object class calls that of java.lang.Object, as below
+			if (getDefiningClass().getName().equals("Object")) {
+				writer.load(getDefiningClass(), 0);
+				writer.invoke(Constants.INVOKESPECIAL, "java.lang.Object", Constants.CONSTRUCTOR_NAME, "()V", -1);
+			}
+
+			classGen.writeJavaBytecode(getCode(), writer);
+			classGen.addMethod(writer.getMethod(Constants.ACC_PUBLIC, Constants.CONSTRUCTOR_NAME,
+				org.apache.bcel.generic.Type.getMethodSignature(org.apache.bcel.generic.Type.VOID, getParameters().toBCEL())));
+
+			return;
+		}
+
 		InstructionList il = classGen.generateJavaBytecode(getCode());
 
 		// we add the following code at the beginning of the empty constructor
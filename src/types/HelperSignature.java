@@ -0,0 +1,84 @@
+package types;
+
+import javaBytecodeGenerator.Backend;
+import javaBytecodeGenerator.CodeWriter;
+import javaBytecodeGenerator.JavaClassGenerator;
+
+import org.apache.bcel.Constants;
+import org.apache.bcel.generic.INVOKESTATIC;
+import org.apache.bcel.generic.MethodGen;
+
+/**
+ * The signature of a helper method, that holds a piece of code outlined
+ * from a method or constructor that would otherwise be too large for the
+ * Java Virtual Machine. Helper methods are private and static: the receiver
+ * of the original code, if it is used, is passed as their first parameter.
+ * Hence the local variables of a helper method start at 0 with its parameters.
+ */
+
+public class HelperSignature extends MethodSignature {
+
+	/**
+	 * Constructs the signature of a helper method with the given name, return type
+	 * and parameters types.
+	 *
+	 * @param clazz the class where this method is defined
+	 * @param returnType the return type of this method
+	 * @param parameters the types of the parameters of this method
+	 * @param name the name of the method
+	 */
+
+	public HelperSignature(ClassType clazz, Type returnType, TypeList parameters, String name) {
+		super(clazz, returnType, parameters, name, null);
+	}
+
+	/**
+	 * Generates an {@code invokestatic} Java bytecode that calls this method.
+	 *
+	 * @param classGen the class generator to be used to generate
+	 *                 the {@code invokestatic} Java bytecode
+	 * @return an {@code invokestatic} Java bytecode that calls this method
+	 */
+
+	public INVOKESTATIC createINVOKESTATIC(JavaClassGenerator classGen) {
+		return (INVOKESTATIC) createInvokeInstruction(classGen, Constants.INVOKESTATIC);
+	}
+
+	/**
+	 * Adds the the given class generator a private and static Java bytecode method for this method.
+	 *
+	 * @param classGen the generator of the class where the method lives
+	 */
+
+	@Override
+	public void createMethod(JavaClassGenerator classGen) {
+		if (classGen.getBackend() == Backend.DIRECT) {
+			// the code is written directly, without building its BCEL representation
+			CodeWriter writer = new CodeWriter(classGen, getParameters().getSize());
+			classGen.writeJavaBytecode(getCode(), writer);
+			classGen.addMethod(writer.getMethod(Constants.ACC_PRIVATE | Constants.ACC_STATIC, getName(),
+				org.apache.bcel.generic.Type.getMethodSignature(getReturnType().toBCEL(), getParameters().toBCEL())));
+
+			return;
+		}
+
+		MethodGen methodGen = new MethodGen
+			(Constants.ACC_PRIVATE | Constants.ACC_STATIC, // private and static
+			getReturnType().toBCEL(), // return type
+			getParameters().toBCEL(), // parameters types, if any
+			null, // parameters names: we do not care
+			getName(), // method's name
+			classGen.getClassName(), // defining class
+			classGen.generateJavaBytecode(getCode()), // bytecode of the method
+			classGen.getConstantPool()); // constant pool
+
+		// we must always call these methods before the getMethod()
+		// method below. They set the number of local variables and stack
+		// elements used by the code of the method
+		methodGen.setMaxStack();
+		methodGen.setMaxLocals();
+
+		// we add a method to the class that we are generating
+		classGen.addMethod(methodGen.getMethod());
+	}
+}
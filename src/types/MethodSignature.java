@@ -1,9 +1,12 @@
 package types;
 
+import javaBytecodeGenerator.Backend;
+import javaBytecodeGenerator.CodeWriter;
 import javaBytecodeGenerator.JavaClassGenerator;
 
 import org.apache.bcel.Constants;
 import org.apache.bcel.generic.INVOKEVIRTUAL;
+import org.apache.bcel.generic.InvokeInstruction;
 import org.apache.bcel.generic.MethodGen;
 
 import absyn.MethodDeclaration;
@@ -48,6 +51,64 @@ public class MethodSignature extends CodeSignature {
 		return (INVOKEVIRTUAL) createInvokeInstruction(classGen, Constants.INVOKEVIRTUAL);
 	}
 
+	/**
+	 * Determines if a call to this method is compiled into a call to a static method
+	 * of {@code runTime.Strings}. This is the case for the methods of Kitten strings,
+	 * when these are compiled into Java strings.
+	 *
+	 * @return true if and only if this method is a method of {@code String}
+	 *         and Kitten strings are compiled into Java strings
+	 */
+
+	public boolean isCompiledIntoStrings() {
+		return ClassType.getJavaStrings() && getDefiningClass().getName().equals("String");
+	}
+
+	/**
+	 * Yields the Java descriptor of the static method of {@code runTime.Strings}
+	 * that implements this method. It receives the receiver of this method as first parameter.
+	 *
+	 * @return the descriptor
+	 */
+
+	public String getStringsDescriptor() {
+		return org.apache.bcel.generic.Type.getMethodSignature(getReturnType().toBCEL(), getStringsParameters());
+	}
+
+	/**
+	 * Generates an {@code invokestatic} Java bytecode that calls the static method
+	 * of {@code runTime.Strings} that implements this method.
+	 *
+	 * @param classGen the class generator to be used to generate
+	 *                 the {@code invokestatic} Java bytecode
+	 * @return an {@code invokestatic} Java bytecode that calls the implementation of this method
+	 */
+
+	public InvokeInstruction createINVOKESTATICOfStrings(JavaClassGenerator classGen) {
+		return classGen.getFactory().createInvoke
+			(runTime.Strings.class.getName(), // name of the class
+			getName(), // name of the method
+			getReturnType().toBCEL(), // return type
+			getStringsParameters(), // the receiver and the parameters types
+			Constants.INVOKESTATIC);
+	}
+
+	/**
+	 * Yields the types of the parameters of the static method of {@code runTime.Strings}
+	 * that implements this method: a Java string followed by the parameters of this method.
+	 *
+	 * @return the types of the parameters
+	 */
+
+	private org.apache.bcel.generic.Type[] getStringsParameters() {
+		org.apache.bcel.generic.Type[] parameters = getParameters().toBCEL();
+		org.apache.bcel.generic.Type[] result = new org.apache.bcel.generic.Type[parameters.length + 1];
+		result[0] = org.apache.bcel.generic.Type.STRING;
+		System.arraycopy(parameters, 0, result, 1, parameters.length);
+
+		return result;
+	}
+
 	/**
 	 * Adds the the given class generator a Java bytecode method for this method.
 	 *
@@ -55,6 +116,24 @@ public class MethodSignature extends CodeSignature {
 	 */
 
 	public void createMethod(JavaClassGenerator classGen) {
+		if (classGen.getBackend() == Backend.DIRECT) {
+			// the code is written directly, without building its BCEL representation
+			CodeWriter writer;
+			if (getName().equals("main")) {
+				writer = new CodeWriter(classGen, 1);
+				classGen.writeJavaBytecode(getCode(), writer);
+				classGen.addMethod(writer.getMethod(Constants.ACC_PUBLIC | Constants.ACC_STATIC, "main", "([Ljava/lang/String;)V"));
+			}
+			else {
+				writer = new CodeWriter(classGen, getParameters().getSize() + 1);
+				classGen.writeJavaBytecode(getCode(), writer);
+				classGen.addMethod(writer.getMethod(Constants.ACC_PUBLIC, getName(), org.apache.bcel.generic.Type.getMethodSignature
+					(getReturnType().toBCEL(), getParameters().toBCEL())));
+			}
+
+			return;
+		}
+
 		MethodGen methodGen;
 		if (getName().equals("main"))
 			methodGen = new MethodGen